@@ -259,6 +259,53 @@ class ConfigurationCacheCompositeBuildsIntegrationTest extends AbstractConfigura
         order << ['lib', 'util'].permutations()
     }
 
+    def "can load state of included builds in parallel"() {
+        given:
+        settingsFile """
+            includeBuild 'lib'
+            includeBuild 'util'
+        """
+        buildFile '''
+            tasks.register('compileJava') {
+                gradle.includedBuilds.each { build ->
+                    dependsOn(build.task(':compileJava'))
+                }
+            }
+        '''
+        createDir('lib') {
+            file('settings.gradle') << 'rootProject.name = "lib"'
+            file('build.gradle') << '''
+                plugins { id 'java-library' }
+                group = 'com.example'
+                version = '1.0'
+            '''
+        }
+        createDir('util') {
+            file('settings.gradle') << 'rootProject.name = "util"'
+            file('build.gradle') << '''
+                plugins { id 'java-library' }
+                dependencies {
+                    api 'com.example:lib:1.0'
+                }
+            '''
+        }
+
+        def configurationCache = newConfigurationCacheFixture()
+
+        when:
+        configurationCacheRun 'compileJava', '-Dorg.gradle.configuration-cache.internal.parallel-load-nested-builds=true'
+
+        then:
+        configurationCache.assertStateStored()
+
+        when:
+        configurationCacheRun 'compileJava', '-Dorg.gradle.configuration-cache.internal.parallel-load-nested-builds=true'
+
+        then:
+        configurationCache.assertStateLoaded()
+        result.assertTaskOrder(':lib:compileJava', ':util:compileJava', ':compileJava')
+    }
+
     private static withDevelocityPlugin(TestFile settingsDir) {
         ApplyDevelocityPluginFixture.applyDevelocityPlugin(
             settingsDir.file('settings.gradle')
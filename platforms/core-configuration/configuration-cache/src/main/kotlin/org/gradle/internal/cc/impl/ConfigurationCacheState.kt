@@ -51,6 +51,7 @@ import org.gradle.internal.build.StandAloneNestedBuild
 import org.gradle.internal.build.event.BuildEventListenerRegistryInternal
 import org.gradle.internal.buildoption.FeatureFlags
 import org.gradle.internal.buildtree.BuildTreeWorkGraph
+import org.gradle.internal.cc.base.exceptions.ConfigurationCacheException
 import org.gradle.internal.cc.base.serialize.IsolateOwners
 import org.gradle.internal.cc.base.serialize.ProjectProvider
 import org.gradle.internal.cc.base.serialize.service
@@ -65,7 +66,13 @@ import org.gradle.internal.extensions.core.serviceOf
 import org.gradle.internal.extensions.stdlib.uncheckedCast
 import org.gradle.internal.file.FileSystemDefaultExcludesProvider
 import org.gradle.internal.flow.services.BuildFlowScope
+import org.gradle.internal.operations.BuildOperationContext
+import org.gradle.internal.operations.BuildOperationDescriptor
+import org.gradle.internal.operations.BuildOperationExecutor
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.MultipleBuildOperationFailures
+import org.gradle.internal.operations.RunnableBuildOperation
 import org.gradle.internal.scopeids.id.BuildInvocationScopeId
 import org.gradle.internal.serialize.codecs.core.IsolateContextSource
 import org.gradle.internal.serialize.graph.MutableReadContext
@@ -160,7 +167,9 @@ class ConfigurationCacheState(
     private val stateFile: ConfigurationCacheStateFile,
     private val contextSource: IsolateContextSource,
     private val eventEmitter: BuildOperationProgressEventEmitter,
-    private val host: ConfigurationCacheHost
+    private val host: ConfigurationCacheHost,
+    /** Should we load the state of nested builds in parallel? */
+    private val parallelLoadOfNestedBuilds: Boolean
 ) {
     /**
      * Writes the state for the whole build starting from the given root [build] and returns the set
@@ -305,9 +314,51 @@ class ConfigurationCacheState(
 
     private
     suspend fun MutableReadContext.readBuildsInTree(rootBuild: ConfigurationCacheBuild): List<CachedBuildState> {
-        return readList {
+        val builds = readList {
             readBuildState(rootBuild)
         }
+        return loadNestedBuilds(builds)
+    }
+
+    /**
+     * Loads the state of the nested builds that has been deferred by [readBuildState].
+     *
+     * Each nested build is stored in its own state file, so the builds can be decoded concurrently.
+     */
+    private
+    fun ReadContext.loadNestedBuilds(builds: List<BuildStateToLoad>): List<CachedBuildState> {
+        val loaded = arrayOfNulls<CachedBuildState>(builds.size)
+        val nestedBuilds = builds.withIndex().filter { it.value is BuildStateToLoad.Nested }
+        if (nestedBuilds.isNotEmpty()) {
+            val baseContext = this
+            runLoadOperations {
+                nestedBuilds.forEach { (index, build) ->
+                    val nestedBuild = (build as BuildStateToLoad.Nested).build
+                    val buildPath = nestedBuild.state.identityPath
+                    add(LoadNestedBuildOperation(buildPath) {
+                        loaded[index] = baseContext.readNestedBuildState(nestedBuild)
+                    })
+                }
+            }
+        }
+        return builds.mapIndexed { index, build ->
+            when (build) {
+                is BuildStateToLoad.Loaded -> build.state
+                is BuildStateToLoad.Nested -> loaded[index]!!
+            }
+        }
+    }
+
+    private
+    fun runLoadOperations(operations: BuildOperationQueue<RunnableBuildOperation>.() -> Unit) {
+        try {
+            host.service<BuildOperationExecutor>().runAllWithAccessToProjectState(operations)
+        } catch (@Suppress("SwallowedException") e: MultipleBuildOperationFailures) {
+            if (e.causes.size == 1) {
+                throw e.causes[0]
+            }
+            throw ConfigurationCacheException({ "Error while loading the configuration of nested builds" }, e.causes)
+        }
     }
 
     private
@@ -340,16 +391,25 @@ class ConfigurationCacheState(
         }
     }
 
+    /**
+     * Reads the state of a build in the tree. When nested builds are loaded in parallel, only the build is created and
+     * the loading of its state is deferred until all builds in the tree have been created.
+     */
     private
-    suspend fun MutableReadContext.readBuildState(rootBuild: ConfigurationCacheBuild): CachedBuildState {
+    suspend fun MutableReadContext.readBuildState(rootBuild: ConfigurationCacheBuild): BuildStateToLoad {
         return when (readEnum<BuildType>()) {
-            BuildType.BuildWithNoWork -> readBuildWithNoWork(rootBuild)
-            BuildType.RootBuild -> readBuildContent(rootBuild)
-            BuildType.IncludedBuild -> readIncludedBuild(rootBuild)
-            BuildType.BuildSrcBuild -> readBuildSrcBuild(rootBuild)
+            BuildType.BuildWithNoWork -> BuildStateToLoad.Loaded(readBuildWithNoWork(rootBuild))
+            BuildType.RootBuild -> BuildStateToLoad.Loaded(readBuildContent(rootBuild))
+            BuildType.IncludedBuild -> nestedBuildStateToLoad(readIncludedBuild(rootBuild))
+            BuildType.BuildSrcBuild -> nestedBuildStateToLoad(readBuildSrcBuild(rootBuild))
         }
     }
 
+    private
+    fun ReadContext.nestedBuildStateToLoad(build: ConfigurationCacheBuild): BuildStateToLoad =
+        if (parallelLoadOfNestedBuilds) BuildStateToLoad.Nested(build)
+        else BuildStateToLoad.Loaded(readNestedBuildState(build))
+
     private
     suspend fun WriteContext.writeIncludedBuild(state: IncludedBuildState, buildTreeState: StoredBuildTreeState) {
         val gradle = state.mutableModel
@@ -368,15 +428,13 @@ class ConfigurationCacheState(
     }
 
     private
-    suspend fun ReadContext.readIncludedBuild(rootBuild: ConfigurationCacheBuild): CachedBuildState {
-        val build = withGradleIsolate(rootBuild.gradle, userTypesCodec) {
+    suspend fun ReadContext.readIncludedBuild(rootBuild: ConfigurationCacheBuild): ConfigurationCacheBuild =
+        withGradleIsolate(rootBuild.gradle, userTypesCodec) {
             val settingsFile = read() as File?
             val definition = readIncludedBuildDefinition(rootBuild)
             val buildPath = read() as Path
             rootBuild.addIncludedBuild(definition, settingsFile, buildPath)
         }
-        return readNestedBuildState(build)
-    }
 
     private
     fun GradleInternal.loadGradleProperties() {
@@ -403,13 +461,11 @@ class ConfigurationCacheState(
     }
 
     private
-    suspend fun ReadContext.readBuildSrcBuild(rootBuild: ConfigurationCacheBuild): CachedBuildState {
-        val build = withGradleIsolate(rootBuild.gradle, userTypesCodec) {
+    suspend fun ReadContext.readBuildSrcBuild(rootBuild: ConfigurationCacheBuild): ConfigurationCacheBuild =
+        withGradleIsolate(rootBuild.gradle, userTypesCodec) {
             val ownerIdentifier = readNonNull<BuildIdentifier>()
             rootBuild.getBuildSrcOf(ownerIdentifier)
         }
-        return readNestedBuildState(build)
-    }
 
     private
     fun ReadContext.readNestedBuildState(build: ConfigurationCacheBuild): CachedBuildState {
@@ -902,3 +958,32 @@ internal
 enum class BuildType {
     BuildWithNoWork, RootBuild, IncludedBuild, BuildSrcBuild
 }
+
+
+private
+sealed class BuildStateToLoad {
+
+    class Loaded(val state: CachedBuildState) : BuildStateToLoad()
+
+    /**
+     * A nested build whose state is stored in a separate file and is yet to be loaded.
+     */
+    class Nested(val build: ConfigurationCacheBuild) : BuildStateToLoad()
+}
+
+
+private
+class LoadNestedBuildOperation(
+    private val buildPath: Path,
+    private val action: () -> Unit
+) : RunnableBuildOperation {
+
+    override fun run(context: BuildOperationContext) {
+        action()
+    }
+
+    override fun description(): BuildOperationDescriptor.Builder =
+        BuildOperationDescriptor
+            .displayName("Loading configuration for build $buildPath")
+            .progressDisplayName(buildPath.path)
+}
@@ -30,6 +30,8 @@ import org.gradle.internal.cc.base.serialize.withGradleIsolate
 import org.gradle.internal.cc.impl.cacheentry.EntryDetails
 import org.gradle.internal.cc.impl.cacheentry.ModelKey
 import org.gradle.internal.cc.impl.initialization.ConfigurationCacheStartParameter
+import org.gradle.internal.cc.impl.io.BlockCompressedInputStream
+import org.gradle.internal.cc.impl.io.BlockCompressedOutputStream
 import org.gradle.internal.cc.impl.io.safeWrap
 import org.gradle.internal.cc.impl.problems.ConfigurationCacheProblems
 import org.gradle.internal.cc.impl.serialize.Codecs
@@ -328,7 +330,7 @@ class DefaultConfigurationCacheIO internal constructor(
         stateFile: ConfigurationCacheStateFile,
         action: suspend MutableReadContext.(ConfigurationCacheState) -> T
     ) = withReadContextFor(stateFile, specialDecoders) { codecs ->
-        ConfigurationCacheState(codecs, stateFile, ChildContextSource(stateFile), eventEmitter, host).run {
+        ConfigurationCacheState(codecs, stateFile, ChildContextSource(stateFile), eventEmitter, host, startParameter.isParallelLoadOfNestedBuilds).run {
             action(this)
         }
     }
@@ -343,7 +345,7 @@ class DefaultConfigurationCacheIO internal constructor(
             host.currentBuild.gradle.owner.displayName.displayName + " state"
         }
         return withWriteContextFor(stateFile, profile, specialEncoders) { codecs ->
-            action(ConfigurationCacheState(codecs, stateFile, ChildContextSource(stateFile), eventEmitter, host))
+            action(ConfigurationCacheState(codecs, stateFile, ChildContextSource(stateFile), eventEmitter, host, startParameter.isParallelLoadOfNestedBuilds))
         }
     }
 
@@ -404,13 +406,29 @@ class DefaultConfigurationCacheIO internal constructor(
             else KryoBackedDecoder(stream)
         }
 
+    /**
+     * When compressing state files, each block is compressed and then encrypted on its own,
+     * as encrypted content cannot be compressed and the blocks must be readable independently.
+     */
     private
-    fun outputStreamFor(stateType: StateType, outputStream: () -> OutputStream) =
-        maybeEncrypt(stateType, outputStream, encryptionService::outputStream)
+    fun outputStreamFor(stateType: StateType, outputStream: () -> OutputStream): OutputStream =
+        if (startParameter.isCompressingStateFiles) {
+            safeWrap(outputStream) { stream ->
+                BlockCompressedOutputStream(stream) { block -> maybeEncrypt(stateType, { block }, encryptionService::outputStream) }
+            }
+        } else {
+            maybeEncrypt(stateType, outputStream, encryptionService::outputStream)
+        }
 
     private
-    fun inputStreamFor(stateType: StateType, inputStream: () -> InputStream) =
-        maybeEncrypt(stateType, inputStream, encryptionService::inputStream)
+    fun inputStreamFor(stateType: StateType, inputStream: () -> InputStream): InputStream =
+        if (startParameter.isCompressingStateFiles) {
+            safeWrap(inputStream) { stream ->
+                BlockCompressedInputStream.open(stream) { block -> maybeEncrypt(stateType, { block }, encryptionService::inputStream) }
+            }
+        } else {
+            maybeEncrypt(stateType, inputStream, encryptionService::inputStream)
+        }
 
     private
     fun <I : Closeable, O : I> maybeEncrypt(stateType: StateType, inner: () -> I, outer: (I) -> O): I =
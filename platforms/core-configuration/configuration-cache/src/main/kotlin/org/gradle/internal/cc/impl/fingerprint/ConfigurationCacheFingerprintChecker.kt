@@ -38,6 +38,10 @@ import org.gradle.internal.util.NumberUtil.ordinal
 import org.gradle.util.Path
 import java.io.File
 import java.net.URI
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.function.Consumer
 
 
@@ -46,7 +50,13 @@ typealias InvalidationReason = StructuredMessage
 
 
 internal
-class ConfigurationCacheFingerprintChecker(private val host: Host) {
+class ConfigurationCacheFingerprintChecker(
+    private val host: Host,
+    /**
+     * When not null, the inputs that only query the file system are checked concurrently on this executor.
+     */
+    private val executor: Executor? = null
+) {
 
     interface Host {
         val buildPath: Path
@@ -71,6 +81,9 @@ class ConfigurationCacheFingerprintChecker(private val host: Host) {
     }
 
     suspend fun ReadContext.checkBuildScopedFingerprint(): CheckedFingerprint {
+        if (executor != null) {
+            return checkBuildScopedFingerprintConcurrently(executor)
+        }
         // TODO: log some debug info
         while (true) {
             when (val input = read()) {
@@ -89,25 +102,133 @@ class ConfigurationCacheFingerprintChecker(private val host: Host) {
         return CheckedFingerprint.Valid
     }
 
-    @Suppress("NestedBlockDepth")
     suspend fun ReadContext.checkProjectScopedFingerprint(): CheckedFingerprint {
+        if (executor != null) {
+            return checkProjectScopedFingerprintConcurrently(executor)
+        }
         // TODO: log some debug info
-        var firstInvalidatedPath: Path? = null
-        val projects = hashMapOf<Path, ProjectInvalidationState>()
+        val projectScopedCheck = ProjectScopedCheck()
+        while (true) {
+            val input = read() ?: break
+            projectScopedCheck.visit(input) { fingerprint ->
+                check(fingerprint.value)
+            }
+        }
+        return projectScopedCheck.result()
+    }
+
+    private
+    suspend fun ReadContext.checkBuildScopedFingerprintConcurrently(executor: Executor): CheckedFingerprint {
+        val inputs = readAllInputs().map { input ->
+            input as? ConfigurationCacheFingerprint ?: error("Unexpected configuration cache fingerprint: $input")
+        }
+        val concurrentChecks = ConcurrentChecks(executor)
+        inputs.forEachIndexed { index, input ->
+            // All inputs belong to the same group, as the first out-of-date input invalidates the whole cache entry
+            concurrentChecks.submit(index, Unit, input)
+        }
+        try {
+            // Visit the inputs in order, so the reason reported is the same as when checking sequentially
+            inputs.forEachIndexed { index, input ->
+                val reason = concurrentChecks.resultOf(index, input)
+                if (reason != null) {
+                    return CheckedFingerprint.EntryInvalid(host.buildPath, reason)
+                }
+            }
+            return CheckedFingerprint.Valid
+        } finally {
+            concurrentChecks.cancelRemaining()
+        }
+    }
+
+    private
+    suspend fun ReadContext.checkProjectScopedFingerprintConcurrently(executor: Executor): CheckedFingerprint {
+        val inputs = readAllInputs()
+        val concurrentChecks = ConcurrentChecks(executor)
+        inputs.forEachIndexed { index, input ->
+            if (input is ProjectSpecificFingerprint.ProjectFingerprint) {
+                // An out-of-date input only invalidates its own project, so only skip the remaining checks for that project
+                concurrentChecks.submit(index, input.projectIdentityPath, input.value)
+            }
+        }
+        try {
+            // Replay the inputs in order, so the invalidated projects and their reasons are the same as when checking sequentially
+            val projectScopedCheck = ProjectScopedCheck()
+            inputs.forEachIndexed { index, input ->
+                projectScopedCheck.visit(input) { fingerprint ->
+                    concurrentChecks.resultOf(index, fingerprint.value)
+                }
+            }
+            return projectScopedCheck.result()
+        } finally {
+            concurrentChecks.cancelRemaining()
+        }
+    }
+
+    private
+    suspend fun ReadContext.readAllInputs(): List<Any> {
+        val inputs = mutableListOf<Any>()
         while (true) {
+            inputs.add(read() ?: break)
+        }
+        return inputs
+    }
+
+    suspend fun ReadContext.visitEntriesForProjects(reusedProjects: Set<Path>, consumer: Consumer<ProjectSpecificFingerprint>) {
+        while (true) {
+            // TODO(mlopatkin): this implementation duplicates some inputs, e.g. a build file input is stored even if the project is reused.
             when (val input = read()) {
                 null -> break
+
+                is ProjectSpecificFingerprint.ProjectIdentity ->
+                    if (reusedProjects.contains(input.identityPath)) {
+                        consumer.accept(input)
+                    }
+
+                is ProjectSpecificFingerprint.ProjectFingerprint ->
+                    if (reusedProjects.contains(input.projectIdentityPath)) {
+                        consumer.accept(input)
+                    }
+
+                is ProjectSpecificFingerprint.ProjectDependency ->
+                    if (reusedProjects.contains(input.consumingProject)) {
+                        consumer.accept(input)
+                    }
+
+                is ProjectSpecificFingerprint.CoupledProjects ->
+                    if (reusedProjects.contains(input.referringProject)) {
+                        consumer.accept(input)
+                    }
+            }
+        }
+    }
+
+    /**
+     * Tracks the invalidation state of the projects while visiting the project-scoped inputs in order.
+     */
+    private
+    inner class ProjectScopedCheck {
+
+        private
+        var firstInvalidatedPath: Path? = null
+
+        private
+        val projects = hashMapOf<Path, ProjectInvalidationState>()
+
+        @Suppress("NestedBlockDepth")
+        fun visit(input: Any, checkValue: (ProjectSpecificFingerprint.ProjectFingerprint) -> InvalidationReason?) {
+            when (input) {
                 is ProjectSpecificFingerprint.ProjectIdentity -> {
-                    val state = projects.entryFor(input.identityPath)
+                    val state = entryFor(input.identityPath)
                     state.buildPath = input.buildPath
                     state.projectPath = input.projectPath
                 }
                 is ProjectSpecificFingerprint.ProjectFingerprint -> {
                     // An input that is specific to a project. If it is out-of-date, then invalidate that project's values and continue checking values
                     // Don't check a value for a project that is already out-of-date
-                    val state = projects.entryFor(input.projectIdentityPath)
+                    val state = entryFor(input.projectIdentityPath)
                     if (!state.isInvalid) {
-                        val reason = check(input.value)
+                        val reason = checkValue(input)
                         if (reason != null) {
                             if (firstInvalidatedPath == null) {
                                 firstInvalidatedPath = input.projectIdentityPath
@@ -118,15 +239,15 @@ class ConfigurationCacheFingerprintChecker(private val host: Host) {
                 }
 
                 is ProjectSpecificFingerprint.ProjectDependency -> {
-                    val consumer = projects.entryFor(input.consumingProject)
-                    val target = projects.entryFor(input.targetProject)
+                    val consumer = entryFor(input.consumingProject)
+                    val target = entryFor(input.targetProject)
                     target.consumedBy(consumer)
                 }
 
                 is ProjectSpecificFingerprint.CoupledProjects -> {
                     if (host.invalidateCoupledProjects) {
-                        val referrer = projects.entryFor(input.referringProject)
-                        val target = projects.entryFor(input.targetProject)
+                        val referrer = entryFor(input.referringProject)
+                        val target = entryFor(input.targetProject)
                         target.consumedBy(referrer)
                         referrer.consumedBy(target)
                     }
@@ -135,47 +256,81 @@ class ConfigurationCacheFingerprintChecker(private val host: Host) {
                 else -> error("Unexpected configuration cache fingerprint: $input")
             }
         }
-        return if (firstInvalidatedPath == null) {
-            CheckedFingerprint.Valid
-        } else {
-            val invalidatedProjects = projects.filterValues { it.isInvalid }.mapValues {
-                it.value.toProjectInvalidationData()
+
+        fun result(): CheckedFingerprint {
+            val firstInvalidatedPath = firstInvalidatedPath
+            return if (firstInvalidatedPath == null) {
+                CheckedFingerprint.Valid
+            } else {
+                val invalidatedProjects = projects.filterValues { it.isInvalid }.mapValues {
+                    it.value.toProjectInvalidationData()
+                }
+                CheckedFingerprint.ProjectsInvalid(firstInvalidatedPath, invalidatedProjects)
             }
-            CheckedFingerprint.ProjectsInvalid(firstInvalidatedPath, invalidatedProjects)
         }
+
+        private
+        fun entryFor(path: Path) = projects.computeIfAbsent(path, ::ProjectInvalidationState)
     }
 
-    suspend fun ReadContext.visitEntriesForProjects(reusedProjects: Set<Path>, consumer: Consumer<ProjectSpecificFingerprint>) {
-        while (true) {
-            // TODO(mlopatkin): this implementation duplicates some inputs, e.g. a build file input is stored even if the project is reused.
-            when (val input = read()) {
-                null -> break
+    /**
+     * Checks the inputs that only query the file system on the given executor, ahead of the in-order visit of all inputs.
+     *
+     * Inputs are submitted in order and belong to a group.
+     * Once an input is found to be out-of-date, the checks of the later inputs of its group are skipped.
+     * The other inputs, such as value sources that run build logic, are checked when visited on the calling thread.
+     */
+    private
+    inner class ConcurrentChecks(private val executor: Executor) {
 
-                is ProjectSpecificFingerprint.ProjectIdentity ->
-                    if (reusedProjects.contains(input.identityPath)) {
-                        consumer.accept(input)
-                    }
+        private
+        val firstInvalidIndexByGroup = hashMapOf<Any, AtomicInteger>()
 
-                is ProjectSpecificFingerprint.ProjectFingerprint ->
-                    if (reusedProjects.contains(input.projectIdentityPath)) {
-                        consumer.accept(input)
-                    }
+        private
+        val checks = hashMapOf<Int, CompletableFuture<InvalidationReason?>>()
 
-                is ProjectSpecificFingerprint.ProjectDependency ->
-                    if (reusedProjects.contains(input.consumingProject)) {
-                        consumer.accept(input)
+        fun submit(index: Int, group: Any, input: ConfigurationCacheFingerprint) {
+            if (!isCheckedConcurrently(input)) {
+                return
+            }
+            val firstInvalidIndex = firstInvalidIndexByGroup.getOrPut(group) { AtomicInteger(Int.MAX_VALUE) }
+            checks[index] = CompletableFuture.supplyAsync({
+                if (index > firstInvalidIndex.get()) {
+                    // An earlier input of the group is out-of-date, so the result is not used
+                    null
+                } else {
+                    check(input)?.also {
+                        firstInvalidIndex.accumulateAndGet(index, ::minOf)
                     }
+                }
+            }, executor)
+        }
 
-                is ProjectSpecificFingerprint.CoupledProjects ->
-                    if (reusedProjects.contains(input.referringProject)) {
-                        consumer.accept(input)
-                    }
+        fun resultOf(index: Int, input: ConfigurationCacheFingerprint): InvalidationReason? {
+            val pending = checks.remove(index)
+                ?: return check(input)
+            return try {
+                pending.join()
+            } catch (e: CompletionException) {
+                throw e.cause ?: e
             }
         }
-    }
 
-    private
-    fun MutableMap<Path, ProjectInvalidationState>.entryFor(path: Path) = computeIfAbsent(path, ::ProjectInvalidationState)
+        fun cancelRemaining() {
+            checks.values.forEach { it.cancel(false) }
+            checks.clear()
+        }
+
+        private
+        fun isCheckedConcurrently(input: ConfigurationCacheFingerprint) = when (input) {
+            is ConfigurationCacheFingerprint.WorkInputs,
+            is ConfigurationCacheFingerprint.InputFile,
+            is ConfigurationCacheFingerprint.DirectoryChildren,
+            is ConfigurationCacheFingerprint.InputFileSystemEntry,
+            is ConfigurationCacheFingerprint.InitScripts -> true
+            else -> false
+        }
+    }
 
     @Suppress("CyclomaticComplexMethod")
     private
@@ -34,6 +34,7 @@ import org.gradle.internal.cc.impl.ProjectIdentityPath
 import org.gradle.internal.cc.impl.initialization.ConfigurationCacheStartParameter
 import org.gradle.internal.cc.impl.problems.ConfigurationCacheProblems
 import org.gradle.internal.cc.impl.services.RemoteScriptUpToDateChecker
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.concurrent.Stoppable
 import org.gradle.internal.configuration.problems.CommonReport
 import org.gradle.internal.configuration.problems.DocumentationSection
@@ -69,6 +70,7 @@ import org.gradle.util.internal.GFileUtils
 import java.io.File
 import java.net.URI
 import java.nio.file.Files
+import java.util.concurrent.Executor
 import java.util.function.Supplier
 
 
@@ -98,7 +100,8 @@ class ConfigurationCacheFingerprintController internal constructor(
     private val agentStatus: AgentStatus,
     private val problems: ConfigurationCacheProblems,
     private val encryptionService: EncryptionService,
-    private val configurationTimeBarrier: ConfigurationTimeBarrier
+    private val configurationTimeBarrier: ConfigurationTimeBarrier,
+    private val executorFactory: ExecutorFactory
 ) : Stoppable, ProjectScopedScriptResolution {
 
     interface Host {
@@ -349,15 +352,32 @@ class ConfigurationCacheFingerprintController internal constructor(
     }
 
     suspend fun ReadContext.checkBuildScopedFingerprint(host: Host): CheckedFingerprint =
-        ConfigurationCacheFingerprintChecker(CacheFingerprintCheckerHost(host)).run {
-            checkBuildScopedFingerprint()
+        withFingerprintCheckExecutor { executor ->
+            ConfigurationCacheFingerprintChecker(CacheFingerprintCheckerHost(host), executor).run {
+                checkBuildScopedFingerprint()
+            }
         }
 
     suspend fun ReadContext.checkProjectScopedFingerprint(host: Host): CheckedFingerprint =
-        ConfigurationCacheFingerprintChecker(CacheFingerprintCheckerHost(host)).run {
-            checkProjectScopedFingerprint()
+        withFingerprintCheckExecutor { executor ->
+            ConfigurationCacheFingerprintChecker(CacheFingerprintCheckerHost(host), executor).run {
+                checkProjectScopedFingerprint()
+            }
         }
 
+    private
+    inline fun <T> withFingerprintCheckExecutor(action: (Executor?) -> T): T {
+        if (!startParameter.isParallelFingerprintCheck) {
+            return action(null)
+        }
+        val executor = executorFactory.create("Configuration cache fingerprint checker", startParameter.maxWorkerCount)
+        try {
+            return action(executor)
+        } finally {
+            executor.stop()
+        }
+    }
+
     suspend fun ReadContext.collectFingerprintForReusedProjects(host: Host, reusedProjects: Set<Path>): Unit =
         ConfigurationCacheFingerprintChecker(CacheFingerprintCheckerHost(host)).run {
             visitEntriesForProjects(reusedProjects) { fingerprint ->
@@ -112,6 +112,32 @@ class ConfigurationCacheStartParameter internal constructor(
      */
     val isParallelLoad = options.getInternalFlag("org.gradle.configuration-cache.internal.parallel-load", true)
 
+    /**
+     * Whether the state of included builds and `buildSrc` builds should be loaded in parallel, in addition to the work graph of their projects.
+     *
+     * The default is `false`. Has no effect when [isParallelLoad] is `false`.
+     */
+    val isParallelLoadOfNestedBuilds = isParallelLoad && options.getInternalFlag("org.gradle.configuration-cache.internal.parallel-load-nested-builds", false)
+
+    /**
+     * Whether configuration cache state files should be written as block-compressed containers,
+     * which are memory mapped and decompressed block by block when read.
+     *
+     * The default is `false`.
+     */
+    val isCompressingStateFiles: Boolean = options.getInternalFlag("org.gradle.configuration-cache.internal.compress-state-files", false)
+
+    /**
+     * Whether the file system inputs of the configuration cache fingerprint should be checked in parallel.
+     *
+     * The inputs are still visited in order, so the reported invalidation reason does not change.
+     * The default is `false`.
+     */
+    val isParallelFingerprintCheck = options.getInternalFlag("org.gradle.configuration-cache.internal.parallel-fingerprint-check", false)
+
+    val maxWorkerCount: Int
+        get() = startParameter.maxWorkerCount
+
     val gradleProperties: Map<String, Any?>
         get() = startParameter.projectProperties
             .filterKeys { !Workarounds.isIgnoredStartParameterProperty(it) }
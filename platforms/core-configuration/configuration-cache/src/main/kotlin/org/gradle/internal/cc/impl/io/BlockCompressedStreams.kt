@@ -0,0 +1,531 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.io
+
+import org.gradle.internal.io.Lz4Codec
+import org.gradle.internal.os.OperatingSystem
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.FileInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+
+private
+const val MAGIC = 0x4743434C // GCCL
+
+
+private
+const val END_OF_BLOCKS = -1
+
+
+private
+const val BLOCK_HEADER_SIZE = 8
+
+
+private
+const val TRAILER_SIZE = 12
+
+
+private
+const val INDEX_ENTRY_SIZE = 16
+
+
+internal
+const val DEFAULT_BLOCK_SIZE = Lz4Codec.MAX_BLOCK_SIZE
+
+
+/**
+ * Writes the content to [output] as a block-compressed container:
+ *
+ * ```
+ * MAGIC
+ * (compressed length: int, length: int, compressed content)*
+ * END_OF_BLOCKS
+ * block count: int, (offset: long, compressed length: int, length: int)*
+ * index offset: long
+ * MAGIC
+ * ```
+ *
+ * Each block is compressed on its own with [Lz4Codec], so the blocks can be located through the index
+ * at the end of the container and decompressed on demand, or read in order by following the block headers.
+ * Blocks cannot be larger than [Lz4Codec.MAX_BLOCK_SIZE].
+ *
+ * Blocks are only written when full or when the stream is closed, calls to [flush] are ignored.
+ *
+ * @param blockTransform wraps the stream each compressed block is written to, for instance to encrypt it.
+ */
+internal
+class BlockCompressedOutputStream(
+    output: OutputStream,
+    blockSize: Int = DEFAULT_BLOCK_SIZE,
+    private val blockTransform: (OutputStream) -> OutputStream = { it }
+) : OutputStream() {
+
+    init {
+        require(blockSize <= Lz4Codec.MAX_BLOCK_SIZE) {
+            "Block size must not be larger than ${Lz4Codec.MAX_BLOCK_SIZE}."
+        }
+    }
+
+    private
+    val output = DataOutputStream(output)
+
+    private
+    val block = ByteArray(blockSize)
+
+    private
+    var blockLength = 0
+
+    private
+    val compressedBlock = ByteArrayOutputStream()
+
+    private
+    val codec = Lz4Codec()
+
+    private
+    val compressed = ByteArray(Lz4Codec.maxCompressedLength(blockSize))
+
+    private
+    val index = mutableListOf<BlockIndexEntry>()
+
+    private
+    var position = 0L
+
+    private
+    var closed = false
+
+    init {
+        this.output.writeInt(MAGIC)
+        position += 4
+    }
+
+    override fun write(b: Int) {
+        if (blockLength == block.size) {
+            writeBlock()
+        }
+        block[blockLength++] = b.toByte()
+    }
+
+    override fun write(b: ByteArray, off: Int, len: Int) {
+        var offset = off
+        var remaining = len
+        while (remaining > 0) {
+            if (blockLength == block.size) {
+                writeBlock()
+            }
+            val count = minOf(remaining, block.size - blockLength)
+            System.arraycopy(b, offset, block, blockLength, count)
+            blockLength += count
+            offset += count
+            remaining -= count
+        }
+    }
+
+    override fun flush() {
+        // Only complete blocks are written, see close()
+    }
+
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        try {
+            writeBlock()
+            writeIndex()
+            output.flush()
+        } finally {
+            output.close()
+        }
+    }
+
+    private
+    fun writeBlock() {
+        if (blockLength == 0) {
+            return
+        }
+        compressedBlock.reset()
+        val lz4Length = codec.compress(block, blockLength, compressed)
+        blockTransform(compressedBlock).use {
+            it.write(compressed, 0, lz4Length)
+        }
+        val compressedLength = compressedBlock.size()
+        index.add(BlockIndexEntry(position, compressedLength, blockLength))
+        output.writeInt(compressedLength)
+        output.writeInt(blockLength)
+        compressedBlock.writeTo(output)
+        position += BLOCK_HEADER_SIZE + compressedLength
+        blockLength = 0
+    }
+
+    private
+    fun writeIndex() {
+        output.writeInt(END_OF_BLOCKS)
+        val indexOffset = position + 4
+        output.writeInt(index.size)
+        index.forEach { entry ->
+            output.writeLong(entry.offset)
+            output.writeInt(entry.compressedLength)
+            output.writeInt(entry.length)
+        }
+        output.writeLong(indexOffset)
+        output.writeInt(MAGIC)
+    }
+}
+
+
+/**
+ * Reads the content of a block-compressed container written by [BlockCompressedOutputStream].
+ *
+ * Blocks are decompressed one at a time, as the content is read.
+ * Skipping over whole blocks does not decompress them.
+ */
+internal
+class BlockCompressedInputStream private constructor(
+    private val blocks: BlockReader,
+    private val blockTransform: (InputStream) -> InputStream
+) : InputStream() {
+
+    companion object {
+
+        /**
+         * Reads the container from the given [input].
+         *
+         * When [input] reads a file, the file is memory mapped and the blocks are located through the index,
+         * except on Windows, where a mapped file cannot be deleted until the mapping is garbage collected.
+         *
+         * @param blockTransform wraps the stream each compressed block is read from, for instance to decrypt it.
+         */
+        fun open(input: InputStream, blockTransform: (InputStream) -> InputStream = { it }): InputStream =
+            BlockCompressedInputStream(blockReaderFor(input), blockTransform)
+
+        private
+        fun blockReaderFor(input: InputStream): BlockReader =
+            if (input is FileInputStream && !OperatingSystem.current().isWindows) {
+                mappedBlockReaderFor(input) ?: SequentialBlockReader(input)
+            } else {
+                SequentialBlockReader(input)
+            }
+
+        private
+        fun mappedBlockReaderFor(input: FileInputStream): BlockReader? {
+            val channel = input.channel
+            val size = channel.size()
+            if (size > Int.MAX_VALUE) {
+                return null
+            }
+            val buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+            // The mapping stays valid after the file is closed
+            input.close()
+            return MappedBlockReader(buffer)
+        }
+    }
+
+    private
+    var block = ByteArray(0)
+
+    private
+    var blockPosition = 0
+
+    private
+    var blockLength = 0
+
+    private
+    var compressed = ByteArray(0)
+
+    private
+    var closed = false
+
+    override fun read(): Int {
+        if (!ensureAvailable()) {
+            return -1
+        }
+        return block[blockPosition++].toInt() and 0xff
+    }
+
+    override fun read(b: ByteArray, off: Int, len: Int): Int {
+        if (len == 0) {
+            return 0
+        }
+        if (!ensureAvailable()) {
+            return -1
+        }
+        val count = minOf(len, blockLength - blockPosition)
+        System.arraycopy(block, blockPosition, b, off, count)
+        blockPosition += count
+        return count
+    }
+
+    override fun skip(n: Long): Long {
+        var remaining = n
+        while (remaining > 0) {
+            val available = blockLength - blockPosition
+            if (available > 0) {
+                val count = minOf(remaining, available.toLong()).toInt()
+                blockPosition += count
+                remaining -= count
+                continue
+            }
+            val nextBlockLength = blocks.nextBlockLength()
+            if (nextBlockLength < 0) {
+                break
+            }
+            if (nextBlockLength <= remaining) {
+                blocks.skipBlock()
+                remaining -= nextBlockLength
+            } else if (!ensureAvailable()) {
+                break
+            }
+        }
+        return n - remaining
+    }
+
+    override fun available(): Int =
+        blockLength - blockPosition
+
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        blocks.close()
+    }
+
+    private
+    fun ensureAvailable(): Boolean {
+        while (blockPosition == blockLength) {
+            val nextBlockLength = blocks.nextBlockLength()
+            if (nextBlockLength < 0) {
+                return false
+            }
+            if (block.size < nextBlockLength) {
+                block = ByteArray(nextBlockLength)
+            }
+            val maxCompressedLength = Lz4Codec.maxCompressedLength(nextBlockLength)
+            if (compressed.size < maxCompressedLength) {
+                compressed = ByteArray(maxCompressedLength)
+            }
+            val compressedLength = readAll(blockTransform(blocks.nextBlockContent()), compressed, maxCompressedLength)
+            if (Lz4Codec.decompress(compressed, compressedLength, block) != nextBlockLength) {
+                throw IOException("Corrupt compressed block.")
+            }
+            blockPosition = 0
+            blockLength = nextBlockLength
+        }
+        return true
+    }
+
+    /**
+     * Reads the whole [input] into [buffer], which must hold at most [maxLength] bytes.
+     */
+    private
+    fun readAll(input: InputStream, buffer: ByteArray, maxLength: Int): Int {
+        var length = 0
+        while (true) {
+            if (length == maxLength) {
+                if (input.read() >= 0) {
+                    throw IOException("Corrupt compressed block.")
+                }
+                return length
+            }
+            val count = input.read(buffer, length, maxLength - length)
+            if (count < 0) {
+                return length
+            }
+            length += count
+        }
+    }
+}
+
+
+private
+data class BlockIndexEntry(val offset: Long, val compressedLength: Int, val length: Int)
+
+
+private
+interface BlockReader : AutoCloseable {
+
+    /**
+     * The length of the next block once decompressed, or -1 when there are no more blocks.
+     */
+    fun nextBlockLength(): Int
+
+    /**
+     * The compressed content of the next block, moving to the following block.
+     */
+    fun nextBlockContent(): InputStream
+
+    /**
+     * Moves to the following block, without reading the content of the next block.
+     */
+    fun skipBlock()
+
+    override fun close()
+}
+
+
+/**
+ * Locates the blocks of a memory mapped container through its index.
+ */
+private
+class MappedBlockReader(buffer: ByteBuffer) : BlockReader {
+
+    private
+    var buffer: ByteBuffer? = buffer
+
+    private
+    val index: List<BlockIndexEntry>
+
+    private
+    var nextBlock = 0
+
+    init {
+        val size = buffer.limit()
+        require(size >= 4 + TRAILER_SIZE && buffer.getInt(0) == MAGIC && buffer.getInt(size - 4) == MAGIC) {
+            "Not a block-compressed configuration cache state file."
+        }
+        val indexOffset = buffer.getLong(size - TRAILER_SIZE).toInt()
+        val blockCount = buffer.getInt(indexOffset)
+        index = (0 until blockCount).map { block ->
+            val entryOffset = indexOffset + 4 + block * INDEX_ENTRY_SIZE
+            BlockIndexEntry(buffer.getLong(entryOffset), buffer.getInt(entryOffset + 8), buffer.getInt(entryOffset + 12))
+        }
+    }
+
+    override fun nextBlockLength(): Int =
+        if (nextBlock < index.size) index[nextBlock].length else -1
+
+    override fun nextBlockContent(): InputStream {
+        val entry = index[nextBlock++]
+        val content = mappedBuffer().duplicate()
+        content.position(entry.offset.toInt() + BLOCK_HEADER_SIZE)
+        content.limit(entry.offset.toInt() + BLOCK_HEADER_SIZE + entry.compressedLength)
+        return ByteBufferInputStream(content.slice())
+    }
+
+    override fun skipBlock() {
+        nextBlock++
+    }
+
+    override fun close() {
+        // The mapping is released once it is no longer referenced
+        buffer = null
+    }
+
+    private
+    fun mappedBuffer() =
+        buffer ?: error("Block-compressed state file has been closed.")
+}
+
+
+/**
+ * Reads the blocks of a container in order, by following the block headers.
+ */
+private
+class SequentialBlockReader(input: InputStream) : BlockReader {
+
+    private
+    val input = DataInputStream(input)
+
+    private
+    var compressedBlock = ByteArray(0)
+
+    private
+    var nextCompressedLength = 0
+
+    private
+    var nextLength = 0
+
+    private
+    var hasNextHeader = false
+
+    init {
+        require(this.input.readInt() == MAGIC) {
+            "Not a block-compressed configuration cache state file."
+        }
+    }
+
+    override fun nextBlockLength(): Int {
+        readNextHeader()
+        return nextLength
+    }
+
+    override fun nextBlockContent(): InputStream {
+        readNextHeader()
+        if (compressedBlock.size < nextCompressedLength) {
+            compressedBlock = ByteArray(nextCompressedLength)
+        }
+        input.readFully(compressedBlock, 0, nextCompressedLength)
+        hasNextHeader = false
+        return ByteArrayInputStream(compressedBlock, 0, nextCompressedLength)
+    }
+
+    override fun skipBlock() {
+        readNextHeader()
+        input.skipBytes(nextCompressedLength).let { skipped ->
+            if (skipped < nextCompressedLength) {
+                throw EOFException("Unexpected end of block-compressed state file.")
+            }
+        }
+        hasNextHeader = false
+    }
+
+    override fun close() {
+        input.close()
+    }
+
+    private
+    fun readNextHeader() {
+        if (hasNextHeader) {
+            return
+        }
+        nextCompressedLength = input.readInt()
+        // The index that follows the end of the blocks is only used by the mapped reader
+        nextLength = if (nextCompressedLength == END_OF_BLOCKS) -1 else input.readInt()
+        hasNextHeader = true
+    }
+}
+
+
+private
+class ByteBufferInputStream(private val buffer: ByteBuffer) : InputStream() {
+
+    override fun read(): Int =
+        if (buffer.hasRemaining()) buffer.get().toInt() and 0xff else -1
+
+    override fun read(b: ByteArray, off: Int, len: Int): Int {
+        if (len == 0) {
+            return 0
+        }
+        if (!buffer.hasRemaining()) {
+            return -1
+        }
+        val count = minOf(len, buffer.remaining())
+        buffer.get(b, off, count)
+        return count
+    }
+
+    override fun available(): Int =
+        buffer.remaining()
+}
@@ -49,11 +49,14 @@ import org.gradle.internal.serialize.graph.runReadOperation
 import org.gradle.internal.serialize.graph.runWriteOperation
 import org.gradle.util.Path
 import org.hamcrest.CoreMatchers.equalTo
+import org.hamcrest.CoreMatchers.nullValue
 import org.hamcrest.MatcherAssert.assertThat
 import org.junit.Test
 import java.io.File
 import java.io.InputStream
 import java.io.OutputStream
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
 
 
 class ConfigurationCacheFingerprintCheckerTest {
@@ -267,6 +270,77 @@ class ConfigurationCacheFingerprintCheckerTest {
         )
     }
 
+    @Test
+    fun `concurrent check reports first out-of-date input`() {
+        val unchanged = File("unchanged.txt")
+        val changed = File("changed.txt")
+        val removed = File("removed.txt")
+        val host = mock<ConfigurationCacheFingerprintChecker.Host> {
+            on { hashCodeAndTypeOf(unchanged) } doReturn (TestHashCodes.hashCodeFrom(1) to FileType.RegularFile)
+            on { hashCodeAndTypeOf(changed) } doReturn (TestHashCodes.hashCodeFrom(3) to FileType.RegularFile)
+            on { hashCodeAndTypeOf(removed) } doReturn (TestHashCodes.hashCodeFrom(4) to FileType.Missing)
+            on { displayNameOf(any()) }.then { invocation ->
+                invocation.getArgument<File>(0).name
+            }
+            on { buildPath } doReturn Path.ROOT
+        }
+        val fingerprints = listOf(
+            ConfigurationCacheFingerprint.InputFile(unchanged, TestHashCodes.hashCodeFrom(1)),
+            ConfigurationCacheFingerprint.InputFile(changed, TestHashCodes.hashCodeFrom(2)),
+            ConfigurationCacheFingerprint.InputFile(removed, TestHashCodes.hashCodeFrom(2))
+        )
+
+        repeat(10) {
+            assertThat(
+                withExecutor { executor -> checkFingerprintsGiven(host, fingerprints, executor) },
+                equalTo("file 'changed.txt' has changed")
+            )
+        }
+        assertThat(
+            withExecutor { executor -> checkFingerprintsGiven(host, fingerprints.take(1), executor) },
+            nullValue()
+        )
+    }
+
+    @Test
+    fun `concurrent check invalidates the same projects as sequential check`() {
+        val project = Path.path(":a")
+        val consumer = Path.path(":b")
+        val unaffected = Path.path(":c")
+        val changed = File("changed.txt")
+        val unchanged = File("unchanged.txt")
+        val host = mock<ConfigurationCacheFingerprintChecker.Host> {
+            on { hashCodeAndTypeOf(changed) } doReturn (TestHashCodes.hashCodeFrom(2) to FileType.RegularFile)
+            on { hashCodeAndTypeOf(unchanged) } doReturn (TestHashCodes.hashCodeFrom(1) to FileType.RegularFile)
+            on { displayNameOf(any()) }.then { invocation ->
+                invocation.getArgument<File>(0).name
+            }
+        }
+        val fingerprints = listOf(project, consumer, unaffected).map { path ->
+            ProjectSpecificFingerprint.ProjectIdentity(path, Path.ROOT, path)
+        } + listOf(
+            ProjectSpecificFingerprint.ProjectFingerprint(unaffected, ConfigurationCacheFingerprint.InputFile(unchanged, TestHashCodes.hashCodeFrom(1))),
+            ProjectSpecificFingerprint.ProjectFingerprint(project, ConfigurationCacheFingerprint.InputFile(unchanged, TestHashCodes.hashCodeFrom(1))),
+            ProjectSpecificFingerprint.ProjectFingerprint(project, ConfigurationCacheFingerprint.InputFile(changed, TestHashCodes.hashCodeFrom(1))),
+            ProjectSpecificFingerprint.ProjectFingerprint(project, ConfigurationCacheFingerprint.InputFileSystemEntry(unchanged, FileType.Missing)),
+            ProjectSpecificFingerprint.ProjectDependency(consumer, project)
+        )
+
+        val sequential = checkProjectFingerprintsGiven(host, fingerprints, null)
+        val concurrent = withExecutor { executor -> checkProjectFingerprintsGiven(host, fingerprints, executor) }
+
+        assertThat(concurrent, equalTo(sequential))
+        assertThat(
+            concurrent,
+            equalTo(
+                mapOf(
+                    project to "file 'changed.txt' has changed",
+                    consumer to "project dependency ':a' has changed"
+                )
+            )
+        )
+    }
+
     private
     fun invalidationReasonForInitScriptsChange(
         from: Iterable<Pair<File, HashCode>>,
@@ -293,15 +367,23 @@ class ConfigurationCacheFingerprintCheckerTest {
     fun checkFingerprintGiven(
         host: ConfigurationCacheFingerprintChecker.Host,
         fingerprint: ConfigurationCacheFingerprint
+    ): String? =
+        checkFingerprintsGiven(host, listOf(fingerprint), null)
+
+    private
+    fun checkFingerprintsGiven(
+        host: ConfigurationCacheFingerprintChecker.Host,
+        fingerprints: List<ConfigurationCacheFingerprint>,
+        executor: Executor?
     ): String? {
 
         val readContext = recordWritingOf {
-            write(fingerprint)
+            fingerprints.forEach { write(it) }
             write(null)
         }
 
         val checkedFingerprint = readContext.runReadOperation {
-            ConfigurationCacheFingerprintChecker(host).run {
+            ConfigurationCacheFingerprintChecker(host, executor).run {
                 checkBuildScopedFingerprint()
             }
         }
@@ -312,6 +394,40 @@ class ConfigurationCacheFingerprintCheckerTest {
         }
     }
 
+    private
+    fun checkProjectFingerprintsGiven(
+        host: ConfigurationCacheFingerprintChecker.Host,
+        fingerprints: List<ProjectSpecificFingerprint>,
+        executor: Executor?
+    ): Map<Path, String> {
+
+        val readContext = recordWritingOf {
+            fingerprints.forEach { write(it) }
+            write(null)
+        }
+
+        val checkedFingerprint = readContext.runReadOperation {
+            ConfigurationCacheFingerprintChecker(host, executor).run {
+                checkProjectScopedFingerprint()
+            }
+        }
+        return when (checkedFingerprint) {
+            is CheckedFingerprint.Valid -> emptyMap()
+            is CheckedFingerprint.ProjectsInvalid -> checkedFingerprint.invalidProjects.mapValues { it.value.message.toString() }
+            else -> throw IllegalArgumentException()
+        }
+    }
+
+    private
+    fun <T> withExecutor(action: (Executor) -> T): T {
+        val executor = Executors.newFixedThreadPool(4)
+        try {
+            return action(executor)
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
     private
     fun obtainedValueMock(): ObtainedValue = mock {
         on { value } doReturn Try.successful(42)
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.io
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.hamcrest.CoreMatchers.equalTo
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Rule
+import org.junit.Test
+import java.io.BufferedInputStream
+import java.io.File
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.Random
+
+
+class BlockCompressedStreamsTest {
+
+    @JvmField
+    @Rule
+    val testDirectoryProvider = TestNameTestDirectoryProvider(javaClass)
+
+    private
+    val blockSize = 1024
+
+    @Test
+    fun `can read back content from mapped file`() {
+        listOf(0, 1, blockSize, blockSize + 1, 3 * blockSize + 17).forEach { size ->
+            val content = contentOf(size)
+            val file = writeContainer(content)
+
+            assertThat(file.inputStream().readContainer(), equalTo(content.toList()))
+        }
+    }
+
+    @Test
+    fun `can read back content from stream`() {
+        listOf(0, 1, blockSize, blockSize + 1, 3 * blockSize + 17).forEach { size ->
+            val content = contentOf(size)
+            val file = writeContainer(content)
+
+            assertThat(BufferedInputStream(file.inputStream()).readContainer(), equalTo(content.toList()))
+        }
+    }
+
+    @Test
+    fun `can skip over blocks`() {
+        val content = contentOf(5 * blockSize + 17)
+        val file = writeContainer(content)
+
+        listOf(file.inputStream(), BufferedInputStream(file.inputStream())).forEach { input ->
+            BlockCompressedInputStream.open(input).use { stream ->
+                assertThat(stream.skip(blockSize / 2L), equalTo(blockSize / 2L))
+                assertThat(stream.read(), equalTo(content[blockSize / 2].toInt() and 0xff))
+                assertThat(stream.skip(3L * blockSize), equalTo(3L * blockSize))
+                assertThat(stream.readBytes().toList(), equalTo(content.drop(blockSize / 2 + 1 + 3 * blockSize)))
+                assertThat(stream.skip(1), equalTo(0L))
+            }
+        }
+    }
+
+    @Test
+    fun `transforms each block`() {
+        val content = contentOf(3 * blockSize + 17)
+        val file = writeContainer(content) { InvertingOutputStream(it) }
+
+        assertThat(
+            BlockCompressedInputStream.open(file.inputStream()) { InvertingInputStream(it) }.use { it.readBytes().toList() },
+            equalTo(content.toList())
+        )
+    }
+
+    private
+    fun contentOf(size: Int): ByteArray {
+        val random = Random(size.toLong())
+        return ByteArray(size) { random.nextInt(16).toByte() }
+    }
+
+    private
+    fun writeContainer(content: ByteArray, blockTransform: (OutputStream) -> OutputStream = { it }): File {
+        val file = testDirectoryProvider.testDirectory.file("container.bin")
+        BlockCompressedOutputStream(file.outputStream(), blockSize, blockTransform).use { output ->
+            // Written in small chunks followed by flushes, as done by the encoders
+            content.asList().chunked(100).forEach { chunk ->
+                output.write(chunk.toByteArray())
+                output.flush()
+            }
+        }
+        return file
+    }
+
+    private
+    fun InputStream.readContainer(): List<Byte> =
+        BlockCompressedInputStream.open(this).use { it.readBytes().toList() }
+
+    private
+    class InvertingOutputStream(private val output: OutputStream) : OutputStream() {
+        override fun write(b: Int) = output.write(b.inv())
+        override fun close() = output.close()
+    }
+
+    private
+    class InvertingInputStream(private val input: InputStream) : InputStream() {
+        override fun read(): Int = input.read().let { if (it < 0) it else it.inv() and 0xff }
+    }
+}
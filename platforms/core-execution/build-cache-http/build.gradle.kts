@@ -18,6 +18,7 @@ dependencies {
     api(projects.coreApi)
     api(projects.resourcesHttp)
 
+    implementation(projects.buildCache)
     implementation(projects.core)
     implementation(projects.logging)
     implementation(projects.resources)
@@ -32,6 +32,7 @@
 import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.RetryableBuildCacheException;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
 import org.gradle.internal.resource.transport.http.HttpClientResponse;
@@ -160,7 +161,7 @@ private static BuildCacheException wrap(Throwable e) {
             throw (Error) e;
         }
 
-        throw new BuildCacheException(e.getMessage(), e);
+        throw new RetryableBuildCacheException(e.getMessage(), e);
     }
 
     private boolean isHttpSuccess(int statusCode) {
@@ -170,6 +171,8 @@ private boolean isHttpSuccess(int statusCode) {
     private boolean throwHttpStatusCodeException(int statusCode, String message) {
         if (FATAL_HTTP_ERROR_CODES.contains(statusCode)) {
             throw new UncheckedIOException(message);
+        } else if (statusCode >= 500) {
+            throw new RetryableBuildCacheException(message);
         } else {
             throw new BuildCacheException(message);
         }
@@ -9,6 +9,7 @@ description = "Local build cache implementation"
 dependencies {
     api(projects.stdlibJavaExtensions)
     api(projects.buildCache)
+    api(projects.buildCachePackaging)
     api(projects.buildCacheSpi)
     api(projects.files)
     api(projects.functional)
@@ -17,6 +18,7 @@ dependencies {
 
     implementation(libs.commonsIo)
     implementation(libs.guava)
+    implementation(libs.slf4jApi)
 
     testImplementation(projects.modelCore)
     testImplementation(projects.fileCollections)
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.NonNullApi;
+import org.gradle.caching.internal.packaging.BuildCacheEntryDeduplicator;
+import org.gradle.internal.file.FileAccessTracker;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.hash.HashingOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stores the entries of a directory build cache as manifests referencing content addressed blobs,
+ * so file content shared by multiple entries is only stored once.
+ * <p>
+ * The blobs are named after a hash of their content, computed while storing them,
+ * and are kept in a separate directory, spread over subdirectories named after the first two characters of their hash.
+ * Loading or storing an entry marks the blobs it references as accessed, so blobs are retained at least as long as the entries referencing them.
+ * This includes entries loaded from memory, see {@link #markReferencedBlobsAccessed(File)}.
+ */
+@NonNullApi
+public class ContentAddressedEntryStore {
+    private static final Pattern BLOB_NAME = Pattern.compile("[a-z0-9]+-([0-9a-f]{2})[0-9a-f]*");
+    // Blobs are shared by entries that may come from untrusted remote caches, so use a collision resistant hash of the actual content
+    private static final HashFunction BLOB_HASH_FUNCTION = Hashing.sha256();
+    private static final String BLOB_HASH_PREFIX = "sha256-";
+
+    private final File blobDirectory;
+    private final FileAccessTracker blobAccessTracker;
+    private final BuildCacheEntryDeduplicator deduplicator;
+    private final BuildCacheEntryDeduplicator.BlobStore blobs = new DirectoryBlobStore();
+
+    public ContentAddressedEntryStore(File blobDirectory, FileAccessTracker blobAccessTracker, BuildCacheEntryDeduplicator deduplicator) {
+        this.blobDirectory = blobDirectory;
+        this.blobAccessTracker = blobAccessTracker;
+        this.deduplicator = deduplicator;
+    }
+
+    public boolean isManifest(File file) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            return deduplicator.isManifest(input);
+        }
+    }
+
+    /**
+     * Writes the manifest of the given entry, storing the content of its files as blobs.
+     *
+     * @return whether the manifest references any blobs. When it doesn't, the entry should be stored as it is.
+     */
+    public boolean split(File entry, File manifest) throws IOException {
+        try (
+            InputStream input = new BufferedInputStream(new FileInputStream(entry));
+            OutputStream output = new BufferedOutputStream(new FileOutputStream(manifest))
+        ) {
+            return deduplicator.split(input, output, blobs);
+        }
+    }
+
+    /**
+     * Writes the entry described by the given manifest.
+     */
+    public void join(File manifest, File entry) throws IOException {
+        try (
+            InputStream input = new BufferedInputStream(new FileInputStream(manifest));
+            OutputStream output = new FileOutputStream(entry)
+        ) {
+            deduplicator.join(input, output, blobs);
+        }
+    }
+
+    /**
+     * Marks the blobs referenced by the given manifest as accessed, for when the entry is used without joining it.
+     */
+    public void markReferencedBlobsAccessed(File manifest) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (InputStream input = new BufferedInputStream(new FileInputStream(manifest))) {
+            deduplicator.visitReferencedBlobs(input, names::add);
+        }
+        for (String name : names) {
+            blobAccessTracker.markAccessed(blobFile(name));
+        }
+    }
+
+    private File blobFile(String name) throws IOException {
+        Matcher matcher = BLOB_NAME.matcher(name);
+        if (!matcher.matches()) {
+            throw new IOException(String.format("Invalid blob name '%s'.", name));
+        }
+        return new File(new File(blobDirectory, matcher.group(1)), name);
+    }
+
+    private class DirectoryBlobStore implements BuildCacheEntryDeduplicator.BlobStore {
+        @Override
+        public String store(InputStream content) throws IOException {
+            Files.createDirectories(blobDirectory.toPath());
+            Path tempPath = Files.createTempFile(blobDirectory.toPath(), "blob", BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX);
+            try {
+                HashCode hash;
+                try (HashingOutputStream output = new HashingOutputStream(BLOB_HASH_FUNCTION, Files.newOutputStream(tempPath))) {
+                    IOUtils.copyLarge(content, output);
+                    hash = output.hash();
+                }
+                String name = BLOB_HASH_PREFIX + hash;
+                File blobFile = blobFile(name);
+                if (!blobFile.isFile()) {
+                    Path blobPath = blobFile.toPath();
+                    Files.createDirectories(blobPath.getParent());
+                    try {
+                        Files.move(tempPath, blobPath, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException ignore) {
+                        // The blob has been stored concurrently
+                    }
+                }
+                blobAccessTracker.markAccessed(blobFile);
+                return name;
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        }
+
+        @Override
+        public InputStream open(String name) throws IOException {
+            File blobFile = blobFile(name);
+            InputStream content = new FileInputStream(blobFile);
+            blobAccessTracker.markAccessed(blobFile);
+            return content;
+        }
+    }
+}
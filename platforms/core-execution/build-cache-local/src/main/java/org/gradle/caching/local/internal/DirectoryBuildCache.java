@@ -24,7 +24,11 @@
 import org.gradle.internal.file.FileAccessTracker;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.io.IoConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
@@ -43,14 +47,29 @@
 
 @NonNullApi
 public class DirectoryBuildCache implements BuildCacheTempFileStore, Closeable, LocalBuildCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryBuildCache.class);
 
     private final PersistentCache persistentCache;
     private final BuildCacheTempFileStore tempFileStore;
     private final FileAccessTracker fileAccessTracker;
     private final String failedFileSuffix;
+    private final InMemoryBuildCacheEntries inMemoryEntries;
+    @Nullable
+    private final ContentAddressedEntryStore contentAddressedStore;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     public DirectoryBuildCache(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
+        this(persistentCache, fileAccessTracker, failedFileSuffix, InMemoryBuildCacheEntries.disabled());
+    }
+
+    public DirectoryBuildCache(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix, InMemoryBuildCacheEntries inMemoryEntries) {
+        this(persistentCache, fileAccessTracker, failedFileSuffix, inMemoryEntries, null);
+    }
+
+    /**
+     * @param contentAddressedStore when not {@code null}, entries are stored as manifests referencing the blobs in this store.
+     */
+    public DirectoryBuildCache(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix, InMemoryBuildCacheEntries inMemoryEntries, @Nullable ContentAddressedEntryStore contentAddressedStore) {
         this.persistentCache = persistentCache;
         // Create temporary files in the cache directory to ensure they are on the same file system,
         // and thus can always be moved into the cache proper atomically
@@ -63,10 +82,22 @@ public DirectoryBuildCache(PersistentCache persistentCache, FileAccessTracker fi
         });
         this.fileAccessTracker = fileAccessTracker;
         this.failedFileSuffix = failedFileSuffix;
+        this.inMemoryEntries = inMemoryEntries;
+        this.contentAddressedStore = contentAddressedStore;
     }
 
     @Override
     public boolean load(HashCode key, IoConsumer<InputStream> reader) {
+        boolean loadedFromMemory = loadFromMemory(key, content -> {
+            try {
+                reader.accept(new ByteArrayInputStream(content));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        if (loadedFromMemory) {
+            return true;
+        }
         AtomicBoolean loaded = new AtomicBoolean(false);
         loadLocally(key, file -> {
             try {
@@ -99,6 +130,66 @@ public void loadLocally(HashCode key, Consumer<? super File> reader) {
         });
     }
 
+    /**
+     * Loads the entry from memory if it is held there, without reading the cache entry file.
+     *
+     * Returns whether the entry was loaded.
+     */
+    public boolean loadFromMemory(HashCode key, Consumer<? super byte[]> reader) {
+        if (!inMemoryEntries.isEnabled()) {
+            return false;
+        }
+        byte[] content = inMemoryEntries.get(key);
+        if (content == null) {
+            return false;
+        }
+        File file = getCacheEntryFile(key);
+        if (!file.isFile()) {
+            // The entry has been removed from disk, e.g. by cleanup, so it shouldn't be served from memory either
+            inMemoryEntries.invalidate(key);
+            return false;
+        }
+
+        fileAccessTracker.markAccessed(file);
+        if (!markReferencedBlobsAccessed(key, file)) {
+            inMemoryEntries.invalidate(key);
+            return false;
+        }
+
+        try {
+            reader.accept(content);
+        } catch (RuntimeException e) {
+            inMemoryEntries.invalidate(key);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Marks the blobs referenced by the entry as accessed when it is stored as a manifest, so cleanup doesn't remove the blobs of entries only loaded from memory.
+     *
+     * Returns whether the blobs could be marked.
+     */
+    private boolean markReferencedBlobsAccessed(HashCode key, File file) {
+        if (contentAddressedStore == null) {
+            return true;
+        }
+        try {
+            if (contentAddressedStore.isManifest(file)) {
+                contentAddressedStore.markReferencedBlobsAccessed(file);
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.info("Could not read the manifest of build cache entry {}, not loading it from memory.", key, e);
+            return false;
+        }
+    }
+
+    @Nullable
+    public InMemoryBuildCacheStatistics getInMemoryStatistics() {
+        return inMemoryEntries.isEnabled() ? inMemoryEntries : null;
+    }
+
     private void loadInsideLock(HashCode key, Consumer<? super File> reader) {
         File file = getCacheEntryFile(key);
         if (!file.exists()) {
@@ -108,6 +199,10 @@ private void loadInsideLock(HashCode key, Consumer<? super File> reader) {
         fileAccessTracker.markAccessed(file);
 
         try {
+            if (contentAddressedStore != null && contentAddressedStore.isManifest(file)) {
+                loadFromManifest(key, file, contentAddressedStore, reader);
+                return;
+            }
             reader.accept(file);
         } catch (Exception e) {
             // Try to move the file out of the way in case its permanently corrupt
@@ -119,6 +214,20 @@ private void loadInsideLock(HashCode key, Consumer<? super File> reader) {
 
             throw UncheckedException.throwAsUncheckedException(e);
         }
+
+        retainInMemory(key, file);
+    }
+
+    private void loadFromManifest(HashCode key, File manifestFile, ContentAddressedEntryStore store, Consumer<? super File> reader) {
+        tempFileStore.withTempFile(key, entryFile -> {
+            try {
+                store.join(manifestFile, entryFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Couldn't read cache entry '%s' from blobs: %s", key, e), e);
+            }
+            reader.accept(entryFile);
+            retainInMemory(key, entryFile);
+        });
     }
 
     @Override
@@ -145,20 +254,54 @@ public void store(HashCode key, IoConsumer<OutputStream> result) {
     public void storeLocally(HashCode key, File file) {
         // We need to lock other processes out here because garbage collection can be under way in another process
         persistentCache.withFileLock(() -> {
-            // Additional locking necessary because of https://github.com/gradle/gradle/issues/3537
-            lock.writeLock().lock();
+            File storedFile = deduplicate(key, file);
             try {
-                storeInsideLock(key, file);
+                // Additional locking necessary because of https://github.com/gradle/gradle/issues/3537
+                lock.writeLock().lock();
+                try {
+                    storeInsideLock(key, file, storedFile);
+                } finally {
+                    lock.writeLock().unlock();
+                }
             } finally {
-                lock.writeLock().unlock();
+                if (storedFile != file) {
+                    FileUtils.deleteQuietly(storedFile);
+                }
             }
         });
     }
 
-    private void storeInsideLock(HashCode key, File sourceFile) {
+    /**
+     * Returns the manifest to store instead of the given entry, or the entry itself when it isn't stored as a manifest.
+     */
+    private File deduplicate(HashCode key, File entryFile) {
+        if (contentAddressedStore == null) {
+            return entryFile;
+        }
+        File manifestFile;
+        try {
+            manifestFile = Files.createTempFile(persistentCache.getBaseDir().toPath(), key + "-", PARTIAL_FILE_SUFFIX).toFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            if (contentAddressedStore.split(entryFile, manifestFile)) {
+                return manifestFile;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Deduplication is only an optimization, the entry can still be stored as it is
+            LOGGER.info("Could not deduplicate build cache entry {}, storing it as it is.", key, e);
+        }
+        FileUtils.deleteQuietly(manifestFile);
+        return entryFile;
+    }
+
+    private void storeInsideLock(HashCode key, File sourceFile, File storedFile) {
         File targetFile = getCacheEntryFile(key);
+        // Read the content before the file is moved, it might not be the same file we find at the target afterwards
+        byte[] content = readIfRetainable(sourceFile);
         try {
-            Files.move(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            Files.move(storedFile.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
         } catch (FileAlreadyExistsException ignore) {
             // We already have the file in the build cache
             // Note that according to the documentation of `Files.move()`, whether this exception is thrown
@@ -168,6 +311,29 @@ private void storeInsideLock(HashCode key, File sourceFile) {
             throw new UncheckedIOException(String.format("Couldn't move cache entry '%s' into local cache: %s", key, e), e);
         }
         fileAccessTracker.markAccessed(targetFile);
+        if (content != null) {
+            inMemoryEntries.put(key, content);
+        }
+    }
+
+    private void retainInMemory(HashCode key, File file) {
+        byte[] content = readIfRetainable(file);
+        if (content != null) {
+            inMemoryEntries.put(key, content);
+        }
+    }
+
+    @Nullable
+    private byte[] readIfRetainable(File file) {
+        if (!inMemoryEntries.canRetain(file.length())) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            // Holding the entry in memory is only an optimization, the entry can still be loaded from disk
+            return null;
+        }
     }
 
     @Override
@@ -27,6 +27,7 @@
 import org.gradle.internal.file.FileAccessTracker;
 import org.gradle.internal.hash.HashCode;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.util.function.Consumer;
@@ -37,7 +38,15 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
     private final DirectoryBuildCache cache;
 
     public DirectoryBuildCacheService(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
-        this.cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, failedFileSuffix);
+        this(persistentCache, fileAccessTracker, failedFileSuffix, InMemoryBuildCacheEntries.disabled());
+    }
+
+    public DirectoryBuildCacheService(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix, InMemoryBuildCacheEntries inMemoryEntries) {
+        this(persistentCache, fileAccessTracker, failedFileSuffix, inMemoryEntries, null);
+    }
+
+    public DirectoryBuildCacheService(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix, InMemoryBuildCacheEntries inMemoryEntries, @Nullable ContentAddressedEntryStore contentAddressedStore) {
+        this.cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, failedFileSuffix, inMemoryEntries, contentAddressedStore);
     }
 
     @Override
@@ -50,6 +59,17 @@ public void loadLocally(BuildCacheKey key, Consumer<? super File> reader) {
         cache.loadLocally(((BuildCacheKeyInternal) key).getHashCodeInternal(), reader);
     }
 
+    @Override
+    public boolean loadFromMemory(BuildCacheKey key, Consumer<? super byte[]> reader) {
+        return cache.loadFromMemory(((BuildCacheKeyInternal) key).getHashCodeInternal(), reader);
+    }
+
+    @Nullable
+    @Override
+    public InMemoryBuildCacheStatistics getInMemoryStatistics() {
+        return cache.getInMemoryStatistics();
+    }
+
     @Override
     public void store(BuildCacheKey key, BuildCacheEntryWriter result) throws BuildCacheException {
         cache.store(((BuildCacheKeyInternal) key).getHashCodeInternal(), result::writeTo);
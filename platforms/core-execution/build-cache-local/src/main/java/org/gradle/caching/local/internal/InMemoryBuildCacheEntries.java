@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.api.NonNullApi;
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds the content of recently used small build cache entries in memory.
+ * <p>
+ * Entries larger than the maximum entry size are never retained.
+ * When the total size of the retained entries exceeds the maximum size, the least recently used entries are evicted.
+ * The content of an entry must not be modified after it has been retained or returned.
+ */
+@NonNullApi
+public class InMemoryBuildCacheEntries implements InMemoryBuildCacheStatistics {
+
+    private final long maxSize;
+    private final long maxEntrySize;
+    // Access ordered, so the first entry is the least recently used one
+    private final LinkedHashMap<HashCode, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public InMemoryBuildCacheEntries(long maxSize, long maxEntrySize) {
+        this.maxSize = maxSize;
+        this.maxEntrySize = Math.min(maxEntrySize, maxSize);
+    }
+
+    /**
+     * Returns an instance that never retains any entries.
+     */
+    public static InMemoryBuildCacheEntries disabled() {
+        return new InMemoryBuildCacheEntries(0, 0);
+    }
+
+    public boolean isEnabled() {
+        return maxEntrySize > 0;
+    }
+
+    /**
+     * Whether an entry of the given size would be retained.
+     */
+    public boolean canRetain(long entrySize) {
+        return isEnabled() && entrySize <= maxEntrySize;
+    }
+
+    /**
+     * Returns the content of the given entry, or {@code null} if it is not held in memory.
+     */
+    @Nullable
+    public synchronized byte[] get(HashCode key) {
+        byte[] content = entries.get(key);
+        if (content == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return content;
+    }
+
+    /**
+     * Drops an entry returned by {@link #get(HashCode)} that turned out to be unusable.
+     * The lookup is counted as a miss instead of a hit.
+     */
+    public synchronized void invalidate(HashCode key) {
+        byte[] removed = entries.remove(key);
+        if (removed != null) {
+            size -= removed.length;
+            hitCount--;
+            missCount++;
+        }
+    }
+
+    /**
+     * Retains the given content for the entry, evicting least recently used entries as necessary.
+     */
+    public synchronized void put(HashCode key, byte[] content) {
+        if (!canRetain(content.length)) {
+            return;
+        }
+        byte[] previous = entries.put(key, content);
+        if (previous != null) {
+            size -= previous.length;
+        }
+        size += content.length;
+        Iterator<Map.Entry<HashCode, byte[]>> iterator = entries.entrySet().iterator();
+        while (size > maxSize) {
+            Map.Entry<HashCode, byte[]> eldest = iterator.next();
+            size -= eldest.getValue().length;
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    @Override
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    @Override
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -16,8 +16,11 @@
 
 package org.gradle.caching.local.internal
 
+import org.apache.commons.io.IOUtils
 import org.gradle.cache.PersistentCache
+import org.gradle.caching.internal.packaging.BuildCacheEntryDeduplicator
 import org.gradle.internal.file.FileAccessTracker
+import org.gradle.internal.hash.Hashing
 import org.gradle.internal.hash.TestHashCodes
 import org.gradle.test.fixtures.file.CleanupTestDirectory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -25,6 +28,8 @@ import org.gradle.util.UsesNativeServices
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.function.Consumer
+
 @UsesNativeServices
 @CleanupTestDirectory
 class DirectoryBuildCacheTest extends Specification {
@@ -136,4 +141,158 @@ class DirectoryBuildCacheTest extends Specification {
         // as `Files.move()` and `File.renameTo()` can either fail or replace the
         // already existing file; it's up to the implementation.
     }
+
+    def "serves small entries from memory after they have been stored"() {
+        def inMemoryEntries = new InMemoryBuildCacheEntries(1024, 16)
+        def cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, ".failed", inMemoryEntries)
+        byte[] loaded = null
+
+        given:
+        cache.store(key) { output ->
+            output.write("foo".getBytes())
+        }
+
+        when:
+        def hit = cache.loadFromMemory(key) { content -> loaded = content }
+
+        then:
+        hit
+        new String(loaded) == "foo"
+        1 * fileAccessTracker.markAccessed(new File(cacheDir, hashCode))
+        inMemoryEntries.hitCount == 1
+    }
+
+    def "does not serve entries from memory that have been removed from disk"() {
+        def inMemoryEntries = new InMemoryBuildCacheEntries(1024, 16)
+        def cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, ".failed", inMemoryEntries)
+
+        given:
+        cache.store(key) { output ->
+            output.write("foo".getBytes())
+        }
+        new File(cacheDir, hashCode).delete()
+
+        expect:
+        !cache.loadFromMemory(key) { throw new AssertionError("Should not be called") }
+        inMemoryEntries.hitCount == 0
+        inMemoryEntries.missCount == 1
+        inMemoryEntries.size == 0
+    }
+
+    def "retains small entries loaded from disk"() {
+        def inMemoryEntries = new InMemoryBuildCacheEntries(1024, 16)
+        def cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, ".failed", inMemoryEntries)
+        def largeKey = TestHashCodes.hashCodeFrom(87654321)
+        new File(cacheDir, hashCode).text = "small"
+        new File(cacheDir, largeKey.toString()).text = "large enough to not be retained"
+
+        when:
+        cache.loadLocally(key) {}
+        cache.loadLocally(largeKey) {}
+
+        then:
+        cache.loadFromMemory(key) {}
+        !cache.loadFromMemory(largeKey) {}
+    }
+
+    def "stores content shared by entries once when deduplicating"() {
+        def blobAccessTracker = Mock(FileAccessTracker)
+        def cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, ".failed", InMemoryBuildCacheEntries.disabled(), new ContentAddressedEntryStore(cacheDir.file("blobs"), blobAccessTracker, new SingleBlobDeduplicator()))
+        def otherKey = TestHashCodes.hashCodeFrom(87654321)
+
+        when:
+        cache.store(key) { output -> output.write("shared".bytes) }
+        cache.store(otherKey) { output -> output.write("shared".bytes) }
+
+        then:
+        2 * blobAccessTracker.markAccessed(_)
+        cacheDir.file("blobs").listFiles()*.listFiles().flatten()*.name == ["sha256-" + Hashing.sha256().hashBytes("shared".bytes)]
+        cacheDir.file(hashCode).text.startsWith(SingleBlobDeduplicator.MAGIC)
+
+        when:
+        String loaded = null
+        cache.loadLocally(otherKey) { file -> loaded = file.text }
+
+        then:
+        loaded == "shared"
+        1 * blobAccessTracker.markAccessed(_)
+    }
+
+    def "marks blobs referenced by entries loaded from memory as accessed"() {
+        def blobAccessTracker = Mock(FileAccessTracker)
+        def cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, ".failed", new InMemoryBuildCacheEntries(1024, 16), new ContentAddressedEntryStore(cacheDir.file("blobs"), blobAccessTracker, new SingleBlobDeduplicator()))
+        def blob = "sha256-" + Hashing.sha256().hashBytes("content".bytes)
+        cache.store(key) { output -> output.write("content".bytes) }
+
+        when:
+        byte[] loaded = null
+        def hit = cache.loadFromMemory(key) { content -> loaded = content }
+
+        then:
+        hit
+        new String(loaded) == "content"
+        1 * fileAccessTracker.markAccessed(new File(cacheDir, hashCode))
+        1 * blobAccessTracker.markAccessed(new File(cacheDir.file("blobs", blob.substring(7, 9)), blob))
+    }
+
+    def "names blobs after the content stored, not after the name the entry suggests"() {
+        def store = new ContentAddressedEntryStore(cacheDir.file("blobs"), Mock(FileAccessTracker), new SingleBlobDeduplicator())
+        def entry = temporaryFolder.file("entry") << "content"
+        def manifest = temporaryFolder.file("manifest")
+        def joined = temporaryFolder.file("joined")
+
+        when:
+        store.split(entry, manifest)
+        store.join(manifest, joined)
+
+        then:
+        manifest.text == SingleBlobDeduplicator.MAGIC + "sha256-" + Hashing.sha256().hashBytes("content".bytes)
+        joined.text == "content"
+    }
+
+    def "moves entry referencing missing blob out of the way"() {
+        def cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, ".failed", InMemoryBuildCacheEntries.disabled(), new ContentAddressedEntryStore(cacheDir.file("blobs"), Mock(FileAccessTracker), new SingleBlobDeduplicator()))
+        cache.store(key) { output -> output.write("content".bytes) }
+        cacheDir.file("blobs").deleteDir()
+
+        when:
+        cache.loadLocally(key) { throw new AssertionError("Should not be called") }
+
+        then:
+        thrown(UncheckedIOException)
+        !cacheDir.file(hashCode).exists()
+        cacheDir.file(hashCode + ".failed").exists()
+    }
+
+    /**
+     * Stores the whole content of an entry as a single blob.
+     */
+    private static class SingleBlobDeduplicator implements BuildCacheEntryDeduplicator {
+        static final String MAGIC = "BLOB"
+
+        @Override
+        boolean split(InputStream entry, OutputStream manifest, BuildCacheEntryDeduplicator.BlobStore blobs) {
+            byte[] content = IOUtils.toByteArray(entry)
+            String name = blobs.store(new ByteArrayInputStream(content))
+            manifest.write((MAGIC + name).bytes)
+            return true
+        }
+
+        @Override
+        boolean isManifest(InputStream content) {
+            byte[] header = new byte[MAGIC.length()]
+            return IOUtils.read(content, header) == header.length && new String(header) == MAGIC
+        }
+
+        @Override
+        void join(InputStream manifest, OutputStream entry, BuildCacheEntryDeduplicator.BlobStore blobs) {
+            String name = IOUtils.toString(manifest, "UTF-8").substring(MAGIC.length())
+            blobs.open(name).withCloseable { IOUtils.copy(it, entry) }
+        }
+
+        @Override
+        void visitReferencedBlobs(InputStream manifest, Consumer<? super String> visitor) {
+            visitor.accept(IOUtils.toString(manifest, "UTF-8").substring(MAGIC.length()))
+        }
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal
+
+import org.gradle.internal.hash.TestHashCodes
+import spock.lang.Specification
+
+class InMemoryBuildCacheEntriesTest extends Specification {
+    def entries = new InMemoryBuildCacheEntries(10, 4)
+    def key1 = TestHashCodes.hashCodeFrom(1)
+    def key2 = TestHashCodes.hashCodeFrom(2)
+    def key3 = TestHashCodes.hashCodeFrom(3)
+
+    def "counts hits and misses"() {
+        def content = [1, 2, 3] as byte[]
+        entries.put(key1, content)
+
+        expect:
+        entries.get(key1).is(content)
+        entries.get(key2) == null
+        entries.hitCount == 1
+        entries.missCount == 1
+        entries.evictionCount == 0
+    }
+
+    def "does not retain entries larger than the maximum entry size"() {
+        when:
+        entries.put(key1, new byte[5])
+
+        then:
+        !entries.canRetain(5)
+        entries.get(key1) == null
+        entries.size == 0
+    }
+
+    def "evicts least recently used entries when exceeding the maximum size"() {
+        entries.put(key1, new byte[4])
+        entries.put(key2, new byte[4])
+        // Use the first entry, so the second one is the least recently used
+        entries.get(key1)
+
+        when:
+        entries.put(key3, new byte[4])
+
+        then:
+        entries.get(key2) == null
+        entries.get(key1) != null
+        entries.get(key3) != null
+        entries.size == 8
+        entries.evictionCount == 1
+    }
+
+    def "replacing an entry updates the size"() {
+        when:
+        entries.put(key1, new byte[4])
+        entries.put(key1, new byte[2])
+
+        then:
+        entries.size == 2
+        entries.evictionCount == 0
+    }
+
+    def "invalidated lookups count as misses"() {
+        entries.put(key1, new byte[4])
+        entries.get(key1)
+
+        when:
+        entries.invalidate(key1)
+
+        then:
+        entries.hitCount == 0
+        entries.missCount == 1
+        entries.size == 0
+        entries.get(key1) == null
+    }
+
+    def "disabled instance retains nothing"() {
+        def disabled = InMemoryBuildCacheEntries.disabled()
+
+        when:
+        disabled.put(key1, new byte[0])
+
+        then:
+        !disabled.enabled
+        disabled.size == 0
+    }
+}
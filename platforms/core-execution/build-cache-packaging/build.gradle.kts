@@ -14,6 +14,7 @@ dependencies {
 
     api(libs.guava)
 
+    implementation(projects.io)
     implementation(projects.stdlibJavaExtensions)
     implementation(libs.commonsCompress)
     implementation(libs.commonsIo)
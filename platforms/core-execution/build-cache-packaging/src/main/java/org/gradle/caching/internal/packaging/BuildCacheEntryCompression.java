@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * The compression used when packing build cache entries.
+ * <p>
+ * Entries are always unpacked according to the compression recorded in their header,
+ * so entries packed with any of these compressions can be loaded regardless of the compression that is configured.
+ */
+public enum BuildCacheEntryCompression {
+    /**
+     * GZIP compression. Entries can be loaded by all Gradle versions.
+     */
+    GZIP("gzip"),
+
+    /**
+     * LZ4 compression. Packs and unpacks considerably faster than GZIP, at the cost of larger entries.
+     * Entries can only be loaded by Gradle versions that support this compression.
+     */
+    LZ4("lz4");
+
+    private final String name;
+
+    BuildCacheEntryCompression(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static BuildCacheEntryCompression forName(String name) {
+        String normalizedName = name.toLowerCase(Locale.ROOT);
+        for (BuildCacheEntryCompression compression : values()) {
+            if (compression.name.equals(normalizedName)) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown build cache entry compression '%s'. Supported compressions are: %s.",
+            name,
+            Arrays.stream(values()).map(compression -> "'" + compression.name + "'").collect(Collectors.joining(", "))));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Splits packed build cache entries into a manifest and blobs holding the content of the files in the entry,
+ * so file content shared by multiple entries only needs to be stored once.
+ */
+public interface BuildCacheEntryDeduplicator {
+
+    /**
+     * Writes the manifest of the given entry, storing the content of eligible files as blobs.
+     *
+     * @return whether the manifest references any blobs. When it doesn't, the entry should be kept as it is.
+     */
+    boolean split(InputStream entry, OutputStream manifest, BlobStore blobs) throws IOException;
+
+    /**
+     * Whether the given content starts like a manifest written by {@link #split(InputStream, OutputStream, BlobStore)}.
+     */
+    boolean isManifest(InputStream content) throws IOException;
+
+    /**
+     * Writes the entry described by the given manifest, which can be unpacked like any other entry.
+     */
+    void join(InputStream manifest, OutputStream entry, BlobStore blobs) throws IOException;
+
+    /**
+     * Visits the names of the blobs referenced by the given manifest, without reading the blobs.
+     */
+    void visitReferencedBlobs(InputStream manifest, Consumer<? super String> visitor) throws IOException;
+
+    interface BlobStore {
+        /**
+         * Stores the content read from the given stream as a blob, unless a blob with the same content is already stored.
+         * <p>
+         * The name of the blob is derived from a hash of the content read, so it never depends on information recorded in the entry.
+         *
+         * @return the name of the blob.
+         */
+        String store(InputStream content) throws IOException;
+
+        /**
+         * Opens the content of the blob with the given name.
+         *
+         * @throws java.io.FileNotFoundException when the blob is not stored.
+         */
+        InputStream open(String name) throws IOException;
+    }
+}
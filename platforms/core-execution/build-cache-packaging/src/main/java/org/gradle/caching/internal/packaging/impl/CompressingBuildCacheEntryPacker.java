@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.caching.internal.CacheableEntity;
+import org.gradle.caching.internal.origin.OriginReader;
+import org.gradle.caching.internal.origin.OriginWriter;
+import org.gradle.caching.internal.packaging.BuildCacheEntryCompression;
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.internal.io.Lz4BlockInputStream;
+import org.gradle.internal.io.Lz4BlockOutputStream;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the output of the delegate packer.
+ * <p>
+ * GZIP compressed entries are plain GZIP streams, so they stay readable by older Gradle versions.
+ * Other compressions are announced by a header consisting of a magic number and a format version.
+ * When unpacking, the compression is determined from the header of the entry, so entries can be unpacked regardless of the configured compression.
+ * Uncompressed entries can be unpacked as well, they are produced when reassembling deduplicated entries.
+ */
+public class CompressingBuildCacheEntryPacker implements BuildCacheEntryPacker {
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    private static final byte[] LZ4_MAGIC = {'G', 'L', 'Z', '4'};
+    private static final int LZ4_FORMAT_VERSION = 1;
+    private static final byte[] UNCOMPRESSED_MAGIC = {'G', 'T', 'A', 'R'};
+    private static final int UNCOMPRESSED_FORMAT_VERSION = 1;
+
+    private final BuildCacheEntryPacker delegate;
+    private final BuildCacheEntryCompression compression;
+
+    public CompressingBuildCacheEntryPacker(BuildCacheEntryPacker delegate, BuildCacheEntryCompression compression) {
+        this.delegate = delegate;
+        this.compression = compression;
+    }
+
+    @Override
+    public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+        switch (compression) {
+            case GZIP:
+                try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output)) {
+                    return delegate.pack(entity, snapshots, gzipOutput, writeOrigin);
+                }
+            case LZ4:
+                output.write(LZ4_MAGIC);
+                output.write(LZ4_FORMAT_VERSION);
+                try (Lz4BlockOutputStream lz4Output = new Lz4BlockOutputStream(output)) {
+                    return delegate.pack(entity, snapshots, lz4Output, writeOrigin);
+                }
+            default:
+                throw new AssertionError(compression);
+        }
+    }
+
+    @Override
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+        try (InputStream tarInput = decompress(input)) {
+            return delegate.unpack(entity, tarInput, readOrigin);
+        }
+    }
+
+    /**
+     * Returns the uncompressed content of the given entry, according to the compression recorded in its header.
+     */
+    static InputStream decompress(InputStream input) throws IOException {
+        PushbackInputStream headerInput = new PushbackInputStream(input, 2);
+        int first = headerInput.read();
+        int second = headerInput.read();
+        if (first == GZIP_MAGIC_1 && second == GZIP_MAGIC_2) {
+            headerInput.unread(new byte[]{(byte) first, (byte) second});
+            return new GZIPInputStream(headerInput);
+        }
+        if (first == LZ4_MAGIC[0] && second == LZ4_MAGIC[1]) {
+            readHeader(headerInput, LZ4_MAGIC, LZ4_FORMAT_VERSION, "LZ4");
+            return new Lz4BlockInputStream(headerInput);
+        }
+        if (first == UNCOMPRESSED_MAGIC[0] && second == UNCOMPRESSED_MAGIC[1]) {
+            readHeader(headerInput, UNCOMPRESSED_MAGIC, UNCOMPRESSED_FORMAT_VERSION, "uncompressed");
+            return headerInput;
+        }
+        if (second < 0) {
+            throw new EOFException("Build cache entry is truncated.");
+        }
+        throw new IOException(String.format("Unknown build cache entry format (header 0x%02x%02x).", first, second));
+    }
+
+    /**
+     * Writes the header of an uncompressed entry.
+     * Such entries are only produced to be unpacked right away, they are never stored in a build cache.
+     */
+    static void writeUncompressedHeader(OutputStream output) throws IOException {
+        output.write(UNCOMPRESSED_MAGIC);
+        output.write(UNCOMPRESSED_FORMAT_VERSION);
+    }
+
+    private static void readHeader(InputStream input, byte[] magic, int expectedVersion, String formatName) throws IOException {
+        for (int i = 2; i < magic.length; i++) {
+            if (input.read() != magic[i]) {
+                throw new IOException("Unknown build cache entry format.");
+            }
+        }
+        int version = input.read();
+        if (version != expectedVersion) {
+            throw new IOException(String.format("Unsupported %s build cache entry format version %d, expected %d.", formatName, version, expectedVersion));
+        }
+    }
+}
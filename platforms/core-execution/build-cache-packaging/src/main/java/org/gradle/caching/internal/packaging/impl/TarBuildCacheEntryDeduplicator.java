@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.gradle.caching.internal.packaging.BuildCacheEntryDeduplicator;
+import org.gradle.internal.io.Lz4BlockInputStream;
+import org.gradle.internal.io.Lz4BlockOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.gradle.caching.internal.packaging.impl.TarBuildCacheEntryPacker.ENCODING;
+
+/**
+ * Deduplicates entries packed by {@link TarBuildCacheEntryPacker}.
+ * <p>
+ * The content of regular files of at least the minimum size is stored in blobs.
+ * The manifest is the TAR stream of the entry without the content of these files, compressed with LZ4.
+ * Joining produces an uncompressed entry, since it is unpacked right away.
+ */
+public class TarBuildCacheEntryDeduplicator implements BuildCacheEntryDeduplicator {
+    private static final byte[] MANIFEST_MAGIC = {'G', 'C', 'A', 'S'};
+    private static final int MANIFEST_FORMAT_VERSION = 1;
+    private static final String BLOB_PAX_HEADER = "GRADLE.blob";
+    private static final String BLOB_SIZE_PAX_HEADER = "GRADLE.blob-size";
+
+    private final long minBlobSize;
+
+    public TarBuildCacheEntryDeduplicator(long minBlobSize) {
+        this.minBlobSize = minBlobSize;
+    }
+
+    @Override
+    public boolean split(InputStream entry, OutputStream manifest, BlobStore blobs) throws IOException {
+        manifest.write(MANIFEST_MAGIC);
+        manifest.write(MANIFEST_FORMAT_VERSION);
+        boolean referencesBlobs = false;
+        try (
+            TarArchiveInputStream tarInput = new TarArchiveInputStream(CompressingBuildCacheEntryPacker.decompress(entry), ENCODING.name());
+            TarArchiveOutputStream tarOutput = TarBuildCacheEntryPacker.createTarOutput(new Lz4BlockOutputStream(manifest))
+        ) {
+            TarArchiveEntry tarEntry;
+            while ((tarEntry = tarInput.getNextEntry()) != null) {
+                if (tarEntry.isFile() && tarEntry.getSize() >= minBlobSize) {
+                    String blob = blobs.store(tarInput);
+                    tarEntry.addPaxHeader(BLOB_PAX_HEADER, blob);
+                    tarEntry.addPaxHeader(BLOB_SIZE_PAX_HEADER, String.valueOf(tarEntry.getSize()));
+                    tarEntry.setSize(0);
+                    tarOutput.putArchiveEntry(tarEntry);
+                    referencesBlobs = true;
+                } else {
+                    tarOutput.putArchiveEntry(tarEntry);
+                    IOUtils.copyLarge(tarInput, tarOutput);
+                }
+                tarOutput.closeArchiveEntry();
+            }
+        }
+        return referencesBlobs;
+    }
+
+    @Override
+    public boolean isManifest(InputStream content) throws IOException {
+        for (byte magic : MANIFEST_MAGIC) {
+            if (content.read() != magic) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void join(InputStream manifest, OutputStream entry, BlobStore blobs) throws IOException {
+        checkManifestHeader(manifest);
+        BufferedOutputStream bufferedOutput = new BufferedOutputStream(entry);
+        CompressingBuildCacheEntryPacker.writeUncompressedHeader(bufferedOutput);
+        try (
+            TarArchiveInputStream tarInput = new TarArchiveInputStream(new Lz4BlockInputStream(manifest), ENCODING.name());
+            TarArchiveOutputStream tarOutput = TarBuildCacheEntryPacker.createTarOutput(bufferedOutput)
+        ) {
+            TarArchiveEntry tarEntry;
+            while ((tarEntry = tarInput.getNextEntry()) != null) {
+                String blob = tarEntry.getExtraPaxHeader(BLOB_PAX_HEADER);
+                if (blob != null) {
+                    long size = blobSize(tarEntry);
+                    removeBlobHeaders(tarEntry);
+                    tarEntry.setSize(size);
+                    tarOutput.putArchiveEntry(tarEntry);
+                    try (InputStream blobContent = blobs.open(blob)) {
+                        long copied = IOUtils.copyLarge(blobContent, tarOutput, 0, size);
+                        if (copied != size) {
+                            throw new EOFException(String.format("Blob %s is truncated, expected %d bytes but found %d.", blob, size, copied));
+                        }
+                    }
+                } else {
+                    tarOutput.putArchiveEntry(tarEntry);
+                    IOUtils.copyLarge(tarInput, tarOutput);
+                }
+                tarOutput.closeArchiveEntry();
+            }
+        }
+    }
+
+    @Override
+    public void visitReferencedBlobs(InputStream manifest, Consumer<? super String> visitor) throws IOException {
+        checkManifestHeader(manifest);
+        try (TarArchiveInputStream tarInput = new TarArchiveInputStream(new Lz4BlockInputStream(manifest), ENCODING.name())) {
+            TarArchiveEntry tarEntry;
+            while ((tarEntry = tarInput.getNextEntry()) != null) {
+                String blob = tarEntry.getExtraPaxHeader(BLOB_PAX_HEADER);
+                if (blob != null) {
+                    visitor.accept(blob);
+                }
+            }
+        }
+    }
+
+    private void checkManifestHeader(InputStream manifest) throws IOException {
+        if (!isManifest(manifest)) {
+            throw new IOException("Not a deduplicated build cache entry.");
+        }
+        int version = manifest.read();
+        if (version != MANIFEST_FORMAT_VERSION) {
+            throw new IOException(String.format("Unsupported deduplicated build cache entry format version %d, expected %d.", version, MANIFEST_FORMAT_VERSION));
+        }
+    }
+
+    private static long blobSize(TarArchiveEntry tarEntry) throws IOException {
+        String size = tarEntry.getExtraPaxHeader(BLOB_SIZE_PAX_HEADER);
+        try {
+            return Long.parseLong(size);
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Invalid blob size '%s' for '%s'.", size, tarEntry.getName()), e);
+        }
+    }
+
+    private static void removeBlobHeaders(TarArchiveEntry tarEntry) {
+        Map<String, String> headers = new HashMap<>(tarEntry.getExtraPaxHeaders());
+        headers.remove(BLOB_PAX_HEADER);
+        headers.remove(BLOB_SIZE_PAX_HEADER);
+        tarEntry.clearExtraPaxHeaders();
+        headers.forEach(tarEntry::addPaxHeader);
+    }
+}
@@ -17,8 +17,10 @@
 package org.gradle.caching.internal.packaging.impl;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Interner;
+import com.google.common.collect.Iterables;
 import com.google.common.io.CountingOutputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
@@ -33,6 +35,7 @@
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
 import org.gradle.internal.RelativePathSupplier;
 import org.gradle.internal.file.BufferProvider;
+import org.gradle.internal.file.FileMetadata;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.file.PathTraversalChecker;
 import org.gradle.internal.file.TreeType;
@@ -53,7 +56,9 @@
 
 import javax.annotation.Nullable;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -66,19 +71,41 @@
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static org.gradle.internal.file.FileMetadata.AccessType.DIRECT;
 import static org.gradle.internal.snapshot.DirectorySnapshotBuilder.EmptyDirectoryHandlingStrategy.INCLUDE_EMPTY_DIRS;
 
 /**
  * Packages build cache entries to a POSIX TAR file.
+ * <p>
+ * The entry of each regular file records the content hash of the file in a PAX header, together with the hash function used.
+ * Unpacked files are always hashed while they are written.
+ * When the entry was packed with the same hash function, the recorded hash is checked against the hash of the unpacked content,
+ * and unpacking fails when they differ.
+ * Readers that don't know about the header ignore it.
+ * <p>
+ * When created with an executor, the archive is still read by a single thread, while the tree roots are prepared
+ * and small files are written and hashed by the threads of the executor.
+ * Permissions of the unpacked directories are then set once all files have been written.
  */
-public class TarBuildCacheEntryPacker implements BuildCacheEntryPacker {
+public class TarBuildCacheEntryPacker implements BuildCacheEntryPacker, Closeable {
+    public static final String UNPACK_WRITER_THREADS_PROPERTY = "org.gradle.caching.unpack.writer-threads";
 
     @SuppressWarnings("OctalInteger")
     private interface UnixPermissions {
@@ -89,15 +116,23 @@ private interface UnixPermissions {
         int PERM_MASK = 07777;
     }
 
-    private static final Charset ENCODING = StandardCharsets.UTF_8;
+    static final Charset ENCODING = StandardCharsets.UTF_8;
     private static final String METADATA_PATH = "METADATA";
     private static final Pattern TREE_PATH = Pattern.compile("(missing-)?tree-([^/]+)(?:/(.*))?");
+    static final String CONTENT_HASH_PAX_HEADER = "GRADLE.content-hash";
+    private static final int DEFAULT_UNPACK_WRITER_THREADS = 4;
+    // Larger files are written by the thread reading the archive
+    private static final int MAX_PARALLEL_UNPACK_FILE_SIZE = 1024 * 1024;
+    private static final int MAX_PARALLEL_UNPACK_BUFFERED_SIZE = 16 * 1024 * 1024;
 
     private final TarPackerFileSystemSupport fileSystemSupport;
     private final FilePermissionAccess filePermissionAccess;
     private final StreamHasher streamHasher;
     private final Interner<String> stringInterner;
     private final BufferProvider bufferProvider;
+    private final String contentHashPrefix;
+    @Nullable
+    private final ExecutorService unpackExecutor;
 
     public TarBuildCacheEntryPacker(
         TarPackerFileSystemSupport fileSystemSupport,
@@ -105,12 +140,36 @@ public TarBuildCacheEntryPacker(
         StreamHasher streamHasher,
         Interner<String> stringInterner,
         BufferProvider bufferProvider
+    ) {
+        this(fileSystemSupport, filePermissionAccess, streamHasher, stringInterner, bufferProvider, null);
+    }
+
+    /**
+     * Creates a packer that writes unpacked files using the given executor, which is shut down when the packer is closed.
+     */
+    public TarBuildCacheEntryPacker(
+        TarPackerFileSystemSupport fileSystemSupport,
+        FilePermissionAccess filePermissionAccess,
+        StreamHasher streamHasher,
+        Interner<String> stringInterner,
+        BufferProvider bufferProvider,
+        @Nullable ExecutorService unpackExecutor
     ) {
         this.fileSystemSupport = fileSystemSupport;
         this.filePermissionAccess = filePermissionAccess;
         this.streamHasher = streamHasher;
         this.stringInterner = stringInterner;
         this.bufferProvider = bufferProvider;
+        this.contentHashPrefix = streamHasher.getHashFunction().getAlgorithm() + ":";
+        this.unpackExecutor = unpackExecutor;
+    }
+
+    /**
+     * Returns the number of threads writing unpacked files configured via {@value #UNPACK_WRITER_THREADS_PROPERTY}.
+     * With less than two threads, the files are written by the thread reading the archive.
+     */
+    public static int unpackWriterThreadsFromSystemProperties() {
+        return Integer.getInteger(UNPACK_WRITER_THREADS_PROPERTY, Math.min(DEFAULT_UNPACK_WRITER_THREADS, Runtime.getRuntime().availableProcessors()));
     }
 
     @Override
@@ -121,16 +180,21 @@ public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemS
         } else {
             bufferedOutput = new BufferedOutputStream(output);
         }
-        try (TarArchiveOutputStream tarOutput = new TarArchiveOutputStream(bufferedOutput, ENCODING.name())) {
-            tarOutput.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
-            tarOutput.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
-            tarOutput.setAddPaxHeadersForNonAsciiNames(true);
+        try (TarArchiveOutputStream tarOutput = createTarOutput(bufferedOutput)) {
             packMetadata(writeOrigin, tarOutput);
             long entryCount = pack(entity, snapshots, tarOutput);
             return new PackResult(entryCount + 1);
         }
     }
 
+    static TarArchiveOutputStream createTarOutput(OutputStream output) {
+        TarArchiveOutputStream tarOutput = new TarArchiveOutputStream(output, ENCODING.name());
+        tarOutput.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tarOutput.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        tarOutput.setAddPaxHeadersForNonAsciiNames(true);
+        return tarOutput;
+    }
+
     private static void packMetadata(OriginWriter writeMetadata, TarArchiveOutputStream tarOutput) throws IOException {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         writeMetadata.execute(output);
@@ -160,10 +224,14 @@ private long packTree(String name, TreeType type, FileSystemSnapshot snapshots,
     }
 
     private static void createTarEntry(String path, long size, int mode, TarArchiveOutputStream tarOutput) throws IOException {
+        tarOutput.putArchiveEntry(newTarEntry(path, size, mode));
+    }
+
+    private static TarArchiveEntry newTarEntry(String path, long size, int mode) {
         TarArchiveEntry entry = new TarArchiveEntry(path, true);
         entry.setSize(size);
         entry.setMode(mode);
-        tarOutput.putArchiveEntry(entry);
+        return entry;
     }
 
     @Override
@@ -180,43 +248,61 @@ private UnpackResult unpack(CacheableEntity entity, TarArchiveInputStream tarInp
 
         TarArchiveEntry tarEntry;
         OriginMetadata originMetadata = null;
-        Map<String, FileSystemLocationSnapshot> snapshots = new HashMap<>();
+        Map<String, Supplier<? extends FileSystemLocationSnapshot>> pendingSnapshots = new HashMap<>();
 
-        tarEntry = tarInput.getNextEntry();
         AtomicLong entries = new AtomicLong();
-        while (tarEntry != null) {
-            entries.incrementAndGet();
-            String path = safeEntryName(tarEntry);
+        try (UnpackWriter writer = createUnpackWriter(treesByName.values())) {
+            tarEntry = tarInput.getNextEntry();
+            while (tarEntry != null) {
+                entries.incrementAndGet();
+                String path = safeEntryName(tarEntry);
+
+                if (path.equals(METADATA_PATH)) {
+                    // handle origin metadata
+                    originMetadata = readOriginAction.execute(CloseShieldInputStream.wrap(tarInput));
+                    tarEntry = tarInput.getNextEntry();
+                } else {
+                    // handle tree
+                    Matcher matcher = TREE_PATH.matcher(path);
+                    if (!matcher.matches()) {
+                        throw new IllegalStateException("Cached entry format error, invalid contents: " + path);
+                    }
 
-            if (path.equals(METADATA_PATH)) {
-                // handle origin metadata
-                originMetadata = readOriginAction.execute(CloseShieldInputStream.wrap(tarInput));
-                tarEntry = tarInput.getNextEntry();
-            } else {
-                // handle tree
-                Matcher matcher = TREE_PATH.matcher(path);
-                if (!matcher.matches()) {
-                    throw new IllegalStateException("Cached entry format error, invalid contents: " + path);
-                }
+                    String treeName = unescape(matcher.group(2));
+                    CacheableTree tree = treesByName.get(treeName);
+                    if (tree == null) {
+                        throw new IllegalStateException(String.format("No tree '%s' registered", treeName));
+                    }
 
-                String treeName = unescape(matcher.group(2));
-                CacheableTree tree = treesByName.get(treeName);
-                if (tree == null) {
-                    throw new IllegalStateException(String.format("No tree '%s' registered", treeName));
+                    boolean missing = matcher.group(1) != null;
+                    String childPath = matcher.group(3);
+                    tarEntry = unpackTree(treeName, tree.getType(), tree.getRoot(), tarInput, tarEntry, childPath, missing, pendingSnapshots, entries, writer);
                 }
-
-                boolean missing = matcher.group(1) != null;
-                String childPath = matcher.group(3);
-                tarEntry = unpackTree(treeName, tree.getType(), tree.getRoot(), tarInput, tarEntry, childPath, missing, snapshots, entries);
             }
+            writer.finish();
         }
         if (originMetadata == null) {
             throw new IllegalStateException("Cached result format error, no origin metadata was found.");
         }
 
+        Map<String, FileSystemLocationSnapshot> snapshots = new HashMap<>();
+        pendingSnapshots.forEach((treeName, snapshot) -> snapshots.put(treeName, snapshot.get()));
         return new UnpackResult(originMetadata, entries.get(), snapshots);
     }
 
+    private UnpackWriter createUnpackWriter(Collection<CacheableTree> trees) {
+        return unpackExecutor == null
+            ? new SequentialUnpackWriter()
+            : new ParallelUnpackWriter(unpackExecutor, trees);
+    }
+
+    @Override
+    public void close() {
+        if (unpackExecutor != null) {
+            unpackExecutor.shutdown();
+        }
+    }
+
     private static class CacheableTree {
         private final TreeType type;
         private final File root;
@@ -236,7 +322,7 @@ public File getRoot() {
     }
 
     @Nullable
-    private TarArchiveEntry unpackTree(String treeName, TreeType treeType, File treeRoot, TarArchiveInputStream input, TarArchiveEntry rootEntry, String childPath, boolean missing, Map<String, FileSystemLocationSnapshot> snapshots, AtomicLong entries) throws IOException {
+    private TarArchiveEntry unpackTree(String treeName, TreeType treeType, File treeRoot, TarArchiveInputStream input, TarArchiveEntry rootEntry, String childPath, boolean missing, Map<String, Supplier<? extends FileSystemLocationSnapshot>> snapshots, AtomicLong entries, UnpackWriter writer) throws IOException {
         boolean isDirEntry = rootEntry.isDirectory();
         boolean root = Strings.isNullOrEmpty(childPath);
         if (!root) {
@@ -244,31 +330,34 @@ private TarArchiveEntry unpackTree(String treeName, TreeType treeType, File tree
         }
         // We are handling the root of the tree here
         if (missing) {
-            fileSystemSupport.ensureFileIsMissing(treeRoot);
+            writer.ensureTreeIsMissing(treeRoot);
             return input.getNextEntry();
         }
 
-        fileSystemSupport.ensureDirectoryForTree(treeType, treeRoot);
+        writer.ensureDirectoryForTree(treeType, treeRoot);
         if (treeType == TreeType.FILE) {
             if (isDirEntry) {
                 throw new IllegalStateException("Should be a file: " + treeName);
             }
-            RegularFileSnapshot fileSnapshot = unpackFile(input, rootEntry, treeRoot, treeRoot.getName());
-            snapshots.put(treeName, fileSnapshot);
+            snapshots.put(treeName, writer.unpackFile(input, rootEntry, treeRoot, treeRoot.getName()));
             return input.getNextEntry();
         }
 
         if (!isDirEntry) {
             throw new IllegalStateException("Should be a directory: " + treeName);
         }
-        chmodUnpackedFile(rootEntry, treeRoot);
+        writer.chmodDirectory(rootEntry, treeRoot);
 
-        return unpackDirectoryTree(input, rootEntry, snapshots, entries, treeRoot, treeName);
+        return unpackDirectoryTree(input, rootEntry, snapshots, entries, treeRoot, treeName, writer);
     }
 
-    private RegularFileSnapshot unpackFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+    private RegularFileSnapshot unpackFile(InputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
         try (CountingOutputStream output = new CountingOutputStream(new FileOutputStream(file))) {
             HashCode hash = streamHasher.hashCopy(input, output);
+            HashCode recordedHash = recordedContentHash(entry);
+            if (recordedHash != null && !recordedHash.equals(hash)) {
+                throw new IllegalStateException(String.format("Cached entry format error, content hash mismatch for %s: recorded %s but unpacked content hashes to %s", entry.getName(), recordedHash, hash));
+            }
             chmodUnpackedFile(entry, file);
             String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
             String internedFileName = stringInterner.intern(fileName);
@@ -277,10 +366,25 @@ private RegularFileSnapshot unpackFile(TarArchiveInputStream input, TarArchiveEn
     }
 
     @Nullable
-    private TarArchiveEntry unpackDirectoryTree(TarArchiveInputStream input, TarArchiveEntry rootEntry, Map<String, FileSystemLocationSnapshot> snapshots, AtomicLong entries, File treeRoot, String treeName) throws IOException {
+    private HashCode recordedContentHash(TarArchiveEntry entry) {
+        String recordedHash = entry.getExtraPaxHeader(CONTENT_HASH_PAX_HEADER);
+        if (recordedHash == null || !recordedHash.startsWith(contentHashPrefix)) {
+            // Not recorded, or recorded with a different hash function
+            return null;
+        }
+        try {
+            return HashCode.fromString(recordedHash.substring(contentHashPrefix.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Cached entry format error, invalid content hash for " + entry.getName(), e);
+        }
+    }
+
+    @Nullable
+    private TarArchiveEntry unpackDirectoryTree(TarArchiveInputStream input, TarArchiveEntry rootEntry, Map<String, Supplier<? extends FileSystemLocationSnapshot>> snapshots, AtomicLong entries, File treeRoot, String treeName, UnpackWriter writer) throws IOException {
         RelativePathParser parser = new RelativePathParser(safeEntryName(rootEntry));
 
-        DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
+        // The snapshots of the files may still be pending, so the snapshot of the tree is built once they are all written
+        PendingDirectorySnapshot builder = new PendingDirectorySnapshot();
         builder.enterDirectory(DIRECT, stringInterner.intern(treeRoot.getAbsolutePath()), stringInterner.intern(treeRoot.getName()), INCLUDE_EMPTY_DIRS);
 
         TarArchiveEntry entry;
@@ -296,23 +400,235 @@ private TarArchiveEntry unpackDirectoryTree(TarArchiveInputStream input, TarArch
             File file = new File(treeRoot, parser.getRelativePath());
             if (isDir) {
                 FileUtils.forceMkdir(file);
-                chmodUnpackedFile(entry, file);
+                writer.chmodDirectory(entry, file);
                 String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
                 String internedName = stringInterner.intern(parser.getName());
                 builder.enterDirectory(DIRECT, internedAbsolutePath, internedName, INCLUDE_EMPTY_DIRS);
             } else {
-                RegularFileSnapshot fileSnapshot = unpackFile(input, entry, file, parser.getName());
-                builder.visitLeafElement(fileSnapshot);
+                builder.visitLeafElement(writer.unpackFile(input, entry, file, parser.getName()));
             }
         }
 
         parser.exitToRoot(builder::leaveDirectory);
         builder.leaveDirectory();
 
-        snapshots.put(treeName, builder.getResult());
+        snapshots.put(treeName, builder);
         return entry;
     }
 
+    /**
+     * Records the structure of an unpacked directory tree and builds its snapshot on demand.
+     */
+    private static class PendingDirectorySnapshot implements Supplier<FileSystemLocationSnapshot> {
+        private final List<Consumer<DirectorySnapshotBuilder>> operations = new ArrayList<>();
+
+        public void enterDirectory(FileMetadata.AccessType accessType, String absolutePath, String name, DirectorySnapshotBuilder.EmptyDirectoryHandlingStrategy emptyDirectoryHandlingStrategy) {
+            operations.add(builder -> builder.enterDirectory(accessType, absolutePath, name, emptyDirectoryHandlingStrategy));
+        }
+
+        public void visitLeafElement(Supplier<RegularFileSnapshot> fileSnapshot) {
+            operations.add(builder -> builder.visitLeafElement(fileSnapshot.get()));
+        }
+
+        public void leaveDirectory() {
+            operations.add(DirectorySnapshotBuilder::leaveDirectory);
+        }
+
+        @Override
+        public FileSystemLocationSnapshot get() {
+            DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
+            operations.forEach(operation -> operation.accept(builder));
+            return builder.getResult();
+        }
+    }
+
+    /**
+     * Writes the files and directories of the entry being unpacked.
+     */
+    private interface UnpackWriter extends Closeable {
+        void ensureTreeIsMissing(File treeRoot) throws IOException;
+
+        void ensureDirectoryForTree(TreeType treeType, File treeRoot) throws IOException;
+
+        /**
+         * Unpacks the content of the current entry of the archive to the given file.
+         * The returned snapshot can only be requested after {@link #finish()}.
+         */
+        Supplier<RegularFileSnapshot> unpackFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException;
+
+        void chmodDirectory(TarArchiveEntry entry, File directory);
+
+        /**
+         * Waits for all files to be written.
+         */
+        void finish() throws IOException;
+
+        /**
+         * Waits for any outstanding work, also when unpacking failed.
+         */
+        @Override
+        void close();
+    }
+
+    private class SequentialUnpackWriter implements UnpackWriter {
+        @Override
+        public void ensureTreeIsMissing(File treeRoot) throws IOException {
+            fileSystemSupport.ensureFileIsMissing(treeRoot);
+        }
+
+        @Override
+        public void ensureDirectoryForTree(TreeType treeType, File treeRoot) throws IOException {
+            fileSystemSupport.ensureDirectoryForTree(treeType, treeRoot);
+        }
+
+        @Override
+        public Supplier<RegularFileSnapshot> unpackFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+            RegularFileSnapshot snapshot = TarBuildCacheEntryPacker.this.unpackFile(input, entry, file, fileName);
+            return () -> snapshot;
+        }
+
+        @Override
+        public void chmodDirectory(TarArchiveEntry entry, File directory) {
+            chmodUnpackedFile(entry, directory);
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private class ParallelUnpackWriter implements UnpackWriter {
+        private final ExecutorService executor;
+        private final Map<File, CompletableFuture<Void>> preparedTrees = new HashMap<>();
+        private final List<CompletableFuture<?>> pendingWrites = new ArrayList<>();
+        private final Semaphore bufferedBytes = new Semaphore(MAX_PARALLEL_UNPACK_BUFFERED_SIZE);
+        private final List<Runnable> directoryPermissions = new ArrayList<>();
+
+        public ParallelUnpackWriter(ExecutorService executor, Collection<CacheableTree> trees) {
+            this.executor = executor;
+            // Overlapping trees need to be prepared in the order they appear in the archive
+            if (trees.size() > 1 && haveDisjointRoots(trees)) {
+                for (CacheableTree tree : trees) {
+                    preparedTrees.put(tree.getRoot(), CompletableFuture.runAsync(() -> {
+                        try {
+                            fileSystemSupport.ensureDirectoryForTree(tree.getType(), tree.getRoot());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, executor));
+                }
+            }
+        }
+
+        @Override
+        public void ensureTreeIsMissing(File treeRoot) throws IOException {
+            awaitPreparedTree(treeRoot);
+            fileSystemSupport.ensureFileIsMissing(treeRoot);
+        }
+
+        @Override
+        public void ensureDirectoryForTree(TreeType treeType, File treeRoot) throws IOException {
+            if (!awaitPreparedTree(treeRoot)) {
+                fileSystemSupport.ensureDirectoryForTree(treeType, treeRoot);
+            }
+        }
+
+        private boolean awaitPreparedTree(File treeRoot) throws IOException {
+            CompletableFuture<Void> preparedTree = preparedTrees.remove(treeRoot);
+            if (preparedTree == null) {
+                return false;
+            }
+            await(preparedTree);
+            return true;
+        }
+
+        @Override
+        public Supplier<RegularFileSnapshot> unpackFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+            long size = entry.getSize();
+            if (size > MAX_PARALLEL_UNPACK_FILE_SIZE) {
+                RegularFileSnapshot snapshot = TarBuildCacheEntryPacker.this.unpackFile(input, entry, file, fileName);
+                return () -> snapshot;
+            }
+            byte[] content = new byte[(int) size];
+            bufferedBytes.acquireUninterruptibly(content.length);
+            CompletableFuture<RegularFileSnapshot> snapshot;
+            try {
+                IOUtils.readFully(input, content);
+                snapshot = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return TarBuildCacheEntryPacker.this.unpackFile(new ByteArrayInputStream(content), entry, file, fileName);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        bufferedBytes.release(content.length);
+                    }
+                }, executor);
+            } catch (IOException | RuntimeException e) {
+                bufferedBytes.release(content.length);
+                throw e;
+            }
+            pendingWrites.add(snapshot);
+            return snapshot::join;
+        }
+
+        @Override
+        public void chmodDirectory(TarArchiveEntry entry, File directory) {
+            // Set once all files have been written, so a read-only directory doesn't prevent writing its children
+            directoryPermissions.add(() -> chmodUnpackedFile(entry, directory));
+        }
+
+        @Override
+        public void finish() throws IOException {
+            for (CompletableFuture<?> pendingWrite : pendingWrites) {
+                await(pendingWrite);
+            }
+            pendingWrites.clear();
+            directoryPermissions.forEach(Runnable::run);
+        }
+
+        @Override
+        public void close() {
+            for (CompletableFuture<?> pending : Iterables.concat(preparedTrees.values(), pendingWrites)) {
+                try {
+                    pending.join();
+                } catch (CompletionException ignored) {
+                    // Unpacking already failed
+                }
+            }
+        }
+    }
+
+    private static boolean haveDisjointRoots(Collection<CacheableTree> trees) {
+        List<Path> roots = trees.stream()
+            .map(tree -> tree.getRoot().toPath().toAbsolutePath().normalize())
+            .collect(Collectors.toList());
+        for (Path root : roots) {
+            for (Path other : roots) {
+                if (root != other && other.startsWith(root)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void await(CompletableFuture<?> future) throws IOException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            Throwables.throwIfUnchecked(cause);
+            throw e;
+        }
+    }
+
     /**
      * Returns a safe name for the name of a tar archive entry.
      *
@@ -375,7 +691,12 @@ public void visitRegularFile(RegularFileSnapshot fileSnapshot) {
                     assertCorrectType(isRoot, snapshot);
                     File file = new File(snapshot.getAbsolutePath());
                     int fileMode = filePermissionAccess.getUnixMode(file);
-                    storeFileEntry(file, targetPath, file.length(), fileMode, tarOutput);
+                    long length = file.length();
+                    // Only record the hash when the file still looks like what has been snapshotted
+                    HashCode contentHash = fileSnapshot.getMetadata().getLength() == length && fileSnapshot.getMetadata().getLastModified() == file.lastModified()
+                        ? fileSnapshot.getHash()
+                        : null;
+                    storeFileEntry(file, targetPath, length, fileMode, contentHash, tarOutput);
                 }
 
                 @Override
@@ -437,9 +758,13 @@ private void storeDirectoryEntry(String path, int mode, TarArchiveOutputStream t
             }
         }
 
-        private void storeFileEntry(File inputFile, String path, long size, int mode, TarArchiveOutputStream tarOutput) {
+        private void storeFileEntry(File inputFile, String path, long size, int mode, @Nullable HashCode contentHash, TarArchiveOutputStream tarOutput) {
             try {
-                createTarEntry(path, size, UnixPermissions.FILE_FLAG | mode, tarOutput);
+                TarArchiveEntry entry = newTarEntry(path, size, UnixPermissions.FILE_FLAG | mode);
+                if (contentHash != null) {
+                    entry.addPaxHeader(CONTENT_HASH_PAX_HEADER, contentHashPrefix + contentHash);
+                }
+                tarOutput.putArchiveEntry(entry);
                 try (FileInputStream input = new FileInputStream(inputFile)) {
                     IOUtils.copyLarge(input, tarOutput, bufferProvider.getBuffer());
                 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl
+
+import org.gradle.caching.internal.CacheableEntity
+import org.gradle.caching.internal.origin.OriginReader
+import org.gradle.caching.internal.origin.OriginWriter
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
+import org.gradle.internal.snapshot.FileSystemSnapshot
+import spock.lang.Specification
+
+import java.util.zip.GZIPInputStream
+
+import static org.gradle.caching.internal.packaging.BuildCacheEntryCompression.GZIP
+import static org.gradle.caching.internal.packaging.BuildCacheEntryCompression.LZ4
+
+class CompressingBuildCacheEntryPackerTest extends Specification {
+    def content = ("cache entry content " * 10000).bytes
+    def unpackedContent = new ByteArrayOutputStream()
+    def delegate = new BuildCacheEntryPacker() {
+        @Override
+        PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) {
+            output.write(content)
+            return new PackResult(1)
+        }
+
+        @Override
+        UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) {
+            unpackedContent << input
+            return new UnpackResult(null, 1, [:])
+        }
+    }
+
+    def "can unpack entries packed with #packedWith when configured to use #configured"() {
+        def packed = new ByteArrayOutputStream()
+
+        when:
+        new CompressingBuildCacheEntryPacker(delegate, packedWith).pack(Stub(CacheableEntity), [:], packed, Stub(OriginWriter))
+        new CompressingBuildCacheEntryPacker(delegate, configured).unpack(Stub(CacheableEntity), new ByteArrayInputStream(packed.toByteArray()), Stub(OriginReader))
+
+        then:
+        unpackedContent.toByteArray() == content
+        packed.size() < content.length
+
+        where:
+        [packedWith, configured] << [[GZIP, LZ4], [GZIP, LZ4]].combinations()
+    }
+
+    def "GZIP entries are plain GZIP streams"() {
+        def packed = new ByteArrayOutputStream()
+
+        when:
+        new CompressingBuildCacheEntryPacker(delegate, GZIP).pack(Stub(CacheableEntity), [:], packed, Stub(OriginWriter))
+
+        then:
+        new GZIPInputStream(new ByteArrayInputStream(packed.toByteArray())).bytes == content
+    }
+
+    def "fails to unpack entry with unknown header"() {
+        when:
+        new CompressingBuildCacheEntryPacker(delegate, GZIP).unpack(Stub(CacheableEntity), new ByteArrayInputStream([1, 2, 3] as byte[]), Stub(OriginReader))
+
+        then:
+        def ex = thrown(IOException)
+        ex.message == "Unknown build cache entry format (header 0x0102)."
+    }
+
+    def "fails to unpack LZ4 entry with unsupported format version"() {
+        when:
+        new CompressingBuildCacheEntryPacker(delegate, GZIP).unpack(Stub(CacheableEntity), new ByteArrayInputStream("GLZ4".bytes + ([2] as byte[])), Stub(OriginReader))
+
+        then:
+        def ex = thrown(IOException)
+        ex.message == "Unsupported LZ4 build cache entry format version 2, expected 1."
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl
+
+import org.apache.commons.io.IOUtils
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.caching.internal.packaging.BuildCacheEntryDeduplicator
+import org.gradle.internal.file.Deleter
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.nativeintegration.filesystem.FileSystem
+
+import java.util.zip.GZIPOutputStream
+
+import static org.gradle.caching.internal.packaging.BuildCacheEntryCompression.GZIP
+import static org.gradle.internal.file.TreeType.DIRECTORY
+
+class TarBuildCacheEntryDeduplicatorTest extends AbstractTarBuildCacheEntryPackerSpec {
+    def deduplicator = new TarBuildCacheEntryDeduplicator(100)
+    def blobs = new InMemoryBlobStore()
+    def largeContent = ("shared content " * 100).bytes
+
+    @Override
+    protected FilePermissionAccess createFilePermissionAccess() {
+        new FilePermissionAccess() {
+            @Delegate
+            FileSystem fs = TestFiles.fileSystem()
+        }
+    }
+
+    @Override
+    protected Deleter createDeleter() {
+        TestFiles.deleter()
+    }
+
+    def "stores content shared by entries once"() {
+        def firstEntry = packDirectory("first") {
+            it.file("large.bin").bytes = largeContent
+            it.file("small.txt") << "first"
+        }
+        def secondEntry = packDirectory("second") {
+            it.file("sub/copy.bin").bytes = largeContent
+            it.file("small.txt") << "second"
+        }
+        def firstManifest = new ByteArrayOutputStream()
+        def secondManifest = new ByteArrayOutputStream()
+
+        when:
+        def firstSplit = deduplicator.split(new ByteArrayInputStream(firstEntry), firstManifest, blobs)
+        def secondSplit = deduplicator.split(new ByteArrayInputStream(secondEntry), secondManifest, blobs)
+
+        then:
+        firstSplit
+        secondSplit
+        blobs.content.size() == 1
+        blobs.content.values()[0] == largeContent
+        firstManifest.size() < firstEntry.length
+        deduplicator.isManifest(new ByteArrayInputStream(firstManifest.toByteArray()))
+        !deduplicator.isManifest(new ByteArrayInputStream(firstEntry))
+
+        when:
+        def targetDir = temporaryFolder.file("target")
+        def result = unpackJoined(secondManifest.toByteArray(), targetDir)
+
+        then:
+        result.entries == 5
+        targetDir.file("sub/copy.bin").bytes == largeContent
+        targetDir.file("small.txt").text == "second"
+    }
+
+    def "does not reference blobs for entries without large files"() {
+        def entry = packDirectory("source") {
+            it.file("small.txt") << "small"
+        }
+
+        expect:
+        !deduplicator.split(new ByteArrayInputStream(entry), new ByteArrayOutputStream(), blobs)
+        blobs.content.isEmpty()
+    }
+
+    def "visits referenced blobs without reading them"() {
+        def entry = packDirectory("source") {
+            it.file("large.bin").bytes = largeContent
+            it.file("small.txt") << "small"
+        }
+        def manifest = new ByteArrayOutputStream()
+        deduplicator.split(new ByteArrayInputStream(entry), manifest, blobs)
+        def storedBlobs = new ArrayList<String>(blobs.content.keySet())
+        blobs.content.clear()
+
+        when:
+        def visited = []
+        deduplicator.visitReferencedBlobs(new ByteArrayInputStream(manifest.toByteArray())) { visited << it }
+
+        then:
+        visited == storedBlobs
+    }
+
+    def "fails to join when blob is missing"() {
+        def entry = packDirectory("source") {
+            it.file("large.bin").bytes = largeContent
+        }
+        def manifest = new ByteArrayOutputStream()
+        deduplicator.split(new ByteArrayInputStream(entry), manifest, blobs)
+        blobs.content.clear()
+
+        when:
+        deduplicator.join(new ByteArrayInputStream(manifest.toByteArray()), new ByteArrayOutputStream(), blobs)
+
+        then:
+        thrown(FileNotFoundException)
+    }
+
+    private byte[] packDirectory(String name, Closure<?> contents) {
+        def sourceDir = temporaryFolder.file(name).createDir()
+        contents(sourceDir)
+        def tar = new ByteArrayOutputStream()
+        pack tar, prop(DIRECTORY, sourceDir)
+        def entry = new ByteArrayOutputStream()
+        new GZIPOutputStream(entry).withCloseable { it.write(tar.toByteArray()) }
+        return entry.toByteArray()
+    }
+
+    private unpackJoined(byte[] manifest, File targetDir) {
+        def joined = new ByteArrayOutputStream()
+        deduplicator.join(new ByteArrayInputStream(manifest), joined, blobs)
+        new CompressingBuildCacheEntryPacker(packer, GZIP).unpack(entity(prop(DIRECTORY, targetDir)), new ByteArrayInputStream(joined.toByteArray()), readOrigin)
+    }
+
+    private static class InMemoryBlobStore implements BuildCacheEntryDeduplicator.BlobStore {
+        Map<String, byte[]> content = [:]
+
+        @Override
+        String store(InputStream input) {
+            def bytes = IOUtils.toByteArray(input)
+            def name = "sha256-" + Hashing.sha256().hashBytes(bytes)
+            content.putIfAbsent(name, bytes)
+            return name
+        }
+
+        @Override
+        InputStream open(String name) {
+            def blob = content[name]
+            if (blob == null) {
+                throw new FileNotFoundException(name)
+            }
+            return new ByteArrayInputStream(blob)
+        }
+    }
+}
@@ -19,11 +19,18 @@ package org.gradle.caching.internal.packaging.impl
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream
 import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.file.BufferProvider
 import org.gradle.internal.file.Deleter
+import org.gradle.internal.hash.DefaultStreamHasher
+import org.gradle.internal.hash.Hashing
 import org.gradle.internal.nativeintegration.filesystem.FileSystem
+import org.gradle.internal.snapshot.DirectorySnapshot
+import org.gradle.internal.snapshot.RegularFileSnapshot
 import org.gradle.test.precondition.Requires
 import org.gradle.test.preconditions.UnitTestPreconditions
 
+import java.util.concurrent.Executors
+
 import static org.gradle.internal.file.TreeType.DIRECTORY
 import static org.gradle.internal.file.TreeType.FILE
 
@@ -273,4 +280,116 @@ class TarBuildCacheEntryPackerTest extends AbstractTarBuildCacheEntryPackerSpec
         iae.message == "'tree-destinationDir/../evil.txt' is not a safe archive entry or path name."
         !temporaryFolder.file("evil.txt").exists()
     }
+
+    def "content hashes recorded when packing match the hashes of unpacked files"() {
+        def sourceDir = temporaryFolder.file("source").createDir()
+        sourceDir.file("data.txt") << "output"
+        def targetDir = temporaryFolder.file("target")
+        def output = new ByteArrayOutputStream()
+        pack output, prop(DIRECTORY, sourceDir)
+
+        when:
+        def result = packer.unpack(entity(prop(DIRECTORY, targetDir)), new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        targetDir.file("data.txt").text == "output"
+        def fileSnapshot = (result.snapshots["test"] as DirectorySnapshot).children[0] as RegularFileSnapshot
+        fileSnapshot.hash == streamHasher.hash(new ByteArrayInputStream("output".bytes))
+    }
+
+    def "fails unpacking when recorded content hash does not match the content"() {
+        given:
+        def targetDir = temporaryFolder.file("target")
+        def output = new ByteArrayOutputStream()
+        def recordedHash = streamHasher.hash(new ByteArrayInputStream("original".bytes))
+
+        new TarArchiveOutputStream(output).withCloseable { tar ->
+            def metadataBytes = "".bytes
+            def metadataEntry = new TarArchiveEntry("METADATA")
+            metadataEntry.size = metadataBytes.length
+            tar.putArchiveEntry(metadataEntry)
+            tar.write(metadataBytes)
+            tar.closeArchiveEntry()
+
+            tar.putArchiveEntry(new TarArchiveEntry("tree-destinationDir/"))
+            tar.closeArchiveEntry()
+
+            def tamperedBytes = "tampered".bytes
+            def fileEntry = new TarArchiveEntry("tree-destinationDir/data.txt")
+            fileEntry.size = tamperedBytes.length
+            fileEntry.addPaxHeader(TarBuildCacheEntryPacker.CONTENT_HASH_PAX_HEADER, streamHasher.hashFunction.algorithm + ":" + recordedHash)
+            tar.putArchiveEntry(fileEntry)
+            tar.write(tamperedBytes)
+            tar.closeArchiveEntry()
+        }
+
+        when:
+        unpack new ByteArrayInputStream(output.toByteArray()), prop("destinationDir", DIRECTORY, targetDir)
+
+        then:
+        def ex = thrown(IllegalStateException)
+        ex.message.startsWith("Cached entry format error, content hash mismatch for tree-destinationDir/data.txt: recorded ${recordedHash}")
+    }
+
+    def "hashes unpacked files when content hashes were recorded with a different hash function"() {
+        def sourceDir = temporaryFolder.file("source").createDir()
+        sourceDir.file("data.txt") << "output"
+        def targetDir = temporaryFolder.file("target")
+        def output = new ByteArrayOutputStream()
+        pack output, prop(DIRECTORY, sourceDir)
+
+        def unpackHasher = new DefaultStreamHasher(Hashing.murmur3_128())
+        def unpacker = new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, unpackHasher, stringInterner, Stub(BufferProvider) {
+            getBuffer() >> new byte[4096]
+        })
+
+        when:
+        def result = unpacker.unpack(entity(prop(DIRECTORY, targetDir)), new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        targetDir.file("data.txt").text == "output"
+        def fileSnapshot = (result.snapshots["test"] as DirectorySnapshot).children[0] as RegularFileSnapshot
+        fileSnapshot.hash == unpackHasher.hash(new ByteArrayInputStream("output".bytes))
+    }
+
+    def "unpacking with writer threads produces same outputs and snapshots"() {
+        def sourceDir = temporaryFolder.file("source").createDir()
+        sourceDir.file("subdir/data.txt") << "output"
+        sourceDir.file("subdir/nested/other.txt") << "other"
+        sourceDir.file("subdir/empty").createDir()
+        def largeContent = new byte[2 * 1024 * 1024]
+        new Random(1234).nextBytes(largeContent)
+        sourceDir.file("large.bin").bytes = largeContent
+        def sourceFile = temporaryFolder.file("source-file.txt") << "file"
+        def output = new ByteArrayOutputStream()
+        pack output, prop("dir", DIRECTORY, sourceDir), prop("file", FILE, sourceFile)
+
+        def sequentialDir = temporaryFolder.file("sequential/dir")
+        def sequentialFile = temporaryFolder.file("sequential/file.txt")
+        def parallelDir = temporaryFolder.file("parallel/dir")
+        def parallelFile = temporaryFolder.file("parallel/file.txt")
+        // Stale outputs are removed
+        parallelDir.file("stale.txt") << "stale"
+        def parallelPacker = new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, streamHasher, stringInterner, Stub(BufferProvider) {
+            getBuffer() >> new byte[4096]
+        }, Executors.newFixedThreadPool(4))
+
+        when:
+        def sequentialResult = unpack new ByteArrayInputStream(output.toByteArray()), prop("dir", DIRECTORY, sequentialDir), prop("file", FILE, sequentialFile)
+        def parallelResult = parallelPacker.unpack(entity(prop("dir", DIRECTORY, parallelDir), prop("file", FILE, parallelFile)), new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        parallelResult.entries == sequentialResult.entries
+        parallelResult.snapshots["dir"].hash == sequentialResult.snapshots["dir"].hash
+        parallelResult.snapshots["file"].hash == sequentialResult.snapshots["file"].hash
+        parallelDir.file("subdir/data.txt").text == "output"
+        parallelDir.file("subdir/nested/other.txt").text == "other"
+        parallelDir.file("subdir/empty").directory
+        parallelDir.file("large.bin").bytes == largeContent
+        !parallelDir.file("stale.txt").exists()
+        parallelFile.text == "file"
+
+        cleanup:
+        parallelPacker.close()
+    }
 }
@@ -11,6 +11,7 @@ dependencies {
     api(projects.buildCachePackaging)
     api(projects.buildCacheSpi)
     api(projects.buildOperations)
+    api(projects.concurrent)
     api(projects.enterpriseOperations)
     api(projects.files)
     api(projects.hashing)
@@ -19,11 +20,13 @@ dependencies {
     api(libs.jsr305)
 
     api(projects.stdlibJavaExtensions)
+    implementation(projects.functional)
     implementation(libs.commonsIo)
     api(libs.guava)
     implementation(libs.slf4jApi)
 
     jmhImplementation(projects.baseServices)
+    jmhImplementation(projects.io)
     jmhImplementation(projects.native)
     jmhImplementation(platform(projects.distributionsDependencies))
     jmhImplementation(libs.aircompressor)
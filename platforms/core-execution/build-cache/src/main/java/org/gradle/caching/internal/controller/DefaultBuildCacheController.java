@@ -45,10 +45,12 @@
 import org.gradle.caching.local.internal.DefaultBuildCacheTempFileStore;
 import org.gradle.caching.local.internal.LocalBuildCacheService;
 import org.gradle.caching.local.internal.TemporaryFileFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.file.FileMetadata;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.file.TreeType;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.io.IoSupplier;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
@@ -60,13 +62,17 @@
 import org.gradle.internal.snapshot.MissingFileSnapshot;
 
 import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -80,6 +86,9 @@ public class DefaultBuildCacheController implements BuildCacheController {
 
     private final BuildCacheTempFileStore tmp;
     private final PackOperationExecutor packExecutor;
+    private final TemporaryFileFactory temporaryFileFactory;
+    @Nullable
+    private final RemoteStoreQueue remoteStoreQueue;
 
     private boolean closed;
 
@@ -93,6 +102,27 @@ public DefaultBuildCacheController(
         BuildCacheEntryPacker packer,
         OriginMetadataFactory originMetadataFactory,
         Interner<String> stringInterner
+    ) {
+        this(config, buildOperationRunner, buildOperationProgressEventEmitter, temporaryFileFactory, logStackTraces, disableRemoteOnError, packer, originMetadataFactory, stringInterner, null, null);
+    }
+
+    /**
+     * @param executorFactory creates the threads storing entries in the background, required when {@code remoteStoreDeadline} is not {@code null}.
+     * @param remoteStoreDeadline when not {@code null}, entries are stored in the remote cache in the background,
+     * and closing the controller waits at most this long for them to be stored.
+     */
+    public DefaultBuildCacheController(
+        BuildCacheServicesConfiguration config,
+        BuildOperationRunner buildOperationRunner,
+        BuildOperationProgressEventEmitter buildOperationProgressEventEmitter,
+        TemporaryFileFactory temporaryFileFactory,
+        boolean logStackTraces,
+        boolean disableRemoteOnError,
+        BuildCacheEntryPacker packer,
+        OriginMetadataFactory originMetadataFactory,
+        Interner<String> stringInterner,
+        @Nullable ExecutorFactory executorFactory,
+        @Nullable Duration remoteStoreDeadline
     ) {
         this.local = toLocalHandle(config.getLocal(), config.isLocalPush(), buildOperationRunner);
         this.remote = toRemoteHandle(config.getBuildPath(), config.getRemote(), config.isRemotePush(), buildOperationRunner, buildOperationProgressEventEmitter, logStackTraces, disableRemoteOnError);
@@ -103,6 +133,10 @@ public DefaultBuildCacheController(
             originMetadataFactory,
             stringInterner
         );
+        this.temporaryFileFactory = temporaryFileFactory;
+        this.remoteStoreQueue = remoteStoreDeadline != null && remote.canStore()
+            ? new RemoteStoreQueue(remote, buildOperationRunner, Objects.requireNonNull(executorFactory), remoteStoreDeadline)
+            : null;
     }
 
     @Override
@@ -121,7 +155,7 @@ public Optional<BuildCacheLoadResult> load(BuildCacheKey key, CacheableEntity en
 
     private Optional<BuildCacheLoadResult> loadLocal(BuildCacheKey key, CacheableEntity entity) {
         try {
-            return local.maybeLoad(key, file -> packExecutor.unpack(key, entity, file));
+            return local.maybeLoad(key, file -> packExecutor.unpack(key, entity, file), content -> packExecutor.unpack(key, entity, content));
         } catch (Exception e) {
             throw new BuildCacheOperationException("Could not load from local cache: " + e.getMessage(), e);
         }
@@ -154,11 +188,37 @@ public void store(BuildCacheKey key, CacheableEntity entity, Map<String, FileSys
         }
         tmp.withTempFile(((BuildCacheKeyInternal) key).getHashCodeInternal(), file -> {
             packExecutor.pack(file, key, entity, snapshots, executionTime);
-            remote.maybeStore(key, file);
-            local.maybeStore(key, file);
+            RemoteStoreQueue queue = remoteStoreQueue;
+            File queuedFile = queue != null && remote.canStore()
+                ? copyForRemoteStore(key, file)
+                : null;
+            if (queue != null && queuedFile != null) {
+                local.maybeStore(key, file);
+                queue.enqueue(key, queuedFile);
+            } else {
+                remote.maybeStore(key, file);
+                local.maybeStore(key, file);
+            }
         });
     }
 
+    /**
+     * The local store takes ownership of the packed file, so the remote store gets its own copy.
+     * Returns {@code null} when the copy cannot be created, in which case the entry is stored synchronously.
+     */
+    @Nullable
+    private File copyForRemoteStore(BuildCacheKey key, File file) {
+        File copy = temporaryFileFactory.createTemporaryFile(key.getHashCode() + "-", ".upload");
+        try {
+            Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return copy;
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            copy.delete();
+            return null;
+        }
+    }
+
     @Override
     public void close() throws IOException {
         if (!closed) {
@@ -166,6 +226,10 @@ public void close() throws IOException {
             Closer closer = Closer.create();
             closer.register(local);
             closer.register(remote);
+            if (remoteStoreQueue != null) {
+                // Registered last so it is closed first, while the remote cache is still available
+                closer.register(remoteStoreQueue);
+            }
             closer.close();
         }
     }
@@ -186,11 +250,19 @@ static class PackOperationExecutor {
 
         @VisibleForTesting
         BuildCacheLoadResult unpack(BuildCacheKey key, CacheableEntity entity, File file) {
+            //noinspection IOStreamConstructor
+            return unpack(key, entity, file.length(), () -> new FileInputStream(file));
+        }
+
+        BuildCacheLoadResult unpack(BuildCacheKey key, CacheableEntity entity, byte[] content) {
+            return unpack(key, entity, content.length, () -> new ByteArrayInputStream(content));
+        }
+
+        private BuildCacheLoadResult unpack(BuildCacheKey key, CacheableEntity entity, long archiveSize, IoSupplier<InputStream> content) {
             return buildOperationRunner.call(new CallableBuildOperation<BuildCacheLoadResult>() {
                 @Override
                 public BuildCacheLoadResult call(BuildOperationContext context) throws IOException {
-                    //noinspection IOStreamConstructor
-                    try (InputStream input = new FileInputStream(file)) {
+                    try (InputStream input = content.get()) {
                         BuildCacheLoadResult metadata = doUnpack(entity, input);
                         context.setResult(new UnpackOperationResult(metadata.getArtifactEntryCount()));
                         return metadata;
@@ -200,7 +272,7 @@ public BuildCacheLoadResult call(BuildOperationContext context) throws IOExcepti
                 @Override
                 public BuildOperationDescriptor.Builder description() {
                     return BuildOperationDescriptor.displayName("Unpack build cache entry " + key.getHashCode())
-                        .details(new UnpackOperationDetails(key, file.length()))
+                        .details(new UnpackOperationDetails(key, archiveSize))
                         .progressDisplayName("Unpacking build cache entry");
                 }
             });
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller;
+
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.internal.controller.operations.StoreQueueOperationDetails;
+import org.gradle.caching.internal.controller.operations.StoreQueueOperationResult;
+import org.gradle.caching.internal.controller.service.RemoteBuildCacheServiceHandle;
+import org.gradle.caching.internal.controller.service.RemoteBuildCacheServiceHandle.StoreAttemptResult;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.ManagedScheduledExecutor;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.BuildOperationRunner;
+import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores entries in the remote build cache in the background, so the work producing them doesn't wait for the upload.
+ * <p>
+ * The queue is bounded, entries are dropped when it is full.
+ * Transport and server failures are retried after a backoff, without holding on to an upload thread in the meantime.
+ * The stores run as children of a build operation that is started with the first queued entry and finished when the queue is closed,
+ * as the work that produced an entry has usually finished by the time it is stored.
+ * Closing the queue waits for the queued entries to be stored until the deadline passes, the remaining ones are dropped.
+ */
+class RemoteStoreQueue implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteStoreQueue.class);
+
+    private static final int UPLOAD_THREADS = 4;
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(500);
+
+    private final RemoteBuildCacheServiceHandle remote;
+    private final BuildOperationRunner buildOperationRunner;
+    private final Duration deadline;
+    private final ManagedExecutor executor;
+    private final ManagedScheduledExecutor retryExecutor;
+
+    private final Set<StoreTask> pending = ConcurrentHashMap.newKeySet();
+    private final Object drained = new Object();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong storedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    @Nullable
+    private BuildOperationContext storeOperation;
+    @Nullable
+    private volatile BuildOperationRef storeOperationRef;
+
+    RemoteStoreQueue(RemoteBuildCacheServiceHandle remote, BuildOperationRunner buildOperationRunner, ExecutorFactory executorFactory, Duration deadline) {
+        this.remote = remote;
+        this.buildOperationRunner = buildOperationRunner;
+        this.deadline = deadline;
+        this.executor = executorFactory.create("Build cache remote store", UPLOAD_THREADS);
+        this.retryExecutor = executorFactory.createScheduled("Build cache remote store retry", 1);
+    }
+
+    /**
+     * Queues the given file to be stored, the queue takes ownership of the file and deletes it once done.
+     */
+    public void enqueue(BuildCacheKey key, File file) {
+        if (pending.size() >= QUEUE_CAPACITY) {
+            droppedCount.incrementAndGet();
+            LOGGER.info("Not storing entry {} in remote build cache, too many entries are waiting to be stored.", key.getHashCode());
+            deleteFile(file);
+            return;
+        }
+        startStoreOperation();
+        StoreTask task = new StoreTask(key, file);
+        pending.add(task);
+        queuedCount.incrementAndGet();
+        maxQueueDepth.accumulateAndGet(pending.size(), Math::max);
+        task.submit();
+    }
+
+    private synchronized void startStoreOperation() {
+        if (storeOperation != null) {
+            return;
+        }
+        // Not a child of the current operation, which usually finishes before the queued entries are stored
+        CurrentBuildOperationRef.instance().with(null, () -> {
+            storeOperation = buildOperationRunner.start(BuildOperationDescriptor.displayName("Store entries in remote build cache in the background"));
+            storeOperationRef = CurrentBuildOperationRef.instance().get();
+        });
+    }
+
+    private synchronized void finishStoreOperation() {
+        BuildOperationContext operation = storeOperation;
+        if (operation != null) {
+            // Finishing the operation resets the current operation of this thread
+            CurrentBuildOperationRef.instance().with(storeOperationRef, () -> operation.setResult(null));
+            storeOperation = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (queuedCount.get() != 0 || droppedCount.get() != 0) {
+                buildOperationRunner.run(new RunnableBuildOperation() {
+                    @Override
+                    public void run(BuildOperationContext context) {
+                        awaitStored();
+                        context.setResult(new StoreQueueOperationResult(maxQueueDepth.get(), storedCount.get(), failedCount.get(), droppedCount.get()));
+                    }
+
+                    @Override
+                    public BuildOperationDescriptor.Builder description() {
+                        return BuildOperationDescriptor.displayName("Wait for entries to be stored in remote build cache")
+                            .details(new StoreQueueOperationDetails(deadline.toMillis()))
+                            .progressDisplayName("Uploading to remote build cache");
+                    }
+                });
+            }
+        } finally {
+            CompositeStoppable.stoppable(retryExecutor, executor).stop();
+            finishStoreOperation();
+        }
+    }
+
+    private void awaitStored() {
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        synchronized (drained) {
+            try {
+                long remainingNanos;
+                while (!pending.isEmpty() && (remainingNanos = deadlineNanos - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(drained, remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!pending.isEmpty()) {
+            int dropped = 0;
+            for (StoreTask task : pending) {
+                if (task.drop()) {
+                    dropped++;
+                }
+            }
+            LOGGER.warn("Not all entries could be stored in the remote build cache within {} seconds, {} entries have been dropped.", deadline.getSeconds(), dropped);
+            // Interrupted stores finish quickly
+            retryExecutor.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void deleteFile(File file) {
+        if (!file.delete() && file.exists()) {
+            LOGGER.debug("Could not delete {}", file);
+        }
+    }
+
+    private class StoreTask implements Runnable {
+        private final BuildCacheKey key;
+        private final File file;
+        private int attempt = 1;
+        private Duration backoff = INITIAL_BACKOFF;
+
+        // Guarded by this
+        private boolean done;
+        // Guarded by this, the file is deleted by the thread storing it once the attempt has finished
+        private boolean storing;
+
+        StoreTask(BuildCacheKey key, File file) {
+            this.key = key;
+            this.file = file;
+        }
+
+        void submit() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                drop();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (Thread.currentThread().isInterrupted()) {
+                drop();
+                return;
+            }
+            if (!startStoring()) {
+                return;
+            }
+            StoreAttemptResult result;
+            try {
+                result = CurrentBuildOperationRef.instance().with(storeOperationRef, () -> remote.attemptStore(key, file, attempt >= MAX_ATTEMPTS));
+            } finally {
+                finishStoring();
+            }
+            switch (result) {
+                case STORED:
+                    finish(storedCount);
+                    break;
+                case FAILED:
+                    finish(failedCount);
+                    break;
+                case RETRYABLE_FAILURE:
+                    scheduleRetry();
+                    break;
+                default:
+                    throw new AssertionError(result);
+            }
+        }
+
+        private synchronized boolean startStoring() {
+            if (done) {
+                return false;
+            }
+            storing = true;
+            return true;
+        }
+
+        private synchronized void finishStoring() {
+            storing = false;
+            if (done) {
+                // Dropped while storing
+                deleteFile(file);
+            }
+        }
+
+        private void scheduleRetry() {
+            Duration delay = backoff;
+            attempt++;
+            backoff = backoff.multipliedBy(2);
+            try {
+                retryExecutor.schedule(this::submit, delay.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                drop();
+            }
+        }
+
+        /**
+         * Drops the entry unless it has already been stored or has failed, returns whether it was dropped.
+         */
+        boolean drop() {
+            return finish(droppedCount);
+        }
+
+        private boolean finish(AtomicLong outcomeCount) {
+            synchronized (this) {
+                if (done) {
+                    return false;
+                }
+                done = true;
+                if (!storing) {
+                    deleteFile(file);
+                }
+            }
+            outcomeCount.incrementAndGet();
+            pending.remove(this);
+            synchronized (drained) {
+                drained.notifyAll();
+            }
+            return true;
+        }
+    }
+}
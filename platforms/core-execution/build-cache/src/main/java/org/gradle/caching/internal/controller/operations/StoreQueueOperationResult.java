@@ -0,0 +1,54 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.operations;
+
+import org.gradle.caching.internal.operations.BuildCacheRemoteStoreQueueBuildOperationType;
+
+public class StoreQueueOperationResult implements BuildCacheRemoteStoreQueueBuildOperationType.Result {
+
+    private final int maxQueueDepth;
+    private final long storedCount;
+    private final long failedCount;
+    private final long droppedCount;
+
+    public StoreQueueOperationResult(int maxQueueDepth, long storedCount, long failedCount, long droppedCount) {
+        this.maxQueueDepth = maxQueueDepth;
+        this.storedCount = storedCount;
+        this.failedCount = failedCount;
+        this.droppedCount = droppedCount;
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    @Override
+    public long getStoredCount() {
+        return storedCount;
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+}
@@ -43,8 +43,11 @@ public LocalBuildCacheService getService() {
     }
 
     @Override
-    public Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction) {
+    public Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction, Function<byte[], BuildCacheLoadResult> inMemoryUnpackFunction) {
         AtomicReference<Optional<BuildCacheLoadResult>> result = new AtomicReference<>(Optional.empty());
+        if (service.loadFromMemory(key, content -> result.set(Optional.ofNullable(inMemoryUnpackFunction.apply(content))))) {
+            return result.get();
+        }
         service.loadLocally(key, file -> result.set(Optional.ofNullable(unpackFunction.apply(file))));
         return result.get();
     }
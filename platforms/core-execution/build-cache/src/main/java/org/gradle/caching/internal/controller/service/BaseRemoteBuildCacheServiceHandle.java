@@ -19,6 +19,7 @@
 import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.RetryableBuildCacheException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,7 +63,8 @@ public String describeFailure(BuildCacheKey key, BuildCacheServiceRole role) {
     private final boolean logStackTraces;
     private final boolean disableOnError;
 
-    private boolean disabled;
+    // Entries may be stored in the background
+    private volatile boolean disabled;
 
     public BaseRemoteBuildCacheServiceHandle(
         BuildCacheService service,
@@ -127,17 +129,29 @@ public boolean canStore() {
 
     @Override
     public final boolean maybeStore(BuildCacheKey key, File file) {
+        return attemptStore(key, file, true) == StoreAttemptResult.STORED;
+    }
+
+    @Override
+    public final StoreAttemptResult attemptStore(BuildCacheKey key, File file, boolean lastAttempt) {
         if (!canStore()) {
-            return false;
+            return StoreAttemptResult.FAILED;
         }
         String description = Operation.STORE.describe(key, role);
         LOGGER.debug(description);
         try {
             storeInner(description, key, new StoreTarget(file));
-            return true;
+            return StoreAttemptResult.STORED;
+        } catch (RetryableBuildCacheException e) {
+            if (!lastAttempt && canStore()) {
+                LOGGER.debug("Could not store entry {} in {} build cache, will retry: {}", key.getHashCode(), role.getDisplayName(), e.getMessage());
+                return StoreAttemptResult.RETRYABLE_FAILURE;
+            }
+            failure(Operation.STORE, key, e);
+            return StoreAttemptResult.FAILED;
         } catch (Exception e) {
             failure(Operation.STORE, key, e);
-            return false;
+            return StoreAttemptResult.FAILED;
         }
     }
 
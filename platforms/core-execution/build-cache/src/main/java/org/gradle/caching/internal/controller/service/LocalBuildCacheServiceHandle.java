@@ -32,8 +32,12 @@ public interface LocalBuildCacheServiceHandle extends Closeable {
     @VisibleForTesting
     LocalBuildCacheService getService();
 
+    /**
+     * Loads the entry from the local cache, unpacking it from memory via {@code inMemoryUnpackFunction} if it is held there,
+     * or from its file via {@code unpackFunction} otherwise.
+     */
     // TODO: what if this errors?
-    Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction);
+    Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction, Function<byte[], BuildCacheLoadResult> inMemoryUnpackFunction);
 
     boolean canStore();
 
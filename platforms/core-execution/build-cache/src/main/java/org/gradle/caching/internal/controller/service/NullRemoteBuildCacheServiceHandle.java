@@ -54,6 +54,11 @@ public boolean maybeStore(BuildCacheKey key, File file) {
         return false;
     }
 
+    @Override
+    public StoreAttemptResult attemptStore(BuildCacheKey key, File file, boolean lastAttempt) {
+        return StoreAttemptResult.FAILED;
+    }
+
     @Override
     public void close() {
 
@@ -19,6 +19,7 @@
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.internal.operations.BuildCacheLocalLoadBuildOperationType;
 import org.gradle.caching.internal.operations.BuildCacheLocalStoreBuildOperationType;
+import org.gradle.caching.local.internal.InMemoryBuildCacheStatistics;
 import org.gradle.caching.local.internal.LocalBuildCacheService;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
@@ -26,8 +27,10 @@
 import org.gradle.internal.operations.CallableBuildOperation;
 import org.gradle.internal.operations.RunnableBuildOperation;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
@@ -40,23 +43,31 @@ public boolean isStored() {
     };
 
     private final BuildOperationRunner buildOperationRunner;
+    @Nullable
+    private final InMemoryBuildCacheStatistics inMemoryStatistics;
 
     public OpFiringLocalBuildCacheServiceHandle(LocalBuildCacheService service, boolean pushEnabled, BuildOperationRunner buildOperationRunner) {
         super(service, pushEnabled);
         this.buildOperationRunner = buildOperationRunner;
+        this.inMemoryStatistics = service.getInMemoryStatistics();
     }
 
     @Override
-    public Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction) {
+    public Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, Function<File, BuildCacheLoadResult> unpackFunction, Function<byte[], BuildCacheLoadResult> inMemoryUnpackFunction) {
         return buildOperationRunner.call(new CallableBuildOperation<Optional<BuildCacheLoadResult>>() {
             @Override
             public Optional<BuildCacheLoadResult> call(BuildOperationContext context) {
                 AtomicReference<Long> archiveSize = new AtomicReference<>();
+                AtomicBoolean inMemory = new AtomicBoolean();
                 Optional<BuildCacheLoadResult> result = OpFiringLocalBuildCacheServiceHandle.super.maybeLoad(key, file -> {
                     archiveSize.set(file.length());
                     return unpackFunction.apply(file);
+                }, content -> {
+                    archiveSize.set((long) content.length);
+                    inMemory.set(true);
+                    return inMemoryUnpackFunction.apply(content);
                 });
-                context.setResult(new LocalLoadResult(result, archiveSize));
+                context.setResult(new LocalLoadResult(result, archiveSize, inMemory.get(), inMemoryStatistics));
                 return result;
             }
 
@@ -102,10 +113,19 @@ public String getCacheKey() {
     private static class LocalLoadResult implements BuildCacheLocalLoadBuildOperationType.Result {
         private final Optional<BuildCacheLoadResult> result;
         private final AtomicReference<Long> archiveSize;
+        private final boolean inMemory;
+        private final long inMemoryHitCount;
+        private final long inMemoryMissCount;
+        private final long inMemoryEvictionCount;
 
-        public LocalLoadResult(Optional<BuildCacheLoadResult> result, AtomicReference<Long> archiveSize) {
+        public LocalLoadResult(Optional<BuildCacheLoadResult> result, AtomicReference<Long> archiveSize, boolean inMemory, @Nullable InMemoryBuildCacheStatistics inMemoryStatistics) {
             this.result = result;
             this.archiveSize = archiveSize;
+            this.inMemory = inMemory;
+            // Capture the counters now, they keep changing while the in-memory tier is in use
+            this.inMemoryHitCount = inMemoryStatistics == null ? 0 : inMemoryStatistics.getHitCount();
+            this.inMemoryMissCount = inMemoryStatistics == null ? 0 : inMemoryStatistics.getMissCount();
+            this.inMemoryEvictionCount = inMemoryStatistics == null ? 0 : inMemoryStatistics.getEvictionCount();
         }
 
         @Override
@@ -117,6 +137,26 @@ public boolean isHit() {
         public long getArchiveSize() {
             return archiveSize.get();
         }
+
+        @Override
+        public boolean isInMemoryHit() {
+            return inMemory && result.isPresent();
+        }
+
+        @Override
+        public long getInMemoryHitCount() {
+            return inMemoryHitCount;
+        }
+
+        @Override
+        public long getInMemoryMissCount() {
+            return inMemoryMissCount;
+        }
+
+        @Override
+        public long getInMemoryEvictionCount() {
+            return inMemoryEvictionCount;
+        }
     }
 
     private static class LocalStoreDetails implements BuildCacheLocalStoreBuildOperationType.Details {
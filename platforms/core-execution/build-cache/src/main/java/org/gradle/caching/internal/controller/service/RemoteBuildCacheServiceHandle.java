@@ -52,6 +52,21 @@ public interface RemoteBuildCacheServiceHandle extends Closeable {
      */
     boolean maybeStore(BuildCacheKey key, File file);
 
+    /**
+     * Makes a single attempt to store the file to the cache, leaving it to the caller to retry transport and server failures.
+     *
+     * If canStore() returns false, then this method will do nothing and will return {@link StoreAttemptResult#FAILED}.
+     *
+     * Retryable failures are only reported when this is the last attempt, other failures are reported right away.
+     */
+    StoreAttemptResult attemptStore(BuildCacheKey key, File file, boolean lastAttempt);
+
+    enum StoreAttemptResult {
+        STORED,
+        RETRYABLE_FAILURE,
+        FAILED
+    }
+
     @Override
     void close();
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+/**
+ * Counters of the in-memory tier of a local build cache, accumulated over the lifetime of the tier.
+ */
+public interface InMemoryBuildCacheStatistics {
+
+    /**
+     * The number of loads served from memory.
+     */
+    long getHitCount();
+
+    /**
+     * The number of loads that could not be served from memory.
+     */
+    long getMissCount();
+
+    /**
+     * The number of entries dropped from memory to make room for others.
+     */
+    long getEvictionCount();
+}
@@ -18,6 +18,7 @@
 
 import org.gradle.caching.BuildCacheKey;
 
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.File;
 import java.util.function.Consumer;
@@ -34,6 +35,23 @@ public interface LocalBuildCacheService extends BuildCacheTempFileStore, Closeab
      */
     void loadLocally(BuildCacheKey key, Consumer<? super File> reader);
 
+    /**
+     * Loads a cache artifact held in memory, without accessing its file. If a result is found the {@code reader} is executed with the content of the artifact.
+     *
+     * Returns whether the artifact was found in memory. If it wasn't, it may still be available via {@link #loadLocally(BuildCacheKey, Consumer)}.
+     */
+    default boolean loadFromMemory(BuildCacheKey key, Consumer<? super byte[]> reader) {
+        return false;
+    }
+
+    /**
+     * Statistics of the in-memory tier of this service, or {@code null} if the service doesn't hold artifacts in memory.
+     */
+    @Nullable
+    default InMemoryBuildCacheStatistics getInMemoryStatistics() {
+        return null;
+    }
+
     /**
      * Store the given file in the local file store as a cache artifact.
      */
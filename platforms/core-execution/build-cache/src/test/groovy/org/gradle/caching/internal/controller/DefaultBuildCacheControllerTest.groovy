@@ -19,15 +19,19 @@ package org.gradle.caching.internal.controller
 import com.google.common.collect.Interner
 import org.gradle.caching.BuildCacheEntryReader
 import org.gradle.caching.BuildCacheEntryWriter
+import org.gradle.caching.BuildCacheException
 import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
 import org.gradle.caching.internal.CacheableEntity
+import org.gradle.caching.internal.RetryableBuildCacheException
 import org.gradle.caching.internal.TestBuildCacheKey
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration
+import org.gradle.caching.internal.operations.BuildCacheRemoteStoreQueueBuildOperationType
 import org.gradle.caching.internal.origin.OriginMetadataFactory
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
 import org.gradle.caching.local.internal.LocalBuildCacheService
 import org.gradle.caching.local.internal.TemporaryFileFactory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.hash.HashCode
 import org.gradle.internal.operations.NoOpBuildOperationProgressEventEmitter
 import org.gradle.internal.operations.TestBuildOperationRunner
@@ -60,11 +64,13 @@ class DefaultBuildCacheControllerTest extends Specification {
     def localPush = true
     def remote = Mock(BuildCacheService)
     def remotePush = true
+    Duration remoteStoreDeadline = null
     BuildCacheEntryPacker packer = Stub(BuildCacheEntryPacker)
     OriginMetadataFactory originMetadataFactory = Stub(OriginMetadataFactory)
     Interner<String> stringInterner = Stub(Interner)
 
     def operations = new TestBuildOperationRunner()
+    def executorFactory = new DefaultExecutorFactory()
     def buildOperationProgressEmitter = new NoOpBuildOperationProgressEventEmitter()
 
     @Rule
@@ -88,10 +94,16 @@ class DefaultBuildCacheControllerTest extends Specification {
             disableRemoteOnError,
             packer,
             originMetadataFactory,
-            stringInterner
+            stringInterner,
+            executorFactory,
+            remoteStoreDeadline
         )
     }
 
+    def cleanup() {
+        executorFactory.stop()
+    }
+
     def "does suppress exceptions from load"() {
         given:
         1 * remote.load(key, _) >> { throw new RuntimeException() }
@@ -226,7 +238,7 @@ class DefaultBuildCacheControllerTest extends Specification {
         controller.load(key, cacheableEntity)
 
         then:
-        1 * remote.store(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+        1 * remote.store(key, _) >> { BuildCacheKey storedKey, BuildCacheEntryWriter writer ->
             throw new RuntimeException()
         }
         0 * remote.load(key, _)
@@ -258,7 +270,7 @@ class DefaultBuildCacheControllerTest extends Specification {
         controller.load(key, cacheableEntity)
 
         then:
-        1 * remote.store(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+        1 * remote.store(key, _) >> { BuildCacheKey storedKey, BuildCacheEntryWriter writer ->
             throw new RuntimeException()
         }
         1 * remote.load(key, _)
@@ -276,4 +288,132 @@ class DefaultBuildCacheControllerTest extends Specification {
         1 * local.close()
         1 * remote.close()
     }
+
+    def "stores to remote in the background and waits for it when closed"() {
+        remoteStoreDeadline = Duration.ofSeconds(30)
+
+        when:
+        def controller = getController()
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * local.storeLocally(key, _)
+
+        when:
+        controller.close()
+
+        then:
+        1 * remote.store(key, _)
+
+        and:
+        def result = operations.log.mostRecentResult(BuildCacheRemoteStoreQueueBuildOperationType)
+        result.storedCount == 1
+        result.failedCount == 0
+        result.droppedCount == 0
+        result.maxQueueDepth == 1
+        tmpDir.testDirectory.listFiles().findAll { it.name.endsWith(".upload") }.empty
+
+        and:
+        operations.log.descriptors*.displayName.contains("Store entries in remote build cache in the background")
+    }
+
+    def "retries background remote store after retryable error"() {
+        remoteStoreDeadline = Duration.ofSeconds(30)
+
+        when:
+        def controller = getController()
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+        controller.close()
+
+        then:
+        1 * remote.store(key, _) >> { throw new RetryableBuildCacheException("temporary") }
+        1 * remote.store(key, _)
+
+        and:
+        def result = operations.log.mostRecentResult(BuildCacheRemoteStoreQueueBuildOperationType)
+        result.storedCount == 1
+        result.failedCount == 0
+    }
+
+    def "does not retry background remote store after recoverable error that is not retryable"() {
+        remoteStoreDeadline = Duration.ofSeconds(30)
+
+        when:
+        def controller = getController()
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+        controller.close()
+
+        then:
+        1 * remote.store(key, _) >> { throw new BuildCacheException("entry too large") }
+        0 * remote.store(key, _)
+
+        and:
+        def result = operations.log.mostRecentResult(BuildCacheRemoteStoreQueueBuildOperationType)
+        result.storedCount == 0
+        result.failedCount == 1
+    }
+
+    def "does not retry background remote store after non-recoverable error"() {
+        remoteStoreDeadline = Duration.ofSeconds(30)
+
+        when:
+        def controller = getController()
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+        controller.close()
+
+        then:
+        1 * remote.store(key, _) >> { throw new RuntimeException() }
+        0 * remote.store(key, _)
+
+        and:
+        def result = operations.log.mostRecentResult(BuildCacheRemoteStoreQueueBuildOperationType)
+        result.storedCount == 0
+        result.failedCount == 1
+    }
+
+    def "keeps dropped entry until the running store has finished"() {
+        remoteStoreDeadline = Duration.ofMillis(100)
+        def uploaded = false
+
+        when:
+        def controller = getController()
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+        controller.close()
+
+        then:
+        1 * remote.store(key, _) >> { BuildCacheKey storedKey, BuildCacheEntryWriter writer ->
+            // Outlive the deadline, ignoring the interrupt
+            long until = System.nanoTime() + Duration.ofMillis(500).toNanos()
+            while (System.nanoTime() < until) {
+                try {
+                    Thread.sleep(10)
+                } catch (InterruptedException ignored) {
+                }
+            }
+            writer.writeTo(new ByteArrayOutputStream())
+            uploaded = true
+        }
+
+        and:
+        uploaded
+        def result = operations.log.mostRecentResult(BuildCacheRemoteStoreQueueBuildOperationType)
+        result.droppedCount == 1
+        tmpDir.testDirectory.listFiles().findAll { it.name.endsWith(".upload") }.empty
+    }
+
+    def "stores to remote synchronously by default"() {
+        when:
+        def controller = getController()
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * remote.store(key, _)
+        1 * local.storeLocally(key, _)
+
+        when:
+        controller.close()
+
+        then:
+        operations.log.all(BuildCacheRemoteStoreQueueBuildOperationType).empty
+    }
 }
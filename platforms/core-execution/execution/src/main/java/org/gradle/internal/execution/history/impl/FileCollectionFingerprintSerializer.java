@@ -25,9 +25,12 @@
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Map;
+import java.util.Optional;
 
 public class FileCollectionFingerprintSerializer implements Serializer<FileCollectionFingerprint> {
 
@@ -43,13 +46,16 @@ public FileCollectionFingerprintSerializer(Interner<String> stringInterner) {
 
     @Override
     public FileCollectionFingerprint read(Decoder decoder) throws IOException {
-        Map<String, FileSystemLocationFingerprint> fingerprints = fingerprintMapSerializer.read(decoder);
-        if (fingerprints.isEmpty()) {
+        int fingerprintCount = decoder.readSmallInt();
+        if (fingerprintCount == 0) {
             return FileCollectionFingerprint.EMPTY;
         }
         ImmutableMultimap<String, HashCode> rootHashes = readRootHashes(decoder);
         HashCode strategyConfigurationHash = hashCodeSerializer.read(decoder);
-        return new SerializableFileCollectionFingerprint(fingerprints, rootHashes, strategyConfigurationHash);
+        HashCode hash = decoder.readBoolean() ? hashCodeSerializer.read(decoder) : null;
+        // The fingerprints are only decoded when needed, most of the time comparing the root hashes is enough
+        Map<String, FileSystemLocationFingerprint> fingerprints = new SerializedFingerprints(fingerprintCount, decoder.readBinary(), fingerprintMapSerializer);
+        return new SerializableFileCollectionFingerprint(fingerprints, rootHashes, strategyConfigurationHash, hash);
     }
 
     private ImmutableMultimap<String, HashCode> readRootHashes(Decoder decoder) throws IOException {
@@ -68,11 +74,31 @@ private ImmutableMultimap<String, HashCode> readRootHashes(Decoder decoder) thro
 
     @Override
     public void write(Encoder encoder, FileCollectionFingerprint value) throws Exception {
-        fingerprintMapSerializer.write(encoder, value.getFingerprints());
-        if (!value.getFingerprints().isEmpty()) {
-            writeRootHashes(encoder, value.getRootHashes());
-            hashCodeSerializer.write(encoder, ((SerializableFileCollectionFingerprint) value).getStrategyConfigurationHash());
+        Map<String, FileSystemLocationFingerprint> fingerprints = value.getFingerprints();
+        encoder.writeSmallInt(fingerprints.size());
+        if (fingerprints.isEmpty()) {
+            return;
+        }
+        writeRootHashes(encoder, value.getRootHashes());
+        hashCodeSerializer.write(encoder, ((SerializableFileCollectionFingerprint) value).getStrategyConfigurationHash());
+        Optional<HashCode> hash = value.getRecordedHash();
+        encoder.writeBoolean(hash.isPresent());
+        if (hash.isPresent()) {
+            hashCodeSerializer.write(encoder, hash.get());
+        }
+        encoder.writeBinary(serialize(fingerprints));
+    }
+
+    private byte[] serialize(Map<String, FileSystemLocationFingerprint> fingerprints) throws Exception {
+        if (fingerprints instanceof SerializedFingerprints) {
+            // Loaded from the history and stored again, no need to decode and encode the fingerprints
+            return ((SerializedFingerprints) fingerprints).getSerializedForm();
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (KryoBackedEncoder fingerprintsEncoder = new KryoBackedEncoder(outputStream)) {
+            fingerprintMapSerializer.write(fingerprintsEncoder, fingerprints);
         }
+        return outputStream.toByteArray();
     }
 
     private void writeRootHashes(Encoder encoder, ImmutableMultimap<String, HashCode> rootHashes) throws IOException {
@@ -17,12 +17,16 @@
 package org.gradle.internal.execution.history.impl;
 
 import com.google.common.collect.Interner;
+import com.google.common.collect.MapMaker;
 import org.gradle.internal.file.FileMetadata;
 import org.gradle.internal.file.impl.DefaultFileMetadata;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.internal.snapshot.ChildMap;
 import org.gradle.internal.snapshot.CompositeFileSystemSnapshot;
 import org.gradle.internal.snapshot.DirectorySnapshot;
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
@@ -33,6 +37,8 @@
 import org.gradle.internal.snapshot.RootTrackingFileSystemSnapshotHierarchyVisitor;
 import org.gradle.internal.snapshot.SnapshotVisitResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -41,7 +47,18 @@
 import java.util.Collection;
 import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
 
+import static org.gradle.internal.snapshot.ChildMapFactory.childMapFromSorted;
+
+/**
+ * Serializes file system snapshots for the execution history.
+ * <p>
+ * The roots of the snapshot are stored up front, while the children of each root directory are stored in a separate blob.
+ * The blob is only decoded when the children are first accessed, since most up-to-date checks only compare the hashes of the roots.
+ * Directories that are stored again without their children ever being accessed are written from the blob they have been read from.
+ */
 public class FileSystemSnapshotSerializer implements Serializer<FileSystemSnapshot> {
     private enum EntryType {
         DIR_OPEN,
@@ -52,6 +69,8 @@ private enum EntryType {
     }
 
     private final Interner<String> stringInterner;
+    // Uses identity for the weak keys, the same directory read again has different metadata for its children
+    private final ConcurrentMap<DirectorySnapshot, byte[]> serializedChildren = new MapMaker().weakKeys().makeMap();
 
     public FileSystemSnapshotSerializer(Interner<String> stringInterner) {
         this.stringInterner = stringInterner;
@@ -59,40 +78,80 @@ public FileSystemSnapshotSerializer(Interner<String> stringInterner) {
 
     @Override
     public FileSystemSnapshot read(Decoder decoder) throws Exception {
+        int rootCount = decoder.readSmallInt();
+        List<FileSystemLocationSnapshot> roots = new ArrayList<>(rootCount);
+        String previousAbsolutePath = "";
+        for (int i = 0; i < rootCount; i++) {
+            EntryType type = readEntryType(decoder);
+            String internedAbsolutePath = stringInterner.intern(PathPrefixCompression.readPath(decoder, previousAbsolutePath));
+            String internedName = stringInterner.intern(PathUtil.getFileName(internedAbsolutePath));
+            FileMetadata.AccessType accessType = readAccessType(decoder);
+            switch (type) {
+                case REGULAR_FILE:
+                    roots.add(readRegularFile(decoder, internedAbsolutePath, internedName, accessType));
+                    break;
+                case MISSING:
+                    roots.add(new MissingFileSnapshot(internedAbsolutePath, internedName, accessType));
+                    break;
+                case DIR_OPEN:
+                    HashCode merkleHash = readHashCode(decoder);
+                    byte[] children = decoder.readBinary();
+                    DirectorySnapshot root = new DirectorySnapshot(internedAbsolutePath, internedName, accessType, merkleHash,
+                        new SerializedChildMap(() -> readChildren(internedAbsolutePath, children)));
+                    serializedChildren.put(root, children);
+                    roots.add(root);
+                    break;
+                default:
+                    throw new RuntimeException("Unable to read serialized file system snapshot. Unrecognized value found in the data stream.");
+            }
+            previousAbsolutePath = internedAbsolutePath;
+        }
+        return CompositeFileSystemSnapshot.of(roots);
+    }
+
+    private ChildMap<FileSystemLocationSnapshot> readChildren(String absolutePath, byte[] serializedForm) {
+        try (KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(serializedForm))) {
+            List<FileSystemLocationSnapshot> children = readChildren(decoder, absolutePath);
+            return childMapFromSorted(children.stream()
+                .map(it -> new ChildMap.Entry<>(it.getName(), it))
+                .collect(Collectors.toList()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<FileSystemLocationSnapshot> readChildren(Decoder decoder, String absolutePath) throws IOException {
         SnapshotStack stack = new SnapshotStack();
         stack.push();
         Deque<String> pathTracker = new ArrayDeque<>();
+        pathTracker.addLast(absolutePath);
+        // The names of the previous entry in each directory, since names are stored relative to them
+        Deque<String> previousNames = new ArrayDeque<>();
+        previousNames.addLast("");
         while (true) {
             EntryType type = readEntryType(decoder);
             if (type == EntryType.END) {
                 break;
             }
             if (type != EntryType.DIR_CLOSE) {
-                String path = decoder.readString();
+                String path = PathPrefixCompression.readPath(decoder, previousNames.removeLast());
                 String internedPath = stringInterner.intern(path);
+                previousNames.addLast(internedPath);
                 pathTracker.addLast(internedPath);
                 if (type == EntryType.DIR_OPEN) {
                     stack.push();
+                    previousNames.addLast("");
                     continue;
                 }
-            }
-            String internedAbsolutePath;
-            String internedName;
-            String path = pathTracker.removeLast();
-            if (pathTracker.isEmpty()) {
-                internedAbsolutePath = path;
-                internedName = stringInterner.intern(PathUtil.getFileName(internedAbsolutePath));
             } else {
-                internedAbsolutePath = stringInterner.intern(toAbsolutePath(pathTracker, path));
-                internedName = path;
+                previousNames.removeLast();
             }
+            String internedName = pathTracker.removeLast();
+            String internedAbsolutePath = stringInterner.intern(toAbsolutePath(pathTracker, internedName));
             FileMetadata.AccessType accessType = readAccessType(decoder);
             switch (type) {
                 case REGULAR_FILE:
-                    HashCode contentHash = readHashCode(decoder);
-                    long lastModified = decoder.readSmallLong();
-                    long length = decoder.readSmallLong();
-                    stack.add(new RegularFileSnapshot(internedAbsolutePath, internedName, contentHash, DefaultFileMetadata.file(lastModified, length, accessType)));
+                    stack.add(readRegularFile(decoder, internedAbsolutePath, internedName, accessType));
                     break;
                 case MISSING:
                     stack.add(new MissingFileSnapshot(internedAbsolutePath, internedName, accessType));
@@ -106,17 +165,93 @@ public FileSystemSnapshot read(Decoder decoder) throws Exception {
                     throw new AssertionError();
             }
         }
-        return CompositeFileSystemSnapshot.of(stack.pop());
+        return stack.pop();
+    }
+
+    private static RegularFileSnapshot readRegularFile(Decoder decoder, String internedAbsolutePath, String internedName, FileMetadata.AccessType accessType) throws IOException {
+        HashCode contentHash = readHashCode(decoder);
+        long lastModified = decoder.readSmallLong();
+        long length = decoder.readSmallLong();
+        return new RegularFileSnapshot(internedAbsolutePath, internedName, contentHash, DefaultFileMetadata.file(lastModified, length, accessType));
     }
 
     @Override
     public void write(Encoder encoder, FileSystemSnapshot value) throws Exception {
-        value.accept(new RootTrackingFileSystemSnapshotHierarchyVisitor() {
+        List<FileSystemLocationSnapshot> roots = value.roots().collect(Collectors.toList());
+        encoder.writeSmallInt(roots.size());
+        String previousAbsolutePath = "";
+        for (FileSystemLocationSnapshot root : roots) {
+            String previousPath = previousAbsolutePath;
+            root.accept(new FileSystemLocationSnapshot.FileSystemLocationSnapshotVisitor() {
+                @Override
+                public void visitDirectory(DirectorySnapshot directorySnapshot) {
+                    try {
+                        writeEntryType(encoder, EntryType.DIR_OPEN);
+                        PathPrefixCompression.writePath(encoder, previousPath, directorySnapshot.getAbsolutePath());
+                        writeAccessType(encoder, directorySnapshot.getAccessType());
+                        writeHashCode(encoder, directorySnapshot.getHash());
+                        encoder.writeBinary(serializeChildren(directorySnapshot));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public void visitRegularFile(RegularFileSnapshot fileSnapshot) {
+                    try {
+                        writeEntryType(encoder, EntryType.REGULAR_FILE);
+                        PathPrefixCompression.writePath(encoder, previousPath, fileSnapshot.getAbsolutePath());
+                        writeAccessType(encoder, fileSnapshot.getAccessType());
+                        writeRegularFile(encoder, fileSnapshot);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public void visitMissing(MissingFileSnapshot missingSnapshot) {
+                    try {
+                        writeEntryType(encoder, EntryType.MISSING);
+                        PathPrefixCompression.writePath(encoder, previousPath, missingSnapshot.getAbsolutePath());
+                        writeAccessType(encoder, missingSnapshot.getAccessType());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+            previousAbsolutePath = root.getAbsolutePath();
+        }
+    }
+
+    private byte[] serializeChildren(DirectorySnapshot directorySnapshot) {
+        byte[] serializedForm = serializedChildren.get(directorySnapshot);
+        if (serializedForm != null) {
+            // Loaded from the history and stored again, no need to decode and encode the children
+            return serializedForm;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream)) {
+            writeChildren(encoder, directorySnapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static void writeChildren(Encoder encoder, DirectorySnapshot root) throws IOException {
+        // The names of the previous entry in each directory, since names are stored relative to them
+        Deque<String> previousNames = new ArrayDeque<>();
+        previousNames.addLast("");
+        root.accept(new RootTrackingFileSystemSnapshotHierarchyVisitor() {
             @Override
             public void enterDirectory(DirectorySnapshot directorySnapshot, boolean isRoot) {
+                if (isRoot) {
+                    return;
+                }
                 try {
                     writeEntryType(encoder, EntryType.DIR_OPEN);
-                    writePath(encoder, isRoot, directorySnapshot);
+                    writeName(directorySnapshot);
+                    previousNames.addLast("");
                 } catch (IOException e) {
                     throw new UncheckedIOException(e);
                 }
@@ -124,17 +259,17 @@ public void enterDirectory(DirectorySnapshot directorySnapshot, boolean isRoot)
 
             @Override
             public SnapshotVisitResult visitEntry(FileSystemLocationSnapshot snapshot, boolean isRoot) {
+                if (isRoot) {
+                    return SnapshotVisitResult.CONTINUE;
+                }
                 snapshot.accept(new FileSystemLocationSnapshot.FileSystemLocationSnapshotVisitor() {
                     @Override
                     public void visitRegularFile(RegularFileSnapshot fileSnapshot) {
                         try {
                             writeEntryType(encoder, EntryType.REGULAR_FILE);
-                            writePath(encoder, isRoot, fileSnapshot);
+                            writeName(fileSnapshot);
                             writeAccessType(encoder, fileSnapshot.getAccessType());
-                            writeHashCode(encoder, fileSnapshot.getHash());
-                            FileMetadata metadata = fileSnapshot.getMetadata();
-                            encoder.writeSmallLong(metadata.getLastModified());
-                            encoder.writeSmallLong(metadata.getLength());
+                            writeRegularFile(encoder, fileSnapshot);
                         } catch (IOException e) {
                             throw new UncheckedIOException(e);
                         }
@@ -144,7 +279,7 @@ public void visitRegularFile(RegularFileSnapshot fileSnapshot) {
                     public void visitMissing(MissingFileSnapshot missingSnapshot) {
                         try {
                             writeEntryType(encoder, EntryType.MISSING);
-                            writePath(encoder, isRoot, missingSnapshot);
+                            writeName(missingSnapshot);
                             writeAccessType(encoder, missingSnapshot.getAccessType());
                         } catch (IOException e) {
                             throw new UncheckedIOException(e);
@@ -156,7 +291,11 @@ public void visitMissing(MissingFileSnapshot missingSnapshot) {
 
             @Override
             public void leaveDirectory(DirectorySnapshot directorySnapshot, boolean isRoot) {
+                if (isRoot) {
+                    return;
+                }
                 try {
+                    previousNames.removeLast();
                     writeEntryType(encoder, EntryType.DIR_CLOSE);
                     writeAccessType(encoder, directorySnapshot.getAccessType());
                     writeHashCode(encoder, directorySnapshot.getHash());
@@ -164,12 +303,20 @@ public void leaveDirectory(DirectorySnapshot directorySnapshot, boolean isRoot)
                     throw new UncheckedIOException(e);
                 }
             }
+
+            private void writeName(FileSystemLocationSnapshot snapshot) throws IOException {
+                PathPrefixCompression.writePath(encoder, previousNames.removeLast(), snapshot.getName());
+                previousNames.addLast(snapshot.getName());
+            }
         });
         encoder.writeByte((byte) EntryType.END.ordinal());
     }
 
-    private static void writePath(Encoder encoder, boolean isRoot, FileSystemLocationSnapshot snapshot) throws IOException {
-        encoder.writeString(isRoot ? snapshot.getAbsolutePath() : snapshot.getName());
+    private static void writeRegularFile(Encoder encoder, RegularFileSnapshot fileSnapshot) throws IOException {
+        writeHashCode(encoder, fileSnapshot.getHash());
+        FileMetadata metadata = fileSnapshot.getMetadata();
+        encoder.writeSmallLong(metadata.getLastModified());
+        encoder.writeSmallLong(metadata.getLength());
     }
 
     private static EntryType readEntryType(Decoder decoder) throws IOException {
@@ -51,22 +51,28 @@ public FingerprintMapSerializer(Interner<String> stringInterner) {
     public Map<String, FileSystemLocationFingerprint> read(Decoder decoder) throws IOException {
         int fingerprintCount = decoder.readSmallInt();
         ImmutableMap.Builder<String, FileSystemLocationFingerprint> fingerprints = ImmutableMap.builderWithExpectedSize(fingerprintCount);
+        String previousAbsolutePath = "";
+        String previousNormalizedPath = "";
         for (int i = 0; i < fingerprintCount; i++) {
-            String absolutePath = stringInterner.intern(decoder.readString());
-            FileSystemLocationFingerprint fingerprint = readFingerprint(decoder);
+            String absolutePath = stringInterner.intern(PathPrefixCompression.readPath(decoder, previousAbsolutePath));
+            FileSystemLocationFingerprint fingerprint = readFingerprint(decoder, previousNormalizedPath);
             fingerprints.put(absolutePath, fingerprint);
+            previousAbsolutePath = absolutePath;
+            if (fingerprint instanceof DefaultFileSystemLocationFingerprint) {
+                previousNormalizedPath = fingerprint.getNormalizedPath();
+            }
         }
         return fingerprints.build();
     }
 
-    private FileSystemLocationFingerprint readFingerprint(Decoder decoder) throws IOException {
+    private FileSystemLocationFingerprint readFingerprint(Decoder decoder, String previousNormalizedPath) throws IOException {
         FileType fileType = readFileType(decoder);
         HashCode contentHash = readContentHash(fileType, decoder);
 
         byte fingerprintKind = decoder.readByte();
         switch (fingerprintKind) {
             case DEFAULT_NORMALIZATION:
-                String normalizedPath = decoder.readString();
+                String normalizedPath = PathPrefixCompression.readPath(decoder, previousNormalizedPath);
                 return new DefaultFileSystemLocationFingerprint(stringInterner.intern(normalizedPath), fileType, contentHash);
             case IGNORED_PATH_NORMALIZATION:
                 return IgnoredPathFileSystemLocationFingerprint.create(fileType, contentHash);
@@ -105,10 +111,17 @@ private FileType readFileType(Decoder decoder) throws IOException {
     @Override
     public void write(Encoder encoder, Map<String, FileSystemLocationFingerprint> value) throws Exception {
         encoder.writeSmallInt(value.size());
-        for (String key : value.keySet()) {
-            encoder.writeString(key);
-            FileSystemLocationFingerprint fingerprint = value.get(key);
-            writeFingerprint(encoder, fingerprint);
+        String previousAbsolutePath = "";
+        String previousNormalizedPath = "";
+        for (Map.Entry<String, FileSystemLocationFingerprint> entry : value.entrySet()) {
+            String absolutePath = entry.getKey();
+            FileSystemLocationFingerprint fingerprint = entry.getValue();
+            PathPrefixCompression.writePath(encoder, previousAbsolutePath, absolutePath);
+            writeFingerprint(encoder, fingerprint, previousNormalizedPath);
+            previousAbsolutePath = absolutePath;
+            if (fingerprint instanceof DefaultFileSystemLocationFingerprint) {
+                previousNormalizedPath = fingerprint.getNormalizedPath();
+            }
         }
     }
 
@@ -127,7 +140,7 @@ public int hashCode() {
         return Objects.hashCode(super.hashCode(), hashCodeSerializer);
     }
 
-    private void writeFingerprint(Encoder encoder, FileSystemLocationFingerprint value) throws IOException {
+    private void writeFingerprint(Encoder encoder, FileSystemLocationFingerprint value, String previousNormalizedPath) throws IOException {
         switch (value.getType()) {
             case Directory:
                 encoder.writeByte(DIR_FINGERPRINT);
@@ -145,7 +158,7 @@ private void writeFingerprint(Encoder encoder, FileSystemLocationFingerprint val
 
         if (value instanceof DefaultFileSystemLocationFingerprint) {
             encoder.writeByte(DEFAULT_NORMALIZATION);
-            encoder.writeString(value.getNormalizedPath());
+            PathPrefixCompression.writePath(encoder, previousNormalizedPath, value.getNormalizedPath());
         } else if (value instanceof IgnoredPathFileSystemLocationFingerprint) {
             encoder.writeByte(IGNORED_PATH_NORMALIZATION);
         } else {
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+
+import java.io.IOException;
+
+/**
+ * Encodes a sequence of paths by only storing the part of each path that differs from the previous one.
+ * <p>
+ * Each path is written as the length of the prefix it shares with the previous path, followed by the rest of the path.
+ * Sorted paths, like the files of a directory hierarchy, share most of their prefix with their predecessor.
+ */
+final class PathPrefixCompression {
+
+    private PathPrefixCompression() {
+    }
+
+    public static void writePath(Encoder encoder, String previousPath, String path) throws IOException {
+        int prefixLength = commonPrefixLength(previousPath, path);
+        encoder.writeSmallInt(prefixLength);
+        encoder.writeString(path.substring(prefixLength));
+    }
+
+    public static String readPath(Decoder decoder, String previousPath) throws IOException {
+        int prefixLength = decoder.readSmallInt();
+        String suffix = decoder.readString();
+        if (prefixLength == 0) {
+            return suffix;
+        }
+        if (prefixLength > previousPath.length()) {
+            throw new IllegalStateException("Unable to read serialized path. Unrecognized value found in the data stream.");
+        }
+        return previousPath.substring(0, prefixLength).concat(suffix);
+    }
+
+    private static int commonPrefixLength(String first, String second) {
+        int maxLength = Math.min(first.length(), second.length());
+        int length = 0;
+        while (length < maxLength && first.charAt(length) == second.charAt(length)) {
+            length++;
+        }
+        // Do not split surrogate pairs
+        if (length > 0 && Character.isHighSurrogate(first.charAt(length - 1))) {
+            length--;
+        }
+        return length;
+    }
+}
@@ -22,18 +22,27 @@
 import org.gradle.internal.fingerprint.FingerprintingStrategy;
 import org.gradle.internal.hash.HashCode;
 
+import javax.annotation.Nullable;
 import java.util.Map;
+import java.util.Optional;
 
 public class SerializableFileCollectionFingerprint implements FileCollectionFingerprint {
 
     private final Map<String, FileSystemLocationFingerprint> fingerprints;
     private final ImmutableMultimap<String, HashCode> rootHashes;
     private final HashCode strategyConfigurationHash;
+    @Nullable
+    private final HashCode hash;
 
     public SerializableFileCollectionFingerprint(Map<String, FileSystemLocationFingerprint> fingerprints, ImmutableMultimap<String, HashCode> rootHashes, HashCode strategyConfigurationHash) {
+        this(fingerprints, rootHashes, strategyConfigurationHash, null);
+    }
+
+    public SerializableFileCollectionFingerprint(Map<String, FileSystemLocationFingerprint> fingerprints, ImmutableMultimap<String, HashCode> rootHashes, HashCode strategyConfigurationHash, @Nullable HashCode hash) {
         this.fingerprints = fingerprints;
         this.rootHashes = rootHashes;
         this.strategyConfigurationHash = strategyConfigurationHash;
+        this.hash = hash;
     }
 
     @Override
@@ -51,6 +60,11 @@ public boolean wasCreatedWithStrategy(FingerprintingStrategy strategy) {
         return strategy.getConfigurationHash().equals(strategyConfigurationHash);
     }
 
+    @Override
+    public Optional<HashCode> getRecordedHash() {
+        return Optional.ofNullable(hash);
+    }
+
     public HashCode getStrategyConfigurationHash() {
         return strategyConfigurationHash;
     }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.gradle.internal.snapshot.CaseSensitivity;
+import org.gradle.internal.snapshot.ChildMap;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.VfsRelativePath;
+
+import javax.annotation.Nullable;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The children of a directory loaded from the execution history, which are only decoded when they are first accessed.
+ * <p>
+ * Comparing the root hashes of the output snapshots does not require the children, so they are kept in their serialized form until needed.
+ */
+class SerializedChildMap implements ChildMap<FileSystemLocationSnapshot> {
+    private final Supplier<ChildMap<FileSystemLocationSnapshot>> decoder;
+    @Nullable
+    private volatile ChildMap<FileSystemLocationSnapshot> children;
+
+    public SerializedChildMap(Supplier<ChildMap<FileSystemLocationSnapshot>> decoder) {
+        this.decoder = decoder;
+    }
+
+    @VisibleForTesting
+    boolean isDecoded() {
+        return children != null;
+    }
+
+    private ChildMap<FileSystemLocationSnapshot> getChildren() {
+        ChildMap<FileSystemLocationSnapshot> result = children;
+        if (result == null) {
+            synchronized (this) {
+                result = children;
+                if (result == null) {
+                    result = decoder.get();
+                    children = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getChildren().isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return getChildren().size();
+    }
+
+    @Override
+    public Stream<Entry<FileSystemLocationSnapshot>> stream() {
+        return getChildren().stream();
+    }
+
+    @Override
+    public <RESULT> RESULT withNode(VfsRelativePath targetPath, CaseSensitivity caseSensitivity, NodeHandler<FileSystemLocationSnapshot, RESULT> handler) {
+        return getChildren().withNode(targetPath, caseSensitivity, handler);
+    }
+
+    @Override
+    public <RESULT> ChildMap<RESULT> invalidate(VfsRelativePath targetPath, CaseSensitivity caseSensitivity, InvalidationHandler<FileSystemLocationSnapshot, RESULT> handler) {
+        return getChildren().invalidate(targetPath, caseSensitivity, handler);
+    }
+
+    @Override
+    public ChildMap<FileSystemLocationSnapshot> store(VfsRelativePath targetPath, CaseSensitivity caseSensitivity, StoreHandler<FileSystemLocationSnapshot> storeHandler) {
+        return getChildren().store(targetPath, caseSensitivity, storeHandler);
+    }
+
+    @Override
+    public String toString() {
+        return getChildren().toString();
+    }
+}
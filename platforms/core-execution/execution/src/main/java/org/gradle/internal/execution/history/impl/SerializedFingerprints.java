@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ForwardingMap;
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Fingerprints loaded from the execution history, which are only decoded when they are first accessed.
+ * <p>
+ * Most up-to-date checks only need the root hashes of a fingerprint, so the potentially large map of fingerprints is kept in its serialized form until then.
+ * The serialized form is retained, so the fingerprints can be stored again without encoding them.
+ */
+class SerializedFingerprints extends ForwardingMap<String, FileSystemLocationFingerprint> {
+    private final int size;
+    private final byte[] serializedForm;
+    private final FingerprintMapSerializer serializer;
+    @Nullable
+    private volatile Map<String, FileSystemLocationFingerprint> fingerprints;
+
+    public SerializedFingerprints(int size, byte[] serializedForm, FingerprintMapSerializer serializer) {
+        this.size = size;
+        this.serializedForm = serializedForm;
+        this.serializer = serializer;
+    }
+
+    public byte[] getSerializedForm() {
+        return serializedForm;
+    }
+
+    @VisibleForTesting
+    boolean isDecoded() {
+        return fingerprints != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    protected Map<String, FileSystemLocationFingerprint> delegate() {
+        Map<String, FileSystemLocationFingerprint> result = fingerprints;
+        if (result == null) {
+            synchronized (this) {
+                result = fingerprints;
+                if (result == null) {
+                    result = decode();
+                    fingerprints = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<String, FileSystemLocationFingerprint> decode() {
+        try (KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(serializedForm))) {
+            return serializer.read(decoder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
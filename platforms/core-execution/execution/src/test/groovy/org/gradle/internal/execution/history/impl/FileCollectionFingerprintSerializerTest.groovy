@@ -93,4 +93,32 @@ class FileCollectionFingerprintSerializerTest extends SerializerSpec {
         out.fingerprints.keySet() as List == ["/3", "/2", "/1"]
         out.rootHashes.keySet() as List == ["/3", "/2", "/1"]
     }
+
+    def "decodes fingerprints only when accessed"() {
+        def rootHashes = ImmutableMultimap.of("/dir", TestHashCodes.hashCodeFrom(1234))
+        def hash = TestHashCodes.hashCodeFrom(4321)
+        def fingerprints = [
+            '/dir': new DefaultFileSystemLocationFingerprint("", FileType.Directory, FileSystemLocationFingerprint.DIR_SIGNATURE),
+            '/dir/sub/one.txt': new DefaultFileSystemLocationFingerprint("sub/one.txt", FileType.RegularFile, TestHashCodes.hashCodeFrom(1)),
+            '/dir/sub/two.txt': new DefaultFileSystemLocationFingerprint("sub/two.txt", FileType.RegularFile, TestHashCodes.hashCodeFrom(2)),
+        ]
+
+        when:
+        def out = serialize(new SerializableFileCollectionFingerprint(fingerprints, rootHashes, TestHashCodes.hashCodeFrom(5432), hash), serializer)
+
+        then:
+        out.rootHashes == rootHashes
+        out.recordedHash.get() == hash
+        out.fingerprints.size() == 3
+        !out.fingerprints.isDecoded()
+
+        when:
+        def storedAgain = serialize(out, serializer)
+
+        then:
+        !out.fingerprints.isDecoded()
+        storedAgain.fingerprints.keySet() as List == ['/dir', '/dir/sub/one.txt', '/dir/sub/two.txt']
+        storedAgain.fingerprints.values()*.normalizedPath == ["", "sub/one.txt", "sub/two.txt"]
+        storedAgain.fingerprints['/dir/sub/two.txt'].normalizedContentHash == TestHashCodes.hashCodeFrom(2)
+    }
 }
@@ -112,6 +112,29 @@ class FileSystemSnapshotSerializerTest extends SerializerSpec implements TestSna
         assertEqualSnapshots(out, snapshots)
     }
 
+    def "decodes children of directories only when accessed"() {
+        def snapshots = directory("/home/lptr/dev", [
+            regularFile("/home/lptr/dev/one.txt"),
+            directory("/home/lptr/dev/sub", [
+                regularFile("/home/lptr/dev/sub/three.txt"),
+            ]),
+        ])
+
+        when:
+        def out = serialize(snapshots, serializer) as DirectorySnapshot
+
+        then:
+        out.hash == snapshots.hash
+        !out.@children.decoded
+
+        when:
+        def storedAgain = serialize(out, serializer)
+
+        then:
+        !out.@children.decoded
+        assertEqualSnapshots(storedAgain, snapshots)
+    }
+
     private static void assertEqualSnapshots(FileSystemSnapshot snapshot, FileSystemSnapshot expected) {
         assert snapshot == expected
         assert indexByAbsolutePath(snapshot) == indexByAbsolutePath(expected)
@@ -23,4 +23,9 @@ public interface FileSystemWatchingStatistics {
     int getRetainedRegularFiles();
     int getRetainedDirectories();
     int getRetainedMissingFiles();
+
+    /**
+     * An estimate of the heap memory in bytes taken by the snapshots retained in the virtual file system.
+     */
+    long getEstimatedRetainedSize();
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl;
+
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+import org.gradle.internal.vfs.FileSystemAccess;
+import org.gradle.internal.watch.registry.FileWatcherRegistry;
+import org.gradle.internal.watch.vfs.FileChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Snapshots and hashes the files changed between builds, so the virtual file system already knows about them when the next build starts.
+ * <p>
+ * Changes are collected after {@link #startAfterBuild(long, int, int)}, and snapshotted once no more changes have been received for the settle delay.
+ * Snapshotting happens on a single low priority thread, pausing between files so it uses at most the given share of a processor.
+ * {@link #stopForBuild()} discards the collected changes and stops snapshotting after the file currently being hashed.
+ * <p>
+ * The snapshotting thread is only created once the first change has been collected, so daemons not using pre-snapshotting do not have it.
+ */
+@ServiceScope(Scope.UserHome.class)
+public class ChangedFilesPreSnapshotter implements FileChangeListener, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangedFilesPreSnapshotter.class);
+
+    private final FileSystemAccess fileSystemAccess;
+    private final Supplier<? extends ScheduledExecutorService> executorFactory;
+
+    // Mutable state, guarded by this
+    @Nullable
+    private ScheduledExecutorService executor;
+    private final Set<String> changedFiles = new LinkedHashSet<>();
+    private boolean active;
+    private long settleDelayMillis;
+    private int maxCpuPercent;
+    private int maxFiles;
+    private int generation;
+    private ScheduledFuture<?> scheduledSnapshotting;
+
+    public ChangedFilesPreSnapshotter(FileSystemAccess fileSystemAccess, Supplier<? extends ScheduledExecutorService> executorFactory) {
+        this.fileSystemAccess = fileSystemAccess;
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Starts collecting changed files, to snapshot them before the next build starts.
+     *
+     * @param settleDelayMillis how long no changes need to be received before snapshotting starts
+     * @param maxCpuPercent the share of a single processor used for snapshotting, between 1 and 100
+     * @param maxFiles the maximum number of files snapshotted between two builds
+     */
+    public synchronized void startAfterBuild(long settleDelayMillis, int maxCpuPercent, int maxFiles) {
+        this.settleDelayMillis = settleDelayMillis;
+        this.maxCpuPercent = Math.max(1, Math.min(100, maxCpuPercent));
+        this.maxFiles = maxFiles;
+        this.active = maxFiles > 0;
+    }
+
+    /**
+     * Stops collecting changed files and snapshotting them, since a build is about to start.
+     */
+    public synchronized void stopForBuild() {
+        active = false;
+        generation++;
+        changedFiles.clear();
+        cancelScheduledSnapshotting();
+        // Wake up snapshotting pausing between files
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void handleChange(FileWatcherRegistry.Type type, Path path) {
+        if (!active) {
+            return;
+        }
+        String absolutePath = path.toString();
+        if (type == FileWatcherRegistry.Type.CREATED || type == FileWatcherRegistry.Type.MODIFIED) {
+            if (changedFiles.size() < maxFiles) {
+                changedFiles.add(absolutePath);
+            }
+        } else {
+            changedFiles.remove(absolutePath);
+        }
+        cancelScheduledSnapshotting();
+        if (!changedFiles.isEmpty()) {
+            int currentGeneration = generation;
+            if (executor == null) {
+                executor = executorFactory.get();
+            }
+            scheduledSnapshotting = executor.schedule(() -> snapshotChangedFiles(currentGeneration), settleDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void stopWatchingAfterError() {
+        changedFiles.clear();
+        cancelScheduledSnapshotting();
+    }
+
+    private void cancelScheduledSnapshotting() {
+        if (scheduledSnapshotting != null) {
+            scheduledSnapshotting.cancel(false);
+            scheduledSnapshotting = null;
+        }
+    }
+
+    private void snapshotChangedFiles(int scheduledGeneration) {
+        List<String> filesToSnapshot;
+        int cpuPercent;
+        synchronized (this) {
+            if (!isActive(scheduledGeneration)) {
+                return;
+            }
+            filesToSnapshot = new ArrayList<>(changedFiles);
+            changedFiles.clear();
+            maxFiles -= filesToSnapshot.size();
+            cpuPercent = maxCpuPercent;
+        }
+        Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+        LOGGER.debug("Snapshotting {} files changed since the last build", filesToSnapshot.size());
+        int snapshotted = 0;
+        for (String file : filesToSnapshot) {
+            if (!shouldContinue(scheduledGeneration)) {
+                break;
+            }
+            long startTime = System.nanoTime();
+            try {
+                fileSystemAccess.readRegularFileContentHash(file);
+            } catch (RuntimeException e) {
+                // The file may be changing while we hash it, the next build will snapshot it again
+                LOGGER.debug("Could not snapshot changed file {}", file, e);
+            }
+            snapshotted++;
+            long pauseMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) * (100 - cpuPercent) / cpuPercent;
+            if (!pause(scheduledGeneration, pauseMillis)) {
+                break;
+            }
+        }
+        LOGGER.debug("Snapshotted {} of {} files changed since the last build", snapshotted, filesToSnapshot.size());
+    }
+
+    private synchronized boolean shouldContinue(int scheduledGeneration) {
+        return isActive(scheduledGeneration);
+    }
+
+    private boolean isActive(int scheduledGeneration) {
+        return active && generation == scheduledGeneration;
+    }
+
+    /**
+     * Pauses snapshotting for the given time, unless stopped in between.
+     *
+     * @return whether snapshotting should continue
+     */
+    private synchronized boolean pause(int scheduledGeneration, long pauseMillis) {
+        long deadline = System.currentTimeMillis() + pauseMillis;
+        long remaining = pauseMillis;
+        while (remaining > 0 && isActive(scheduledGeneration)) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return isActive(scheduledGeneration);
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService executorToStop;
+        synchronized (this) {
+            stopForBuild();
+            executorToStop = executor;
+            executor = null;
+        }
+        if (executorToStop != null) {
+            executorToStop.shutdownNow();
+        }
+    }
+}
@@ -20,6 +20,7 @@
 import com.google.common.collect.Multiset;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.snapshot.SnapshotHierarchy;
+import org.gradle.internal.snapshot.SnapshotUtil;
 import org.gradle.internal.watch.registry.FileWatcherRegistry;
 import org.gradle.internal.watch.vfs.FileSystemWatchingStatistics;
 
@@ -62,25 +63,38 @@ public int getRetainedMissingFiles() {
         return vfsStatistics.getRetained(FileType.Missing);
     }
 
+    @Override
+    public long getEstimatedRetainedSize() {
+        return vfsStatistics.getEstimatedRetainedSize();
+    }
+
     private static VirtualFileSystemStatistics getStatistics(SnapshotHierarchy root) {
         EnumMultiset<FileType> retained = EnumMultiset.create(FileType.class);
+        long[] estimatedRetainedSize = new long[1];
         root.rootSnapshots()
             .forEach(snapshot -> snapshot.accept(entrySnapshot -> {
                 retained.add(entrySnapshot.getType());
+                estimatedRetainedSize[0] += SnapshotUtil.estimateRetainedSize(entrySnapshot);
                 return CONTINUE;
             }));
-        return new VirtualFileSystemStatistics(retained);
+        return new VirtualFileSystemStatistics(retained, estimatedRetainedSize[0]);
     }
 
     private static class VirtualFileSystemStatistics {
         private final Multiset<FileType> retained;
+        private final long estimatedRetainedSize;
 
-        public VirtualFileSystemStatistics(Multiset<FileType> retained) {
+        public VirtualFileSystemStatistics(Multiset<FileType> retained, long estimatedRetainedSize) {
             this.retained = retained;
+            this.estimatedRetainedSize = estimatedRetainedSize;
         }
 
         public int getRetained(FileType fileType) {
             return retained.count(fileType);
         }
+
+        public long getEstimatedRetainedSize() {
+            return estimatedRetainedSize;
+        }
     }
 }
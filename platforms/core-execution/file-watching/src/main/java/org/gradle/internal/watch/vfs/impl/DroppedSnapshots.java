@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl;
+
+import org.gradle.internal.file.FileMetadataAccessor;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.SnapshotHierarchy;
+import org.gradle.internal.vfs.impl.FileSystemSnapshotValidator;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the snapshots dropped from the virtual file system when file system events have been lost,
+ * so the ones which are still up-to-date can be restored instead of snapshotting and hashing them again.
+ * <p>
+ * Changes received after the snapshots have been dropped are applied to the kept snapshots as well.
+ * The kept snapshots are checked against the file system via a {@link FileSystemSnapshotValidator},
+ * not trusting files modified around the time the first events have been lost.
+ * <p>
+ * Not thread-safe, the caller needs to hold the lock of the virtual file system.
+ */
+class DroppedSnapshots {
+    private final FileMetadataAccessor metadataAccessor;
+    private final Supplier<? extends Collection<String>> defaultExcludes;
+    private SnapshotHierarchy snapshots;
+    private long droppedSince = Long.MAX_VALUE;
+
+    public DroppedSnapshots(SnapshotHierarchy emptyHierarchy, FileMetadataAccessor metadataAccessor, Supplier<? extends Collection<String>> defaultExcludes) {
+        this.snapshots = emptyHierarchy;
+        this.metadataAccessor = metadataAccessor;
+        this.defaultExcludes = defaultExcludes;
+    }
+
+    public void add(Stream<FileSystemLocationSnapshot> droppedSnapshots) {
+        droppedSnapshots.forEach(snapshot ->
+            snapshots = snapshots.store(snapshot.getAbsolutePath(), snapshot, SnapshotHierarchy.NodeDiffListener.NOOP));
+        droppedSince = Math.min(droppedSince, System.currentTimeMillis());
+    }
+
+    public void invalidate(String absolutePath) {
+        snapshots = snapshots.invalidate(absolutePath, SnapshotHierarchy.NodeDiffListener.NOOP);
+    }
+
+    public void clear() {
+        snapshots = snapshots.empty();
+        droppedSince = Long.MAX_VALUE;
+    }
+
+    /**
+     * Checks the kept snapshots against the file system in parallel, and returns the ones which are still up-to-date.
+     * No snapshots are kept afterwards.
+     */
+    public List<FileSystemLocationSnapshot> removeUpToDateSnapshots() {
+        List<FileSystemLocationSnapshot> roots = snapshots.rootSnapshots().collect(Collectors.toList());
+        if (roots.isEmpty()) {
+            return Collections.emptyList();
+        }
+        FileSystemSnapshotValidator validator = new FileSystemSnapshotValidator(
+            metadataAccessor,
+            defaultExcludes.get(),
+            droppedSince - FileSystemSnapshotValidator.MODIFICATION_TIME_GRANULARITY
+        );
+        clear();
+        return roots.parallelStream()
+            .flatMap(root -> validator.upToDateSnapshots(root).stream())
+            .collect(Collectors.toList());
+    }
+}
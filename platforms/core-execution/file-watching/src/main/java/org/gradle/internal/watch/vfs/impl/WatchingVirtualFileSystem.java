@@ -20,10 +20,12 @@
 import net.rubygrapefruit.platform.NativeException;
 import org.gradle.fileevents.internal.InotifyInstanceLimitTooLowException;
 import org.gradle.fileevents.internal.InotifyWatchesLimitTooLowException;
+import org.gradle.internal.file.FileMetadataAccessor;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.internal.operations.CallableBuildOperation;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
 import org.gradle.internal.snapshot.FileSystemNode;
 import org.gradle.internal.snapshot.SnapshotHierarchy;
 import org.gradle.internal.vfs.impl.AbstractVirtualFileSystem;
@@ -50,8 +52,10 @@
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -66,6 +70,7 @@ public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem impleme
     private final WatchableFileSystemDetector watchableFileSystemDetector;
     private final FileChangeListeners fileChangeListeners;
     private final List<File> unsupportedFileSystems = new ArrayList<>();
+    private final DroppedSnapshots droppedSnapshots;
     private Logger warningLogger = LOGGER;
 
     /**
@@ -83,7 +88,9 @@ public WatchingVirtualFileSystem(
         FileSystemWatchingDocumentationIndex fileSystemWatchingDocumentationIndex,
         FileWatchingFilter locationsWrittenByCurrentBuild,
         WatchableFileSystemDetector watchableFileSystemDetector,
-        FileChangeListeners fileChangeListeners
+        FileChangeListeners fileChangeListeners,
+        FileMetadataAccessor metadataAccessor,
+        Supplier<? extends Collection<String>> defaultExcludes
     ) {
         super(root);
         this.watcherRegistryFactory = watcherRegistryFactory;
@@ -91,6 +98,7 @@ public WatchingVirtualFileSystem(
         this.locationsWrittenByCurrentBuild = locationsWrittenByCurrentBuild;
         this.watchableFileSystemDetector = watchableFileSystemDetector;
         this.fileChangeListeners = fileChangeListeners;
+        this.droppedSnapshots = new DroppedSnapshots(root.empty(), metadataAccessor, defaultExcludes);
     }
 
     @Override
@@ -149,6 +157,9 @@ public SnapshotHierarchy call(BuildOperationContext context) {
                             newRoot = watchRegistry.updateVfsOnBuildStarted(currentRoot, watchMode, unsupportedFileSystems);
                         }
                         stateInvalidatedAtStartOfBuild = newRoot != currentRoot;
+                        if (watchRegistry != null) {
+                            newRoot = restoreUpToDateDroppedSnapshots(newRoot);
+                        }
                         statisticsSinceLastBuild = new DefaultFileSystemWatchingStatistics(statistics, newRoot);
                         if (vfsLogging == VfsLogging.VERBOSE) {
                             LOGGER.warn("Received {} file system events since last build while watching {} locations",
@@ -159,6 +170,8 @@ public SnapshotHierarchy call(BuildOperationContext context) {
                                 statisticsSinceLastBuild.getRetainedDirectories(),
                                 statisticsSinceLastBuild.getRetainedMissingFiles()
                             );
+                            LOGGER.warn("Virtual file system retained snapshots take about {} MB of memory",
+                                toMegaBytes(statisticsSinceLastBuild.getEstimatedRetainedSize()));
                             if (stateInvalidatedAtStartOfBuild) {
                                 LOGGER.warn("Parts of the virtual file system have been invalidated since they didn't support watching");
                             }
@@ -256,6 +269,8 @@ public SnapshotHierarchy call(BuildOperationContext context) {
                                 statisticsDuringBuild.getRetainedDirectories(),
                                 statisticsDuringBuild.getRetainedMissingFiles()
                             );
+                            LOGGER.warn("Virtual file system retained snapshots take about {} MB of memory",
+                                toMegaBytes(statisticsDuringBuild.getEstimatedRetainedSize()));
                             if (stateInvalidatedAtStartOfBuild) {
                                 LOGGER.warn("Parts of the virtual file system have been removed at the start of the build since they didn't support watching");
                             }
@@ -316,6 +331,36 @@ public void afterBuildFinished() {
             }));
     }
 
+    @Override
+    public void invalidate(Iterable<String> locations) {
+        underLock(() -> {
+            locations.forEach(droppedSnapshots::invalidate);
+            super.invalidate(locations);
+        });
+    }
+
+    /**
+     * Restores the snapshots dropped because file system events have been lost, as far as they are still up-to-date.
+     */
+    @CheckReturnValue
+    private SnapshotHierarchy restoreUpToDateDroppedSnapshots(SnapshotHierarchy currentRoot) {
+        List<FileSystemLocationSnapshot> upToDateSnapshots = droppedSnapshots.removeUpToDateSnapshots();
+        if (upToDateSnapshots.isEmpty()) {
+            return currentRoot;
+        }
+        LOGGER.info("Restoring {} snapshots dropped since file system events have been lost", upToDateSnapshots.size());
+        SnapshotHierarchy newRoot = currentRoot;
+        for (FileSystemLocationSnapshot snapshot : upToDateSnapshots) {
+            String absolutePath = snapshot.getAbsolutePath();
+            // Don't replace anything which has been snapshotted since the snapshot has been dropped
+            if (!newRoot.findMetadata(absolutePath).isPresent()) {
+                SnapshotHierarchy rootBeforeStore = newRoot;
+                newRoot = updateNotifyingListeners(diffListener -> rootBeforeStore.store(absolutePath, snapshot, diffListener));
+            }
+        }
+        return newRoot;
+    }
+
     /**
      * Start watching the known areas of the file system for changes.
      */
@@ -372,9 +417,18 @@ public void stopWatchingAfterError() {
     private class InvalidateVfsChangeHandler implements FileWatcherRegistry.ChangeHandler {
         @Override
         public void handleChange(FileWatcherRegistry.Type type, Path path) {
-            updateRootUnderLock(root -> updateNotifyingListeners(
-                diffListener -> root.invalidate(path.toString(), new VfsChangeLoggingNodeDiffListener(type, path, diffListener))
-            ));
+            String absolutePath = path.toString();
+            updateRootUnderLock(root -> {
+                if (type == FileWatcherRegistry.Type.OVERFLOW) {
+                    // Keep what we drop, so we can restore the parts which didn't change at the start of the next build
+                    droppedSnapshots.add(root.rootSnapshotsUnder(absolutePath));
+                } else {
+                    droppedSnapshots.invalidate(absolutePath);
+                }
+                return updateNotifyingListeners(
+                    diffListener -> root.invalidate(absolutePath, new VfsChangeLoggingNodeDiffListener(type, path, diffListener))
+                );
+            });
         }
 
         @Override
@@ -492,6 +546,7 @@ private SnapshotHierarchy stopWatchingAndInvalidateHierarchyAfterError(SnapshotH
     }
 
     private SnapshotHierarchy stopWatchingAndInvalidateHierarchy(SnapshotHierarchy currentRoot) {
+        droppedSnapshots.clear();
         if (watchRegistry != null) {
             try {
                 FileWatcherRegistry toBeClosed = watchRegistry;
@@ -504,6 +559,10 @@ private SnapshotHierarchy stopWatchingAndInvalidateHierarchy(SnapshotHierarchy c
         return currentRoot.empty();
     }
 
+    private static String toMegaBytes(long bytes) {
+        return String.format(Locale.ROOT, "%.1f", bytes / (1024.0 * 1024.0));
+    }
+
     private boolean hasDroppedStateBecauseOfErrorsReceivedWhileWatching(FileWatcherRegistry.FileWatchingStatistics statistics) {
         if (statistics.isUnknownEventEncountered()) {
             warningLogger.warn("Dropped VFS state due to lost state");
@@ -526,6 +585,7 @@ public void close() {
     }
 
     private void closeUnderLock() {
+        droppedSnapshots.clear();
         if (watchRegistry != null) {
             try {
                 watchRegistry.close();
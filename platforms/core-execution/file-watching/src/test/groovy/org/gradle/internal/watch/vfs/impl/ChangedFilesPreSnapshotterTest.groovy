@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl
+
+import org.gradle.internal.vfs.FileSystemAccess
+import org.gradle.internal.watch.registry.FileWatcherRegistry
+import spock.lang.Specification
+
+import java.nio.file.Paths
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.internal.watch.registry.FileWatcherRegistry.Type.CREATED
+import static org.gradle.internal.watch.registry.FileWatcherRegistry.Type.MODIFIED
+import static org.gradle.internal.watch.registry.FileWatcherRegistry.Type.REMOVED
+
+class ChangedFilesPreSnapshotterTest extends Specification {
+    private static final long SETTLE_DELAY = 50
+
+    def snapshottedFiles = new CopyOnWriteArrayList<String>()
+    def fileSystemAccess = Stub(FileSystemAccess) {
+        readRegularFileContentHash(_) >> { String location ->
+            snapshottedFiles << location
+            Optional.empty()
+        }
+    }
+    def executor = Executors.newSingleThreadScheduledExecutor()
+    def executorsCreated = 0
+    def preSnapshotter = new ChangedFilesPreSnapshotter(fileSystemAccess, {
+        executorsCreated++
+        executor
+    })
+
+    def cleanup() {
+        preSnapshotter.close()
+        executor.shutdownNow()
+    }
+
+    def "snapshots created and modified files once changes settled"() {
+        preSnapshotter.startAfterBuild(SETTLE_DELAY, 100, 100)
+
+        when:
+        change(MODIFIED, "modified")
+        change(CREATED, "created")
+        change(MODIFIED, "removed")
+        change(REMOVED, "removed")
+        change(MODIFIED, "modified")
+        then:
+        snapshottedFiles.empty
+
+        when:
+        awaitScheduledSnapshotting()
+        then:
+        snapshottedFiles == [path("modified"), path("created")]
+    }
+
+    def "does not collect changes before started after a build"() {
+        when:
+        change(MODIFIED, "modified")
+        awaitScheduledSnapshotting()
+        then:
+        snapshottedFiles.empty
+    }
+
+    def "creates the executor only once changes are collected"() {
+        when:
+        change(MODIFIED, "modified")
+        preSnapshotter.startAfterBuild(SETTLE_DELAY, 100, 100)
+        then:
+        executorsCreated == 0
+
+        when:
+        change(MODIFIED, "modified")
+        change(MODIFIED, "other")
+        then:
+        executorsCreated == 1
+    }
+
+    def "discards collected changes when a build starts"() {
+        preSnapshotter.startAfterBuild(SETTLE_DELAY, 100, 100)
+
+        when:
+        change(MODIFIED, "modified")
+        preSnapshotter.stopForBuild()
+        change(MODIFIED, "modified during build")
+        awaitScheduledSnapshotting()
+        then:
+        snapshottedFiles.empty
+    }
+
+    def "discards collected changes when watching fails"() {
+        preSnapshotter.startAfterBuild(SETTLE_DELAY, 100, 100)
+
+        when:
+        change(MODIFIED, "modified")
+        preSnapshotter.stopWatchingAfterError()
+        awaitScheduledSnapshotting()
+        then:
+        snapshottedFiles.empty
+    }
+
+    def "snapshots at most the maximum number of files between builds"() {
+        preSnapshotter.startAfterBuild(SETTLE_DELAY, 100, 3)
+
+        when:
+        change(MODIFIED, "first")
+        change(MODIFIED, "second")
+        awaitScheduledSnapshotting()
+        change(MODIFIED, "third")
+        change(MODIFIED, "fourth")
+        awaitScheduledSnapshotting()
+        then:
+        snapshottedFiles == [path("first"), path("second"), path("third")]
+
+        when:
+        preSnapshotter.stopForBuild()
+        preSnapshotter.startAfterBuild(SETTLE_DELAY, 100, 3)
+        change(MODIFIED, "fifth")
+        awaitScheduledSnapshotting()
+        then:
+        snapshottedFiles == [path("first"), path("second"), path("third"), path("fifth")]
+    }
+
+    private void change(FileWatcherRegistry.Type type, String fileName) {
+        preSnapshotter.handleChange(type, Paths.get(path(fileName)))
+    }
+
+    private static String path(String fileName) {
+        Paths.get(fileName).toAbsolutePath().toString()
+    }
+
+    private void awaitScheduledSnapshotting() {
+        // The executor has a single thread, so this runs after the scheduled snapshotting
+        executor.schedule({} as Runnable, 2 * SETTLE_DELAY, TimeUnit.MILLISECONDS).get()
+    }
+}
@@ -17,8 +17,13 @@
 package org.gradle.internal.watch.vfs.impl
 
 import net.rubygrapefruit.platform.NativeException
+import org.gradle.internal.file.FileMetadata.AccessType
+import org.gradle.internal.file.impl.DefaultFileMetadata
+import org.gradle.internal.file.nio.NioFileMetadataAccessor
+import org.gradle.internal.hash.TestHashCodes
 import org.gradle.internal.operations.TestBuildOperationRunner
 import org.gradle.internal.snapshot.CaseSensitivity
+import org.gradle.internal.snapshot.RegularFileSnapshot
 import org.gradle.internal.snapshot.SnapshotHierarchy
 import org.gradle.internal.vfs.impl.DefaultSnapshotHierarchy
 import org.gradle.internal.watch.registry.FileWatcherRegistry
@@ -29,9 +34,16 @@ import org.gradle.internal.watch.vfs.FileChangeListeners
 import org.gradle.internal.watch.vfs.VfsLogging
 import org.gradle.internal.watch.vfs.WatchLogging
 import org.gradle.internal.watch.vfs.WatchableFileSystemDetector
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
 import spock.lang.Specification
 
+@CleanupTestDirectory
 class WatchingVirtualFileSystemTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
     def watcherRegistryFactory = Mock(FileWatcherRegistryFactory)
     def watcherRegistry = Mock(FileWatcherRegistry)
     def emptySnapshotHierarchy = DefaultSnapshotHierarchy.empty(CaseSensitivity.CASE_SENSITIVE)
@@ -49,7 +61,9 @@ class WatchingVirtualFileSystemTest extends Specification {
         documentationIndex,
         locationsUpdatedByCurrentBuild,
         watchableFileSystemDetector,
-        fileChangeListeners
+        fileChangeListeners,
+        new NioFileMetadataAccessor(),
+        { [] }
     )
 
     def "invalidates the virtual file system before and after the build when watching is disabled"() {
@@ -260,4 +274,47 @@ class WatchingVirtualFileSystemTest extends Specification {
         1 * watcherRegistry.close()
         0 * _
     }
+
+    def "restores unchanged snapshots dropped because of an overflow at the start of the next build"() {
+        def watchedDir = temporaryFolder.createDir("watched")
+        def unchangedFile = watchedDir.file("unchanged.txt").createFile()
+        def changedFile = watchedDir.file("changed.txt").createFile()
+        def changedAgainFile = watchedDir.file("changed-again.txt").createFile()
+        [unchangedFile, changedFile, changedAgainFile].each { it.lastModified = System.currentTimeMillis() - 60_000 }
+        FileWatcherRegistry.ChangeHandler changeHandler = null
+
+        when:
+        watchingVirtualFileSystem.afterBuildStarted(WatchMode.ENABLED, VfsLogging.NORMAL, WatchLogging.NORMAL, buildOperationRunner)
+        then:
+        1 * watcherRegistryFactory.createFileWatcherRegistry(_) >> { FileWatcherRegistry.ChangeHandler handler ->
+            changeHandler = handler
+            watcherRegistry
+        }
+        1 * watcherRegistry.updateVfsOnBuildStarted(_, _, _) >> { SnapshotHierarchy root, watchMode, unsupportedFileSystems -> root }
+
+        when:
+        [unchangedFile, changedFile, changedAgainFile].each { file ->
+            watchingVirtualFileSystem.updateRootUnderLock { root -> root.store(file.absolutePath, snapshotOf(file), SnapshotHierarchy.NodeDiffListener.NOOP) }
+        }
+        changeHandler.handleChange(FileWatcherRegistry.Type.OVERFLOW, watchedDir.toPath())
+        changedFile.text = "changed"
+        changeHandler.handleChange(FileWatcherRegistry.Type.MODIFIED, changedAgainFile.toPath())
+        then:
+        _ * locationsUpdatedByCurrentBuild.shouldWatchLocation(_) >> true
+        !watchingVirtualFileSystem.findSnapshot(unchangedFile.absolutePath).present
+
+        when:
+        watchingVirtualFileSystem.afterBuildStarted(WatchMode.ENABLED, VfsLogging.NORMAL, WatchLogging.NORMAL, buildOperationRunner)
+        then:
+        1 * watcherRegistry.getAndResetStatistics() >> Stub(FileWatcherRegistry.FileWatchingStatistics)
+        1 * watcherRegistry.updateVfsOnBuildStarted(_, _, _) >> { SnapshotHierarchy root, watchMode, unsupportedFileSystems -> root }
+
+        watchingVirtualFileSystem.findSnapshot(unchangedFile.absolutePath).get().isContentAndMetadataUpToDate(snapshotOf(unchangedFile))
+        !watchingVirtualFileSystem.findSnapshot(changedFile.absolutePath).present
+        !watchingVirtualFileSystem.findSnapshot(changedAgainFile.absolutePath).present
+    }
+
+    private static RegularFileSnapshot snapshotOf(File file) {
+        new RegularFileSnapshot(file.absolutePath, file.name, TestHashCodes.hashCodeFrom(1234), DefaultFileMetadata.file(file.lastModified(), file.length(), AccessType.DIRECT))
+    }
 }
@@ -1,6 +1,7 @@
 plugins {
     id("gradlebuild.distribution.api-java")
     id("gradlebuild.publish-public-libraries")
+    id("gradlebuild.jmh")
 }
 
 description = "Tools for creating secure hashes for files and other content"
@@ -13,6 +14,13 @@ dependencies {
     implementation(libs.guava)
     api(libs.jsr305)
 }
+
+jmh {
+    fork = 1
+    threads = 2
+    warmupIterations = 5
+    synchronizeIterations = false
+}
 tasks.isolatedProjectsIntegTest {
     enabled = false
 }
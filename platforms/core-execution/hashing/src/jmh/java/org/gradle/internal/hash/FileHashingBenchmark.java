@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares the throughput of the hash functions available for file content fingerprinting.
+ */
+@Fork(1)
+@Threads(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class FileHashingBenchmark {
+
+    @Param({"MD5", "MURMUR3-128"})
+    String algorithm;
+
+    @Param({"128", "4096", "65536", "1048576", "67108864"})
+    int fileSize;
+
+    HashFunction hashFunction;
+    FileHasher fileHasher;
+    File file;
+    byte[] content;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        content = new byte[fileSize];
+        new Random(1234L).nextBytes(content);
+        file = File.createTempFile("jmh", "hash");
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(content);
+        } finally {
+            outputStream.close();
+        }
+        hashFunction = Hashing.forAlgorithm(algorithm);
+        fileHasher = new DefaultFileHasher(new DefaultStreamHasher(hashFunction));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public void hashFile(Blackhole blackhole) {
+        blackhole.consume(fileHasher.hash(file));
+    }
+
+    @Benchmark
+    public void hashBytes(Blackhole blackhole) {
+        blackhole.consume(hashFunction.hashBytes(content));
+    }
+}
@@ -17,31 +17,90 @@
 
 import org.gradle.api.UncheckedIOException;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
 
 public class DefaultFileHasher implements FileHasher {
+    /**
+     * System property to set the size in bytes above which files are hashed in parallel chunks. A negative value disables parallel hashing.
+     */
+    public static final String PARALLEL_HASHING_THRESHOLD_PROPERTY = "org.gradle.internal.hash.parallel-threshold";
+    public static final long DEFAULT_PARALLEL_HASHING_THRESHOLD = 64 * 1024 * 1024;
+
     private final StreamHasher streamHasher;
+    @Nullable
+    private final ParallelFileHasher parallelFileHasher;
+    private final long parallelHashingThreshold;
+    private final Listener listener;
 
     public DefaultFileHasher(StreamHasher streamHasher) {
+        this(streamHasher, null, -1, Listener.NONE);
+    }
+
+    public DefaultFileHasher(StreamHasher streamHasher, @Nullable ParallelFileHasher parallelFileHasher, long parallelHashingThreshold, Listener listener) {
+        if (parallelFileHasher != null && !parallelFileHasher.getHashFunction().equals(streamHasher.getHashFunction())) {
+            throw new IllegalArgumentException(String.format("Parallel file hasher uses %s, but stream hasher uses %s.", parallelFileHasher.getHashFunction(), streamHasher.getHashFunction()));
+        }
         this.streamHasher = streamHasher;
+        this.parallelFileHasher = parallelFileHasher;
+        this.parallelHashingThreshold = parallelHashingThreshold;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the parallel hashing threshold configured via {@value #PARALLEL_HASHING_THRESHOLD_PROPERTY}.
+     */
+    public static long parallelHashingThresholdFromSystemProperties() {
+        return Long.getLong(PARALLEL_HASHING_THRESHOLD_PROPERTY, DEFAULT_PARALLEL_HASHING_THRESHOLD);
     }
 
     @Override
     public HashCode hash(File file) {
+        return hash(file, file.length());
+    }
+
+    @Override
+    public HashCode hash(File file, long length, long lastModified) {
+        return hash(file, length);
+    }
+
+    private HashCode hash(File file, long length) {
+        if (parallelFileHasher != null && parallelHashingThreshold >= 0 && length > parallelHashingThreshold) {
+            HashCode hash = hashInParallel(parallelFileHasher, file);
+            listener.fileHashed(Strategy.PARALLEL, length);
+            return hash;
+        }
+        HashCode hash = hashSequentially(file);
+        listener.fileHashed(Strategy.SEQUENTIAL, length);
+        return hash;
+    }
+
+    private HashCode hashInParallel(ParallelFileHasher parallelFileHasher, File file) {
+        try {
+            return parallelFileHasher.hash(file);
+        } catch (NoSuchFileException e) {
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file '%s' as it does not exist.", getAlgorithm(), file), e);
+        } catch (IOException | UncheckedIOException e) {
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file '%s'", getAlgorithm(), file), e);
+        }
+    }
+
+    private HashCode hashSequentially(File file) {
         InputStream inputStream;
         try {
             inputStream = new FileInputStream(file);
         } catch (FileNotFoundException e) {
-            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s' as it does not exist.", file), e);
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file '%s' as it does not exist.", getAlgorithm(), file), e);
         }
         try {
             return streamHasher.hash(inputStream);
         } catch (IOException e) {
-            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s'", file), e);
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file '%s'", getAlgorithm(), file), e);
         } finally {
             try {
                 inputStream.close();
@@ -51,8 +110,24 @@ public HashCode hash(File file) {
         }
     }
 
-    @Override
-    public HashCode hash(File file, long length, long lastModified) {
-        return hash(file);
+    private String getAlgorithm() {
+        return streamHasher.getHashFunction().getAlgorithm();
+    }
+
+    /**
+     * The way a file has been hashed.
+     */
+    public enum Strategy {
+        SEQUENTIAL,
+        PARALLEL
+    }
+
+    /**
+     * Receives the number of bytes hashed with each strategy.
+     */
+    public interface Listener {
+        Listener NONE = (strategy, length) -> {};
+
+        void fileHashed(Strategy strategy, long length);
     }
 }
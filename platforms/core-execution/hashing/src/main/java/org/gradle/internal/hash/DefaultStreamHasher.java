@@ -20,13 +20,54 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
 public class DefaultStreamHasher implements StreamHasher {
+    /**
+     * System property to select the hash function used for file content by its algorithm name, see {@link Hashing#forAlgorithm(String)}.
+     */
+    public static final String HASH_FUNCTION_PROPERTY = "org.gradle.internal.hash.file-content-function";
+
+    /**
+     * Content longer than this is hashed in chunks of this size, and the hashes of the chunks are combined into the final hash.
+     * Content of at most this size is hashed as a single chunk, so its hash is the same as the hash of the chunk.
+     * <p>
+     * Chunking allows {@link ParallelFileHasher} to hash the chunks of large files concurrently while producing the same hash as this class.
+     * Changing the chunk size changes the hash of all content larger than the chunk size.
+     */
+    static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
     private static final HashCode SIGNATURE = Hashing.signature(DefaultStreamHasher.class);
+    private static final HashCode CHUNKED_SIGNATURE = Hashing.signature("CHUNKED:" + DefaultStreamHasher.class.getName());
 
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final HashFunction hashFunction;
+
+    public DefaultStreamHasher() {
+        this(Hashing.defaultFunction());
+    }
+
+    public DefaultStreamHasher(HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+    }
+
+    /**
+     * Creates a stream hasher using the hash function selected via {@value #HASH_FUNCTION_PROPERTY}, or the default hash function.
+     */
+    public static DefaultStreamHasher fromSystemProperties() {
+        String algorithm = System.getProperty(HASH_FUNCTION_PROPERTY);
+        return algorithm == null
+            ? new DefaultStreamHasher()
+            : new DefaultStreamHasher(Hashing.forAlgorithm(algorithm));
+    }
+
+    @Override
+    public HashFunction getHashFunction() {
+        return hashFunction;
+    }
 
     @Override
     public HashCode hash(InputStream inputStream) throws IOException {
@@ -41,22 +82,62 @@ public HashCode hashCopy(InputStream inputStream, OutputStream outputStream) thr
     private HashCode doHash(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = takeBuffer();
         try {
-            PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
-            hasher.putHash(SIGNATURE);
+            PrimitiveHasher hasher = newChunkHasher(hashFunction);
+            List<HashCode> chunkHashes = null;
+            long length = 0;
+            int chunkRemaining = CHUNK_SIZE;
             while (true) {
                 int nread = inputStream.read(buffer);
                 if (nread < 0) {
                     break;
                 }
                 outputStream.write(buffer, 0, nread);
-                hasher.putBytes(buffer, 0, nread);
+                length += nread;
+                int offset = 0;
+                while (offset < nread) {
+                    // Only start a new chunk when there is more content, so content of exactly the chunk size is a single chunk
+                    if (chunkRemaining == 0) {
+                        if (chunkHashes == null) {
+                            chunkHashes = new ArrayList<HashCode>();
+                        }
+                        chunkHashes.add(hasher.hash());
+                        hasher = newChunkHasher(hashFunction);
+                        chunkRemaining = CHUNK_SIZE;
+                    }
+                    int len = Math.min(nread - offset, chunkRemaining);
+                    hasher.putBytes(buffer, offset, len);
+                    offset += len;
+                    chunkRemaining -= len;
+                }
             }
-            return hasher.hash();
+            HashCode lastChunkHash = hasher.hash();
+            if (chunkHashes == null) {
+                return lastChunkHash;
+            }
+            chunkHashes.add(lastChunkHash);
+            return combineChunkHashes(hashFunction, length, chunkHashes);
         } finally {
             returnBuffer(buffer);
         }
     }
 
+    static PrimitiveHasher newChunkHasher(HashFunction hashFunction) {
+        PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+        hasher.putHash(SIGNATURE);
+        return hasher;
+    }
+
+    static HashCode combineChunkHashes(HashFunction hashFunction, long length, List<HashCode> chunkHashes) {
+        PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+        hasher.putHash(CHUNKED_SIGNATURE);
+        hasher.putLong(length);
+        hasher.putInt(CHUNK_SIZE);
+        for (HashCode chunkHash : chunkHashes) {
+            hasher.putHash(chunkHash);
+        }
+        return hasher.hash();
+    }
+
     private void returnBuffer(byte[] buffer) {
         // Retain buffer if there is capacity in the queue, otherwise discard
         buffers.offer(buffer);
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.gradle.internal.hash.HashCode.Usage.SAFE_TO_REUSE_BYTES;
+
+/**
+ * Streaming implementation of the 128-bit x64 variant of MurmurHash3 with a zero seed.
+ * <p>
+ * The produced hashes are identical to Guava's {@code Hashing.murmur3_128()}.
+ * This is a non-cryptographic hash function, so it must only be used to fingerprint content,
+ * and never where collisions could be crafted on purpose.
+ */
+class Murmur3PrimitiveHasher implements PrimitiveHasher {
+    private static final int CHUNK_SIZE = 16;
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final byte[] tail = new byte[CHUNK_SIZE];
+    private final byte[] scratch = new byte[8];
+    private int tailLength;
+    private long length;
+    private long h1;
+    private long h2;
+    private boolean done;
+
+    @Override
+    public void putByte(byte value) {
+        checkNotDone();
+        tail[tailLength++] = value;
+        length++;
+        if (tailLength == CHUNK_SIZE) {
+            bmix(getLongLittleEndian(tail, 0), getLongLittleEndian(tail, 8));
+            tailLength = 0;
+        }
+    }
+
+    @Override
+    public void putBytes(byte[] bytes) {
+        putBytes(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void putBytes(byte[] bytes, int off, int len) {
+        checkNotDone();
+        length += len;
+        int pos = off;
+        int end = off + len;
+        if (tailLength > 0) {
+            int toCopy = Math.min(CHUNK_SIZE - tailLength, len);
+            System.arraycopy(bytes, pos, tail, tailLength, toCopy);
+            tailLength += toCopy;
+            pos += toCopy;
+            if (tailLength < CHUNK_SIZE) {
+                return;
+            }
+            bmix(getLongLittleEndian(tail, 0), getLongLittleEndian(tail, 8));
+            tailLength = 0;
+        }
+        while (end - pos >= CHUNK_SIZE) {
+            bmix(getLongLittleEndian(bytes, pos), getLongLittleEndian(bytes, pos + 8));
+            pos += CHUNK_SIZE;
+        }
+        int remaining = end - pos;
+        if (remaining > 0) {
+            System.arraycopy(bytes, pos, tail, 0, remaining);
+            tailLength = remaining;
+        }
+    }
+
+    @Override
+    public void putInt(int value) {
+        scratch[0] = (byte) value;
+        scratch[1] = (byte) (value >>> 8);
+        scratch[2] = (byte) (value >>> 16);
+        scratch[3] = (byte) (value >>> 24);
+        putBytes(scratch, 0, 4);
+    }
+
+    @Override
+    public void putLong(long value) {
+        for (int i = 0; i < 8; i++) {
+            scratch[i] = (byte) (value >>> (i * 8));
+        }
+        putBytes(scratch, 0, 8);
+    }
+
+    @Override
+    public void putDouble(double value) {
+        putLong(Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    public void putBoolean(boolean value) {
+        putByte((byte) (value ? 1 : 0));
+    }
+
+    @Override
+    public void putString(CharSequence value) {
+        putBytes(value.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void putHash(HashCode hashCode) {
+        hashCode.appendToHasher(this);
+    }
+
+    @Override
+    public HashCode hash() {
+        checkNotDone();
+        done = true;
+        if (tailLength > 0) {
+            // Bytes after the tail are zero, so mixing both halves is equivalent to the reference fall-through
+            for (int i = tailLength; i < CHUNK_SIZE; i++) {
+                tail[i] = 0;
+            }
+            h1 ^= mixK1(getLongLittleEndian(tail, 0));
+            h2 ^= mixK2(getLongLittleEndian(tail, 8));
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (h1 >>> (i * 8));
+            bytes[i + 8] = (byte) (h2 >>> (i * 8));
+        }
+        return HashCode.fromBytes(bytes, SAFE_TO_REUSE_BYTES);
+    }
+
+    private void checkNotDone() {
+        if (done) {
+            throw new IllegalStateException("Cannot reuse hasher!");
+        }
+    }
+
+    private void bmix(long k1, long k2) {
+        h1 ^= mixK1(k1);
+
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        h2 ^= mixK2(k2);
+
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long getLongLittleEndian(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFFL)
+            | (bytes[offset + 1] & 0xFFL) << 8
+            | (bytes[offset + 2] & 0xFFL) << 16
+            | (bytes[offset + 3] & 0xFFL) << 24
+            | (bytes[offset + 4] & 0xFFL) << 32
+            | (bytes[offset + 5] & 0xFFL) << 40
+            | (bytes[offset + 6] & 0xFFL) << 48
+            | (bytes[offset + 7] & 0xFFL) << 56;
+    }
+}
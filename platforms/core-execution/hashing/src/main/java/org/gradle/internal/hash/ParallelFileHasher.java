@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+import static org.gradle.internal.hash.DefaultStreamHasher.CHUNK_SIZE;
+
+/**
+ * Hashes large files by hashing their chunks concurrently.
+ * <p>
+ * The produced hash is the same as the one {@link DefaultStreamHasher} produces for the content of the file using the same hash function.
+ * <p>
+ * The chunks are read via memory mapping when enabled, otherwise via positional reads.
+ * Memory mapping should not be used on Windows, since a mapped file cannot be deleted until the mapping is garbage collected.
+ */
+public class ParallelFileHasher implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final HashFunction hashFunction;
+    private final ExecutorService executor;
+    private final boolean memoryMapped;
+
+    public ParallelFileHasher(HashFunction hashFunction, ExecutorService executor, boolean memoryMapped) {
+        this.hashFunction = hashFunction;
+        this.executor = executor;
+        this.memoryMapped = memoryMapped;
+    }
+
+    public HashFunction getHashFunction() {
+        return hashFunction;
+    }
+
+    /**
+     * Returns the hash of the current content of the given file.
+     */
+    public HashCode hash(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            if (length <= CHUNK_SIZE) {
+                return hashChunk(channel, 0, length);
+            }
+            List<CompletableFuture<HashCode>> chunks = new ArrayList<CompletableFuture<HashCode>>();
+            for (long position = CHUNK_SIZE; position < length; position += CHUNK_SIZE) {
+                chunks.add(hashChunkAsync(channel, position, Math.min(CHUNK_SIZE, length - position)));
+            }
+            List<HashCode> chunkHashes = new ArrayList<HashCode>(chunks.size() + 1);
+            // Hash the first chunk on the calling thread, it would only wait otherwise
+            RuntimeException failure = null;
+            try {
+                chunkHashes.add(hashChunk(channel, 0, CHUNK_SIZE));
+            } catch (IOException e) {
+                failure = new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            // Wait for all chunks, even after a failure, so no chunk is still being read after the channel is closed
+            for (CompletableFuture<HashCode> chunk : chunks) {
+                try {
+                    chunkHashes.add(chunk.join());
+                } catch (CompletionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause()
+                            : e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return DefaultStreamHasher.combineChunkHashes(hashFunction, length, chunkHashes);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private CompletableFuture<HashCode> hashChunkAsync(FileChannel channel, long position, long size) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return hashChunk(channel, position, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    private HashCode hashChunk(FileChannel channel, long position, long size) throws IOException {
+        PrimitiveHasher hasher = DefaultStreamHasher.newChunkHasher(hashFunction);
+        byte[] bytes = new byte[(int) Math.min(BUFFER_SIZE, size)];
+        if (memoryMapped) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            while (buffer.hasRemaining()) {
+                int len = Math.min(bytes.length, buffer.remaining());
+                buffer.get(bytes, 0, len);
+                hasher.putBytes(bytes, 0, len);
+            }
+        } else {
+            long offset = 0;
+            while (offset < size) {
+                int nread = channel.read(ByteBuffer.wrap(bytes, 0, (int) Math.min(bytes.length, size - offset)), position + offset);
+                if (nread < 0) {
+                    // The file has been truncated concurrently
+                    break;
+                }
+                hasher.putBytes(bytes, 0, nread);
+                offset += nread;
+            }
+        }
+        return hasher.hash();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -34,4 +34,11 @@ public interface StreamHasher {
      * The method will not close either stream.
      */
     HashCode hashCopy(InputStream inputStream, OutputStream outputStream) throws IOException;
+
+    /**
+     * Returns the hash function used to hash the content of streams.
+     * <p>
+     * Persistent stores of content hashes should be segregated by this function, so hashes produced by different functions are never compared.
+     */
+    HashFunction getHashFunction();
 }
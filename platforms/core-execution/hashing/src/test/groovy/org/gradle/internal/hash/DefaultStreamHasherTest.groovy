@@ -36,4 +36,19 @@ class DefaultStreamHasherTest extends Specification {
         hash.toString() == "af67a92e9f73b51572e9b94e343d2840"
         output.toByteArray() == "hello".bytes
     }
+
+    def "can hash input with a different hash function"() {
+        def input = new ByteArrayInputStream("hello".bytes)
+        def expected = Hashing.murmur3_128().newPrimitiveHasher()
+        expected.putHash(Hashing.signature(DefaultStreamHasher))
+        expected.putBytes("hello".bytes)
+
+        when:
+        def hasher = new DefaultStreamHasher(Hashing.murmur3_128())
+        def hash = hasher.hash(input)
+        then:
+        hasher.hashFunction == Hashing.murmur3_128()
+        hash == expected.hash()
+        hash.toString() != "af67a92e9f73b51572e9b94e343d2840"
+    }
 }
@@ -109,6 +109,52 @@ class HashingTest extends Specification {
         hashStrings(["abc", "de"]) != hashStrings(["ab", "cde"])
     }
 
+    def 'murmur3 produces reference hashes'() {
+        expect:
+        Hashing.murmur3_128().hashString(input).toString() == expected
+
+        where:
+        input                                         | expected
+        "hell"                                        | "67f8103e694299624753ebba820bdb92"
+        "hello"                                       | "029bbd41b3a7d8cb191dae486a901e5b"
+        "The quick brown fox jumps over the lazy dog" | "6c1b07bc7bbc4be347939ac4a93c437a"
+    }
+
+    def 'murmur3 hash does not depend on how the input is split'() {
+        given:
+        def bytes = (0..<100).collect { it as byte } as byte[]
+
+        when:
+        def hasher = Hashing.murmur3_128().newPrimitiveHasher()
+        hasher.putBytes(bytes, 0, 3)
+        hasher.putByte(bytes[3])
+        hasher.putBytes(bytes, 4, 30)
+        hasher.putBytes(bytes, 34, 66)
+
+        then:
+        hasher.hash() == Hashing.murmur3_128().hashBytes(bytes)
+    }
+
+    def 'can look up hash function by algorithm #algorithm'() {
+        expect:
+        Hashing.forAlgorithm(algorithm).is(function)
+
+        where:
+        algorithm     | function
+        "MD5"         | Hashing.md5()
+        "sha-256"     | Hashing.sha256()
+        "MURMUR3-128" | Hashing.murmur3_128()
+    }
+
+    def 'fails for unknown algorithm'() {
+        when:
+        Hashing.forAlgorithm("CRC32")
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Unknown hashing algorithm: CRC32"
+    }
+
     def hashStrings(List<String> strings) {
         def hasher = Hashing.newHasher()
         strings.each { hasher.putString(it) }
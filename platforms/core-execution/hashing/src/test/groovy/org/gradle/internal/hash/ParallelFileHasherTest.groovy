@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.util.concurrent.Executors
+
+import static org.gradle.internal.hash.DefaultStreamHasher.CHUNK_SIZE
+
+class ParallelFileHasherTest extends Specification {
+    @TempDir
+    File tmpDir
+
+    def executor = Executors.newFixedThreadPool(4)
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "produces same hash as stream hasher for #size bytes with #hashFunction (memory mapped: #memoryMapped)"() {
+        def content = new byte[size]
+        new Random(size).nextBytes(content)
+        def file = new File(tmpDir, "file.bin")
+        file.bytes = content
+
+        when:
+        def hash = new ParallelFileHasher(hashFunction, executor, memoryMapped).hash(file)
+
+        then:
+        hash == new DefaultStreamHasher(hashFunction).hash(new ByteArrayInputStream(content))
+
+        where:
+        [size, hashFunction, memoryMapped] << [
+            [0, 10, CHUNK_SIZE, CHUNK_SIZE + 1, 3 * CHUNK_SIZE + 17],
+            [Hashing.md5(), Hashing.murmur3_128()],
+            [true, false]
+        ].combinations()
+    }
+
+    def "file hasher hashes files above threshold in parallel"() {
+        def small = new File(tmpDir, "small.bin")
+        small.bytes = new byte[100]
+        def large = new File(tmpDir, "large.bin")
+        large.bytes = new byte[CHUNK_SIZE + 100]
+        def streamHasher = new DefaultStreamHasher()
+        def listener = Mock(DefaultFileHasher.Listener)
+        def fileHasher = new DefaultFileHasher(streamHasher, new ParallelFileHasher(Hashing.defaultFunction(), executor, true), 1000, listener)
+
+        when:
+        def smallHash = fileHasher.hash(small)
+        def largeHash = fileHasher.hash(large, large.length(), large.lastModified())
+
+        then:
+        1 * listener.fileHashed(DefaultFileHasher.Strategy.SEQUENTIAL, 100)
+        1 * listener.fileHashed(DefaultFileHasher.Strategy.PARALLEL, CHUNK_SIZE + 100)
+        0 * _
+
+        smallHash == new DefaultFileHasher(streamHasher).hash(small)
+        largeHash == new DefaultFileHasher(streamHasher).hash(large)
+    }
+
+    def "reports missing file"() {
+        def missing = new File(tmpDir, "missing.bin")
+        def fileHasher = new DefaultFileHasher(new DefaultStreamHasher(), new ParallelFileHasher(Hashing.defaultFunction(), executor, true), 0, DefaultFileHasher.Listener.NONE)
+
+        when:
+        fileHasher.hash(missing, 10, 0)
+
+        then:
+        def e = thrown(org.gradle.api.UncheckedIOException)
+        e.message == "Failed to create MD5 hash for file '${missing}' as it does not exist."
+    }
+
+    def "cannot use different hash functions for streams and parallel hashing"() {
+        when:
+        new DefaultFileHasher(new DefaultStreamHasher(Hashing.md5()), new ParallelFileHasher(Hashing.murmur3_128(), executor, true), 0, DefaultFileHasher.Listener.NONE)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An open addressing hash table from key hashes to the offsets of log records, stored in a file.
+ * <p>
+ * When memory mapped, changes are made directly to the file. Otherwise, the table is held on the heap and written to the file when flushed.
+ * The table is marked dirty before the first change and marked clean again once flushed, so that a table left behind by a crash is not trusted.
+ */
+class HashIndex {
+    static final long EMPTY = 0;
+    static final long REMOVED = 0;
+
+    private static final int MAGIC = 0x47494458; // 'GIDX'
+    private static final int VERSION = 1;
+    private static final int CLEAN = 0;
+    private static final int DIRTY = 1;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int STATE_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int USED_SLOTS_OFFSET = 16;
+    private static final int ENTRIES_OFFSET = 20;
+    private static final int GENERATION_OFFSET = 24;
+    private static final int COVERED_LENGTH_OFFSET = 32;
+    private static final int LIVE_BYTES_OFFSET = 40;
+    private static final int HEADER_SIZE = 48;
+    // key hash, record offset
+    private static final int SLOT_SIZE = 16;
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final boolean memoryMapped;
+    private final int capacity;
+    private boolean dirty;
+
+    private HashIndex(File file, ByteBuffer buffer, boolean memoryMapped, boolean dirty) {
+        this.file = file;
+        this.buffer = buffer;
+        this.memoryMapped = memoryMapped;
+        this.capacity = buffer.getInt(CAPACITY_OFFSET);
+        this.dirty = dirty;
+    }
+
+    /**
+     * Creates an empty, dirty table with the given capacity, which must be a power of two, replacing the given file.
+     */
+    static HashIndex create(File file, int capacity, long generation, boolean memoryMapped) throws IOException {
+        long size = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+        ByteBuffer buffer;
+        if (memoryMapped) {
+            // Map a new file and move it into place, as the current file may still be mapped by the table being replaced
+            File tempFile = new File(file.getPath() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            writeHeader(buffer, capacity, generation);
+            ((MappedByteBuffer) buffer).force();
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            buffer = ByteBuffer.allocate((int) size);
+            writeHeader(buffer, capacity, generation);
+        }
+        return new HashIndex(file, buffer, memoryMapped, true);
+    }
+
+    private static void writeHeader(ByteBuffer buffer, int capacity, long generation) {
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(STATE_OFFSET, DIRTY);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putLong(GENERATION_OFFSET, generation);
+    }
+
+    /**
+     * Opens the table in the given file, or returns {@code null} when the file is missing, was not flushed, or belongs to a different log.
+     */
+    @Nullable
+    static HashIndex open(File file, long generation, long logLength, boolean memoryMapped) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            if (memoryMapped) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, buffer.position()) < 0) {
+                        return null;
+                    }
+                }
+            }
+        }
+        int capacity = buffer.getInt(CAPACITY_OFFSET);
+        long coveredLength = buffer.getLong(COVERED_LENGTH_OFFSET);
+        boolean valid = buffer.getInt(MAGIC_OFFSET) == MAGIC
+            && buffer.getInt(VERSION_OFFSET) == VERSION
+            && buffer.getInt(STATE_OFFSET) == CLEAN
+            && buffer.getLong(GENERATION_OFFSET) == generation
+            && capacity > 0 && Integer.bitCount(capacity) == 1
+            && buffer.capacity() == HEADER_SIZE + (long) capacity * SLOT_SIZE
+            && coveredLength <= logLength;
+        return valid ? new HashIndex(file, buffer, memoryMapped, false) : null;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    long getHash(int slot) {
+        return buffer.getLong(slotOffset(slot));
+    }
+
+    long getRecordOffset(int slot) {
+        return buffer.getLong(slotOffset(slot) + 8);
+    }
+
+    static int firstSlot(long hash, int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Adds an entry for a key that is known not to be in the table.
+     */
+    void add(long hash, long recordOffset) {
+        int mask = capacity - 1;
+        int slot = firstSlot(hash, mask);
+        while (getHash(slot) != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        fill(slot, hash, recordOffset);
+    }
+
+    /**
+     * Fills an empty slot.
+     */
+    void fill(int slot, long hash, long recordOffset) {
+        int offset = slotOffset(slot);
+        buffer.putLong(offset + 8, recordOffset);
+        buffer.putLong(offset, hash);
+        setUsedSlots(getUsedSlots() + 1);
+        setEntries(getEntries() + 1);
+    }
+
+    /**
+     * Reuses a removed slot.
+     */
+    void reuse(int slot, long hash, long recordOffset) {
+        int offset = slotOffset(slot);
+        buffer.putLong(offset, hash);
+        buffer.putLong(offset + 8, recordOffset);
+        setEntries(getEntries() + 1);
+    }
+
+    void update(int slot, long recordOffset) {
+        buffer.putLong(slotOffset(slot) + 8, recordOffset);
+    }
+
+    /**
+     * Marks a slot as removed. The hash is kept, so the slot still continues the probe sequence of other keys.
+     */
+    void remove(int slot) {
+        buffer.putLong(slotOffset(slot) + 8, REMOVED);
+        setEntries(getEntries() - 1);
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    int getUsedSlots() {
+        return buffer.getInt(USED_SLOTS_OFFSET);
+    }
+
+    private void setUsedSlots(int usedSlots) {
+        buffer.putInt(USED_SLOTS_OFFSET, usedSlots);
+    }
+
+    int getEntries() {
+        return buffer.getInt(ENTRIES_OFFSET);
+    }
+
+    private void setEntries(int entries) {
+        buffer.putInt(ENTRIES_OFFSET, entries);
+    }
+
+    long getCoveredLength() {
+        return buffer.getLong(COVERED_LENGTH_OFFSET);
+    }
+
+    void setCoveredLength(long coveredLength) {
+        buffer.putLong(COVERED_LENGTH_OFFSET, coveredLength);
+    }
+
+    long getLiveBytes() {
+        return buffer.getLong(LIVE_BYTES_OFFSET);
+    }
+
+    void setLiveBytes(long liveBytes) {
+        buffer.putLong(LIVE_BYTES_OFFSET, liveBytes);
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Marks the table as dirty in its file, before it is changed for the first time.
+     */
+    void markDirty() {
+        if (dirty) {
+            return;
+        }
+        buffer.putInt(STATE_OFFSET, DIRTY);
+        if (memoryMapped) {
+            ((MappedByteBuffer) buffer).force();
+        }
+        dirty = true;
+    }
+
+    /**
+     * Writes the table to its file and marks it clean. The log must have been flushed before.
+     */
+    void flush() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        if (memoryMapped) {
+            MappedByteBuffer mappedBuffer = (MappedByteBuffer) buffer;
+            mappedBuffer.force();
+            mappedBuffer.putInt(STATE_OFFSET, CLEAN);
+            mappedBuffer.force();
+        } else {
+            buffer.putInt(STATE_OFFSET, CLEAN);
+            File tempFile = new File(file.getPath() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer content = buffer.duplicate();
+                content.clear();
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+                channel.force(true);
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        dirty = false;
+    }
+}
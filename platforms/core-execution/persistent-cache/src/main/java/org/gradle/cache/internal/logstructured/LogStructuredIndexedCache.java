@@ -0,0 +1,522 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import com.google.common.hash.Hashing;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.PersistentIndexedCacheEngine;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent indexed cache that appends its entries to a log file, and finds them using a hash index stored in a separate file.
+ * <p>
+ * The log is the source of truth. Each record holds the serialized key and value of an entry, or the key of a removed entry, followed by a checksum.
+ * Records that were not completely written, for example because the process crashed, are discarded when the cache is opened.
+ * The index is memory mapped where the platform allows deleting and replacing mapped files.
+ * It remembers the length of the log it covers and the generation of that log, and is only trusted when it was flushed after its last change.
+ * Otherwise, it is rebuilt from the log.
+ * <p>
+ * When most of the log is taken by stale records, the live records are copied to a new log when the cache is closed.
+ * <p>
+ * Lookups and changes are serialized. Callers are expected to serialize access already, as {@link org.gradle.cache.internal.DefaultCacheCoordinator} does,
+ * so the lock is never contended. As for the other indexed caches, the cache must only be opened while holding the cross-process lock of the cache,
+ * and must be closed before releasing it.
+ */
+public class LogStructuredIndexedCache<K, V> implements PersistentIndexedCacheEngine<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredIndexedCache.class);
+
+    private static final boolean MEMORY_MAPPED = !System.getProperty("os.name").toLowerCase(Locale.US).contains("windows");
+
+    private static final int LOG_MAGIC = 0x474c4f47; // 'GLOG'
+    private static final int LOG_VERSION = 1;
+    // magic, version, generation
+    private static final int LOG_HEADER_SIZE = 16;
+    // key length, value length and checksum
+    private static final int RECORD_OVERHEAD = 12;
+    private static final int REMOVED_VALUE_LENGTH = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long MIN_COMPACTION_LENGTH = 1024 * 1024;
+
+    private final File logFile;
+    private final File indexFile;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final boolean memoryMapped;
+    private FileChannel log;
+    private long generation;
+    private long logLength;
+    private HashIndex index;
+    private boolean corrupt;
+
+    public LogStructuredIndexedCache(File logFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(logFile, keySerializer, valueSerializer, MEMORY_MAPPED);
+    }
+
+    public LogStructuredIndexedCache(File logFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, boolean memoryMapped) {
+        this.logFile = logFile;
+        this.indexFile = new File(logFile.getParentFile(), logFile.getName().replaceFirst("\\.log$", "") + ".idx");
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.memoryMapped = memoryMapped;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + logFile.getName() + " (" + logFile + ")";
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        log = FileChannel.open(logFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        if (!readLogHeader()) {
+            if (log.size() > 0) {
+                LOGGER.warn("{} is corrupt. Discarding.", this);
+            }
+            generation = ThreadLocalRandom.current().nextLong();
+            log.truncate(0);
+            writeFully(log, logHeader(generation), 0);
+            log.force(true);
+        }
+        long length = log.size();
+        HashIndex existingIndex = HashIndex.open(indexFile, generation, length, memoryMapped);
+        if (existingIndex == null) {
+            index = HashIndex.create(indexFile, INITIAL_CAPACITY, generation, memoryMapped);
+            replay(LOG_HEADER_SIZE);
+        } else {
+            index = existingIndex;
+            if (existingIndex.getCoveredLength() < length) {
+                // Records were added by a process that did not flush the index
+                replay(existingIndex.getCoveredLength());
+            } else {
+                logLength = length;
+            }
+        }
+    }
+
+    private boolean readLogHeader() throws IOException {
+        if (log.size() < LOG_HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        if (!readFully(log, header, 0)) {
+            return false;
+        }
+        if (header.getInt(0) != LOG_MAGIC || header.getInt(4) != LOG_VERSION) {
+            return false;
+        }
+        generation = header.getLong(8);
+        return true;
+    }
+
+    private static ByteBuffer logHeader(long generation) {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        header.putInt(LOG_MAGIC);
+        header.putInt(LOG_VERSION);
+        header.putLong(generation);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Applies the records from the given position to the index, discarding the log from the first incomplete record.
+     */
+    private void replay(long from) throws IOException {
+        index.markDirty();
+        long length = log.size();
+        long position = from;
+        while (position < length) {
+            Record record = readRecord(position);
+            if (record == null) {
+                LOGGER.warn("{} contains an incomplete entry. Discarding it and the entries after it.", this);
+                log.truncate(position);
+                break;
+            }
+            if (record.value == null) {
+                applyRemove(hash(record.key), record.key);
+            } else {
+                applyPut(hash(record.key), record.key, position, record.size());
+            }
+            position += record.size();
+        }
+        logLength = position;
+        index.setCoveredLength(position);
+    }
+
+    @Nullable
+    @Override
+    public synchronized V get(K key) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            long offset = findRecordOffset(index, hash(keyBytes), keyBytes);
+            if (offset < 0) {
+                return null;
+            }
+            Record record = readRecord(offset);
+            if (record == null || record.value == null || !Arrays.equals(record.key, keyBytes)) {
+                // The index will be rebuilt when the cache is opened again
+                LOGGER.warn("{} is corrupt. Discarding entry '{}'.", this, key);
+                corrupt = true;
+                return null;
+            }
+            return valueSerializer.read(new KryoBackedDecoder(new ByteArrayInputStream(record.value)));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public synchronized void put(K key, V value) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            byte[] valueBytes = serialize(valueSerializer, value);
+            long offset = append(keyBytes, valueBytes);
+            applyPut(hash(keyBytes), keyBytes, offset, RECORD_OVERHEAD + keyBytes.length + valueBytes.length);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public synchronized void remove(K key) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            long hash = hash(keyBytes);
+            if (findSlot(index, hash, keyBytes) < 0) {
+                return;
+            }
+            // Record the removal, so it is not lost when the index is rebuilt
+            append(keyBytes, null);
+            applyRemove(hash, keyBytes);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    private long append(byte[] key, @Nullable byte[] value) throws IOException {
+        HashIndex index = this.index;
+        index.markDirty();
+        int valueLength = value == null ? REMOVED_VALUE_LENGTH : value.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + key.length + Math.max(valueLength, 0));
+        record.putInt(key.length);
+        record.putInt(valueLength);
+        record.put(key);
+        if (value != null) {
+            record.put(value);
+        }
+        record.putInt(checksum(record.array(), record.position()));
+        record.flip();
+        long offset = logLength;
+        writeFully(log, record, offset);
+        logLength = offset + record.limit();
+        index.setCoveredLength(logLength);
+        return offset;
+    }
+
+    private void applyPut(long hash, byte[] key, long recordOffset, int recordSize) throws IOException {
+        HashIndex index = this.index;
+        int mask = index.getCapacity() - 1;
+        int slot = HashIndex.firstSlot(hash, mask);
+        int removedSlot = -1;
+        while (true) {
+            long slotHash = index.getHash(slot);
+            if (slotHash == HashIndex.EMPTY) {
+                break;
+            }
+            long offset = index.getRecordOffset(slot);
+            if (offset == HashIndex.REMOVED) {
+                if (removedSlot < 0) {
+                    removedSlot = slot;
+                }
+            } else if (slotHash == hash && keyMatches(offset, key)) {
+                index.setLiveBytes(index.getLiveBytes() - recordSize(offset) + recordSize);
+                index.update(slot, recordOffset);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (removedSlot >= 0) {
+            index.reuse(removedSlot, hash, recordOffset);
+        } else {
+            index.fill(slot, hash, recordOffset);
+        }
+        index.setLiveBytes(index.getLiveBytes() + recordSize);
+        if (index.getUsedSlots() > index.getCapacity() / 4 * 3) {
+            resize(index);
+        }
+    }
+
+    private void applyRemove(long hash, byte[] key) throws IOException {
+        HashIndex index = this.index;
+        int slot = findSlot(index, hash, key);
+        if (slot >= 0) {
+            index.setLiveBytes(index.getLiveBytes() - recordSize(index.getRecordOffset(slot)));
+            index.remove(slot);
+        }
+    }
+
+    /**
+     * Replaces the index with one that has no removed slots, and that is larger when more than half of the slots hold entries.
+     */
+    private void resize(HashIndex current) throws IOException {
+        int capacity = current.getEntries() > current.getCapacity() / 2 ? current.getCapacity() * 2 : current.getCapacity();
+        HashIndex resized = HashIndex.create(indexFile, capacity, generation, memoryMapped);
+        for (int i = 0; i < current.getCapacity(); i++) {
+            long hash = current.getHash(i);
+            long offset = current.getRecordOffset(i);
+            if (hash != HashIndex.EMPTY && offset != HashIndex.REMOVED) {
+                resized.add(hash, offset);
+            }
+        }
+        resized.setCoveredLength(current.getCoveredLength());
+        resized.setLiveBytes(current.getLiveBytes());
+        index = resized;
+    }
+
+    private int findSlot(HashIndex index, long hash, byte[] key) throws IOException {
+        int mask = index.getCapacity() - 1;
+        int slot = HashIndex.firstSlot(hash, mask);
+        while (true) {
+            long slotHash = index.getHash(slot);
+            if (slotHash == HashIndex.EMPTY) {
+                return -1;
+            }
+            if (slotHash == hash) {
+                long offset = index.getRecordOffset(slot);
+                if (offset != HashIndex.REMOVED && keyMatches(offset, key)) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the offset of the record holding the given key, as verified by the probe, or -1 when the key is not in the index.
+     */
+    private long findRecordOffset(HashIndex index, long hash, byte[] key) throws IOException {
+        int mask = index.getCapacity() - 1;
+        int slot = HashIndex.firstSlot(hash, mask);
+        while (true) {
+            long slotHash = index.getHash(slot);
+            if (slotHash == HashIndex.EMPTY) {
+                return -1;
+            }
+            if (slotHash == hash) {
+                long offset = index.getRecordOffset(slot);
+                if (offset != HashIndex.REMOVED && keyMatches(offset, key)) {
+                    return offset;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static long hash(byte[] key) {
+        long hash = Hashing.murmur3_128().hashBytes(key).asLong();
+        // Zero marks an empty slot
+        return hash == HashIndex.EMPTY ? 1 : hash;
+    }
+
+    private boolean keyMatches(long offset, byte[] key) throws IOException {
+        if (offset < LOG_HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8 + key.length);
+        if (!readFully(log, buffer, offset) || buffer.getInt(0) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(8 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int recordSize(long offset) throws IOException {
+        if (offset < LOG_HEADER_SIZE) {
+            throw new IOException(String.format("Invalid record offset %d.", offset));
+        }
+        ByteBuffer lengths = ByteBuffer.allocate(8);
+        if (!readFully(log, lengths, offset)) {
+            throw new IOException(String.format("Unexpected end of log at offset %d.", offset));
+        }
+        return RECORD_OVERHEAD + lengths.getInt(0) + Math.max(lengths.getInt(4), 0);
+    }
+
+    /**
+     * Reads the record at the given offset, or returns {@code null} if it is incomplete or corrupt.
+     * Offsets within the log header, like the offset of a removed slot, never hold a record.
+     */
+    @Nullable
+    private Record readRecord(long offset) throws IOException {
+        if (offset < LOG_HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer lengths = ByteBuffer.allocate(8);
+        if (!readFully(log, lengths, offset)) {
+            return null;
+        }
+        int keyLength = lengths.getInt(0);
+        int valueLength = lengths.getInt(4);
+        if (keyLength < 0 || valueLength < REMOVED_VALUE_LENGTH || (long) keyLength + Math.max(valueLength, 0) > Integer.MAX_VALUE - RECORD_OVERHEAD) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + keyLength + Math.max(valueLength, 0));
+        if (!readFully(log, record, offset)) {
+            return null;
+        }
+        int checksumOffset = record.capacity() - 4;
+        if (record.getInt(checksumOffset) != checksum(record.array(), checksumOffset)) {
+            return null;
+        }
+        byte[] key = Arrays.copyOfRange(record.array(), 8, 8 + keyLength);
+        byte[] value = valueLength == REMOVED_VALUE_LENGTH ? null : Arrays.copyOfRange(record.array(), 8 + keyLength, checksumOffset);
+        return new Record(key, value);
+    }
+
+    @Override
+    public synchronized void close() {
+        LOGGER.debug("Closing {}", this);
+        try {
+            if (corrupt) {
+                log.close();
+                Files.deleteIfExists(indexFile.toPath());
+                return;
+            }
+            HashIndex index = this.index;
+            long liveBytes = index.getLiveBytes();
+            if (logLength > MIN_COMPACTION_LENGTH && liveBytes < (logLength - LOG_HEADER_SIZE) / 2) {
+                compact(index);
+            } else if (index.isDirty()) {
+                log.force(false);
+                index.flush();
+            }
+            log.close();
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies the live records to a new log with a new generation, and replaces the log and the index.
+     * When interrupted, the index does not match the generation of the log, and will be rebuilt.
+     */
+    private void compact(HashIndex index) throws IOException {
+        LOGGER.debug("Compacting {}", this);
+        long newGeneration = ThreadLocalRandom.current().nextLong();
+        File compactedFile = new File(logFile.getPath() + ".compact");
+        HashIndex compactedIndex = HashIndex.create(indexFile, index.getCapacity(), newGeneration, memoryMapped);
+        long position = LOG_HEADER_SIZE;
+        try (FileChannel compacted = FileChannel.open(compactedFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(compacted, logHeader(newGeneration), 0);
+            for (int i = 0; i < index.getCapacity(); i++) {
+                long hash = index.getHash(i);
+                long offset = index.getRecordOffset(i);
+                if (hash == HashIndex.EMPTY || offset == HashIndex.REMOVED) {
+                    continue;
+                }
+                ByteBuffer record = ByteBuffer.allocate(recordSize(offset));
+                if (!readFully(log, record, offset)) {
+                    throw new IOException(String.format("Unexpected end of log at offset %d.", offset));
+                }
+                record.flip();
+                writeFully(compacted, record, position);
+                compactedIndex.add(hash, position);
+                position += record.limit();
+            }
+            compacted.force(true);
+        }
+        compactedIndex.setCoveredLength(position);
+        compactedIndex.setLiveBytes(position - LOG_HEADER_SIZE);
+        log.close();
+        Files.move(compactedFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        compactedIndex.flush();
+        this.index = compactedIndex;
+        this.generation = newGeneration;
+        this.logLength = position;
+    }
+
+    private static <T> byte[] serialize(Serializer<T> serializer, T value) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+        serializer.write(encoder, value);
+        encoder.flush();
+        return outputStream.toByteArray();
+    }
+
+    private static int checksum(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static class Record {
+        final byte[] key;
+        @Nullable
+        final byte[] value;
+
+        Record(byte[] key, @Nullable byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        int size() {
+            return RECORD_OVERHEAD + key.length + (value == null ? 0 : value.length);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class LogStructuredIndexedCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def serializerFactory = new BaseSerializerFactory()
+    def logFile = tmpDir.file("cache.log")
+    def indexFile = tmpDir.file("cache.idx")
+
+    def "persists added and removed entries with #description"() {
+        def cache = createCache(memoryMapped)
+
+        when:
+        (0..<2000).each { cache.put("key$it", "value$it") }
+        (0..<2000).step(2).each { cache.remove("key$it") }
+        cache.put("key1", "updated")
+
+        then:
+        cache.get("key0") == null
+        cache.get("key1") == "updated"
+        cache.get("key3") == "value3"
+
+        when:
+        cache.close()
+        cache = createCache(memoryMapped)
+
+        then:
+        cache.get("key0") == null
+        cache.get("key1") == "updated"
+        cache.get("key1999") == "value1999"
+
+        cleanup:
+        cache?.close()
+
+        where:
+        memoryMapped | description
+        true         | "memory mapped index"
+        false        | "heap index"
+    }
+
+    def "rebuilds missing index from log"() {
+        def cache = createCache()
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.remove("a")
+        cache.close()
+        indexFile.delete()
+
+        when:
+        cache = createCache()
+
+        then:
+        cache.get("a") == null
+        cache.get("b") == "2"
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "discards incomplete entry at the end of the log after a crash"() {
+        def cache = createCache()
+        cache.put("a", "1")
+        cache.close()
+        cache = createCache()
+        cache.put("b", "2")
+        // Not closed, and followed by a partially written entry
+        new RandomAccessFile(logFile, "rw").withCloseable {
+            it.seek(it.length())
+            it.writeInt(5)
+        }
+
+        when:
+        cache = createCache()
+        cache.put("c", "3")
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == "2"
+        cache.get("c") == "3"
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "ignores index entries pointing into the log header"() {
+        def cache = createCache()
+        cache.put("a", "1")
+        cache.close()
+        // Point the slot of the entry at the log header
+        new RandomAccessFile(indexFile, "rw").withCloseable { index ->
+            for (long slot = 48; slot < index.length(); slot += 16) {
+                index.seek(slot)
+                if (index.readLong() != 0) {
+                    index.writeLong(4)
+                }
+            }
+        }
+
+        when:
+        cache = createCache()
+
+        then:
+        cache.get("a") == null
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "compacts log when most of it is stale"() {
+        def cache = createCache()
+        def value = "x" * 10000
+        (0..<20).each { round ->
+            (0..<10).each { cache.put("key$it", "$value-$round".toString()) }
+        }
+        def lengthBeforeClose = logFile.length()
+
+        when:
+        cache.close()
+
+        then:
+        logFile.length() < lengthBeforeClose / 10
+
+        when:
+        cache = createCache()
+
+        then:
+        cache.get("key7") == "$value-19"
+
+        cleanup:
+        cache?.close()
+    }
+
+    private LogStructuredIndexedCache<String, String> createCache(boolean memoryMapped = true) {
+        new LogStructuredIndexedCache<String, String>(logFile, serializerFactory.getSerializerFor(String), serializerFactory.getSerializerFor(String), memoryMapped)
+    }
+}
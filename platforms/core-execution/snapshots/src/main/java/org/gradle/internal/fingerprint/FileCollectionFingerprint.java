@@ -21,6 +21,7 @@
 import org.gradle.internal.hash.HashCode;
 
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * An immutable snapshot of some aspects of the contents and meta-data of a collection of files or directories.
@@ -39,6 +40,17 @@ public interface FileCollectionFingerprint {
 
     boolean wasCreatedWithStrategy(FingerprintingStrategy strategy);
 
+    /**
+     * The combined hash of the fingerprints, if it was recorded together with them.
+     *
+     * Allows reusing the fingerprints without looking at each of them again.
+     *
+     * @see CurrentFileCollectionFingerprint#getHash()
+     */
+    default Optional<HashCode> getRecordedHash() {
+        return Optional.empty();
+    }
+
     FileCollectionFingerprint EMPTY = new FileCollectionFingerprint() {
         @Override
         public Map<String, FileSystemLocationFingerprint> getFingerprints() {
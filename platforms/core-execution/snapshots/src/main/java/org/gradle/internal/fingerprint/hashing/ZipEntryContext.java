@@ -17,7 +17,9 @@
 package org.gradle.internal.fingerprint.hashing;
 
 import org.gradle.api.internal.file.archive.ZipEntry;
+import org.gradle.internal.hash.HashCode;
 
+import java.util.Optional;
 import java.util.function.Supplier;
 
 public interface ZipEntryContext {
@@ -28,4 +30,12 @@ public interface ZipEntryContext {
     String getRootParentName();
 
     Supplier<String[]> getRelativePathSegments();
+
+    /**
+     * The hash of the content of the entry as created by {@link org.gradle.internal.hash.Hashing#hashStream(java.io.InputStream)},
+     * if it is already known without reading the entry.
+     */
+    default Optional<HashCode> getContentHash() {
+        return Optional.empty();
+    }
 }
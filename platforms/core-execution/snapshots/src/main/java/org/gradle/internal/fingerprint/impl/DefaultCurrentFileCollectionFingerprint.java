@@ -49,18 +49,20 @@ public static CurrentFileCollectionFingerprint from(FileSystemSnapshot roots, Fi
 
         ImmutableMultimap<String, HashCode> rootHashes = SnapshotUtil.getRootHashes(roots);
         Map<String, FileSystemLocationFingerprint> fingerprints;
+        HashCode hash = null;
         if (candidate != null
             && candidate.wasCreatedWithStrategy(strategy)
             && equalRootHashes(candidate.getRootHashes(), rootHashes)
         ) {
             fingerprints = candidate.getFingerprints();
+            hash = candidate.getRecordedHash().orElse(null);
         } else {
             fingerprints = strategy.collectFingerprints(roots);
         }
         if (fingerprints.isEmpty()) {
             return strategy.getEmptyFingerprint();
         }
-        return new DefaultCurrentFileCollectionFingerprint(fingerprints, roots, rootHashes, strategy);
+        return new DefaultCurrentFileCollectionFingerprint(fingerprints, roots, rootHashes, strategy, hash);
     }
 
     private static boolean equalRootHashes(ImmutableMultimap<String, HashCode> first, ImmutableMultimap<String, HashCode> second) {
@@ -72,7 +74,8 @@ private DefaultCurrentFileCollectionFingerprint(
         Map<String, FileSystemLocationFingerprint> fingerprints,
         FileSystemSnapshot roots,
         ImmutableMultimap<String, HashCode> rootHashes,
-        FingerprintingStrategy strategy
+        FingerprintingStrategy strategy,
+        @Nullable HashCode hash
     ) {
         this.fingerprints = fingerprints;
         this.identifier = strategy.getIdentifier();
@@ -80,6 +83,7 @@ private DefaultCurrentFileCollectionFingerprint(
         this.strategyConfigurationHash = strategy.getConfigurationHash();
         this.roots = roots;
         this.rootHashes = rootHashes;
+        this.hash = hash;
     }
 
     @Override
@@ -125,7 +129,7 @@ public FileSystemSnapshot getSnapshot() {
 
     @Override
     public FileCollectionFingerprint archive(ArchivedFileCollectionFingerprintFactory factory) {
-        return factory.createArchivedFileCollectionFingerprint(fingerprints, rootHashes, strategyConfigurationHash);
+        return factory.createArchivedFileCollectionFingerprint(fingerprints, rootHashes, strategyConfigurationHash, getHash());
     }
 
     @Override
@@ -19,27 +19,67 @@
 import com.google.common.collect.Interner;
 import org.gradle.internal.file.FileMetadata.AccessType;
 
+import javax.annotation.Nullable;
+import java.io.File;
 import java.util.Optional;
 import java.util.stream.Stream;
 
+/**
+ * Base class for snapshots of file system locations.
+ * <p>
+ * The virtual file system retains one snapshot per known location.
+ * When the snapshot is created with the absolute path of its parent directory, it keeps a reference to that path instead of its own absolute path,
+ * so the children of a directory share a single path string. The absolute path is then derived from the parent path and the name when requested.
+ */
 public abstract class AbstractFileSystemLocationSnapshot implements FileSystemLocationSnapshot {
-    private final String absolutePath;
+    /**
+     * The absolute path of the parent directory when {@link #pathOfParent} is set, otherwise the absolute path of this snapshot.
+     */
+    private final String path;
+    private final boolean pathOfParent;
     private final String name;
     private final AccessType accessType;
 
     public AbstractFileSystemLocationSnapshot(String absolutePath, String name, AccessType accessType) {
-        this.absolutePath = absolutePath;
+        this(absolutePath, null, name, accessType);
+    }
+
+    /**
+     * Creates a snapshot which shares the given path of its parent directory, when the absolute path is the parent path followed by the name.
+     */
+    public AbstractFileSystemLocationSnapshot(String absolutePath, @Nullable String parentPath, String name, AccessType accessType) {
+        this.pathOfParent = parentPath != null && isChildPath(absolutePath, parentPath, name);
+        this.path = pathOfParent ? parentPath : absolutePath;
         this.name = name;
         this.accessType = accessType;
     }
 
+    private static boolean isChildPath(String absolutePath, String parentPath, String name) {
+        int parentLength = parentPath.length();
+        return parentLength > 0
+            && absolutePath.length() == parentLength + 1 + name.length()
+            && absolutePath.charAt(parentLength) == File.separatorChar
+            && parentPath.charAt(parentLength - 1) != File.separatorChar
+            && absolutePath.startsWith(parentPath)
+            && absolutePath.endsWith(name);
+    }
+
     protected static MissingFileSnapshot missingSnapshotForAbsolutePath(String filePath) {
         return new MissingFileSnapshot(filePath, AccessType.DIRECT);
     }
 
     @Override
     public String getAbsolutePath() {
-        return absolutePath;
+        return pathOfParent
+            ? path + File.separatorChar + name
+            : path;
+    }
+
+    /**
+     * Whether this snapshot derives its absolute path from the path of its parent directory instead of retaining it.
+     */
+    boolean isAbsolutePathDerived() {
+        return pathOfParent;
     }
 
     @Override
@@ -136,15 +176,37 @@ public boolean equals(Object o) {
         if (!name.equals(that.name)) {
             return false;
         }
-        if (!absolutePath.equals(that.absolutePath)) {
+        if (!hasSameAbsolutePath(that)) {
             return false;
         }
         return getHash().equals(that.getHash());
     }
 
+    private boolean hasSameAbsolutePath(AbstractFileSystemLocationSnapshot that) {
+        if (pathOfParent == that.pathOfParent) {
+            // The names have already been compared
+            return path.equals(that.path);
+        }
+        return getAbsolutePath().equals(that.getAbsolutePath());
+    }
+
+    /**
+     * Computes the same hash code as {@code getAbsolutePath().hashCode()} without creating the absolute path.
+     */
+    private int absolutePathHashCode() {
+        int result = path.hashCode();
+        if (pathOfParent) {
+            result = 31 * result + File.separatorChar;
+            for (int i = 0; i < name.length(); i++) {
+                result = 31 * result + name.charAt(i);
+            }
+        }
+        return result;
+    }
+
     @Override
     public int hashCode() {
-        int result = absolutePath.hashCode();
+        int result = absolutePathHashCode();
         result = 31 * result + name.hashCode();
         result = 31 * result + accessType.hashCode();
         result = 31 * result + getHash().hashCode();
@@ -23,6 +23,7 @@
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.hash.HashCode;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.List;
 import java.util.Optional;
@@ -42,13 +43,24 @@ public class DirectorySnapshot extends AbstractFileSystemLocationSnapshot {
     private final HashCode contentHash;
 
     public DirectorySnapshot(String absolutePath, String name, AccessType accessType, HashCode contentHash, List<FileSystemLocationSnapshot> children) {
-        this(absolutePath, name, accessType, contentHash, childMapFromSorted(children.stream()
+        this(absolutePath, null, name, accessType, contentHash, children);
+    }
+
+    /**
+     * Creates a snapshot which shares the path of its parent directory, see {@link AbstractFileSystemLocationSnapshot}.
+     */
+    public DirectorySnapshot(String absolutePath, @Nullable String parentPath, String name, AccessType accessType, HashCode contentHash, List<FileSystemLocationSnapshot> children) {
+        this(absolutePath, parentPath, name, accessType, contentHash, childMapFromSorted(children.stream()
             .map(it -> new ChildMap.Entry<>(it.getName(), it))
             .collect(Collectors.toList())));
     }
 
     public DirectorySnapshot(String absolutePath, String name, AccessType accessType, HashCode contentHash, ChildMap<FileSystemLocationSnapshot> children) {
-        super(absolutePath, name, accessType);
+        this(absolutePath, null, name, accessType, contentHash, children);
+    }
+
+    private DirectorySnapshot(String absolutePath, @Nullable String parentPath, String name, AccessType accessType, HashCode contentHash, ChildMap<FileSystemLocationSnapshot> children) {
+        super(absolutePath, parentPath, name, accessType);
         this.contentHash = contentHash;
         this.children = children;
     }
@@ -73,7 +73,9 @@ public void visitDirectory(DirectorySnapshot directorySnapshot) {
 
     @Override
     public FileSystemLocationSnapshot leaveDirectory() {
-        FileSystemLocationSnapshot snapshot = directoryStack.removeLast().fold();
+        Directory directory = directoryStack.removeLast();
+        Directory parent = directoryStack.peekLast();
+        FileSystemLocationSnapshot snapshot = directory.fold(parent == null ? null : parent.absolutePath);
         if (snapshot != null) {
             collectEntry(snapshot);
         }
@@ -115,7 +117,7 @@ public void collectEntry(FileSystemLocationSnapshot snapshot) {
         }
 
         @Nullable
-        public DirectorySnapshot fold() {
+        public DirectorySnapshot fold(@Nullable String parentPath) {
             if (emptyDirectoryHandlingStrategy == EXCLUDE_EMPTY_DIRS && children.isEmpty()) {
                 return null;
             }
@@ -128,7 +130,7 @@ public DirectorySnapshot fold() {
                 hasher.putString(child.getName());
                 hasher.putHash(child.getHash());
             }
-            return new DirectorySnapshot(absolutePath, name, accessType, hasher.hash(), children);
+            return new DirectorySnapshot(absolutePath, parentPath, name, accessType, hasher.hash(), children);
         }
     }
 }
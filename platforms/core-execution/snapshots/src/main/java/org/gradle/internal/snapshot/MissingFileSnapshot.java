@@ -22,6 +22,7 @@
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.hash.Hashing;
 
+import javax.annotation.Nullable;
 import java.util.Optional;
 
 /**
@@ -34,6 +35,13 @@ public MissingFileSnapshot(String absolutePath, String name, AccessType accessTy
         super(absolutePath, name, accessType);
     }
 
+    /**
+     * Creates a snapshot which shares the path of its parent directory, see {@link AbstractFileSystemLocationSnapshot}.
+     */
+    public MissingFileSnapshot(String absolutePath, @Nullable String parentPath, String name, AccessType accessType) {
+        super(absolutePath, parentPath, name, accessType);
+    }
+
     public MissingFileSnapshot(String absolutePath, AccessType accessType) {
         this(absolutePath, PathUtil.getFileName(absolutePath), accessType);
     }
@@ -17,6 +17,7 @@
 package org.gradle.internal.snapshot;
 
 import com.google.common.collect.ImmutableListMultimap;
+import org.gradle.internal.file.FileType;
 import org.gradle.internal.hash.HashCode;
 
 import java.util.HashMap;
@@ -134,4 +135,37 @@ public Long visitMissing(MissingFileSnapshot missingSnapshot) {
             }
         });
     }
+
+    /**
+     * Estimates the heap memory in bytes retained by the given snapshot itself, excluding its children.
+     * <p>
+     * The estimate assumes compressed object pointers and strings with one byte per character.
+     * File names are not included, since they are interned and shared between snapshots.
+     * The path of a directory is counted once for the directory, even when its children share it instead of the directory retaining it.
+     */
+    public static long estimateRetainedSize(FileSystemLocationSnapshot snapshot) {
+        // The entry in the child map of the parent and the snapshot itself
+        long size = 28;
+        if (snapshot.getType() == FileType.Directory || !isAbsolutePathDerived(snapshot)) {
+            // The absolute path
+            size += 40 + snapshot.getAbsolutePath().length();
+        }
+        switch (snapshot.getType()) {
+            case RegularFile:
+                // The snapshot with inlined metadata and the hash
+                return size + 48 + 32;
+            case Directory:
+                // The snapshot, the hash and the child map
+                return size + 32 + 32 + 24;
+            case Missing:
+                return size + 24;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private static boolean isAbsolutePathDerived(FileSystemLocationSnapshot snapshot) {
+        return snapshot instanceof AbstractFileSystemLocationSnapshot
+            && ((AbstractFileSystemLocationSnapshot) snapshot).isAbsolutePathDerived();
+    }
 }
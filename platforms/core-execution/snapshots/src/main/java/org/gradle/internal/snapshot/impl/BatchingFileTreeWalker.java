@@ -0,0 +1,216 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.file.FileMetadataAccessor;
+import org.gradle.internal.file.FileType;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * Walks a file tree like {@link Files#walkFileTree(Path, FileVisitor)} without following symlinks,
+ * though reads the attributes of the entries of each directory in one go via {@link FileMetadataAccessor#statDirectoryEntries(java.io.File)}.
+ * <p>
+ * When the entries of a directory cannot be read in one go, the directory is walked the same way as {@link Files#walkFileTree(Path, FileVisitor)} does,
+ * so the visitor sees the same failures.
+ */
+class BatchingFileTreeWalker {
+    private final FileMetadataAccessor metadataAccessor;
+    private final FileVisitor<? super Path> visitor;
+
+    private BatchingFileTreeWalker(FileMetadataAccessor metadataAccessor, FileVisitor<? super Path> visitor) {
+        this.metadataAccessor = metadataAccessor;
+        this.visitor = visitor;
+    }
+
+    public static void walkFileTree(Path start, FileMetadataAccessor metadataAccessor, FileVisitor<? super Path> visitor) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(start, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            attributes = null;
+        }
+        if (attributes == null || !attributes.isDirectory()) {
+            Files.walkFileTree(start, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE, visitor);
+            return;
+        }
+        new BatchingFileTreeWalker(metadataAccessor, visitor).walkDirectory(start, attributes);
+    }
+
+    private FileVisitResult walkDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+        Map<String, FileMetadata> entries = metadataAccessor.statDirectoryEntries(directory.toFile());
+        if (entries == null) {
+            return walkDirectoryEntryByEntry(directory, attributes);
+        }
+        FileVisitResult result = visitor.preVisitDirectory(directory, attributes);
+        if (result != FileVisitResult.CONTINUE) {
+            return result == FileVisitResult.SKIP_SUBTREE ? FileVisitResult.CONTINUE : result;
+        }
+        for (Map.Entry<String, FileMetadata> entry : entries.entrySet()) {
+            Path child = directory.resolve(entry.getKey());
+            FileMetadata metadata = entry.getValue();
+            if (metadata.getAccessType() == FileMetadata.AccessType.DIRECT && metadata.getType() == FileType.Directory) {
+                result = walkDirectory(child, MetadataBackedFileAttributes.of(metadata));
+            } else {
+                result = visitor.visitFile(child, MetadataBackedFileAttributes.of(metadata));
+            }
+            if (result == FileVisitResult.TERMINATE) {
+                return result;
+            }
+            if (result == FileVisitResult.SKIP_SIBLINGS) {
+                break;
+            }
+        }
+        return visitor.postVisitDirectory(directory, null);
+    }
+
+    private FileVisitResult walkDirectoryEntryByEntry(Path directory, BasicFileAttributes attributes) throws IOException {
+        DirectoryStream<Path> entries;
+        try {
+            entries = Files.newDirectoryStream(directory);
+        } catch (IOException e) {
+            return visitor.visitFileFailed(directory, e);
+        }
+        IOException failure = null;
+        try {
+            FileVisitResult result = visitor.preVisitDirectory(directory, attributes);
+            if (result != FileVisitResult.CONTINUE) {
+                return result == FileVisitResult.SKIP_SUBTREE ? FileVisitResult.CONTINUE : result;
+            }
+            try {
+                for (Path child : entries) {
+                    result = visitEntry(child);
+                    if (result == FileVisitResult.TERMINATE) {
+                        return result;
+                    }
+                    if (result == FileVisitResult.SKIP_SIBLINGS) {
+                        break;
+                    }
+                }
+            } catch (DirectoryIteratorException e) {
+                failure = e.getCause();
+            }
+        } finally {
+            entries.close();
+        }
+        return visitor.postVisitDirectory(directory, failure);
+    }
+
+    private FileVisitResult visitEntry(Path entry) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return visitor.visitFileFailed(entry, e);
+        }
+        if (attributes.isDirectory()) {
+            return walkDirectory(entry, attributes);
+        }
+        return visitor.visitFile(entry, attributes);
+    }
+
+    /**
+     * The attributes of an entry as seen without following symlinks.
+     * Symlinks only carry the information that they are symlinks, like the attributes of a symlink read via {@link LinkOption#NOFOLLOW_LINKS}.
+     */
+    private static class MetadataBackedFileAttributes implements BasicFileAttributes {
+        private static final MetadataBackedFileAttributes DIRECTORY = new MetadataBackedFileAttributes(FileType.Directory, false, 0, 0);
+        private static final MetadataBackedFileAttributes SYMLINK = new MetadataBackedFileAttributes(FileType.Missing, true, 0, 0);
+
+        private final FileType type;
+        private final boolean symbolicLink;
+        private final FileTime lastModifiedTime;
+        private final long size;
+
+        private MetadataBackedFileAttributes(FileType type, boolean symbolicLink, long lastModified, long size) {
+            this.type = type;
+            this.symbolicLink = symbolicLink;
+            this.lastModifiedTime = FileTime.fromMillis(lastModified);
+            this.size = size;
+        }
+
+        public static MetadataBackedFileAttributes of(FileMetadata metadata) {
+            if (metadata.getAccessType() == FileMetadata.AccessType.VIA_SYMLINK) {
+                return SYMLINK;
+            }
+            if (metadata.getType() == FileType.Directory) {
+                return DIRECTORY;
+            }
+            return new MetadataBackedFileAttributes(metadata.getType(), false, metadata.getLastModified(), metadata.getLength());
+        }
+
+        @Override
+        public FileTime lastModifiedTime() {
+            return lastModifiedTime;
+        }
+
+        @Override
+        public FileTime lastAccessTime() {
+            return lastModifiedTime;
+        }
+
+        @Override
+        public FileTime creationTime() {
+            return lastModifiedTime;
+        }
+
+        @Override
+        public boolean isRegularFile() {
+            return type == FileType.RegularFile;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return type == FileType.Directory;
+        }
+
+        @Override
+        public boolean isSymbolicLink() {
+            return symbolicLink;
+        }
+
+        @Override
+        public boolean isOther() {
+            return false;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Nullable
+        @Override
+        public Object fileKey() {
+            return null;
+        }
+    }
+}
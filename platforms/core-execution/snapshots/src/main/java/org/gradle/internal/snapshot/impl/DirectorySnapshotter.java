@@ -16,13 +16,14 @@
 
 package org.gradle.internal.snapshot.impl;
 
-import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Interner;
 import com.google.common.collect.Iterables;
 import org.gradle.internal.file.FileMetadata;
 import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.FileMetadataAccessor;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.file.impl.DefaultFileMetadata;
 import org.gradle.internal.hash.FileHasher;
@@ -56,6 +57,9 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -64,9 +68,19 @@
 
 /**
  * For creating {@link DirectorySnapshot}s of directories.
+ * <p>
+ * When a {@link ForkJoinPool} is given, the subdirectories of a directory are walked and hashed concurrently,
+ * as long as the pool does not have enough queued work already.
+ * The resulting snapshots are the same as when walking sequentially, since the children of each directory are sorted.
+ * <p>
+ * When a {@link FileMetadataAccessor} is given, the attributes of the entries of each directory are read in one go via {@link FileMetadataAccessor#statDirectoryEntries(File)}.
  */
 public class DirectorySnapshotter {
     private static final EnumSet<FileVisitOption> DONT_FOLLOW_SYMLINKS = EnumSet.noneOf(FileVisitOption.class);
+    /**
+     * Only fork a new walk when the current worker has fewer walks queued that have not been stolen by other workers yet.
+     */
+    private static final int MAX_SURPLUS_QUEUED_WALKS = 2;
     private static final SymbolicLinkMapping EMPTY_SYMBOLIC_LINK_MAPPING = new SymbolicLinkMapping() {
 
         @Override
@@ -89,12 +103,40 @@ public Iterable<String> getRemappedSegments(Iterable<String> segments) {
     private final Interner<String> stringInterner;
     private final DefaultExcludes defaultExcludes;
     private final DirectorySnapshotterStatistics.Collector collector;
+    private final ForkJoinPool forkJoinPool;
+    private final FileMetadataAccessor metadataAccessor;
 
     public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector) {
+        this(hasher, stringInterner, defaultExcludes, collector, null);
+    }
+
+    /**
+     * Creates a snapshotter walking subdirectories in the given pool, or sequentially when no pool is given.
+     * When walking in a pool, the unfiltered snapshot recorder passed to {@link #snapshot(String, SnapshottingFilter.DirectoryWalkerPredicate, Map, Consumer)}
+     * is called from different threads.
+     */
+    public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector, @Nullable ForkJoinPool forkJoinPool) {
+        this(hasher, stringInterner, defaultExcludes, collector, forkJoinPool, null);
+    }
+
+    /**
+     * Creates a snapshotter reading the attributes of the entries of each directory via the given accessor,
+     * or one by one while listing the directory when no accessor is given.
+     */
+    public DirectorySnapshotter(
+        FileHasher hasher,
+        Interner<String> stringInterner,
+        Collection<String> defaultExcludes,
+        DirectorySnapshotterStatistics.Collector collector,
+        @Nullable ForkJoinPool forkJoinPool,
+        @Nullable FileMetadataAccessor metadataAccessor
+    ) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.defaultExcludes = new DefaultExcludes(defaultExcludes);
         this.collector = collector;
+        this.forkJoinPool = forkJoinPool;
+        this.metadataAccessor = metadataAccessor;
     }
 
     /**
@@ -119,18 +161,75 @@ public FileSystemLocationSnapshot snapshot(
         Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots,
         Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder
     ) {
+        AtomicBoolean hasBeenFiltered = new AtomicBoolean();
+        Path rootPath = Paths.get(absolutePath);
+        PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, forkJoinPool, metadataAccessor, true, EMPTY_SYMBOLIC_LINK_MAPPING, ImmutableList.of(), previouslyKnownSnapshots, unfilteredSnapshotRecorder);
+        if (forkJoinPool != null && ForkJoinTask.getPool() != forkJoinPool) {
+            DirectoryWalk walk = new DirectoryWalk(rootPath, visitor);
+            forkJoinPool.invoke(walk);
+            walk.rethrowFailure();
+        } else {
+            walk(rootPath, visitor);
+        }
+        FileSystemLocationSnapshot result = visitor.getResult();
+        if (!hasBeenFiltered.get()) {
+            unfilteredSnapshotRecorder.accept(result);
+        }
+        return result;
+    }
+
+    private static void walk(Path directory, PathVisitor visitor) {
         try {
-            AtomicBoolean hasBeenFiltered = new AtomicBoolean();
-            Path rootPath = Paths.get(absolutePath);
-            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, previouslyKnownSnapshots, unfilteredSnapshotRecorder);
-            Files.walkFileTree(rootPath, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
-            FileSystemLocationSnapshot result = visitor.getResult();
-            if (!hasBeenFiltered.get()) {
-                unfilteredSnapshotRecorder.accept(result);
+            try {
+                visitor.walkFileTree(directory);
+            } finally {
+                // When the walk failed, make sure no forked walk keeps on running
+                visitor.awaitForkedWalks();
             }
-            return result;
         } catch (IOException e) {
-            throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", absolutePath), e);
+            throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", directory), e);
+        }
+    }
+
+    /**
+     * Walks a directory in a {@link ForkJoinPool}.
+     * <p>
+     * A failure of the walk is captured and rethrown as is by {@link #rethrowFailure()},
+     * since joining a task in another thread would wrap some exceptions.
+     */
+    private static class DirectoryWalk extends RecursiveAction {
+        private final Path directory;
+        private final PathVisitor visitor;
+        private Throwable failure;
+
+        public DirectoryWalk(Path directory, PathVisitor visitor) {
+            this.directory = directory;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                walk(directory, visitor);
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+        }
+
+        public void rethrowFailure() {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+        }
+
+        public FileSystemLocationSnapshot getResult() {
+            return visitor.getResult();
+        }
+
+        public boolean hasBeenFiltered() {
+            return visitor.hasBeenFiltered.get();
         }
     }
 
@@ -151,7 +250,8 @@ private static class DefaultSymbolicLinkMapping implements SymbolicLinkMapping {
         public DefaultSymbolicLinkMapping(String sourcePath, String targetPath, Iterable<String> prefixRelativePath) {
             this.sourcePath = sourcePath;
             this.targetPath = targetPath;
-            this.prefixRelativePath = prefixRelativePath;
+            // The segments are taken from a path tracker which keeps on changing, possibly on another thread
+            this.prefixRelativePath = ImmutableList.copyOf(prefixRelativePath);
         }
 
         @Override
@@ -160,6 +260,10 @@ public String remapAbsolutePath(Path dir) {
         }
 
         public String remapAbsolutePath(String absolutePath) {
+            if (sourcePath.equals(targetPath)) {
+                // Not a symlink, only a subdirectory walked separately
+                return absolutePath;
+            }
             if (absolutePath.equals(targetPath)) {
                 return sourcePath;
             }
@@ -180,8 +284,7 @@ public Iterable<String> getRemappedSegments(Iterable<String> segments) {
         }
     }
 
-    @VisibleForTesting
-    static class DefaultExcludes {
+    public static class DefaultExcludes {
         private final ImmutableSet<String> excludeFileNames;
         private final ImmutableSet<String> excludedDirNames;
         private final Predicate<String> excludedFileNameSpec;
@@ -261,8 +364,14 @@ private static class PathVisitor extends DirectorySnapshotterStatistics.Collecti
         private final FileHasher hasher;
         private final Interner<String> stringInterner;
         private final DefaultExcludes defaultExcludes;
+        private final ForkJoinPool forkJoinPool;
+        private final FileMetadataAccessor metadataAccessor;
         private final SymbolicLinkMapping symbolicLinkMapping;
-        private final Deque<String> parentDirectories = new ArrayDeque<>();
+        private final Deque<String> parentDirectories;
+        // The interned remapped paths of the directories currently being visited, shared by the snapshots of their children
+        private final Deque<String> remappedDirectories = new ArrayDeque<>();
+        // The walks forked for the subdirectories of each directory currently being visited, null when there are none
+        private final List<List<DirectoryWalk>> forkedWalks = new ArrayList<>();
         private final Set<FileSystemLocationSnapshot> filteredDirectorySnapshots = new HashSet<>();
         private final ImmutableMap<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots;
         private final Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder;
@@ -274,18 +383,25 @@ public PathVisitor(
             Interner<String> stringInterner,
             DefaultExcludes defaultExcludes,
             DirectorySnapshotterStatistics.Collector statisticsCollector,
+            @Nullable ForkJoinPool forkJoinPool,
+            @Nullable FileMetadataAccessor metadataAccessor,
+            boolean newHierarchy,
             SymbolicLinkMapping symbolicLinkMapping,
+            Collection<String> parentDirectories,
             Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots,
             Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder
         ) {
-            super(statisticsCollector);
+            super(statisticsCollector, newHierarchy);
             this.builder = FilteredTrackingMerkleDirectorySnapshotBuilder.sortingRequired(this::recordUnfilteredSnapshot);
             this.predicate = predicate;
             this.hasBeenFiltered = hasBeenFiltered;
             this.hasher = hasher;
             this.stringInterner = stringInterner;
             this.defaultExcludes = defaultExcludes;
+            this.forkJoinPool = forkJoinPool;
+            this.metadataAccessor = metadataAccessor;
             this.symbolicLinkMapping = symbolicLinkMapping;
+            this.parentDirectories = new ArrayDeque<>(parentDirectories);
             this.previouslyKnownSnapshots = ImmutableMap.copyOf(previouslyKnownSnapshots);
             this.unfilteredSnapshotRecorder = unfilteredSnapshotRecorder;
         }
@@ -315,8 +431,16 @@ protected FileVisitResult doPreVisitDirectory(Path dir, BasicFileAttributes attr
                     }
                 }
 
+                if (!pathTracker.isRoot() && shouldFork()) {
+                    forkWalk(dir);
+                    pathTracker.leave();
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
                 builder.enterDirectory(AccessType.DIRECT, internedRemappedAbsolutePath, fileName, INCLUDE_EMPTY_DIRS);
                 parentDirectories.addFirst(dir.toString());
+                remappedDirectories.addFirst(internedRemappedAbsolutePath);
+                forkedWalks.add(null);
                 return FileVisitResult.CONTINUE;
             } else {
                 pathTracker.leave();
@@ -333,12 +457,14 @@ protected FileVisitResult doPostVisitDirectory(Path dir, IOException exc) {
             if (isNotFileSystemLoopException(exc)) {
                 throw new UncheckedIOException(String.format("Could not read directory path '%s'.", dir), exc);
             }
+            joinForkedWalks(forkedWalks.remove(forkedWalks.size() - 1));
             boolean currentLevelComplete = builder.isCurrentLevelUnfiltered();
             FileSystemLocationSnapshot currentLevel = builder.leaveDirectory();
             if (!currentLevelComplete) {
                 filteredDirectorySnapshots.add(currentLevel);
             }
             parentDirectories.removeFirst();
+            remappedDirectories.removeFirst();
             return FileVisitResult.CONTINUE;
         }
 
@@ -393,10 +519,18 @@ private DirectorySnapshot followSymlink(Path file, String internedFileName, Atom
                         stringInterner,
                         defaultExcludes,
                         collector,
+                        forkJoinPool,
+                        metadataAccessor,
+                        true,
                         symbolicLinkMapping.withNewMapping(file.toString(), targetDirString, pathTracker),
+                        ImmutableList.of(),
                         previouslyKnownSnapshots,
                         unfilteredSnapshotRecorder);
-                    Files.walkFileTree(targetDir, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE, subtreeVisitor);
+                    try {
+                        subtreeVisitor.walkFileTree(targetDir);
+                    } finally {
+                        subtreeVisitor.awaitForkedWalks();
+                    }
                     return (DirectorySnapshot) subtreeVisitor.getResult();
                 } else {
                     return null;
@@ -406,6 +540,85 @@ private DirectorySnapshot followSymlink(Path file, String internedFileName, Atom
             }
         }
 
+        public void walkFileTree(Path directory) throws IOException {
+            if (metadataAccessor != null) {
+                BatchingFileTreeWalker.walkFileTree(directory, metadataAccessor, this);
+            } else {
+                Files.walkFileTree(directory, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, this);
+            }
+        }
+
+        private boolean shouldFork() {
+            return forkJoinPool != null
+                && ForkJoinTask.getPool() == forkJoinPool
+                && ForkJoinTask.getSurplusQueuedTaskCount() < MAX_SURPLUS_QUEUED_WALKS;
+        }
+
+        /**
+         * Walks the given subdirectory of the current directory concurrently.
+         * The walk sees the same path segments and parent directories as when walking the subdirectory directly.
+         */
+        private void forkWalk(Path dir) {
+            PathVisitor subdirectoryVisitor = new PathVisitor(
+                predicate,
+                new AtomicBoolean(),
+                hasher,
+                stringInterner,
+                defaultExcludes,
+                collector,
+                forkJoinPool,
+                metadataAccessor,
+                false,
+                symbolicLinkMapping.withNewMapping(dir.toString(), dir.toString(), pathTracker),
+                parentDirectories,
+                previouslyKnownSnapshots,
+                unfilteredSnapshotRecorder);
+            DirectoryWalk walk = new DirectoryWalk(dir, subdirectoryVisitor);
+            walk.fork();
+            collector.recordForkedWalk();
+            int currentLevel = forkedWalks.size() - 1;
+            List<DirectoryWalk> walksOfCurrentLevel = forkedWalks.get(currentLevel);
+            if (walksOfCurrentLevel == null) {
+                walksOfCurrentLevel = new ArrayList<>();
+                forkedWalks.set(currentLevel, walksOfCurrentLevel);
+            }
+            walksOfCurrentLevel.add(walk);
+        }
+
+        private void joinForkedWalks(@Nullable List<DirectoryWalk> walks) {
+            if (walks == null) {
+                return;
+            }
+            for (DirectoryWalk walk : walks) {
+                walk.join();
+                walk.rethrowFailure();
+                FileSystemLocationSnapshot subdirectorySnapshot = walk.getResult();
+                if (subdirectorySnapshot == null) {
+                    continue;
+                }
+                builder.visitDirectory((DirectorySnapshot) subdirectorySnapshot);
+                if (walk.hasBeenFiltered()) {
+                    filteredDirectorySnapshots.add(subdirectorySnapshot);
+                    builder.markCurrentLevelAsFiltered();
+                    hasBeenFiltered.set(true);
+                }
+            }
+        }
+
+        /**
+         * Waits for the walks which have been forked but not joined, for example since the walk failed.
+         */
+        public void awaitForkedWalks() {
+            for (List<DirectoryWalk> walks : forkedWalks) {
+                if (walks != null) {
+                    for (DirectoryWalk walk : walks) {
+                        walk.quietlyJoin();
+                    }
+                }
+            }
+            forkedWalks.clear();
+        }
+
         private boolean introducesCycle(String targetDirString) {
             return parentDirectories.contains(targetDirString);
         }
@@ -436,24 +649,26 @@ private static BasicFileAttributes readAttributesOfSymlinkTarget(Path symlink, B
         }
 
         private FileSystemLeafSnapshot snapshotFile(Path absoluteFilePath, String internedName, BasicFileAttributes attrs, AccessType accessType) {
-            String internedRemappedAbsoluteFilePath = intern(symbolicLinkMapping.remapAbsolutePath(absoluteFilePath));
-            FileSystemLocationSnapshot previouslyKnownSnapshot = previouslyKnownSnapshots.get(internedRemappedAbsoluteFilePath);
+            // The snapshot shares the path of its parent directory, so the absolute path does not need to be interned
+            String remappedAbsoluteFilePath = symbolicLinkMapping.remapAbsolutePath(absoluteFilePath);
+            String remappedParentPath = remappedDirectories.peekFirst();
+            FileSystemLocationSnapshot previouslyKnownSnapshot = previouslyKnownSnapshots.get(remappedAbsoluteFilePath);
             if (previouslyKnownSnapshot != null) {
                 if (!(previouslyKnownSnapshot instanceof FileSystemLeafSnapshot)) {
-                    throw new IllegalStateException("Expected a previously known leaf snapshot at " + internedRemappedAbsoluteFilePath + ", but found " + previouslyKnownSnapshot);
+                    throw new IllegalStateException("Expected a previously known leaf snapshot at " + remappedAbsoluteFilePath + ", but found " + previouslyKnownSnapshot);
                 }
                 return (FileSystemLeafSnapshot) previouslyKnownSnapshot;
             }
             if (attrs.isSymbolicLink()) {
-                return new MissingFileSnapshot(internedRemappedAbsoluteFilePath, internedName, accessType);
+                return new MissingFileSnapshot(remappedAbsoluteFilePath, remappedParentPath, internedName, accessType);
             } else if (!attrs.isRegularFile()) {
-                throw new UncheckedIOException(new IOException(String.format("Cannot snapshot %s: not a regular file", internedRemappedAbsoluteFilePath)));
+                throw new UncheckedIOException(new IOException(String.format("Cannot snapshot %s: not a regular file", remappedAbsoluteFilePath)));
             }
             long lastModified = attrs.lastModifiedTime().toMillis();
             long fileLength = attrs.size();
             FileMetadata metadata = DefaultFileMetadata.file(lastModified, fileLength, accessType);
             HashCode hash = hasher.hash(absoluteFilePath.toFile(), fileLength, lastModified);
-            return new RegularFileSnapshot(internedRemappedAbsoluteFilePath, internedName, hash, metadata);
+            return new RegularFileSnapshot(remappedAbsoluteFilePath, remappedParentPath, internedName, hash, metadata);
         }
 
         /**
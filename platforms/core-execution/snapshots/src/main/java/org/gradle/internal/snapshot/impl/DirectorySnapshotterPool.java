@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Holds the pool the {@link DirectorySnapshotter} uses to walk and hash directories concurrently.
+ */
+@ServiceScope(Scope.Global.class)
+public class DirectorySnapshotterPool implements Closeable {
+    public static final String PARALLELISM_PROPERTY = "org.gradle.vfs.snapshot.parallelism";
+
+    private final ForkJoinPool forkJoinPool;
+
+    /**
+     * Creates a pool with the given parallelism. With a parallelism of one or less, directories are walked sequentially.
+     */
+    public DirectorySnapshotterPool(int parallelism) {
+        this.forkJoinPool = parallelism > 1
+            ? new ForkJoinPool(parallelism, DirectorySnapshotterPool::newWorkerThread, null, false)
+            : null;
+    }
+
+    /**
+     * Creates a pool with the parallelism given by the {@value #PARALLELISM_PROPERTY} system property, defaulting to the number of processors.
+     */
+    public static DirectorySnapshotterPool fromSystemProperties() {
+        return new DirectorySnapshotterPool(Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Directory snapshotter worker " + thread.getPoolIndex());
+        return thread;
+    }
+
+    /**
+     * The pool to walk directories in, or {@code null} when directories should be walked sequentially.
+     */
+    @Nullable
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    @Override
+    public void close() {
+        if (forkJoinPool != null) {
+            forkJoinPool.shutdownNow();
+        }
+    }
+}
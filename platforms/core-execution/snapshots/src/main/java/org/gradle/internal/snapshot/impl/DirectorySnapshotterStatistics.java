@@ -16,6 +16,7 @@
 
 package org.gradle.internal.snapshot.impl;
 
+import org.gradle.internal.hash.DefaultFileHasher;
 import org.gradle.internal.service.scopes.Scope;
 import org.gradle.internal.service.scopes.ServiceScope;
 
@@ -25,7 +26,7 @@
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.text.MessageFormat;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public interface DirectorySnapshotterStatistics {
     /**
@@ -48,34 +49,76 @@ public interface DirectorySnapshotterStatistics {
      */
     long getFailedFiles();
 
+    /**
+     * The number of directories walked concurrently to the walk of their parent directory.
+     */
+    long getForkedWalkCount();
+
+    /**
+     * The number of bytes hashed by reading files sequentially.
+     */
+    long getSequentiallyHashedBytes();
+
+    /**
+     * The number of bytes hashed by reading chunks of large files in parallel.
+     */
+    long getParallelHashedBytes();
+
+    /**
+     * Collects the statistics of directory walks happening concurrently.
+     * The counters are striped per thread, so walking threads do not contend on updating them.
+     */
     @ServiceScope(Scope.Global.class)
     class Collector {
-        private final AtomicLong hierarchyCount = new AtomicLong();
-        private final AtomicLong directoryCount = new AtomicLong();
-        private final AtomicLong fileCount = new AtomicLong();
-        private final AtomicLong failedFileCount = new AtomicLong();
+        private final LongAdder hierarchyCount = new LongAdder();
+        private final LongAdder directoryCount = new LongAdder();
+        private final LongAdder fileCount = new LongAdder();
+        private final LongAdder failedFileCount = new LongAdder();
+        private final LongAdder forkedWalkCount = new LongAdder();
+        private final LongAdder sequentiallyHashedBytes = new LongAdder();
+        private final LongAdder parallelHashedBytes = new LongAdder();
 
         public void recordVisitHierarchy() {
-            hierarchyCount.incrementAndGet();
+            hierarchyCount.increment();
         }
 
         public void recordVisitDirectory() {
-            directoryCount.incrementAndGet();
+            directoryCount.increment();
         }
 
         public void recordVisitFile() {
-            fileCount.incrementAndGet();
+            fileCount.increment();
         }
 
         public void recordVisitFileFailed() {
-            failedFileCount.incrementAndGet();
+            failedFileCount.increment();
+        }
+
+        public void recordForkedWalk() {
+            forkedWalkCount.increment();
+        }
+
+        public void recordFileHashed(DefaultFileHasher.Strategy strategy, long length) {
+            switch (strategy) {
+                case SEQUENTIAL:
+                    sequentiallyHashedBytes.add(length);
+                    break;
+                case PARALLEL:
+                    parallelHashedBytes.add(length);
+                    break;
+                default:
+                    throw new AssertionError(strategy);
+            }
         }
 
         public DirectorySnapshotterStatistics collect() {
-            long hierarchyCount = this.hierarchyCount.getAndSet(0);
-            long directoryCount = this.directoryCount.getAndSet(0);
-            long fileCount = this.fileCount.getAndSet(0);
-            long failedFileCount = this.failedFileCount.getAndSet(0);
+            long hierarchyCount = this.hierarchyCount.sumThenReset();
+            long directoryCount = this.directoryCount.sumThenReset();
+            long fileCount = this.fileCount.sumThenReset();
+            long failedFileCount = this.failedFileCount.sumThenReset();
+            long forkedWalkCount = this.forkedWalkCount.sumThenReset();
+            long sequentiallyHashedBytes = this.sequentiallyHashedBytes.sumThenReset();
+            long parallelHashedBytes = this.parallelHashedBytes.sumThenReset();
 
             return new DirectorySnapshotterStatistics() {
                 @Override
@@ -98,10 +141,26 @@ public long getFailedFiles() {
                     return failedFileCount;
                 }
 
+                @Override
+                public long getForkedWalkCount() {
+                    return forkedWalkCount;
+                }
+
+                @Override
+                public long getSequentiallyHashedBytes() {
+                    return sequentiallyHashedBytes;
+                }
+
+                @Override
+                public long getParallelHashedBytes() {
+                    return parallelHashedBytes;
+                }
+
                 @Override
                 public String toString() {
-                    return MessageFormat.format("Snapshot {0,number,integer} directory hierarchies (visited {1,number,integer} directories, {2,number,integer} files and {3,number,integer} failed files)",
-                        hierarchyCount, directoryCount, fileCount, failedFileCount);
+                    return MessageFormat.format("Snapshot {0,number,integer} directory hierarchies (visited {1,number,integer} directories, {2,number,integer} files and {3,number,integer} failed files), " +
+                            "hashed {4,number,integer} bytes sequentially and {5,number,integer} bytes in parallel, walked {6,number,integer} directories concurrently",
+                        hierarchyCount, directoryCount, fileCount, failedFileCount, sequentiallyHashedBytes, parallelHashedBytes, forkedWalkCount);
                 }
             };
         }
@@ -109,15 +168,31 @@ public String toString() {
 
     abstract class CollectingFileVisitor implements FileVisitor<Path> {
         protected final Collector collector;
+        // The root directory of a subdirectory walk has been recorded by the walk of its parent already
+        private boolean skipRootDirectory;
 
         public CollectingFileVisitor(Collector collector) {
+            this(collector, true);
+        }
+
+        /**
+         * @param newHierarchy whether the visitor walks a new hierarchy, or a subdirectory already visited by the visitor walking its parent.
+         */
+        public CollectingFileVisitor(Collector collector, boolean newHierarchy) {
             this.collector = collector;
-            collector.recordVisitHierarchy();
+            this.skipRootDirectory = !newHierarchy;
+            if (newHierarchy) {
+                collector.recordVisitHierarchy();
+            }
         }
 
         @Override
         public final FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-            collector.recordVisitDirectory();
+            if (skipRootDirectory) {
+                skipRootDirectory = false;
+            } else {
+                collector.recordVisitDirectory();
+            }
             return doPreVisitDirectory(dir, attrs);
         }
 
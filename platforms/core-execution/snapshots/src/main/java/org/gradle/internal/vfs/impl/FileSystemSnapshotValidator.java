@@ -0,0 +1,178 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.vfs.impl;
+
+import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.file.FileMetadataAccessor;
+import org.gradle.internal.file.FileType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.gradle.internal.snapshot.RootTrackingFileSystemSnapshotHierarchyVisitor;
+import org.gradle.internal.snapshot.SnapshotVisitResult;
+import org.gradle.internal.snapshot.impl.DirectorySnapshotter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Checks snapshots against the file system, without hashing any file.
+ * <p>
+ * A regular file is up-to-date when its type, length and modification time did not change,
+ * and a directory is up-to-date when its children did not change, ignoring the children excluded by the default excludes.
+ * The checks are done in parallel, and when a directory changed, the unchanged parts of its hierarchy are still up-to-date.
+ */
+public class FileSystemSnapshotValidator {
+    /**
+     * Some file systems only store the modification time in a granularity of two seconds.
+     */
+    public static final long MODIFICATION_TIME_GRANULARITY = 2000;
+
+    private final FileMetadataAccessor metadataAccessor;
+    private final DirectorySnapshotter.DefaultExcludes defaultExcludes;
+    private final long untrustedModificationTime;
+
+    /**
+     * Creates a validator for snapshots taken with the given default excludes.
+     * Regular files modified at or after the untrusted modification time are never considered up-to-date.
+     */
+    public FileSystemSnapshotValidator(FileMetadataAccessor metadataAccessor, Collection<String> defaultExcludes, long untrustedModificationTime) {
+        this.metadataAccessor = metadataAccessor;
+        this.defaultExcludes = new DirectorySnapshotter.DefaultExcludes(defaultExcludes);
+        this.untrustedModificationTime = untrustedModificationTime;
+    }
+
+    /**
+     * Returns the given snapshot if it is up-to-date, otherwise the up-to-date snapshots in its hierarchy.
+     */
+    public List<FileSystemLocationSnapshot> upToDateSnapshots(FileSystemLocationSnapshot snapshot) {
+        File file = new File(snapshot.getAbsolutePath());
+        return upToDateSnapshots(snapshot, file, metadataAccessor.stat(file));
+    }
+
+    private List<FileSystemLocationSnapshot> upToDateSnapshots(FileSystemLocationSnapshot snapshot, File file, FileMetadata metadata) {
+        if (metadata.getType() != snapshot.getType() || metadata.getAccessType() != snapshot.getAccessType()) {
+            return Collections.emptyList();
+        }
+        switch (snapshot.getType()) {
+            case RegularFile:
+                FileMetadata snapshotMetadata = ((RegularFileSnapshot) snapshot).getMetadata();
+                boolean upToDate = metadata.getLength() == snapshotMetadata.getLength()
+                    && metadata.getLastModified() == snapshotMetadata.getLastModified()
+                    && metadata.getLastModified() < untrustedModificationTime;
+                return upToDate ? Collections.singletonList(snapshot) : Collections.emptyList();
+            case Missing:
+                return Collections.singletonList(snapshot);
+            case Directory:
+                return upToDateSnapshotsOfDirectory((DirectorySnapshot) snapshot, file);
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private List<FileSystemLocationSnapshot> upToDateSnapshotsOfDirectory(DirectorySnapshot directory, File file) {
+        List<FileSystemLocationSnapshot> children = childrenOf(directory);
+        // Read the metadata of all the entries at once when possible, instead of listing the directory and then stating each child
+        Map<String, FileMetadata> entries = metadataAccessor.statDirectoryEntries(file);
+        List<List<FileSystemLocationSnapshot>> upToDateChildren = children.parallelStream()
+            .map(child -> entries == null
+                ? upToDateSnapshots(child)
+                : upToDateSnapshots(child, new File(child.getAbsolutePath()), entries.getOrDefault(child.getName(), DefaultFileMetadata.missing(FileMetadata.AccessType.DIRECT))))
+            .collect(Collectors.toList());
+        boolean allChildrenUpToDate = true;
+        for (int i = 0; i < children.size(); i++) {
+            List<FileSystemLocationSnapshot> upToDateChild = upToDateChildren.get(i);
+            if (upToDateChild.size() != 1 || upToDateChild.get(0) != children.get(i)) {
+                allChildrenUpToDate = false;
+                break;
+            }
+        }
+        if (allChildrenUpToDate && (entries == null ? hasSameChildren(file, children) : hasSameChildren(entries, children))) {
+            return Collections.singletonList(directory);
+        }
+        return upToDateChildren.stream()
+            .flatMap(List::stream)
+            .collect(Collectors.toList());
+    }
+
+    private boolean hasSameChildren(File directory, List<FileSystemLocationSnapshot> children) {
+        String[] names = directory.list();
+        if (names == null) {
+            return false;
+        }
+        Set<String> knownNames = children.stream()
+            .map(FileSystemLocationSnapshot::getName)
+            .collect(Collectors.toSet());
+        int found = 0;
+        for (String name : names) {
+            if (knownNames.contains(name)) {
+                found++;
+            } else if (!isExcluded(new File(directory, name))) {
+                return false;
+            }
+        }
+        return found == knownNames.size();
+    }
+
+    private boolean hasSameChildren(Map<String, FileMetadata> entries, List<FileSystemLocationSnapshot> children) {
+        Set<String> knownNames = children.stream()
+            .map(FileSystemLocationSnapshot::getName)
+            .collect(Collectors.toSet());
+        int found = 0;
+        for (Map.Entry<String, FileMetadata> entry : entries.entrySet()) {
+            String name = entry.getKey();
+            if (knownNames.contains(name)) {
+                found++;
+            } else if (entry.getValue().getType() == FileType.Directory ? !defaultExcludes.excludeDir(name) : !defaultExcludes.excludeFile(name)) {
+                return false;
+            }
+        }
+        return found == knownNames.size();
+    }
+
+    private boolean isExcluded(File child) {
+        String name = child.getName();
+        if (!defaultExcludes.excludeDir(name) && !defaultExcludes.excludeFile(name)) {
+            return false;
+        }
+        return metadataAccessor.stat(child).getType() == FileType.Directory
+            ? defaultExcludes.excludeDir(name)
+            : defaultExcludes.excludeFile(name);
+    }
+
+    static List<FileSystemLocationSnapshot> childrenOf(DirectorySnapshot directory) {
+        List<FileSystemLocationSnapshot> children = new ArrayList<>();
+        directory.accept(new RootTrackingFileSystemSnapshotHierarchyVisitor() {
+            @Override
+            public SnapshotVisitResult visitEntry(FileSystemLocationSnapshot snapshot, boolean isRoot) {
+                if (isRoot) {
+                    return SnapshotVisitResult.CONTINUE;
+                }
+                children.add(snapshot);
+                return SnapshotVisitResult.SKIP_SUBTREE;
+            }
+        });
+        return children;
+    }
+}
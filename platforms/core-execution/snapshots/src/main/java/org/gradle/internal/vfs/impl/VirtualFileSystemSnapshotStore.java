@@ -0,0 +1,311 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.vfs.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.file.FileMetadataAccessor;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.MissingFileSnapshot;
+import org.gradle.internal.snapshot.PathUtil;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.gradle.internal.vfs.VirtualFileSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the snapshots of the virtual file system on disk between builds, so a new daemon or a build without a daemon does not need to snapshot everything again.
+ * <p>
+ * The snapshots are kept in a separate file per root project directory, so builds of different projects sharing the user home do not overwrite each other's snapshots.
+ * <p>
+ * The snapshots are only restored after they have been checked against the file system by a {@link FileSystemSnapshotValidator}.
+ * <p>
+ * As for the file hash caches, files modified around the time the snapshots have been persisted are not trusted,
+ * since their modification time may not reflect a change made immediately afterwards.
+ * The snapshots are not restored either when they have been persisted with a different hash function for file contents.
+ */
+@ServiceScope(Scope.UserHome.class)
+public class VirtualFileSystemSnapshotStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualFileSystemSnapshotStore.class);
+
+    private static final int MAGIC = 0x47564653;
+    private static final int FORMAT_VERSION = 2;
+    private static final byte DIRECTORY = 1;
+    private static final byte REGULAR_FILE = 2;
+    private static final byte MISSING = 3;
+
+    private final File snapshotDirectory;
+    private final FileMetadataAccessor metadataAccessor;
+    private final Supplier<? extends Collection<String>> defaultExcludes;
+    private final HashFunction contentHashFunction;
+    private final ExecutorFactory executorFactory;
+
+    public VirtualFileSystemSnapshotStore(
+        File snapshotDirectory,
+        FileMetadataAccessor metadataAccessor,
+        Supplier<? extends Collection<String>> defaultExcludes,
+        HashFunction contentHashFunction,
+        ExecutorFactory executorFactory
+    ) {
+        this.snapshotDirectory = snapshotDirectory;
+        this.metadataAccessor = metadataAccessor;
+        this.defaultExcludes = defaultExcludes;
+        this.contentHashFunction = contentHashFunction;
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Writes all snapshots currently held by the virtual file system to disk, replacing the snapshots persisted for the same root project directory.
+     */
+    public void persist(VirtualFileSystem virtualFileSystem, File rootProjectDirectory) {
+        List<FileSystemLocationSnapshot> roots = virtualFileSystem.findRootSnapshotsUnder("").collect(Collectors.toList());
+        File snapshotFile = snapshotFileFor(rootProjectDirectory);
+        Path tempFile = null;
+        try {
+            Path snapshotDir = Files.createDirectories(snapshotDirectory.toPath());
+            // Other daemons building the same project may persist their snapshots at the same time
+            tempFile = Files.createTempFile(snapshotDir, snapshotFile.getName(), ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeUTF(contentHashFunction.getAlgorithm());
+                output.writeLong(System.currentTimeMillis());
+                List<String> excludes = ImmutableList.copyOf(defaultExcludes.get());
+                output.writeInt(excludes.size());
+                for (String exclude : excludes) {
+                    output.writeUTF(exclude);
+                }
+                output.writeInt(roots.size());
+                for (FileSystemLocationSnapshot root : roots) {
+                    output.writeUTF(root.getAbsolutePath());
+                    writeSnapshot(output, root);
+                }
+            }
+            Files.move(tempFile, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Persisted {} file system snapshots to {}", roots.size(), snapshotFile);
+        } catch (IOException e) {
+            LOGGER.info("Could not persist file system snapshots to {}", snapshotFile, e);
+            deleteIfExists(tempFile);
+        }
+    }
+
+    private File snapshotFileFor(File rootProjectDirectory) {
+        return new File(snapshotDirectory, "snapshots-" + Hashing.hashString(rootProjectDirectory.getAbsolutePath()).toCompactString() + ".bin");
+    }
+
+    private static void deleteIfExists(@Nullable Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.debug("Could not delete {}", file, e);
+        }
+    }
+
+    /**
+     * Adds the snapshots persisted for the root project directory which are still up-to-date to the virtual file system.
+     *
+     * Nothing is restored when the virtual file system already contains snapshots.
+     */
+    public void restore(VirtualFileSystem virtualFileSystem, File rootProjectDirectory) {
+        File snapshotFile = snapshotFileFor(rootProjectDirectory);
+        if (!snapshotFile.isFile() || virtualFileSystem.findRootSnapshotsUnder("").findAny().isPresent()) {
+            return;
+        }
+        List<FileSystemLocationSnapshot> roots;
+        long persistedAt;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            String hashAlgorithm = input.readUTF();
+            if (!hashAlgorithm.equals(contentHashFunction.getAlgorithm())) {
+                // The hashes would not match the ones computed now
+                LOGGER.info("Not restoring file system snapshots from {}, since they have been hashed with {}", snapshotFile, hashAlgorithm);
+                return;
+            }
+            persistedAt = input.readLong();
+            int excludeCount = input.readInt();
+            List<String> excludes = new ArrayList<>(excludeCount);
+            for (int i = 0; i < excludeCount; i++) {
+                excludes.add(input.readUTF());
+            }
+            if (!ImmutableSet.copyOf(excludes).equals(ImmutableSet.copyOf(defaultExcludes.get()))) {
+                // The directory snapshots do not contain the same children as the ones taken now
+                LOGGER.info("Not restoring file system snapshots from {}, since the default excludes changed", snapshotFile);
+                return;
+            }
+            int rootCount = input.readInt();
+            roots = new ArrayList<>(rootCount);
+            for (int i = 0; i < rootCount; i++) {
+                String absolutePath = input.readUTF();
+                roots.add(readSnapshot(input, absolutePath, null, PathUtil.getFileName(absolutePath)));
+            }
+        } catch (IOException e) {
+            LOGGER.info("Could not read file system snapshots from {}", snapshotFile, e);
+            return;
+        }
+
+        FileSystemSnapshotValidator validator = new FileSystemSnapshotValidator(
+            metadataAccessor,
+            defaultExcludes.get(),
+            persistedAt - FileSystemSnapshotValidator.MODIFICATION_TIME_GRANULARITY
+        );
+        List<FileSystemLocationSnapshot> upToDateSnapshots;
+        try {
+            upToDateSnapshots = validate(roots, validator);
+        } catch (IOException e) {
+            LOGGER.info("Could not validate file system snapshots from {}", snapshotFile, e);
+            return;
+        }
+        for (FileSystemLocationSnapshot snapshot : upToDateSnapshots) {
+            virtualFileSystem.store(snapshot.getAbsolutePath(), () -> snapshot);
+        }
+        LOGGER.info("Restored {} up-to-date file system snapshots for {} persisted roots from {}", upToDateSnapshots.size(), roots.size(), snapshotFile);
+    }
+
+    private List<FileSystemLocationSnapshot> validate(List<FileSystemLocationSnapshot> roots, FileSystemSnapshotValidator validator) throws IOException {
+        ManagedExecutor executor = executorFactory.create("File system snapshot validation", Runtime.getRuntime().availableProcessors());
+        try {
+            List<Future<List<FileSystemLocationSnapshot>>> results = new ArrayList<>(roots.size());
+            for (FileSystemLocationSnapshot root : roots) {
+                results.add(executor.submit(() -> upToDateSnapshots(root, validator)));
+            }
+            List<FileSystemLocationSnapshot> upToDateSnapshots = new ArrayList<>();
+            for (Future<List<FileSystemLocationSnapshot>> result : results) {
+                upToDateSnapshots.addAll(result.get());
+            }
+            return upToDateSnapshots;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while validating file system snapshots");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            executor.stop();
+        }
+    }
+
+    private static List<FileSystemLocationSnapshot> upToDateSnapshots(FileSystemLocationSnapshot root, FileSystemSnapshotValidator validator) {
+        try {
+            return validator.upToDateSnapshots(root);
+        } catch (RuntimeException e) {
+            // The root will be snapshotted again when needed
+            LOGGER.debug("Could not validate file system snapshot of {}", root.getAbsolutePath(), e);
+            return ImmutableList.of();
+        }
+    }
+
+    private static void writeSnapshot(DataOutputStream output, FileSystemLocationSnapshot snapshot) throws IOException {
+        output.writeByte(snapshot.getAccessType().ordinal());
+        switch (snapshot.getType()) {
+            case Directory:
+                output.writeByte(DIRECTORY);
+                writeHashCode(output, snapshot.getHash());
+                List<FileSystemLocationSnapshot> children = FileSystemSnapshotValidator.childrenOf((DirectorySnapshot) snapshot);
+                output.writeInt(children.size());
+                for (FileSystemLocationSnapshot child : children) {
+                    output.writeUTF(child.getName());
+                    writeSnapshot(output, child);
+                }
+                break;
+            case RegularFile:
+                output.writeByte(REGULAR_FILE);
+                writeHashCode(output, snapshot.getHash());
+                FileMetadata metadata = ((RegularFileSnapshot) snapshot).getMetadata();
+                output.writeLong(metadata.getLastModified());
+                output.writeLong(metadata.getLength());
+                break;
+            case Missing:
+                output.writeByte(MISSING);
+                break;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private static FileSystemLocationSnapshot readSnapshot(DataInputStream input, String absolutePath, @Nullable String parentPath, String name) throws IOException {
+        FileMetadata.AccessType accessType = FileMetadata.AccessType.values()[input.readByte()];
+        byte type = input.readByte();
+        switch (type) {
+            case DIRECTORY:
+                HashCode merkleHash = readHashCode(input);
+                int childCount = input.readInt();
+                List<FileSystemLocationSnapshot> children = new ArrayList<>(childCount);
+                for (int i = 0; i < childCount; i++) {
+                    String childName = input.readUTF();
+                    children.add(readSnapshot(input, absolutePath + File.separatorChar + childName, absolutePath, childName));
+                }
+                return new DirectorySnapshot(absolutePath, parentPath, name, accessType, merkleHash, children);
+            case REGULAR_FILE:
+                HashCode contentHash = readHashCode(input);
+                long lastModified = input.readLong();
+                long length = input.readLong();
+                return new RegularFileSnapshot(absolutePath, parentPath, name, contentHash, DefaultFileMetadata.file(lastModified, length, accessType));
+            case MISSING:
+                return new MissingFileSnapshot(absolutePath, parentPath, name, accessType);
+            default:
+                throw new IOException("Unrecognized file system snapshot type " + type);
+        }
+    }
+
+    private static void writeHashCode(DataOutputStream output, HashCode hashCode) throws IOException {
+        byte[] bytes = hashCode.toByteArray();
+        output.writeByte(bytes.length);
+        output.write(bytes);
+    }
+
+    private static HashCode readHashCode(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readUnsignedByte()];
+        input.readFully(bytes);
+        return HashCode.fromBytes(bytes);
+    }
+}
@@ -26,4 +26,50 @@ class RegularFileSnapshotTest extends AbstractFileSystemLeafSnapshotTest {
     protected FileSystemLeafSnapshot createInitialRootNode(String absolutePath, AccessType accessType) {
         return new RegularFileSnapshot(absolutePath, PathUtil.getFileName(absolutePath), TestHashCodes.hashCodeFrom(1235), DefaultFileMetadata.file(1, 2, accessType))
     }
+
+    def "retains metadata and compares it when checking whether metadata is up-to-date"() {
+        def metadata = DefaultFileMetadata.file(1, 2, AccessType.DIRECT)
+        def snapshot = new RegularFileSnapshot("/some/file", "file", TestHashCodes.hashCodeFrom(1235), metadata)
+
+        expect:
+        snapshot.metadata == metadata
+        snapshot.relocate("/other/file", { it }).get().metadata == metadata
+        snapshot.isContentAndMetadataUpToDate(new RegularFileSnapshot("/some/file", "file", TestHashCodes.hashCodeFrom(1235), DefaultFileMetadata.file(1, 2, AccessType.DIRECT)))
+        !snapshot.isContentAndMetadataUpToDate(new RegularFileSnapshot("/some/file", "file", TestHashCodes.hashCodeFrom(1235), DefaultFileMetadata.file(3, 2, AccessType.DIRECT)))
+        !snapshot.isContentAndMetadataUpToDate(new RegularFileSnapshot("/some/file", "file", TestHashCodes.hashCodeFrom(1235), DefaultFileMetadata.file(1, 3, AccessType.DIRECT)))
+        !snapshot.isContentAndMetadataUpToDate(new RegularFileSnapshot("/some/file", "file", TestHashCodes.hashCodeFrom(1235), DefaultFileMetadata.file(1, 2, AccessType.VIA_SYMLINK)))
+    }
+
+    def "derives the absolute path from the path of the parent directory"() {
+        def parentPath = ["", "some", "dir"].join(File.separator)
+        def absolutePath = parentPath + File.separator + "file"
+        def metadata = DefaultFileMetadata.file(1, 2, AccessType.DIRECT)
+        def derived = new RegularFileSnapshot(absolutePath, parentPath, "file", TestHashCodes.hashCodeFrom(1235), metadata)
+        def retained = new RegularFileSnapshot(absolutePath, "file", TestHashCodes.hashCodeFrom(1235), metadata)
+
+        expect:
+        derived.absolutePathDerived
+        derived.absolutePath == absolutePath
+        derived == retained
+        retained == derived
+        derived.hashCode() == retained.hashCode()
+        !retained.absolutePathDerived
+    }
+
+    def "retains the absolute path when it is not a child of the given parent path"() {
+        def absolutePath = ["", "some", "dir", "file"].join(File.separator)
+        def snapshot = new RegularFileSnapshot(absolutePath, parentPath, "file", TestHashCodes.hashCodeFrom(1235), DefaultFileMetadata.file(1, 2, AccessType.DIRECT))
+
+        expect:
+        !snapshot.absolutePathDerived
+        snapshot.absolutePath == absolutePath
+
+        where:
+        parentPath << [
+            ["", "other", "dir"].join(File.separator),
+            ["", "some"].join(File.separator),
+            ["", "some", "dir", ""].join(File.separator),
+            ""
+        ]
+    }
 }
@@ -22,6 +22,7 @@ import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.tasks.util.PatternSet
 import org.gradle.internal.file.FileMetadata
 import org.gradle.internal.file.FileMetadata.AccessType
+import org.gradle.internal.file.nio.NioFileMetadataAccessor
 import org.gradle.internal.fingerprint.impl.PatternSetSnapshottingFilter
 import org.gradle.internal.hash.TestFileHasher
 import org.gradle.internal.hash.TestHashCodes
@@ -42,6 +43,7 @@ import spock.lang.Issue
 import spock.lang.Specification
 
 import java.nio.file.Paths
+import java.util.concurrent.ForkJoinPool
 import java.util.function.Consumer
 
 @UsesNativeServices
@@ -530,6 +532,69 @@ class DirectorySnapshotterTest extends Specification {
         pipe.delete()
     }
 
+    def "walking subdirectories concurrently produces the same snapshots (filtered: #filtered)"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        100.times { i ->
+            rootDir.file("dir${i % 7}/sub${i % 3}/nested${i % 2}/file${i}.${i % 4 == 0 ? 'html' : 'txt'}").text = "content $i"
+        }
+        rootDir.file("dir1/.git/config").text = "excluded"
+        rootDir.createDir("dir2/empty")
+        def patterns = new PatternSet().include("**/*.txt")
+        def predicate = filtered ? directoryWalkerPredicate(patterns) : null
+        def forkJoinPool = new ForkJoinPool(4)
+        def parallelDirectorySnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), DirectoryScanner.getDefaultExcludes() as List, statisticsCollector, forkJoinPool)
+        def sequentialDirectorySnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), DirectoryScanner.getDefaultExcludes() as List, statisticsCollector)
+        def parallelUnfilteredSnapshots = Collections.synchronizedSet(new HashSet<FileSystemLocationSnapshot>())
+        def sequentialUnfilteredSnapshots = new HashSet<FileSystemLocationSnapshot>()
+
+        when:
+        def parallelSnapshot = parallelDirectorySnapshotter.snapshot(rootDir.absolutePath, predicate, [:]) { parallelUnfilteredSnapshots.add(it) }
+        def sequentialSnapshot = sequentialDirectorySnapshotter.snapshot(rootDir.absolutePath, predicate, [:]) { sequentialUnfilteredSnapshots.add(it) }
+
+        then:
+        parallelSnapshot == sequentialSnapshot
+        SnapshotVisitorUtil.getRelativePaths(parallelSnapshot, true) == SnapshotVisitorUtil.getRelativePaths(sequentialSnapshot, true)
+        parallelUnfilteredSnapshots == sequentialUnfilteredSnapshots
+
+        cleanup:
+        forkJoinPool.shutdown()
+
+        where:
+        filtered << [false, true]
+    }
+
+    @Requires(UnitTestPreconditions.Symlinks)
+    def "reading the entries of directories in one go produces the same snapshots (filtered: #filtered)"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        20.times { i ->
+            rootDir.file("dir${i % 3}/sub${i % 2}/file${i}.${i % 4 == 0 ? 'html' : 'txt'}").text = "content $i"
+        }
+        rootDir.file("dir1/.git/config").text = "excluded"
+        rootDir.createDir("dir2/empty")
+        rootDir.file("dir0/linkToDir").createLink(rootDir.file("dir1"))
+        rootDir.file("dir0/linkToFile.txt").createLink(rootDir.file("dir1/sub0/file1.txt"))
+        rootDir.file("dir0/brokenLink.txt").createLink(rootDir.file("missing"))
+        def patterns = new PatternSet().include("**/*.txt")
+        def predicate = filtered ? directoryWalkerPredicate(patterns) : null
+        def batchingDirectorySnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), DirectoryScanner.getDefaultExcludes() as List, statisticsCollector, null, new NioFileMetadataAccessor())
+        def batchingUnfilteredSnapshots = new HashSet<FileSystemLocationSnapshot>()
+        def unfilteredSnapshots = new HashSet<FileSystemLocationSnapshot>()
+
+        when:
+        def batchingSnapshot = batchingDirectorySnapshotter.snapshot(rootDir.absolutePath, predicate, [:]) { batchingUnfilteredSnapshots.add(it) }
+        def snapshot = new DirectorySnapshotter(fileHasher, new StringInterner(), DirectoryScanner.getDefaultExcludes() as List, statisticsCollector).snapshot(rootDir.absolutePath, predicate, [:]) { unfilteredSnapshots.add(it) }
+
+        then:
+        batchingSnapshot == snapshot
+        SnapshotVisitorUtil.getRelativePaths(batchingSnapshot, true) == SnapshotVisitorUtil.getRelativePaths(snapshot, true)
+        batchingUnfilteredSnapshots == unfilteredSnapshots
+
+        where:
+        filtered << [false, true]
+    }
+
     def "default excludes are correctly parsed"() {
         def defaultExcludes = new DirectorySnapshotter.DefaultExcludes(DirectoryScanner.getDefaultExcludes() as List)
 
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.vfs.impl
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.file.FileMetadataAccessor
+import org.gradle.internal.hash.HashFunction
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot
+import org.gradle.internal.snapshot.RegularFileSnapshot
+import org.gradle.internal.snapshot.impl.DirectorySnapshotterStatistics
+import org.gradle.internal.vfs.VirtualFileSystem
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.stream.Collectors
+
+@CleanupTestDirectory
+class VirtualFileSystemSnapshotStoreTest extends Specification {
+    private static final long PAST = System.currentTimeMillis() - 60_000
+
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    List<String> defaultExcludes = ["**/.DS_Store"]
+    def metadataAccessor = { File file -> TestFiles.fileSystem().stat(file) } as FileMetadataAccessor
+    def executorFactory = new DefaultExecutorFactory()
+    def store = createStore(Hashing.defaultFunction())
+    def rootProjectDir = temporaryFolder.file("project")
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "restores snapshots which did not change"() {
+        def root = createProject()
+        def missing = temporaryFolder.file("missing")
+        def previous = TestFiles.virtualFileSystem()
+        def rootSnapshot = snapshot(previous, root)
+        def missingSnapshot = snapshot(previous, missing)
+
+        when:
+        store.persist(previous, rootProjectDir)
+        def restored = TestFiles.virtualFileSystem()
+        store.restore(restored, rootProjectDir)
+
+        then:
+        rootsOf(restored) == [missingSnapshot, rootSnapshot] as Set
+        def restoredFile = restored.findSnapshot(root.file("src/a.txt").absolutePath).get() as RegularFileSnapshot
+        restoredFile.metadata.lastModified == PAST
+        restoredFile.metadata.length == 5
+    }
+
+    def "restores the unchanged parts of a changed hierarchy"() {
+        def root = createProject()
+        def previous = TestFiles.virtualFileSystem()
+        snapshot(previous, root)
+        store.persist(previous, rootProjectDir)
+
+        when:
+        root.file("src/a.txt").text = "changed"
+        root.file("src/new.txt").text = "new"
+        def restored = TestFiles.virtualFileSystem()
+        store.restore(restored, rootProjectDir)
+
+        then:
+        rootsOf(restored)*.absolutePath as Set == [root.file("src/b.txt"), root.file("docs")]*.absolutePath as Set
+    }
+
+    def "ignores default excludes added to a directory"() {
+        def root = createProject()
+        def previous = TestFiles.virtualFileSystem()
+        def rootSnapshot = snapshot(previous, root)
+        store.persist(previous, rootProjectDir)
+
+        when:
+        root.file("docs/.DS_Store").text = "excluded"
+        def restored = TestFiles.virtualFileSystem()
+        store.restore(restored, rootProjectDir)
+
+        then:
+        rootsOf(restored) == [rootSnapshot] as Set
+    }
+
+    def "does not restore snapshots of files modified around the time they have been persisted"() {
+        def root = createProject()
+        root.file("src/a.txt").setLastModified(System.currentTimeMillis())
+        def previous = TestFiles.virtualFileSystem()
+        snapshot(previous, root)
+        store.persist(previous, rootProjectDir)
+
+        when:
+        def restored = TestFiles.virtualFileSystem()
+        store.restore(restored, rootProjectDir)
+
+        then:
+        rootsOf(restored)*.absolutePath as Set == [root.file("src/b.txt"), root.file("docs")]*.absolutePath as Set
+    }
+
+    def "does not restore snapshots when the default excludes changed"() {
+        def root = createProject()
+        def previous = TestFiles.virtualFileSystem()
+        snapshot(previous, root)
+        store.persist(previous, rootProjectDir)
+
+        when:
+        defaultExcludes = ["**/.git"]
+        def restored = TestFiles.virtualFileSystem()
+        store.restore(restored, rootProjectDir)
+
+        then:
+        rootsOf(restored).empty
+    }
+
+    def "does not restore snapshots into a virtual file system which already contains snapshots"() {
+        def root = createProject()
+        def previous = TestFiles.virtualFileSystem()
+        snapshot(previous, root.file("src"))
+        store.persist(previous, rootProjectDir)
+
+        when:
+        def current = TestFiles.virtualFileSystem()
+        def docsSnapshot = snapshot(current, root.file("docs"))
+        store.restore(current, rootProjectDir)
+
+        then:
+        rootsOf(current) == [docsSnapshot] as Set
+    }
+
+    def "does not restore snapshots hashed with a different hash function"() {
+        def root = createProject()
+        def previous = TestFiles.virtualFileSystem()
+        snapshot(previous, root)
+        createStore(Hashing.murmur3_128()).persist(previous, rootProjectDir)
+
+        when:
+        def restored = TestFiles.virtualFileSystem()
+        store.restore(restored, rootProjectDir)
+
+        then:
+        rootsOf(restored).empty
+    }
+
+    def "does not leave temporary files behind"() {
+        def root = createProject()
+        def previous = TestFiles.virtualFileSystem()
+        snapshot(previous, root)
+
+        when:
+        store.persist(previous, rootProjectDir)
+        store.persist(previous, rootProjectDir)
+
+        then:
+        temporaryFolder.file("snapshots").list().length == 1
+    }
+
+    def "keeps the snapshots of different root project directories apart"() {
+        def root = createProject()
+        def otherRoot = temporaryFolder.createDir("other")
+        otherRoot.file("build.gradle").text = "other"
+        otherRoot.file("build.gradle").setLastModified(PAST)
+        def previous = TestFiles.virtualFileSystem()
+        def rootSnapshot = snapshot(previous, root)
+        store.persist(previous, root)
+        def other = TestFiles.virtualFileSystem()
+        def otherSnapshot = snapshot(other, otherRoot)
+        store.persist(other, otherRoot)
+
+        when:
+        def restored = TestFiles.virtualFileSystem()
+        store.restore(restored, root)
+        def otherRestored = TestFiles.virtualFileSystem()
+        store.restore(otherRestored, otherRoot)
+
+        then:
+        rootsOf(restored) == [rootSnapshot] as Set
+        rootsOf(otherRestored) == [otherSnapshot] as Set
+    }
+
+    private VirtualFileSystemSnapshotStore createStore(HashFunction contentHashFunction) {
+        return new VirtualFileSystemSnapshotStore(temporaryFolder.file("snapshots"), metadataAccessor, { defaultExcludes }, contentHashFunction, executorFactory)
+    }
+
+    private TestFile createProject() {
+        def root = temporaryFolder.createDir("project")
+        [root.file("src/a.txt"), root.file("src/b.txt"), root.file("docs/readme.md")].each { file ->
+            file.text = file.name
+            file.setLastModified(PAST)
+        }
+        return root
+    }
+
+    private FileSystemLocationSnapshot snapshot(VirtualFileSystem virtualFileSystem, File file) {
+        def fileSystemAccess = new DefaultFileSystemAccess(
+            TestFiles.fileHasher(),
+            new StringInterner(),
+            TestFiles.fileSystem()::stat,
+            virtualFileSystem,
+            { locations -> },
+            new DirectorySnapshotterStatistics.Collector(),
+            defaultExcludes as String[]
+        )
+        return fileSystemAccess.read(file.absolutePath)
+    }
+
+    private static Set<FileSystemLocationSnapshot> rootsOf(VirtualFileSystem virtualFileSystem) {
+        return virtualFileSystem.findRootSnapshotsUnder("").collect(Collectors.toSet())
+    }
+}
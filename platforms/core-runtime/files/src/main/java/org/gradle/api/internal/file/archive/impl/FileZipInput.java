@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.file.archive.impl;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.AbstractIterator;
 import org.gradle.api.internal.file.archive.ZipEntry;
 import org.gradle.api.internal.file.archive.ZipInput;
@@ -28,16 +29,41 @@
 import java.io.InputStream;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.Locale;
 import java.util.zip.ZipFile;
 
 public class FileZipInput implements ZipInput {
+    /**
+     * System property to read zip files by memory mapping them with {@link MappedZipInput}, disabled by default.
+     */
+    public static final String MEMORY_MAPPED_PROPERTY = "org.gradle.internal.zip.memory-mapped";
+
+    // Mapped files cannot be deleted on Windows until the mapping is garbage collected
+    private static final boolean MEMORY_MAPPED = Boolean.getBoolean(MEMORY_MAPPED_PROPERTY)
+        && !System.getProperty("os.name").toLowerCase(Locale.US).contains("windows");
 
     /**
-     * Creates a stream of the entries in the given zip file. Caller is responsible for closing the return value.
+     * Creates a stream of the entries in the given zip file, memory mapping the zip file when enabled via {@value #MEMORY_MAPPED_PROPERTY}.
+     * Caller is responsible for closing the return value.
      *
      * @throws FileException on failure to open the Zip
      */
     public static ZipInput create(File file) throws FileException {
+        return create(file, MEMORY_MAPPED);
+    }
+
+    @VisibleForTesting
+    static ZipInput create(File file, boolean memoryMapped) throws FileException {
+        if (memoryMapped) {
+            try {
+                ZipInput mappedInput = MappedZipInput.open(file);
+                if (mappedInput != null) {
+                    return mappedInput;
+                }
+            } catch (IOException e) {
+                throw new FileException(e);
+            }
+        }
         if (isZipFileSafeToUse()) {
             return new FileZipInput(file);
         } else {
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive.impl;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.io.ByteStreams;
+import org.gradle.api.internal.file.archive.ZipEntry;
+import org.gradle.api.internal.file.archive.ZipInput;
+
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the entries of a zip file by memory mapping it.
+ * <p>
+ * The central directory is parsed in place, and the content of an entry is only read when requested,
+ * so visiting the entries of a zip file does not copy any data that is not used.
+ * The content of entries can be read any number of times.
+ * <p>
+ * Only supports zip files smaller than 2 GB without Zip64 extensions or encryption,
+ * {@link #open(File)} returns {@code null} for other files, so callers can fall back to a different reader.
+ * <p>
+ * Reading a mapping after the file has been truncated fails with an {@link InternalError}.
+ * This reader reports such failures as an {@link IOException} instead, or an {@link UncheckedIOException} where no checked exception can be thrown.
+ */
+public class MappedZipInput implements ZipInput {
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE = 20;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+    private static final long ZIP64_MAGIC_SIZE = 0xFFFFFFFFL;
+    private static final int ENCRYPTED_FLAG = 1;
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final int[] entryOffsets;
+
+    private MappedZipInput(File file, ByteBuffer buffer, int[] entryOffsets) {
+        this.file = file;
+        this.buffer = buffer;
+        this.entryOffsets = entryOffsets;
+    }
+
+    /**
+     * Maps the given zip file, or returns {@code null} when it is not a zip file supported by this reader.
+     * Caller is responsible for closing the return value.
+     */
+    @Nullable
+    public static MappedZipInput open(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            if (size < END_OF_CENTRAL_DIRECTORY_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            // The mapping stays valid after the channel has been closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int[] entryOffsets;
+        try {
+            entryOffsets = readCentralDirectory(buffer);
+        } catch (InternalError e) {
+            throw accessFault(file, e);
+        }
+        return entryOffsets == null ? null : new MappedZipInput(file, buffer, entryOffsets);
+    }
+
+    private static IOException accessFault(File file, InternalError e) {
+        return new IOException(String.format("Could not read zip file '%s'. It may have been modified while being read.", file), e);
+    }
+
+    /**
+     * Returns the offsets of the central directory headers of all entries, or {@code null} if the zip file is not supported.
+     */
+    @Nullable
+    private static int[] readCentralDirectory(ByteBuffer buffer) {
+        int endOfCentralDirectory = findEndOfCentralDirectory(buffer);
+        if (endOfCentralDirectory < 0) {
+            return null;
+        }
+        if (endOfCentralDirectory >= ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE
+            && buffer.getInt(endOfCentralDirectory - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+            return null;
+        }
+        int entryCount = unsignedShort(buffer, endOfCentralDirectory + 10);
+        long centralDirectorySize = unsignedInt(buffer, endOfCentralDirectory + 12);
+        long centralDirectoryOffset = unsignedInt(buffer, endOfCentralDirectory + 16);
+        if (entryCount == ZIP64_MAGIC_COUNT || centralDirectoryOffset + centralDirectorySize > endOfCentralDirectory) {
+            return null;
+        }
+
+        int[] entryOffsets = new int[entryCount];
+        int offset = (int) centralDirectoryOffset;
+        for (int i = 0; i < entryCount; i++) {
+            if (offset + CENTRAL_DIRECTORY_HEADER_SIZE > endOfCentralDirectory || buffer.getInt(offset) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+                return null;
+            }
+            int flags = unsignedShort(buffer, offset + 8);
+            long compressedSize = unsignedInt(buffer, offset + 20);
+            long size = unsignedInt(buffer, offset + 24);
+            long localHeaderOffset = unsignedInt(buffer, offset + 42);
+            if ((flags & ENCRYPTED_FLAG) != 0
+                || compressedSize == ZIP64_MAGIC_SIZE
+                || size == ZIP64_MAGIC_SIZE || size > Integer.MAX_VALUE
+                || localHeaderOffset == ZIP64_MAGIC_SIZE
+                || localHeaderOffset + LOCAL_FILE_HEADER_SIZE + compressedSize > centralDirectoryOffset) {
+                return null;
+            }
+            entryOffsets[i] = offset;
+            offset += CENTRAL_DIRECTORY_HEADER_SIZE + unsignedShort(buffer, offset + 28) + unsignedShort(buffer, offset + 30) + unsignedShort(buffer, offset + 32);
+        }
+        return offset <= endOfCentralDirectory ? entryOffsets : null;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer buffer) {
+        int last = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT_SIZE);
+        for (int offset = last; offset >= first; offset--) {
+            if (buffer.getInt(offset) == END_OF_CENTRAL_DIRECTORY_SIGNATURE && offset + END_OF_CENTRAL_DIRECTORY_SIZE + unsignedShort(buffer, offset + 20) == buffer.limit()) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+
+    private static long unsignedInt(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset) & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public Iterator<ZipEntry> iterator() {
+        return new AbstractIterator<ZipEntry>() {
+            private int index;
+
+            @Override
+            protected ZipEntry computeNext() {
+                if (index == entryOffsets.length) {
+                    return endOfData();
+                }
+                return new MappedZipEntry(entryOffsets[index++]);
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        // The mapping is released once the buffer has been garbage collected
+    }
+
+    private class MappedZipEntry implements ZipEntry {
+        private final int offset;
+        private String name;
+
+        public MappedZipEntry(int offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            try {
+                int nameLength = unsignedShort(buffer, offset + 28);
+                return nameLength > 0 && buffer.get(offset + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength - 1) == '/';
+            } catch (InternalError e) {
+                throw new UncheckedIOException(accessFault(file, e));
+            }
+        }
+
+        @Override
+        public String getName() {
+            if (name == null) {
+                byte[] nameBytes;
+                try {
+                    nameBytes = new byte[unsignedShort(buffer, offset + 28)];
+                    ByteBuffer nameBuffer = buffer.duplicate();
+                    nameBuffer.position(offset + CENTRAL_DIRECTORY_HEADER_SIZE);
+                    nameBuffer.get(nameBytes);
+                } catch (InternalError e) {
+                    throw new UncheckedIOException(accessFault(file, e));
+                }
+                name = new String(nameBytes, StandardCharsets.UTF_8);
+            }
+            return name;
+        }
+
+        @Override
+        public int size() {
+            try {
+                return buffer.getInt(offset + 24);
+            } catch (InternalError e) {
+                throw new UncheckedIOException(accessFault(file, e));
+            }
+        }
+
+        @Override
+        public boolean canReopen() {
+            return true;
+        }
+
+        @Override
+        public ZipCompressionMethod getCompressionMethod() {
+            int compressionMethod;
+            try {
+                compressionMethod = unsignedShort(buffer, offset + 10);
+            } catch (InternalError e) {
+                throw new UncheckedIOException(accessFault(file, e));
+            }
+            switch (compressionMethod) {
+                case java.util.zip.ZipEntry.STORED:
+                    return ZipCompressionMethod.STORED;
+                case java.util.zip.ZipEntry.DEFLATED:
+                    return ZipCompressionMethod.DEFLATED;
+                default:
+                    return ZipCompressionMethod.OTHER;
+            }
+        }
+
+        @Override
+        public byte[] getContent() throws IOException {
+            return withInputStream(inputStream -> {
+                byte[] content = new byte[size()];
+                ByteStreams.readFully(inputStream, content);
+                return content;
+            });
+        }
+
+        @Override
+        public <T> T withInputStream(IoFunction<InputStream, T> action) throws IOException {
+            try (InputStream inputStream = openStream()) {
+                return action.apply(inputStream);
+            }
+        }
+
+        private InputStream openStream() throws IOException {
+            try {
+                return openStreamUnchecked();
+            } catch (InternalError e) {
+                throw accessFault(file, e);
+            }
+        }
+
+        private InputStream openStreamUnchecked() throws IOException {
+            int localHeaderOffset = buffer.getInt(offset + 42);
+            if (buffer.getInt(localHeaderOffset) != LOCAL_FILE_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid local file header for entry '" + getName() + "'.");
+            }
+            int dataOffset = localHeaderOffset + LOCAL_FILE_HEADER_SIZE + unsignedShort(buffer, localHeaderOffset + 26) + unsignedShort(buffer, localHeaderOffset + 28);
+            int compressedSize = buffer.getInt(offset + 20);
+            if (dataOffset + compressedSize > buffer.limit()) {
+                throw new ZipException("Invalid local file header for entry '" + getName() + "'.");
+            }
+            ByteBuffer data = buffer.duplicate();
+            data.position(dataOffset);
+            data.limit(dataOffset + compressedSize);
+            switch (getCompressionMethod()) {
+                case STORED:
+                    return new ByteBufferInputStream(file, data);
+                case DEFLATED:
+                    return new RawInflaterInputStream(new ByteBufferInputStream(file, data));
+                default:
+                    throw new ZipException("Unsupported compression method for entry '" + getName() + "'.");
+            }
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final File file;
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(File file, ByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            try {
+                return buffer.get() & 0xFF;
+            } catch (InternalError e) {
+                throw accessFault(file, e);
+            }
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            try {
+                buffer.get(bytes, offset, count);
+            } catch (InternalError e) {
+                throw accessFault(file, e);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    private static class RawInflaterInputStream extends InflaterInputStream {
+        private boolean eof;
+
+        public RawInflaterInputStream(InputStream in) {
+            super(in, new Inflater(true), 8192);
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (eof) {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len == -1) {
+                // Inflating without the zlib header needs an extra dummy byte at the end of the input
+                buf[0] = 0;
+                len = 1;
+                eof = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inf.end();
+            super.close();
+        }
+    }
+}
@@ -16,7 +16,9 @@
 
 package org.gradle.internal.file;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.Map;
 
 public interface FileMetadataAccessor {
     /**
@@ -37,4 +39,19 @@ public interface FileMetadataAccessor {
      * </ul>
      */
     FileMetadata stat(File f);
+
+    /**
+     * Gets the file metadata of all entries of a directory at once, keyed by their file names.
+     * <p>
+     * The metadata of each entry is the same as {@link #stat(File)} would return for it.
+     * Implementations can do this with fewer calls into the file system than listing the directory and calling {@link #stat(File)} for each entry.
+     * <p>
+     * Returns {@code null} when the entries cannot be read at once, for example when the directory cannot be listed,
+     * when an entry disappears while reading the entries or when an entry is neither a regular file nor a directory.
+     * The caller should then fall back to listing the directory and handling the entries one by one.
+     */
+    @Nullable
+    default Map<String, FileMetadata> statDirectoryEntries(File directory) {
+        return null;
+    }
 }
@@ -21,12 +21,17 @@
 import org.gradle.internal.file.FileMetadataAccessor;
 import org.gradle.internal.file.impl.DefaultFileMetadata;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @SuppressWarnings("Since15")
 public class NioFileMetadataAccessor implements FileMetadataAccessor {
@@ -55,4 +60,37 @@ public FileMetadata stat(File file) {
         }
         return DefaultFileMetadata.file(attributes.lastModifiedTime().toMillis(), attributes.size(), accessType);
     }
+
+    /**
+     * Reads the attributes of the entries while iterating the directory.
+     * On Windows, the attributes are already known from listing the directory, so reading them does not access the file system again.
+     */
+    @Nullable
+    @Override
+    public Map<String, FileMetadata> statDirectoryEntries(File directory) {
+        Map<String, FileMetadata> metadata = new LinkedHashMap<String, FileMetadata>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory.toPath())) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                AccessType accessType = AccessType.viaSymlink(attributes.isSymbolicLink());
+                if (accessType == AccessType.VIA_SYMLINK) {
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    } catch (IOException e) {
+                        metadata.put(entry.getFileName().toString(), DefaultFileMetadata.missing(AccessType.VIA_SYMLINK));
+                        continue;
+                    }
+                }
+                if (attributes.isOther()) {
+                    return null;
+                }
+                metadata.put(entry.getFileName().toString(), attributes.isDirectory()
+                    ? DefaultFileMetadata.directory(accessType)
+                    : DefaultFileMetadata.file(attributes.lastModifiedTime().toMillis(), attributes.size(), accessType));
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            return null;
+        }
+        return metadata;
+    }
 }
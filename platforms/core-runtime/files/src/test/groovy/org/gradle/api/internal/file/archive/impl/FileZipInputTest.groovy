@@ -28,6 +28,35 @@ class FileZipInputTest extends Specification implements ZipFileFixture{
     @Rule
     TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
 
+    @Requires(UnitTestPreconditions.NotWindows)
+    def "memory maps zip file when enabled"() {
+        def file = makeZip("foo.zip")
+
+        when:
+        def zipInput = FileZipInput.create(file, true)
+
+        then:
+        zipInput instanceof MappedZipInput
+
+        cleanup:
+        zipInput?.close()
+    }
+
+    @Requires(UnitTestPreconditions.Jdk11OrLater)
+    def "does not memory map zip file by default"() {
+        def file = makeZip("foo.zip")
+
+        when:
+        def zipInput = FileZipInput.create(file)
+
+        then:
+        zipInput instanceof FileZipInput
+
+        cleanup:
+        zipInput?.close()
+    }
+
+    @Requires(UnitTestPreconditions.Windows)
     def "selects the correct zip input type"() {
         def file = makeZip("foo.zip")
 
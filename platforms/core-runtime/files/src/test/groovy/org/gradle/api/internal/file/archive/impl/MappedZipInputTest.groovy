@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive.impl
+
+import org.gradle.api.internal.file.archive.ZipEntry
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.test.precondition.Requires
+import org.gradle.test.preconditions.UnitTestPreconditions
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.CRC32
+import java.util.zip.ZipOutputStream
+
+// Mapped files cannot be deleted on Windows until the mapping is garbage collected
+@Requires(UnitTestPreconditions.NotWindows)
+class MappedZipInputTest extends Specification implements ZipFileFixture {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def "reads entries and their content"() {
+        def file = temporaryFolder.file("foo.zip")
+        def largeContent = ("large content " * 10000).bytes
+        file.withOutputStream { outputStream ->
+            def zipStream = new ZipOutputStream(outputStream)
+            zipStream.setComment("some comment")
+            zipStream.putNextEntry(new java.util.zip.ZipEntry("dir/"))
+            zipStream.closeEntry()
+            zipStream.putNextEntry(new java.util.zip.ZipEntry("dir/deflated.txt"))
+            zipStream.write(largeContent)
+            zipStream.closeEntry()
+            zipStream.putNextEntry(storedEntry("stored.txt", ZIP_ENTRY_CONTENT.bytes))
+            zipStream.write(ZIP_ENTRY_CONTENT.bytes)
+            zipStream.closeEntry()
+            zipStream.putNextEntry(new java.util.zip.ZipEntry("empty.txt"))
+            zipStream.closeEntry()
+            zipStream.close()
+        }
+
+        when:
+        def zipInput = MappedZipInput.open(file)
+        def entries = zipInput.toList()
+
+        then:
+        entries*.name == ["dir/", "dir/deflated.txt", "stored.txt", "empty.txt"]
+        entries*.directory == [true, false, false, false]
+        entries*.compressionMethod == [ZipEntry.ZipCompressionMethod.DEFLATED, ZipEntry.ZipCompressionMethod.DEFLATED, ZipEntry.ZipCompressionMethod.STORED, ZipEntry.ZipCompressionMethod.DEFLATED]
+        entries*.size() == [0, largeContent.length, ZIP_ENTRY_CONTENT.length(), 0]
+        entries[1].content == largeContent
+        entries[1].withInputStream { readAllBytes(it) } == largeContent
+        entries[2].content == ZIP_ENTRY_CONTENT.bytes
+        entries[3].content.length == 0
+
+        cleanup:
+        zipInput?.close()
+    }
+
+    def "can read zip entry content a second time"() {
+        def file = makeZip("foo.zip")
+        def zipInput = MappedZipInput.open(file)
+        def zipEntry = zipInput.iterator().next()
+
+        expect:
+        zipEntry.canReopen()
+        zipEntry.withInputStream { readAllBytes(it) } == ZIP_ENTRY_CONTENT.bytes
+        zipEntry.content == ZIP_ENTRY_CONTENT.bytes
+
+        cleanup:
+        zipInput?.close()
+    }
+
+    def "does not read file that is not a zip file"() {
+        def file = temporaryFolder.file("not-a-zip")
+
+        when:
+        file.text = content
+
+        then:
+        MappedZipInput.open(file) == null
+
+        where:
+        content << ["", "foo", "foo" * 100]
+    }
+
+    def "reports reading a truncated file as an IOException"() {
+        def file = temporaryFolder.file("foo.zip")
+        def content = ("content " * 100000).bytes
+        file.withOutputStream { outputStream ->
+            def zipStream = new ZipOutputStream(outputStream)
+            zipStream.putNextEntry(storedEntry("stored.txt", content))
+            zipStream.write(content)
+            zipStream.closeEntry()
+            zipStream.close()
+        }
+        def zipInput = MappedZipInput.open(file)
+        def zipEntry = zipInput.iterator().next()
+
+        when:
+        new RandomAccessFile(file, "rw").withCloseable { it.setLength(0) }
+        zipEntry.content
+
+        then:
+        def e = thrown(IOException)
+        e.cause instanceof InternalError
+
+        cleanup:
+        zipInput?.close()
+    }
+
+    private static java.util.zip.ZipEntry storedEntry(String name, byte[] content) {
+        def entry = new java.util.zip.ZipEntry(name)
+        def crc = new CRC32()
+        crc.update(content)
+        entry.method = java.util.zip.ZipEntry.STORED
+        entry.size = content.length
+        entry.compressedSize = content.length
+        entry.crc = crc.value
+        return entry
+    }
+}
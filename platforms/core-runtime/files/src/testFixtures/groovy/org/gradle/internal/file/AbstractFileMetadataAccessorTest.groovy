@@ -225,4 +225,55 @@ abstract class AbstractFileMetadataAccessorTest extends Specification {
         cleanup:
         unreadableDir.makeReadable()
     }
+
+    def "stats directory entries the same as each entry"() {
+        def dir = tmpDir.createDir("dir")
+        dir.file("file").text = "123"
+        dir.createDir("subdir")
+
+        expect:
+        assertStatsDirectoryEntriesLikeEachEntry(dir)
+    }
+
+    @Requires(UnitTestPreconditions.Symlinks)
+    def "stats symlink directory entries the same as each entry"() {
+        def dir = tmpDir.createDir("dir")
+        dir.file("file").text = "123"
+        dir.file("linkToFile").createLink(dir.file("file"))
+        dir.file("linkToDir").createLink(tmpDir.createDir("target"))
+        dir.file("brokenLink").createLink(dir.file("missing"))
+
+        expect:
+        assertStatsDirectoryEntriesLikeEachEntry(dir)
+    }
+
+    void assertStatsDirectoryEntriesLikeEachEntry(File dir) {
+        def entries = accessor.statDirectoryEntries(dir)
+        // Accessors are not required to support reading the entries of a directory in one go
+        if (entries != null) {
+            assert entries == dir.list().collectEntries { [it, accessor.stat(new File(dir, it))] }
+        }
+    }
+
+    def "does not stat entries of missing directory or of file"() {
+        def file = tmpDir.file("file")
+        file.text = "123"
+
+        expect:
+        accessor.statDirectoryEntries(tmpDir.file("missing")) == null
+        accessor.statDirectoryEntries(file) == null
+    }
+
+    @Requires(UnitTestPreconditions.FilePermissions)
+    def "does not stat entries of an unreadable directory"() {
+        def unreadableDir = tmpDir.createDir("unreadable")
+        unreadableDir.createFile("inDir")
+        unreadableDir.makeUnreadable()
+
+        expect:
+        accessor.statDirectoryEntries(unreadableDir) == null
+
+        cleanup:
+        unreadableDir.makeReadable()
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+import static org.gradle.internal.io.Lz4BlockOutputStream.UNCOMPRESSED_FLAG;
+
+/**
+ * Decompresses data written by {@link Lz4BlockOutputStream}, verifying the checksum of each block.
+ */
+public class Lz4BlockInputStream extends InputStream {
+    private final InputStream in;
+    private final CRC32 checksum = new CRC32();
+    private final byte[] buffer = new byte[Lz4Codec.MAX_BLOCK_SIZE];
+    private final byte[] compressed = new byte[Lz4Codec.maxCompressedLength(Lz4Codec.MAX_BLOCK_SIZE)];
+    private final byte[] header = new byte[12];
+    private int position;
+    private int count;
+    private boolean finished;
+
+    public Lz4BlockInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int toCopy = Math.min(len, count - position);
+        System.arraycopy(buffer, position, b, off, toCopy);
+        position += toCopy;
+        return toCopy;
+    }
+
+    @Override
+    public int available() {
+        return count - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (position == count) {
+            if (finished) {
+                return false;
+            }
+            readBlock();
+        }
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        readFully(header, 12);
+        int length = readInt(0);
+        int storedLength = readInt(4);
+        int crc = readInt(8);
+        position = 0;
+        count = 0;
+        if (length == 0) {
+            finished = true;
+            return;
+        }
+        if (length < 0 || length > buffer.length) {
+            throw new IOException("Corrupt LZ4 stream: invalid block length " + length + ".");
+        }
+        if ((storedLength & UNCOMPRESSED_FLAG) != 0) {
+            if ((storedLength & ~UNCOMPRESSED_FLAG) != length) {
+                throw new IOException("Corrupt LZ4 stream: invalid stored block length.");
+            }
+            readFully(buffer, length);
+        } else {
+            if (storedLength <= 0 || storedLength > compressed.length) {
+                throw new IOException("Corrupt LZ4 stream: invalid compressed block length " + storedLength + ".");
+            }
+            readFully(compressed, storedLength);
+            if (Lz4Codec.decompress(compressed, storedLength, buffer) != length) {
+                throw new IOException("Corrupt LZ4 stream: block length mismatch.");
+            }
+        }
+        checksum.reset();
+        checksum.update(buffer, 0, length);
+        if ((int) checksum.getValue() != crc) {
+            throw new IOException("Corrupt LZ4 stream: checksum mismatch.");
+        }
+        count = length;
+    }
+
+    private void readFully(byte[] target, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(target, offset, length - offset);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of LZ4 stream.");
+            }
+            offset += read;
+        }
+    }
+
+    private int readInt(int offset) {
+        return (header[offset] & 0xFF) << 24
+            | (header[offset + 1] & 0xFF) << 16
+            | (header[offset + 2] & 0xFF) << 8
+            | (header[offset + 3] & 0xFF);
+    }
+}
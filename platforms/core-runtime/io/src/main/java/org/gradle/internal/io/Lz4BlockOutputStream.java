@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Compresses written data with LZ4 in independent blocks.
+ * <p>
+ * Each block is written as its uncompressed length, its stored length, the CRC32 checksum of its uncompressed content and the stored content.
+ * Blocks that do not compress are stored uncompressed, which is marked by the highest bit of the stored length.
+ * The stream is terminated by a block with an uncompressed length of zero.
+ *
+ * @see Lz4BlockInputStream
+ */
+public class Lz4BlockOutputStream extends FilterOutputStream {
+    static final int UNCOMPRESSED_FLAG = 0x80000000;
+
+    private final Lz4Codec codec = new Lz4Codec();
+    private final CRC32 checksum = new CRC32();
+    private final byte[] buffer = new byte[Lz4Codec.MAX_BLOCK_SIZE];
+    private final byte[] compressed = new byte[Lz4Codec.maxCompressedLength(Lz4Codec.MAX_BLOCK_SIZE)];
+    private final byte[] header = new byte[12];
+    private int count;
+    private boolean closed;
+
+    public Lz4BlockOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length) {
+            writeBlock();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == buffer.length) {
+                writeBlock();
+            }
+            int toCopy = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, toCopy);
+            count += toCopy;
+            off += toCopy;
+            len -= toCopy;
+        }
+    }
+
+    /**
+     * Writes the buffered data as a block, so it can be read by the other side, and flushes the underlying stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            writeBlock();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0) {
+                writeBlock();
+            }
+            // End of stream marker
+            writeHeader(0, 0, 0);
+            out.write(header);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        checksum.reset();
+        checksum.update(buffer, 0, count);
+        int compressedLength = codec.compress(buffer, count, compressed);
+        if (compressedLength < count) {
+            writeHeader(count, compressedLength, (int) checksum.getValue());
+            out.write(header);
+            out.write(compressed, 0, compressedLength);
+        } else {
+            writeHeader(count, count | UNCOMPRESSED_FLAG, (int) checksum.getValue());
+            out.write(header);
+            out.write(buffer, 0, count);
+        }
+        count = 0;
+    }
+
+    private void writeHeader(int length, int storedLength, int crc) {
+        writeInt(length, 0);
+        writeInt(storedLength, 4);
+        writeInt(crc, 8);
+    }
+
+    private void writeInt(int value, int offset) {
+        header[offset] = (byte) (value >>> 24);
+        header[offset + 1] = (byte) (value >>> 16);
+        header[offset + 2] = (byte) (value >>> 8);
+        header[offset + 3] = (byte) value;
+    }
+}
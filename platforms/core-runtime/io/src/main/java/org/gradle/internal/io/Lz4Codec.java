@@ -0,0 +1,204 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compresses and decompresses single blocks in the LZ4 block format.
+ * <p>
+ * The compressor is the greedy single-pass variant of the reference implementation, which favours speed over compression ratio.
+ * Blocks must not be larger than {@link #MAX_BLOCK_SIZE}, so that every match offset fits into two bytes.
+ * <p>
+ * Instances keep the hash table used for compression between blocks, so they must not be shared between threads.
+ */
+public class Lz4Codec {
+    public static final int MAX_BLOCK_SIZE = 64 * 1024;
+
+    private static final int MIN_MATCH = 4;
+    // The last match must start at least 12 bytes before the end of the block
+    private static final int MATCH_FIND_LIMIT = 12;
+    // The last 5 bytes of a block are always literals
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_LOG = 12;
+    private static final int RUN_MASK = 15;
+    private static final int ML_MASK = 15;
+
+    private final int[] hashTable = new int[1 << HASH_LOG];
+
+    /**
+     * The maximum size of the compressed form of a block of the given size.
+     */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses the given block, returning the number of bytes written to {@code dest}.
+     * The destination must have room for at least {@link #maxCompressedLength(int)} bytes.
+     */
+    public int compress(byte[] src, int srcLength, byte[] dest) {
+        // Positions are stored with an offset of one, so zero means no position recorded
+        Arrays.fill(hashTable, 0);
+        int anchor = 0;
+        int op = 0;
+        if (srcLength > MATCH_FIND_LIMIT) {
+            int matchFindLimit = srcLength - MATCH_FIND_LIMIT;
+            int matchLimit = srcLength - LAST_LITERALS;
+            int ip = 0;
+            while (ip <= matchFindLimit) {
+                int sequence = readInt(src, ip);
+                int hash = hash(sequence);
+                int ref = hashTable[hash] - 1;
+                hashTable[hash] = ip + 1;
+                if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    ip++;
+                    continue;
+                }
+                // Extend the match backwards over pending literals
+                while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+                op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dest, op);
+                ip += matchLength;
+                anchor = ip;
+            }
+        }
+        return writeLastLiterals(src, anchor, srcLength - anchor, dest, op);
+    }
+
+    /**
+     * Decompresses the given block, returning the number of bytes written to {@code dest}.
+     */
+    public static int decompress(byte[] src, int srcLength, byte[] dest) throws IOException {
+        int ip = 0;
+        int op = 0;
+        try {
+            while (true) {
+                if (ip >= srcLength) {
+                    throw corrupt();
+                }
+                int token = src[ip++] & 0xFF;
+                int literalLength = token >>> 4;
+                if (literalLength == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literalLength += b;
+                    } while (b == 255);
+                }
+                if (literalLength > srcLength - ip || literalLength > dest.length - op) {
+                    throw corrupt();
+                }
+                System.arraycopy(src, ip, dest, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+                if (ip == srcLength) {
+                    return op;
+                }
+
+                if (ip + 2 > srcLength) {
+                    throw corrupt();
+                }
+                int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+                ip += 2;
+                int matchLength = token & ML_MASK;
+                if (matchLength == ML_MASK) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                if (offset == 0 || offset > op || matchLength > dest.length - op) {
+                    throw corrupt();
+                }
+                int ref = op - offset;
+                if (offset >= matchLength) {
+                    System.arraycopy(dest, ref, dest, op, matchLength);
+                    op += matchLength;
+                } else {
+                    // Overlapping match, the copied bytes are repeated
+                    for (int i = 0; i < matchLength; i++) {
+                        dest[op++] = dest[ref++];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw corrupt();
+        }
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, int offset, int matchLength, byte[] dest, int op) {
+        int tokenPos = op++;
+        int matchCode = matchLength - MIN_MATCH;
+        int token = (Math.min(literalLength, RUN_MASK) << 4) | Math.min(matchCode, ML_MASK);
+        dest[tokenPos] = (byte) token;
+        if (literalLength >= RUN_MASK) {
+            op = writeLength(literalLength - RUN_MASK, dest, op);
+        }
+        System.arraycopy(src, literalStart, dest, op, literalLength);
+        op += literalLength;
+        dest[op++] = (byte) offset;
+        dest[op++] = (byte) (offset >>> 8);
+        if (matchCode >= ML_MASK) {
+            op = writeLength(matchCode - ML_MASK, dest, op);
+        }
+        return op;
+    }
+
+    private static int writeLastLiterals(byte[] src, int literalStart, int literalLength, byte[] dest, int op) {
+        dest[op++] = (byte) (Math.min(literalLength, RUN_MASK) << 4);
+        if (literalLength >= RUN_MASK) {
+            op = writeLength(literalLength - RUN_MASK, dest, op);
+        }
+        System.arraycopy(src, literalStart, dest, op, literalLength);
+        return op + literalLength;
+    }
+
+    private static int writeLength(int length, byte[] dest, int op) {
+        while (length >= 255) {
+            dest[op++] = (byte) 255;
+            length -= 255;
+        }
+        dest[op++] = (byte) length;
+        return op;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF)
+            | (bytes[offset + 1] & 0xFF) << 8
+            | (bytes[offset + 2] & 0xFF) << 16
+            | (bytes[offset + 3] & 0xFF) << 24;
+    }
+
+    private static IOException corrupt() {
+        return new IOException("Corrupt LZ4 block.");
+    }
+}
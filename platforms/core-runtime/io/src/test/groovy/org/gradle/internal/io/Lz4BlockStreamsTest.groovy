@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.io
+
+import spock.lang.Specification
+
+class Lz4BlockStreamsTest extends Specification {
+
+    def "round trips #size bytes of #description content"() {
+        def random = new Random(size)
+        byte[] content = new byte[size]
+        generator(random, content)
+
+        when:
+        def compressed = compress(content)
+
+        then:
+        decompress(compressed) == content
+
+        where:
+        [size, description, generator] << [
+            [0, 1, 13, 100, Lz4Codec.MAX_BLOCK_SIZE, Lz4Codec.MAX_BLOCK_SIZE + 1, 3 * Lz4Codec.MAX_BLOCK_SIZE + 17],
+            [
+                ["random", { Random random, byte[] bytes -> random.nextBytes(bytes) }],
+                ["repetitive", { Random random, byte[] bytes -> bytes.length.times { bytes[it] = (byte) (it % 7) } }],
+                ["text", { Random random, byte[] bytes -> bytes.length.times { bytes[it] = (byte) "the quick brown fox ".charAt(random.nextInt(20)) } }]
+            ]
+        ].combinations().collect { size, generator -> [size] + generator }
+    }
+
+    def "compresses repetitive content"() {
+        byte[] content = ("abcdefgh" * 100000).bytes
+
+        expect:
+        compress(content).length < content.length / 10
+    }
+
+    def "detects corrupt content"() {
+        byte[] content = ("abcdefgh" * 1000).bytes
+        def compressed = compress(content)
+        compressed[20] ^= 1
+
+        when:
+        decompress(compressed)
+
+        then:
+        thrown(IOException)
+    }
+
+    def "detects truncated stream"() {
+        def compressed = compress(("abcdefgh" * 1000).bytes)
+
+        when:
+        decompress(Arrays.copyOf(compressed, compressed.length - 1))
+
+        then:
+        thrown(EOFException)
+    }
+
+    private static byte[] compress(byte[] content) {
+        def output = new ByteArrayOutputStream()
+        new Lz4BlockOutputStream(output).withStream { it.write(content) }
+        return output.toByteArray()
+    }
+
+    private static byte[] decompress(byte[] compressed) {
+        return new Lz4BlockInputStream(new ByteArrayInputStream(compressed)).withStream { it.bytes }
+    }
+}
@@ -29,19 +29,25 @@
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.internal.service.scopes.VirtualFileSystemServices;
 import org.gradle.internal.snapshot.impl.DirectorySnapshotterStatistics;
+import org.gradle.internal.vfs.impl.VirtualFileSystemSnapshotStore;
 import org.gradle.internal.watch.options.FileSystemWatchingSettingsFinalizedProgressDetails;
 import org.gradle.internal.watch.registry.WatchMode;
 import org.gradle.internal.watch.vfs.BuildLifecycleAwareVirtualFileSystem;
 import org.gradle.internal.watch.vfs.VfsLogging;
 import org.gradle.internal.watch.vfs.WatchLogging;
+import org.gradle.internal.watch.vfs.impl.ChangedFilesPreSnapshotter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+
 public class FileSystemWatchingBuildActionRunner implements BuildActionRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemWatchingBuildActionRunner.class);
 
     private final BuildOperationProgressEventEmitter eventEmitter;
     private final BuildLifecycleAwareVirtualFileSystem virtualFileSystem;
+    private final VirtualFileSystemSnapshotStore snapshotStore;
+    private final ChangedFilesPreSnapshotter preSnapshotter;
     private final DeploymentRegistryInternal deploymentRegistry;
     private final StatStatistics.Collector statStatisticsCollector;
     private final FileHasherStatistics.Collector fileHasherStatisticsCollector;
@@ -49,20 +55,26 @@ public class FileSystemWatchingBuildActionRunner implements BuildActionRunner {
     private final BuildOperationRunner buildOperationRunner;
     private final BuildActionRunner delegate;
     private final InternalOptions options;
+    private final File rootProjectDirectory;
 
     public FileSystemWatchingBuildActionRunner(
         BuildOperationProgressEventEmitter eventEmitter,
         BuildLifecycleAwareVirtualFileSystem virtualFileSystem,
+        VirtualFileSystemSnapshotStore snapshotStore,
+        ChangedFilesPreSnapshotter preSnapshotter,
         DeploymentRegistryInternal deploymentRegistry,
         StatStatistics.Collector statStatisticsCollector,
         FileHasherStatistics.Collector fileHasherStatisticsCollector,
         DirectorySnapshotterStatistics.Collector directorySnapshotterStatisticsCollector,
         BuildOperationRunner buildOperationRunner,
         BuildActionRunner delegate,
-        InternalOptions options
+        InternalOptions options,
+        File rootProjectDirectory
     ) {
         this.eventEmitter = eventEmitter;
         this.virtualFileSystem = virtualFileSystem;
+        this.snapshotStore = snapshotStore;
+        this.preSnapshotter = preSnapshotter;
         this.deploymentRegistry = deploymentRegistry;
         this.statStatisticsCollector = statStatisticsCollector;
         this.fileHasherStatisticsCollector = fileHasherStatisticsCollector;
@@ -70,10 +82,12 @@ public FileSystemWatchingBuildActionRunner(
         this.buildOperationRunner = buildOperationRunner;
         this.delegate = delegate;
         this.options = options;
+        this.rootProjectDirectory = rootProjectDirectory;
     }
 
     @Override
     public Result run(BuildAction action, BuildTreeLifecycleController buildController) {
+        preSnapshotter.stopForBuild();
         StartParameterInternal startParameter = action.getStartParameter();
 
         WatchMode watchFileSystemMode = startParameter.getWatchFileSystemMode();
@@ -123,6 +137,10 @@ public Result run(BuildAction action, BuildTreeLifecycleController buildControll
             buildOperationRunner
         );
         LOGGER.info("File system watching is {}", actuallyWatching ? "active" : "inactive");
+        boolean persistVirtualFileSystem = VirtualFileSystemServices.isPersistVfs(options);
+        if (persistVirtualFileSystem) {
+            snapshotStore.restore(virtualFileSystem, rootProjectDirectory);
+        }
         //noinspection Convert2Lambda
         eventEmitter.emitNowForCurrent(new FileSystemWatchingSettingsFinalizedProgressDetails() {
             @Override
@@ -139,6 +157,11 @@ public boolean isEnabled() {
         try {
             return delegate.run(action, buildController);
         } finally {
+            if (persistVirtualFileSystem && !actuallyWatching) {
+                // Persist before the build finishes, since the VFS is dropped then when file system watching is inactive.
+                // When watching, the daemon keeps the VFS for the next build, so there is no need to write it to disk.
+                snapshotStore.persist(virtualFileSystem, rootProjectDirectory);
+            }
             int maximumNumberOfWatchedHierarchies = VirtualFileSystemServices.getMaximumNumberOfWatchedHierarchies(options);
             virtualFileSystem.beforeBuildFinished(
                 watchFileSystemMode,
@@ -147,6 +170,13 @@ public boolean isEnabled() {
                 buildOperationRunner,
                 maximumNumberOfWatchedHierarchies
             );
+            if (actuallyWatching && VirtualFileSystemServices.isPreSnapshotVfs(options)) {
+                preSnapshotter.startAfterBuild(
+                    options.getOption(VirtualFileSystemServices.PRE_SNAPSHOT_SETTLE_DELAY_PROPERTY).get(),
+                    options.getOption(VirtualFileSystemServices.PRE_SNAPSHOT_MAX_CPU_PERCENT_PROPERTY).get(),
+                    options.getOption(VirtualFileSystemServices.PRE_SNAPSHOT_MAX_FILES_PROPERTY).get()
+                );
+            }
             if (verboseVfsLogging == VfsLogging.VERBOSE) {
                 logVfsStatistics("during current build", statStatisticsCollector, fileHasherStatisticsCollector, directorySnapshotterStatisticsCollector);
             }
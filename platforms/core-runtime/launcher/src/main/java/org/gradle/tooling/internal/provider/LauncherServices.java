@@ -67,8 +67,10 @@
 import org.gradle.internal.snapshot.impl.DirectorySnapshotterStatistics;
 import org.gradle.internal.time.Clock;
 import org.gradle.internal.time.Time;
+import org.gradle.internal.vfs.impl.VirtualFileSystemSnapshotStore;
 import org.gradle.internal.watch.vfs.BuildLifecycleAwareVirtualFileSystem;
 import org.gradle.internal.watch.vfs.FileChangeListeners;
+import org.gradle.internal.watch.vfs.impl.ChangedFilesPreSnapshotter;
 import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.launcher.exec.BuildCompletionNotifyingBuildActionRunner;
 import org.gradle.launcher.exec.BuildOutcomeReportingBuildActionRunner;
@@ -198,6 +200,8 @@ BuildTreeActionExecutor createActionExecutor(
             BuildRequestMetaData buildRequestMetaData,
             GradleEnterprisePluginManager gradleEnterprisePluginManager,
             BuildLifecycleAwareVirtualFileSystem virtualFileSystem,
+            VirtualFileSystemSnapshotStore virtualFileSystemSnapshotStore,
+            ChangedFilesPreSnapshotter changedFilesPreSnapshotter,
             DeploymentRegistryInternal deploymentRegistry,
             StatStatistics.Collector statStatisticsCollector,
             FileHasherStatistics.Collector fileHasherStatisticsCollector,
@@ -220,6 +224,8 @@ BuildTreeActionExecutor createActionExecutor(
                             new FileSystemWatchingBuildActionRunner(
                                 eventEmitter,
                                 virtualFileSystem,
+                                virtualFileSystemSnapshotStore,
+                                changedFilesPreSnapshotter,
                                 deploymentRegistry,
                                 statStatisticsCollector,
                                 fileHasherStatisticsCollector,
@@ -237,7 +243,8 @@ BuildTreeActionExecutor createActionExecutor(
                                     buildStartedTime,
                                     buildRequestMetaData,
                                     buildLoggerFactory),
-                                options),
+                                options,
+                                buildLayout.getRootDirectory()),
                             gradleEnterprisePluginManager)),
                     eventEmitter,
                     startParameter,
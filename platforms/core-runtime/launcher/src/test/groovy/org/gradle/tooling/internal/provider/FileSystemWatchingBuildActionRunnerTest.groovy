@@ -28,13 +28,18 @@ import org.gradle.internal.invocation.BuildAction
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter
 import org.gradle.internal.operations.BuildOperationRunner
 import org.gradle.internal.snapshot.impl.DirectorySnapshotterStatistics
+import org.gradle.internal.vfs.FileSystemAccess
+import org.gradle.internal.vfs.impl.VirtualFileSystemSnapshotStore
 import org.gradle.internal.watch.options.FileSystemWatchingSettingsFinalizedProgressDetails
 import org.gradle.internal.watch.registry.WatchMode
 import org.gradle.internal.watch.vfs.BuildLifecycleAwareVirtualFileSystem
 import org.gradle.internal.watch.vfs.VfsLogging
 import org.gradle.internal.watch.vfs.WatchLogging
+import org.gradle.internal.watch.vfs.impl.ChangedFilesPreSnapshotter
 import spock.lang.Specification
 
+import java.util.concurrent.ScheduledExecutorService
+
 class FileSystemWatchingBuildActionRunnerTest extends Specification {
 
     def watchingHandler = Mock(BuildLifecycleAwareVirtualFileSystem)
@@ -48,17 +53,27 @@ class FileSystemWatchingBuildActionRunnerTest extends Specification {
     def delegate = Mock(BuildActionRunner)
     def buildAction = Stub(BuildAction)
     def buildOperationProgressEventEmitter = Mock(BuildOperationProgressEventEmitter)
-
-    def runner = new FileSystemWatchingBuildActionRunner(
-        buildOperationProgressEventEmitter,
-        watchingHandler,
-        deploymentRegistry,
-        Stub(StatStatistics.Collector),
-        Stub(FileHasherStatistics.Collector),
-        Stub(DirectorySnapshotterStatistics.Collector),
-        buildOperationRunner,
-        delegate,
-        new DefaultInternalOptions([:]))
+    def snapshotStore = Mock(VirtualFileSystemSnapshotStore)
+    def rootProjectDir = new File("root")
+    def preSnapshotter = new ChangedFilesPreSnapshotter(Stub(FileSystemAccess), { Stub(ScheduledExecutorService) })
+
+    def runner = createRunner([:])
+
+    private FileSystemWatchingBuildActionRunner createRunner(Map<String, String> options) {
+        new FileSystemWatchingBuildActionRunner(
+            buildOperationProgressEventEmitter,
+            watchingHandler,
+            snapshotStore,
+            preSnapshotter,
+            deploymentRegistry,
+            Stub(StatStatistics.Collector),
+            Stub(FileHasherStatistics.Collector),
+            Stub(DirectorySnapshotterStatistics.Collector),
+            buildOperationRunner,
+            delegate,
+            new DefaultInternalOptions(options),
+            rootProjectDir)
+    }
 
     def setup() {
         _ * startParameter.getSystemPropertiesArgs() >> [:]
@@ -126,6 +141,104 @@ class FileSystemWatchingBuildActionRunnerTest extends Specification {
         0 * _
     }
 
+    def "restores and persists the virtual file system when requested and watching is inactive"() {
+        _ * startParameter.watchFileSystemMode >> WatchMode.DEFAULT
+        _ * startParameter.projectCacheDir >> null
+        def runner = createRunner(["org.gradle.vfs.persist": "true"])
+
+        when:
+        runner.run(buildAction, buildController)
+
+        then:
+        1 * watchingHandler.afterBuildStarted(WatchMode.DEFAULT, _, _, buildOperationRunner) >> false
+
+        then:
+        1 * snapshotStore.restore(watchingHandler, rootProjectDir)
+
+        then:
+        1 * buildOperationProgressEventEmitter.emitNowForCurrent(_)
+
+        then:
+        1 * delegate.run(buildAction, buildController)
+
+        then:
+        1 * snapshotStore.persist(watchingHandler, rootProjectDir)
+
+        then:
+        1 * watchingHandler.beforeBuildFinished(WatchMode.DEFAULT, _, _, buildOperationRunner, _)
+
+        then:
+        0 * _
+    }
+
+    def "does not persist the virtual file system kept by the daemon while watching"() {
+        _ * startParameter.watchFileSystemMode >> WatchMode.DEFAULT
+        _ * startParameter.projectCacheDir >> null
+        def runner = createRunner(["org.gradle.vfs.persist": "true"])
+
+        when:
+        runner.run(buildAction, buildController)
+
+        then:
+        1 * watchingHandler.afterBuildStarted(WatchMode.DEFAULT, _, _, buildOperationRunner) >> true
+
+        then:
+        1 * snapshotStore.restore(watchingHandler, rootProjectDir)
+
+        then:
+        1 * buildOperationProgressEventEmitter.emitNowForCurrent(_)
+
+        then:
+        1 * delegate.run(buildAction, buildController)
+
+        then:
+        0 * snapshotStore.persist(_, _)
+        1 * watchingHandler.beforeBuildFinished(WatchMode.DEFAULT, _, _, buildOperationRunner, _)
+
+        then:
+        0 * _
+    }
+
+    def "snapshots files changed after the build when requested and watching is #description"() {
+        _ * startParameter.watchFileSystemMode >> WatchMode.DEFAULT
+        _ * startParameter.projectCacheDir >> null
+        preSnapshotter = Mock(ChangedFilesPreSnapshotter)
+        def runner = createRunner([
+            "org.gradle.vfs.presnapshot": "true",
+            "org.gradle.vfs.presnapshot.delay": "500",
+            "org.gradle.vfs.presnapshot.cpu-percent": "10"
+        ])
+
+        when:
+        runner.run(buildAction, buildController)
+
+        then:
+        1 * preSnapshotter.stopForBuild()
+
+        then:
+        1 * watchingHandler.afterBuildStarted(WatchMode.DEFAULT, _, _, buildOperationRunner) >> actuallyWatching
+
+        then:
+        1 * buildOperationProgressEventEmitter.emitNowForCurrent(_)
+
+        then:
+        1 * delegate.run(buildAction, buildController)
+
+        then:
+        1 * watchingHandler.beforeBuildFinished(WatchMode.DEFAULT, _, _, buildOperationRunner, _)
+
+        then:
+        (actuallyWatching ? 1 : 0) * preSnapshotter.startAfterBuild(500L, 10, 10000)
+
+        then:
+        0 * _
+
+        where:
+        description | actuallyWatching
+        "active"    | true
+        "inactive"  | false
+    }
+
     def "fails when watching is enabled and project cache dir is specified"() {
         _ * startParameter.watchFileSystemMode >> WatchMode.ENABLED
         _ * startParameter.projectCacheDir >> Mock(File)
@@ -17,6 +17,7 @@
 package org.gradle.internal.nativeintegration.filesystem.services;
 
 import net.rubygrapefruit.platform.NativeException;
+import net.rubygrapefruit.platform.file.DirEntry;
 import net.rubygrapefruit.platform.file.FileInfo;
 import net.rubygrapefruit.platform.file.Files;
 import org.gradle.api.UncheckedIOException;
@@ -25,7 +26,11 @@
 import org.gradle.internal.file.FileMetadataAccessor;
 import org.gradle.internal.file.impl.DefaultFileMetadata;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class NativePlatformBackedFileMetadataAccessor implements FileMetadataAccessor {
     private final Files files;
@@ -67,4 +72,55 @@ public FileMetadata stat(File f) {
                 throw new IllegalArgumentException("Unrecognised file type: " + stat.getType());
         }
     }
+
+    /**
+     * Lists the directory and stats its entries in a single native call.
+     * Only symlinks need an additional call to stat their targets.
+     */
+    @Nullable
+    @Override
+    public Map<String, FileMetadata> statDirectoryEntries(File directory) {
+        List<? extends DirEntry> entries;
+        try {
+            entries = files.listDir(directory, false);
+        } catch (NativeException e) {
+            return null;
+        }
+        Map<String, FileMetadata> metadata = new LinkedHashMap<String, FileMetadata>(entries.size() * 4 / 3 + 1);
+        for (DirEntry entry : entries) {
+            FileInfo stat = entry;
+            AccessType accessType = AccessType.viaSymlink(entry.getType() == FileInfo.Type.Symlink);
+            if (accessType == AccessType.VIA_SYMLINK) {
+                File symlink = new File(directory, entry.getName());
+                try {
+                    stat = files.stat(symlink, true);
+                } catch (NativeException e) {
+                    // Same as for stat(), a symlink cycle cannot be stated
+                    if (!symlink.exists()) {
+                        metadata.put(entry.getName(), DefaultFileMetadata.missing(accessType));
+                        continue;
+                    }
+                    return null;
+                }
+            }
+            switch (stat.getType()) {
+                case File:
+                    metadata.put(entry.getName(), DefaultFileMetadata.file(stat.getLastModifiedTime(), stat.getSize(), accessType));
+                    break;
+                case Directory:
+                    metadata.put(entry.getName(), DefaultFileMetadata.directory(accessType));
+                    break;
+                case Missing:
+                    if (accessType == AccessType.DIRECT) {
+                        // The entry has been removed while listing the directory
+                        return null;
+                    }
+                    metadata.put(entry.getName(), DefaultFileMetadata.missing(accessType));
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return metadata;
+    }
 }
@@ -57,6 +57,37 @@ public interface Result {
          */
         long getArchiveSize();
 
+        /**
+         * Whether the load has been a hit served from the in-memory tier of the local build cache.
+         *
+         * @since 8.12
+         */
+        boolean isInMemoryHit();
+
+        /**
+         * The number of loads served from the in-memory tier of the local build cache since the tier was created.
+         * Zero if the local build cache has no in-memory tier.
+         *
+         * @since 8.12
+         */
+        long getInMemoryHitCount();
+
+        /**
+         * The number of loads that could not be served from the in-memory tier of the local build cache since the tier was created.
+         * Zero if the local build cache has no in-memory tier.
+         *
+         * @since 8.12
+         */
+        long getInMemoryMissCount();
+
+        /**
+         * The number of entries evicted from the in-memory tier of the local build cache since the tier was created.
+         * Zero if the local build cache has no in-memory tier.
+         *
+         * @since 8.12
+         */
+        long getInMemoryEvictionCount();
+
     }
 
     private BuildCacheLocalLoadBuildOperationType() {
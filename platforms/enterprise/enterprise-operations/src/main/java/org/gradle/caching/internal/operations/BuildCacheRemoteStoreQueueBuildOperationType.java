@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.operations;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Waiting at the end of the build for the entries that are stored in the remote build cache in the background.
+ *
+ * @since 8.12
+ */
+public final class BuildCacheRemoteStoreQueueBuildOperationType implements BuildOperationType<BuildCacheRemoteStoreQueueBuildOperationType.Details, BuildCacheRemoteStoreQueueBuildOperationType.Result> {
+
+    public interface Details {
+
+        /**
+         * The maximum time to wait for the queued entries to be stored, in milliseconds.
+         *
+         * @since 8.12
+         */
+        long getDeadlineMillis();
+
+    }
+
+    public interface Result {
+
+        /**
+         * The largest number of entries that were queued or being stored at the same time.
+         *
+         * @since 8.12
+         */
+        int getMaxQueueDepth();
+
+        /**
+         * The number of entries that have been stored.
+         *
+         * @since 8.12
+         */
+        long getStoredCount();
+
+        /**
+         * The number of entries that could not be stored, after retrying.
+         *
+         * @since 8.12
+         */
+        long getFailedCount();
+
+        /**
+         * The number of entries that have not been stored, because the queue was full or the deadline passed.
+         *
+         * @since 8.12
+         */
+        long getDroppedCount();
+
+    }
+
+    private BuildCacheRemoteStoreQueueBuildOperationType() {
+    }
+}
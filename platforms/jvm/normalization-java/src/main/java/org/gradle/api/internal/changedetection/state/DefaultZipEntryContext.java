@@ -19,7 +19,9 @@
 import org.gradle.api.internal.file.archive.ZipEntry;
 import org.gradle.internal.file.FilePathUtil;
 import org.gradle.internal.fingerprint.hashing.ZipEntryContext;
+import org.gradle.internal.hash.HashCode;
 
+import java.util.Optional;
 import java.util.function.Supplier;
 
 public class DefaultZipEntryContext implements ZipEntryContext {
@@ -53,6 +55,13 @@ public Supplier<String[]> getRelativePathSegments() {
         return new ZipEntryRelativePath(entry);
     }
 
+    @Override
+    public Optional<HashCode> getContentHash() {
+        return entry instanceof HashedZipEntry
+            ? Optional.of(((HashedZipEntry) entry).getContentHash())
+            : Optional.empty();
+    }
+
     private static class ZipEntryRelativePath implements Supplier<String[]> {
         private final ZipEntry zipEntry;
 
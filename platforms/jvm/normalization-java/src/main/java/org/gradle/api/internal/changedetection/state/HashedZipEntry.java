@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.internal.file.archive.ZipEntry;
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A zip entry for which the hash of the content is already known, and which possibly holds its content in memory.
+ *
+ * @see org.gradle.internal.fingerprint.hashing.ZipEntryContext#getContentHash()
+ */
+class HashedZipEntry implements ZipEntry {
+    private final ZipEntry delegate;
+    private final HashCode contentHash;
+    @Nullable
+    private final byte[] content;
+
+    public HashedZipEntry(ZipEntry delegate, HashCode contentHash, @Nullable byte[] content) {
+        this.delegate = delegate;
+        this.contentHash = contentHash;
+        this.content = content;
+    }
+
+    public HashCode getContentHash() {
+        return contentHash;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return delegate.isDirectory();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public byte[] getContent() throws IOException {
+        return content != null ? content : delegate.getContent();
+    }
+
+    @Override
+    public <T> T withInputStream(IoFunction<InputStream, T> action) throws IOException {
+        if (content != null) {
+            return action.apply(new ByteArrayInputStream(content));
+        }
+        return delegate.withInputStream(action);
+    }
+
+    @Override
+    public int size() {
+        return content != null ? content.length : delegate.size();
+    }
+
+    @Override
+    public boolean canReopen() {
+        return content != null || delegate.canReopen();
+    }
+
+    @Override
+    public ZipCompressionMethod getCompressionMethod() {
+        return delegate.getCompressionMethod();
+    }
+}
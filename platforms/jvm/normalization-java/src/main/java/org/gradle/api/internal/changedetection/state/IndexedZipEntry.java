@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.hash.HashCode;
+
+/**
+ * A regular file entry of a zip file, together with the hash of its uncompressed content.
+ */
+public class IndexedZipEntry {
+    private final String name;
+    private final HashCode contentHash;
+
+    public IndexedZipEntry(String name, HashCode contentHash) {
+        this.name = name;
+        this.contentHash = contentHash;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public HashCode getContentHash() {
+        return contentHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IndexedZipEntry that = (IndexedZipEntry) o;
+        return name.equals(that.name) && contentHash.equals(that.contentHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + contentHash.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name + ":" + contentHash;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.Iterators;
+import com.google.common.io.ByteStreams;
+import org.gradle.api.internal.file.archive.ZipEntry;
+import org.gradle.api.internal.file.archive.ZipInput;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+/**
+ * The entries of an indexed zip file.
+ * <p>
+ * The zip file is only opened when the content of an entry is requested.
+ */
+class IndexedZipInput implements ZipInput {
+    private final File file;
+    private final List<IndexedZipEntry> entries;
+    private ZipFile zipFile;
+
+    public IndexedZipInput(File file, List<IndexedZipEntry> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    @Override
+    public Iterator<ZipEntry> iterator() {
+        return Iterators.transform(entries.iterator(), entry -> new HashedZipEntry(new LazilyOpenedZipEntry(entry.getName()), entry.getContentHash(), null));
+    }
+
+    private java.util.zip.ZipEntry openEntry(String name) throws IOException {
+        if (zipFile == null) {
+            zipFile = new ZipFile(file);
+        }
+        java.util.zip.ZipEntry entry = zipFile.getEntry(name);
+        if (entry == null) {
+            throw new IOException(String.format("Entry '%s' not found in indexed zip file '%s'.", name, file));
+        }
+        return entry;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (zipFile != null) {
+            zipFile.close();
+        }
+    }
+
+    private class LazilyOpenedZipEntry implements ZipEntry {
+        private final String name;
+
+        public LazilyOpenedZipEntry(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public byte[] getContent() throws IOException {
+            return withInputStream(ByteStreams::toByteArray);
+        }
+
+        @Override
+        public <T> T withInputStream(IoFunction<InputStream, T> action) throws IOException {
+            java.util.zip.ZipEntry entry = openEntry(name);
+            try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                return action.apply(inputStream);
+            }
+        }
+
+        @Override
+        public int size() {
+            return -1;
+        }
+
+        @Override
+        public boolean canReopen() {
+            return true;
+        }
+
+        @Override
+        public ZipCompressionMethod getCompressionMethod() {
+            int method;
+            try {
+                method = openEntry(name).getMethod();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            switch (method) {
+                case java.util.zip.ZipEntry.STORED:
+                    return ZipCompressionMethod.STORED;
+                case java.util.zip.ZipEntry.DEFLATED:
+                    return ZipCompressionMethod.DEFLATED;
+                default:
+                    return ZipCompressionMethod.OTHER;
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.AbstractIterator;
+import org.gradle.api.internal.file.archive.ZipEntry;
+import org.gradle.api.internal.file.archive.ZipInput;
+import org.gradle.internal.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hashes the content of the regular file entries of a zip file while iterating them, so they can be added to a {@link ZipContentIndex}.
+ * <p>
+ * The content of small entries is kept in memory while the entry is visited, so it is not inflated twice.
+ * Zip files containing nested zip files or duplicate entries are not indexed.
+ */
+class IndexingZipInput implements ZipInput {
+    private static final int MAX_BUFFERED_ENTRY_SIZE = 1024 * 1024;
+
+    private final ZipInput delegate;
+    private final List<IndexedZipEntry> indexedEntries = new ArrayList<>();
+    private final Set<String> entryNames = new HashSet<>();
+    private boolean indexable = true;
+    private boolean visitedAllEntries;
+
+    public IndexingZipInput(ZipInput delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Iterator<ZipEntry> iterator() {
+        Iterator<ZipEntry> entries = delegate.iterator();
+        return new AbstractIterator<ZipEntry>() {
+            @Override
+            protected ZipEntry computeNext() {
+                if (!entries.hasNext()) {
+                    visitedAllEntries = true;
+                    return endOfData();
+                }
+                try {
+                    return index(entries.next());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private ZipEntry index(ZipEntry entry) throws IOException {
+        if (!indexable || entry.isDirectory()) {
+            return entry;
+        }
+        String name = entry.getName();
+        if (ZipHasher.isZipFile(name) || !entryNames.add(name)) {
+            indexable = false;
+            return entry;
+        }
+        HashedZipEntry hashedEntry;
+        if (entry.canReopen() && (entry.size() < 0 || entry.size() > MAX_BUFFERED_ENTRY_SIZE)) {
+            hashedEntry = new HashedZipEntry(entry, entry.withInputStream(Hashing::hashStream), null);
+        } else {
+            byte[] content = entry.getContent();
+            hashedEntry = new HashedZipEntry(entry, Hashing.hashBytes(content), content);
+        }
+        indexedEntries.add(new IndexedZipEntry(name, hashedEntry.getContentHash()));
+        return hashedEntry;
+    }
+
+    /**
+     * Returns the indexed entries after all entries have been visited, or {@code null} if the zip file cannot be indexed.
+     */
+    @Nullable
+    public List<IndexedZipEntry> getIndexedEntries() {
+        return indexable && visitedAllEntries ? indexedEntries : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -25,7 +25,10 @@
 import javax.annotation.Nullable;
 import java.io.IOException;
 
-public interface ResourceSnapshotterCacheService {
+/**
+ * Caches the results of hashing files with a normalization, and the content of zip files.
+ */
+public interface ResourceSnapshotterCacheService extends ZipContentIndex {
     @Nullable
     HashCode hashFile(FileSystemLocationSnapshot snapshot, FileSystemLocationSnapshotHasher hasher, HashCode configurationHash) throws IOException;
 
@@ -26,6 +26,7 @@
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Hashes contents of resources files and {@link ZipEntry}s) in runtime classpath entries.
@@ -42,6 +43,10 @@ public HashCode hash(RegularFileSnapshotContext fileSnapshotContext) {
 
     @Override
     public HashCode hash(ZipEntryContext zipEntryContext) throws IOException {
+        Optional<HashCode> contentHash = zipEntryContext.getContentHash();
+        if (contentHash.isPresent()) {
+            return contentHash.get();
+        }
         return zipEntryContext.getEntry().withInputStream(Hashing::hashStream);
     }
 
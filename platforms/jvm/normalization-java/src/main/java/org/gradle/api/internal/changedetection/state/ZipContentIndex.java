@@ -0,0 +1,54 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Remembers the regular file entries of zip files together with the hashes of their content, keyed by the content hash of the zip file.
+ * <p>
+ * Allows hashing the entries of a zip file again, for example for a different normalization,
+ * without inflating the entries for which the hash of their content is enough.
+ */
+public interface ZipContentIndex {
+    ZipContentIndex NONE = new ZipContentIndex() {
+        @Nullable
+        @Override
+        public List<IndexedZipEntry> getIndexedEntries(RegularFileSnapshot zipFile) {
+            return null;
+        }
+
+        @Override
+        public void indexEntries(RegularFileSnapshot zipFile, List<IndexedZipEntry> entries) {
+        }
+    };
+
+    /**
+     * Returns the regular file entries of the given zip file in the order they appear in the zip file,
+     * or {@code null} if the zip file has not been indexed.
+     */
+    @Nullable
+    List<IndexedZipEntry> getIndexedEntries(RegularFileSnapshot zipFile);
+
+    /**
+     * Remembers the regular file entries of the given zip file.
+     */
+    void indexEntries(RegularFileSnapshot zipFile, List<IndexedZipEntry> entries);
+}
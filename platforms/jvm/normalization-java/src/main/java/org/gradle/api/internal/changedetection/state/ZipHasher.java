@@ -57,19 +57,26 @@ public static boolean isZipFile(final String name) {
     }
 
     private final ResourceHasher resourceHasher;
+    private final ZipContentIndex zipContentIndex;
     private final ZipHasher fallbackZipHasher;
     private final HashingExceptionReporter hashingExceptionReporter;
 
     public ZipHasher(ResourceHasher resourceHasher) {
+        this(resourceHasher, ZipContentIndex.NONE);
+    }
+
+    public ZipHasher(ResourceHasher resourceHasher, ZipContentIndex zipContentIndex) {
         this(
             resourceHasher,
+            zipContentIndex,
             null,
             (s, e) -> LOGGER.debug("Malformed archive '{}'. Falling back to full content hash instead of entry hashing.", s.getName(), e)
         );
     }
 
-    public ZipHasher(ResourceHasher resourceHasher, @Nullable ZipHasher fallbackZipHasher, HashingExceptionReporter hashingExceptionReporter) {
+    public ZipHasher(ResourceHasher resourceHasher, ZipContentIndex zipContentIndex, @Nullable ZipHasher fallbackZipHasher, HashingExceptionReporter hashingExceptionReporter) {
         this.resourceHasher = resourceHasher;
+        this.zipContentIndex = zipContentIndex;
         this.fallbackZipHasher = fallbackZipHasher;
         this.hashingExceptionReporter = hashingExceptionReporter;
     }
@@ -89,7 +96,7 @@ public void appendConfigurationToHasher(Hasher hasher) {
     @Nullable
     private HashCode hashZipContents(RegularFileSnapshot zipFileSnapshot) {
         try {
-            List<FileSystemLocationFingerprint> fingerprints = fingerprintZipEntries(zipFileSnapshot.getAbsolutePath());
+            List<FileSystemLocationFingerprint> fingerprints = fingerprintZipEntries(zipFileSnapshot);
             if (fingerprints.isEmpty()) {
                 return null;
             }
@@ -105,12 +112,28 @@ private HashCode hashZipContents(RegularFileSnapshot zipFileSnapshot) {
         }
     }
 
-    private List<FileSystemLocationFingerprint> fingerprintZipEntries(String zipFile) throws IOException {
-        try (ZipInput input = FileZipInput.create(new File(zipFile))) {
-            List<FileSystemLocationFingerprint> fingerprints = new ArrayList<>();
-            fingerprintZipEntries("", zipFile, fingerprints, input);
-            return fingerprints;
+    private List<FileSystemLocationFingerprint> fingerprintZipEntries(RegularFileSnapshot zipFileSnapshot) throws IOException {
+        String zipFile = zipFileSnapshot.getAbsolutePath();
+        List<FileSystemLocationFingerprint> fingerprints = new ArrayList<>();
+        List<IndexedZipEntry> indexedEntries = zipContentIndex.getIndexedEntries(zipFileSnapshot);
+        if (indexedEntries != null) {
+            try (ZipInput input = new IndexedZipInput(new File(zipFile), indexedEntries)) {
+                fingerprintZipEntries("", zipFile, fingerprints, input);
+            }
+        } else if (zipContentIndex != ZipContentIndex.NONE) {
+            try (IndexingZipInput input = new IndexingZipInput(FileZipInput.create(new File(zipFile)))) {
+                fingerprintZipEntries("", zipFile, fingerprints, input);
+                List<IndexedZipEntry> entries = input.getIndexedEntries();
+                if (entries != null) {
+                    zipContentIndex.indexEntries(zipFileSnapshot, entries);
+                }
+            }
+        } else {
+            try (ZipInput input = FileZipInput.create(new File(zipFile))) {
+                fingerprintZipEntries("", zipFile, fingerprints, input);
+            }
         }
+        return fingerprints;
     }
 
     private void fingerprintZipEntries(String parentName, String rootParentName, List<FileSystemLocationFingerprint> fingerprints, ZipInput input) throws IOException {
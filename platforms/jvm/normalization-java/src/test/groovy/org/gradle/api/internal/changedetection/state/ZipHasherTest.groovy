@@ -21,6 +21,7 @@ import org.gradle.internal.file.FileMetadata.AccessType
 import org.gradle.internal.file.impl.DefaultFileMetadata
 import org.gradle.internal.fingerprint.hashing.RegularFileSnapshotContext
 import org.gradle.internal.fingerprint.hashing.ResourceHasher
+import org.gradle.internal.hash.HashCode
 import org.gradle.internal.hash.TestHashCodes
 import org.gradle.internal.snapshot.RegularFileSnapshot
 import org.gradle.test.fixtures.file.TestFile
@@ -148,6 +149,65 @@ class ZipHasherTest extends Specification {
         hash1 == hash2
     }
 
+    def "hashes zip entries from the index when the zip file has been indexed"() {
+        given:
+        def index = new InMemoryZipContentIndex()
+        def indexingZipHasher = new ZipHasher(resourceHasher(ResourceEntryFilter.FILTER_NOTHING, ResourceEntryFilter.FILTER_NOTHING), index)
+        def jarfile = tmpDir.file("test.jar")
+        createJarWithBuildInfo(jarfile, ["implementation-version": "1.0.0"])
+        def context = snapshotContext(jarfile, TestHashCodes.hashCodeFrom(1))
+
+        when:
+        def indexingHash = indexingZipHasher.hash(context)
+
+        then:
+        indexingHash == zipHasher.hash(context)
+        index.entries.keySet() == [TestHashCodes.hashCodeFrom(1)] as Set
+        index.entries.values()*.name == [["META-INF/MANIFEST.MF", "META-INF/build-info.properties"]]
+
+        when:
+        def indexedHash = indexingZipHasher.hash(context)
+
+        then:
+        indexedHash == indexingHash
+    }
+
+    def "does not open indexed zip file when the hash of the entries is enough"() {
+        given:
+        def index = new InMemoryZipContentIndex()
+        def indexingZipHasher = new ZipHasher(new RuntimeClasspathResourceHasher(), index)
+        def jarfile = tmpDir.file("test.jar")
+        createJarWithBuildInfo(jarfile, ["implementation-version": "1.0.0"])
+        def context = snapshotContext(jarfile, TestHashCodes.hashCodeFrom(1))
+        def hash = indexingZipHasher.hash(context)
+
+        when:
+        jarfile.delete()
+
+        then:
+        indexingZipHasher.hash(context) == hash
+    }
+
+    def "does not index zip files containing nested zip files"() {
+        given:
+        def index = new InMemoryZipContentIndex()
+        def indexingZipHasher = new ZipHasher(resourceHasher(ResourceEntryFilter.FILTER_NOTHING, ResourceEntryFilter.FILTER_NOTHING), index)
+        def outerContent = tmpDir.createDir("outer")
+        def innerContent = tmpDir.createDir("inner")
+        innerContent.file("foo") << "Foo"
+        innerContent.zipTo(outerContent.file("inner.jar"))
+        def outer = tmpDir.file("outer.jar")
+        outerContent.zipTo(outer)
+        def context = snapshotContext(outer, TestHashCodes.hashCodeFrom(1))
+
+        when:
+        def hash = indexingZipHasher.hash(context)
+
+        then:
+        hash == zipHasher.hash(context)
+        index.entries.isEmpty()
+    }
+
     def createJarWithAttributes(TestFile jarfile, Map<String, String> attributes) {
         def manifest = new Manifest()
         def mainAttributes = manifest.getMainAttributes()
@@ -175,7 +235,21 @@ class ZipHasherTest extends Specification {
         jarOutput.close()
     }
 
-    private static RegularFileSnapshotContext snapshotContext(TestFile file) {
-        return new DefaultRegularFileSnapshotContext({ }, new RegularFileSnapshot(file.path, file.name, TestHashCodes.hashCodeFrom(0), DefaultFileMetadata.file(0, 0, AccessType.DIRECT)))
+    private static RegularFileSnapshotContext snapshotContext(TestFile file, HashCode hash = TestHashCodes.hashCodeFrom(0)) {
+        return new DefaultRegularFileSnapshotContext({ }, new RegularFileSnapshot(file.path, file.name, hash, DefaultFileMetadata.file(0, 0, AccessType.DIRECT)))
+    }
+
+    private static class InMemoryZipContentIndex implements ZipContentIndex {
+        final Map<HashCode, List<IndexedZipEntry>> entries = [:]
+
+        @Override
+        List<IndexedZipEntry> getIndexedEntries(RegularFileSnapshot zipFile) {
+            return entries[zipFile.hash]
+        }
+
+        @Override
+        void indexEntries(RegularFileSnapshot zipFile, List<IndexedZipEntry> entries) {
+            this.entries[zipFile.hash] = entries
+        }
     }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.configuration;
+
+import org.gradle.api.Incubating;
+
+/**
+ * The compression used for the entries a build stores in the build cache.
+ *
+ * @see BuildCacheConfiguration#getCompression()
+ * @since 8.12
+ */
+@Incubating
+public enum BuildCacheCompression {
+    /**
+     * GZIP compression. Entries can be loaded by all Gradle versions.
+     */
+    GZIP,
+
+    /**
+     * LZ4 compression. Packs and unpacks entries considerably faster than GZIP, at the cost of larger entries.
+     * Entries compressed with LZ4 cannot be loaded by Gradle versions older than 8.12.
+     */
+    LZ4
+}
@@ -17,6 +17,8 @@
 package org.gradle.caching.configuration;
 
 import org.gradle.api.Action;
+import org.gradle.api.Incubating;
+import org.gradle.api.provider.Property;
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.internal.HasInternalProtocol;
@@ -39,6 +41,21 @@ public interface BuildCacheConfiguration {
      */
     <T extends BuildCache> void registerBuildCacheService(Class<T> configurationType, Class<? extends BuildCacheServiceFactory<? super T>> buildCacheServiceFactoryType);
 
+    /**
+     * The compression used for the entries this build stores in the build cache.
+     * <p>
+     * Defaults to {@link BuildCacheCompression#GZIP}.
+     * {@link BuildCacheCompression#LZ4} packs and unpacks entries considerably faster than GZIP, at the cost of larger entries.
+     * </p>
+     * <p>
+     * Entries are always unpacked according to the compression they have been stored with, so changing the compression does not invalidate existing entries.
+     * </p>
+     *
+     * @since 8.12
+     */
+    @Incubating
+    Property<BuildCacheCompression> getCompression();
+
     /**
      * Returns the local directory cache configuration.
      */
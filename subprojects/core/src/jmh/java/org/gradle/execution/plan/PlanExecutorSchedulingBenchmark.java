@@ -0,0 +1,178 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.initialization.DefaultBuildCancellationToken;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+import org.gradle.internal.work.DefaultWorkerLeaseService;
+import org.gradle.internal.work.DefaultWorkerLimits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the scheduling overhead per node of {@link DefaultPlanExecutor}, by executing a plan of nodes that do no work.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class PlanExecutorSchedulingBenchmark {
+    private static final int NODES = 20000;
+
+    @Param({"4", "16", "64"})
+    int workers;
+
+    @Param({"false", "true"})
+    boolean targetedWakeups;
+
+    private DefaultResourceLockCoordinationService coordinationService;
+    private DefaultWorkerLeaseService workerLeaseService;
+    private DefaultExecutorFactory executorFactory;
+    private DefaultPlanExecutor planExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        coordinationService = new DefaultResourceLockCoordinationService();
+        workerLeaseService = new DefaultWorkerLeaseService(coordinationService, new DefaultWorkerLimits(workers));
+        executorFactory = new DefaultExecutorFactory();
+        DefaultInternalOptions internalOptions = new DefaultInternalOptions(Collections.singletonMap(DefaultPlanExecutor.TARGETED_WAKEUPS.getSystemPropertyName(), String.valueOf(targetedWakeups)));
+        planExecutor = new DefaultPlanExecutor(
+            new DefaultWorkerLimits(workers),
+            executorFactory,
+            workerLeaseService,
+            new DefaultBuildCancellationToken(),
+            coordinationService,
+            internalOptions,
+            new SpeculativeWorkQueue(internalOptions)
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        planExecutor.stop();
+        executorFactory.stop();
+        workerLeaseService.stop();
+        coordinationService.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public void executeNodes() {
+        workerLeaseService.runAsWorkerThread(() -> planExecutor.process(new TreeWorkSource(NODES, 4), node -> {
+        }).rethrow());
+    }
+
+    /**
+     * A tree of nodes, where each node can start once its parent has finished.
+     */
+    private static class TreeWorkSource implements WorkSource<Integer> {
+        private final int nodeCount;
+        private final int fanOut;
+        private final Deque<Integer> readyNodes = new ArrayDeque<>();
+        private int startedCount;
+        private int finishedCount;
+        private Throwable failure;
+
+        TreeWorkSource(int nodeCount, int fanOut) {
+            this.nodeCount = nodeCount;
+            this.fanOut = fanOut;
+            readyNodes.add(0);
+        }
+
+        @Override
+        public State executionState() {
+            if (startedCount == nodeCount) {
+                return State.NoMoreWorkToStart;
+            }
+            return readyNodes.isEmpty() ? State.NoWorkReadyToStart : State.MaybeWorkReadyToStart;
+        }
+
+        @Override
+        public Selection<Integer> selectNext() {
+            if (startedCount == nodeCount) {
+                return Selection.noMoreWorkToStart();
+            }
+            Integer node = readyNodes.poll();
+            if (node == null) {
+                return Selection.noWorkReadyToStart();
+            }
+            startedCount++;
+            return Selection.of(node);
+        }
+
+        @Override
+        public void finishedExecuting(Integer node, @Nullable Throwable failure) {
+            finishedCount++;
+            for (int child = node * fanOut + 1; child <= node * fanOut + fanOut && child < nodeCount; child++) {
+                readyNodes.add(child);
+            }
+        }
+
+        @Override
+        public void abortAllAndFail(Throwable t) {
+            failure = t;
+            startedCount = nodeCount;
+            finishedCount = nodeCount;
+            readyNodes.clear();
+        }
+
+        @Override
+        public void cancelExecution() {
+        }
+
+        @Override
+        public boolean allExecutionComplete() {
+            return finishedCount == nodeCount;
+        }
+
+        @Override
+        public void collectFailures(Collection<? super Throwable> failures) {
+            if (failure != null) {
+                failures.add(failure);
+            }
+        }
+
+        @Override
+        public Diagnostics healthDiagnostics() {
+            return new Diagnostics("tree of " + nodeCount + " nodes", Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        }
+    }
+}
@@ -22,8 +22,11 @@
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
 import org.gradle.cache.scopes.ScopedCacheBuilderFactory;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
 
 import java.io.Closeable;
+import java.util.Locale;
 
 public class CrossBuildFileHashCache implements Closeable {
 
@@ -31,8 +34,12 @@ public class CrossBuildFileHashCache implements Closeable {
     private final InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory;
 
     public CrossBuildFileHashCache(ScopedCacheBuilderFactory cacheBuilderFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, Kind cacheKind) {
+        this(cacheBuilderFactory, inMemoryCacheDecoratorFactory, cacheKind, Hashing.defaultFunction());
+    }
+
+    public CrossBuildFileHashCache(ScopedCacheBuilderFactory cacheBuilderFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, Kind cacheKind, HashFunction contentHashFunction) {
         this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
-        cache = cacheBuilderFactory.createCacheBuilder(cacheKind.cacheId)
+        cache = cacheBuilderFactory.createCacheBuilder(cacheIdFor(cacheKind.cacheId, contentHashFunction))
             .withDisplayName(cacheKind.description)
             .withInitialLockMode(FileLockManager.LockMode.OnDemand)
             .open();
@@ -49,6 +56,19 @@ public void close() {
         cache.close();
     }
 
+    /**
+     * Returns the id of a cache storing content hashes created by the given hash function.
+     * <p>
+     * Caches for the default hash function keep their plain id, so existing caches stay valid.
+     * Caches for any other hash function get a separate id, so hashes of different functions never end up in the same cache.
+     */
+    public static String cacheIdFor(String cacheId, HashFunction contentHashFunction) {
+        if (contentHashFunction.equals(Hashing.defaultFunction())) {
+            return cacheId;
+        }
+        return cacheId + "-" + contentHashFunction.getAlgorithm().toLowerCase(Locale.ROOT);
+    }
+
     public enum Kind {
         FILE_HASHES("fileHashes", "file hash cache"),
         CHECKSUMS("checksums", "checksums cache");
@@ -19,6 +19,8 @@
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.scopes.ScopedCacheBuilderFactory;
 import org.gradle.internal.execution.history.ExecutionHistoryCacheAccess;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
 
 import java.io.Closeable;
 
@@ -26,8 +28,12 @@ public class DefaultExecutionHistoryCacheAccess implements ExecutionHistoryCache
     private final PersistentCache cache;
 
     public DefaultExecutionHistoryCacheAccess(ScopedCacheBuilderFactory cacheBuilderFactory) {
+        this(cacheBuilderFactory, Hashing.defaultFunction());
+    }
+
+    public DefaultExecutionHistoryCacheAccess(ScopedCacheBuilderFactory cacheBuilderFactory, HashFunction contentHashFunction) {
         this.cache = cacheBuilderFactory
-            .createCacheBuilder("executionHistory")
+            .createCacheBuilder(CrossBuildFileHashCache.cacheIdFor("executionHistory", contentHashFunction))
             .withDisplayName("execution history cache")
             .withInitialLockMode(FileLockManager.LockMode.OnDemand)
             .open();
@@ -24,17 +24,26 @@
 import org.gradle.internal.hash.Hasher;
 import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.io.IoSupplier;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DefaultResourceSnapshotterCacheService implements ResourceSnapshotterCacheService {
     private static final HashCode NO_HASH = Hashing.signature(CachingResourceHasher.class.getName() + " : no hash");
     private final IndexedCache<HashCode, HashCode> indexedCache;
+    private final IndexedCache<HashCode, List<IndexedZipEntry>> zipContentIndexCache;
 
-    public DefaultResourceSnapshotterCacheService(IndexedCache<HashCode, HashCode> indexedCache) {
+    public DefaultResourceSnapshotterCacheService(IndexedCache<HashCode, HashCode> indexedCache, IndexedCache<HashCode, List<IndexedZipEntry>> zipContentIndexCache) {
         this.indexedCache = indexedCache;
+        this.zipContentIndexCache = zipContentIndexCache;
     }
 
     @Nullable
@@ -71,10 +80,46 @@ private HashCode hashFile(FileSystemLocationSnapshot snapshot, IoSupplier<HashCo
         return resourceHash;
     }
 
+    @Nullable
+    @Override
+    public List<IndexedZipEntry> getIndexedEntries(RegularFileSnapshot zipFile) {
+        return zipContentIndexCache.getIfPresent(zipFile.getHash());
+    }
+
+    @Override
+    public void indexEntries(RegularFileSnapshot zipFile, List<IndexedZipEntry> entries) {
+        zipContentIndexCache.put(zipFile.getHash(), entries);
+    }
+
     private static HashCode resourceHashCacheKey(HashCode contentHash, HashCode configurationHash) {
         Hasher hasher = Hashing.newHasher();
         hasher.putHash(configurationHash);
         hasher.putHash(contentHash);
         return hasher.hash();
     }
+
+    public static class IndexedZipEntriesSerializer extends AbstractSerializer<List<IndexedZipEntry>> {
+        private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
+
+        @Override
+        public List<IndexedZipEntry> read(Decoder decoder) throws IOException {
+            int count = decoder.readSmallInt();
+            List<IndexedZipEntry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = decoder.readString();
+                HashCode contentHash = hashCodeSerializer.read(decoder);
+                entries.add(new IndexedZipEntry(name, contentHash));
+            }
+            return entries;
+        }
+
+        @Override
+        public void write(Encoder encoder, List<IndexedZipEntry> entries) throws IOException {
+            encoder.writeSmallInt(entries.size());
+            for (IndexedZipEntry entry : entries) {
+                encoder.writeString(entry.getName());
+                hashCodeSerializer.write(encoder, entry.getContentHash());
+            }
+        }
+    }
 }
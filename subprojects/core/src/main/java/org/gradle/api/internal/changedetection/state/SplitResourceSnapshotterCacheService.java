@@ -22,9 +22,11 @@
 import org.gradle.internal.fingerprint.hashing.RegularFileSnapshotContext;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * A {@link ResourceSnapshotterCacheService} that delegates to the global service for immutable files
@@ -59,4 +61,23 @@ public HashCode hashFile(RegularFileSnapshotContext fileSnapshotContext, Regular
             return localCache.hashFile(fileSnapshotContext, hasher, configurationHash);
         }
     }
+
+    @Nullable
+    @Override
+    public List<IndexedZipEntry> getIndexedEntries(RegularFileSnapshot zipFile) {
+        if (globalCacheLocations.isInsideGlobalCache(zipFile.getAbsolutePath())) {
+            return globalCache.getIndexedEntries(zipFile);
+        } else {
+            return localCache.getIndexedEntries(zipFile);
+        }
+    }
+
+    @Override
+    public void indexEntries(RegularFileSnapshot zipFile, List<IndexedZipEntry> entries) {
+        if (globalCacheLocations.isInsideGlobalCache(zipFile.getAbsolutePath())) {
+            globalCache.indexEntries(zipFile, entries);
+        } else {
+            localCache.indexEntries(zipFile, entries);
+        }
+    }
 }
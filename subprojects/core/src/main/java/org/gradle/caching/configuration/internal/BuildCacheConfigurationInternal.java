@@ -19,6 +19,7 @@
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.configuration.BuildCache;
 import org.gradle.caching.configuration.BuildCacheConfiguration;
+import org.gradle.caching.internal.packaging.BuildCacheEntryCompression;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.internal.service.scopes.Scope;
 import org.gradle.internal.service.scopes.ServiceScope;
@@ -33,6 +34,11 @@ public interface BuildCacheConfigurationInternal extends BuildCacheConfiguration
      */
     <T extends BuildCache> Class<? extends BuildCacheServiceFactory<T>> getBuildCacheServiceFactoryType(Class<T> configurationType);
 
+    /**
+     * The compression to use for packing entries.
+     */
+    BuildCacheEntryCompression getEntryCompression();
+
     /**
      * Replaces local directory build cache.
      */
@@ -20,8 +20,12 @@
 import com.google.common.collect.Sets;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.internal.provider.PropertyFactory;
+import org.gradle.api.provider.Property;
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.configuration.BuildCache;
+import org.gradle.caching.configuration.BuildCacheCompression;
+import org.gradle.caching.internal.packaging.BuildCacheEntryCompression;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.internal.Actions;
 import org.gradle.internal.Cast;
@@ -40,15 +44,34 @@ public class DefaultBuildCacheConfiguration implements BuildCacheConfigurationIn
 
     private DirectoryBuildCache local;
     private BuildCache remote;
+    private final Property<BuildCacheCompression> compression;
 
     private Set<BuildCacheServiceRegistration> registrations;
 
-    public DefaultBuildCacheConfiguration(Instantiator instantiator, List<BuildCacheServiceRegistration> allBuiltInBuildCacheServices) {
+    public DefaultBuildCacheConfiguration(Instantiator instantiator, PropertyFactory propertyFactory, List<BuildCacheServiceRegistration> allBuiltInBuildCacheServices) {
         this.instantiator = instantiator;
+        this.compression = propertyFactory.property(BuildCacheCompression.class).convention(BuildCacheCompression.GZIP);
         this.registrations = Sets.newHashSet(allBuiltInBuildCacheServices);
         this.local = createLocalCacheConfiguration(instantiator, registrations);
     }
 
+    @Override
+    public Property<BuildCacheCompression> getCompression() {
+        return compression;
+    }
+
+    @Override
+    public BuildCacheEntryCompression getEntryCompression() {
+        switch (compression.get()) {
+            case GZIP:
+                return BuildCacheEntryCompression.GZIP;
+            case LZ4:
+                return BuildCacheEntryCompression.LZ4;
+            default:
+                throw new IllegalStateException("Unknown build cache compression " + compression.get());
+        }
+    }
+
     @Override
     public DirectoryBuildCache getLocal() {
         return local;
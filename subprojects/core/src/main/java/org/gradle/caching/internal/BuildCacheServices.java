@@ -19,6 +19,7 @@
 import org.gradle.api.internal.StartParameterInternal;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.file.temp.TemporaryFileProvider;
+import org.gradle.api.internal.provider.PropertyFactory;
 import org.gradle.caching.configuration.internal.BuildCacheConfigurationInternal;
 import org.gradle.caching.configuration.internal.BuildCacheServiceRegistration;
 import org.gradle.caching.configuration.internal.DefaultBuildCacheConfiguration;
@@ -29,15 +30,16 @@
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.DefaultTarPackerFileSystemSupport;
 import org.gradle.caching.internal.packaging.impl.FilePermissionAccess;
-import org.gradle.caching.internal.packaging.impl.GZipBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarPackerFileSystemSupport;
 import org.gradle.caching.internal.services.BuildCacheControllerFactory;
 import org.gradle.caching.internal.services.DefaultBuildCacheControllerFactory;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.caching.local.internal.DirectoryBuildCacheServiceFactory;
+import org.gradle.caching.local.internal.InMemoryBuildCacheEntriesRegistry;
 import org.gradle.internal.build.BuildState;
 import org.gradle.internal.build.RootBuildState;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.file.BufferProvider;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.file.FileException;
@@ -59,6 +61,7 @@
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Build scoped services for build cache usage.
@@ -72,6 +75,11 @@ BufferProvider createBufferProvider() {
                 // TODO Make buffer size configurable
                 return new ThreadLocalBufferProvider(64 * 1024);
             }
+
+            @Provides
+            InMemoryBuildCacheEntriesRegistry createInMemoryBuildCacheEntriesRegistry() {
+                return InMemoryBuildCacheEntriesRegistry.fromSystemProperties();
+            }
         });
     }
 
@@ -105,12 +113,13 @@ public void registerBuildServices(ServiceRegistration registration) {
             BuildCacheConfigurationInternal createBuildCacheConfiguration(
                 Instantiator instantiator,
                 InstantiatorFactory instantiatorFactory,
+                PropertyFactory propertyFactory,
                 ServiceRegistry services,
                 List<BuildCacheServiceRegistration> allBuildCacheServiceFactories
             ) {
                 // We need to create an instantiator that has access to ObjectFactory
                 Instantiator buildScopedInstantiator = instantiatorFactory.decorate(services);
-                return instantiator.newInstance(DefaultBuildCacheConfiguration.class, buildScopedInstantiator, allBuildCacheServiceFactories);
+                return instantiator.newInstance(DefaultBuildCacheConfiguration.class, buildScopedInstantiator, propertyFactory, allBuildCacheServiceFactories);
             }
 
             @Provides
@@ -123,16 +132,23 @@ TarPackerFileSystemSupport createPackerFileSystemSupport(Deleter deleter) {
                 return new DefaultTarPackerFileSystemSupport(deleter);
             }
 
+            /**
+             * Packs entries into an uncompressed archive, the compression is chosen per build cache configuration.
+             */
             @Provides
             BuildCacheEntryPacker createResultPacker(
                 TarPackerFileSystemSupport fileSystemSupport,
                 FileSystem fileSystem,
                 StreamHasher fileHasher,
                 StringInterner stringInterner,
-                BufferProvider bufferProvider
+                BufferProvider bufferProvider,
+                ExecutorFactory executorFactory
             ) {
-                return new GZipBuildCacheEntryPacker(
-                    new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner, bufferProvider));
+                int unpackWriterThreads = TarBuildCacheEntryPacker.unpackWriterThreadsFromSystemProperties();
+                ExecutorService unpackExecutor = unpackWriterThreads > 1
+                    ? executorFactory.create("Build cache entry unpacking", unpackWriterThreads)
+                    : null;
+                return new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner, bufferProvider, unpackExecutor);
             }
 
             @Provides
@@ -159,7 +175,8 @@ BuildCacheControllerFactory createBuildCacheControllerFactory(
                 TemporaryFileProvider temporaryFileProvider,
                 BuildCacheEntryPacker packer,
                 OriginMetadataFactory originMetadataFactory,
-                StringInterner stringInterner
+                StringInterner stringInterner,
+                ExecutorFactory executorFactory
             ) {
                 return new DefaultBuildCacheControllerFactory(
                     startParameter,
@@ -168,7 +185,8 @@ BuildCacheControllerFactory createBuildCacheControllerFactory(
                     originMetadataFactory,
                     stringInterner,
                     temporaryFileProvider,
-                    packer
+                    packer,
+                    executorFactory
                 );
             }
         });
@@ -30,6 +30,7 @@
 import org.gradle.caching.internal.controller.NoOpBuildCacheController;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
+import org.gradle.caching.internal.packaging.BuildCacheEntryCompression;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.internal.Cast;
 import org.gradle.internal.instantiation.InstanceGenerator;
@@ -78,7 +79,8 @@ public AbstractBuildCacheControllerFactory(
     abstract protected BuildCacheController doCreateController(
         Path buildIdentityPath,
         @Nullable DescribedBuildCacheService<DirectoryBuildCache, L> localDescribedService,
-        @Nullable DescribedBuildCacheService<BuildCache, BuildCacheService> remoteDescribedService
+        @Nullable DescribedBuildCacheService<BuildCache, BuildCacheService> remoteDescribedService,
+        BuildCacheEntryCompression compression
     );
 
     @Override
@@ -125,7 +127,7 @@ public BuildCacheController call(BuildOperationContext context) {
                     LOGGER.warn("Using the build cache is enabled, but no build caches are configured or enabled.");
                     return NoOpBuildCacheController.INSTANCE;
                 } else {
-                    return doCreateController(buildIdentityPath, localDescribedService, remoteDescribedService);
+                    return doCreateController(buildIdentityPath, localDescribedService, remoteDescribedService, buildCacheConfiguration.getEntryCompression());
                 }
             }
 
@@ -26,6 +26,8 @@
 @ServiceScope(Scope.Build.class)
 public interface BuildCacheControllerFactory {
     String REMOTE_CONTINUE_ON_ERROR_PROPERTY = "org.gradle.unsafe.build-cache.remote-continue-on-error";
+    String REMOTE_ASYNC_STORE_PROPERTY = "org.gradle.unsafe.build-cache.remote-async-store";
+    String REMOTE_ASYNC_STORE_DEADLINE_PROPERTY = "org.gradle.unsafe.build-cache.remote-async-store-deadline";
 
     BuildCacheController createController(Path buildIdentityPath, BuildCacheConfigurationInternal buildCacheConfiguration, InstanceGenerator instanceGenerator);
 }
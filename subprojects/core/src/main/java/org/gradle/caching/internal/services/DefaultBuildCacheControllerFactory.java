@@ -26,20 +26,27 @@
 import org.gradle.caching.internal.controller.DefaultBuildCacheController;
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
+import org.gradle.caching.internal.packaging.BuildCacheEntryCompression;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.CompressingBuildCacheEntryPacker;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.caching.local.internal.DirectoryBuildCacheService;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.util.Path;
 
 import javax.annotation.Nullable;
+import java.time.Duration;
 
 public class DefaultBuildCacheControllerFactory extends AbstractBuildCacheControllerFactory<DirectoryBuildCacheService> {
 
+    private static final long DEFAULT_REMOTE_ASYNC_STORE_DEADLINE_SECONDS = 60;
+
     private final TemporaryFileProvider temporaryFileProvider;
-    private final BuildCacheEntryPacker packer;
+    private final BuildCacheEntryPacker archivePacker;
     private final BuildOperationProgressEventEmitter buildOperationProgressEmitter;
+    private final ExecutorFactory executorFactory;
 
     public DefaultBuildCacheControllerFactory(
         StartParameter startParameter,
@@ -48,7 +55,8 @@ public DefaultBuildCacheControllerFactory(
         OriginMetadataFactory originMetadataFactory,
         StringInterner stringInterner,
         TemporaryFileProvider temporaryFileProvider,
-        BuildCacheEntryPacker packer
+        BuildCacheEntryPacker archivePacker,
+        ExecutorFactory executorFactory
     ) {
         super(
             startParameter,
@@ -57,15 +65,17 @@ public DefaultBuildCacheControllerFactory(
             stringInterner
         );
         this.temporaryFileProvider = temporaryFileProvider;
-        this.packer = packer;
+        this.archivePacker = archivePacker;
         this.buildOperationProgressEmitter = buildOperationProgressEmitter;
+        this.executorFactory = executorFactory;
     }
 
     @Override
     protected BuildCacheController doCreateController(
         Path buildPath,
         @Nullable DescribedBuildCacheService<DirectoryBuildCache, DirectoryBuildCacheService> localDescribedService,
-        @Nullable DescribedBuildCacheService<BuildCache, BuildCacheService> remoteDescribedService
+        @Nullable DescribedBuildCacheService<BuildCache, BuildCacheService> remoteDescribedService,
+        BuildCacheEntryCompression compression
     ) {
         BuildCacheServicesConfiguration config = toConfiguration(
             buildPath,
@@ -82,12 +92,26 @@ protected BuildCacheController doCreateController(
             temporaryFileProvider::createTemporaryFile,
             logStackTraces,
             !Boolean.getBoolean(REMOTE_CONTINUE_ON_ERROR_PROPERTY),
-            packer,
+            new CompressingBuildCacheEntryPacker(archivePacker, compression),
             originMetadataFactory,
-            stringInterner
+            stringInterner,
+            executorFactory,
+            remoteStoreDeadline()
         );
     }
 
+    /**
+     * Returns how long to wait for entries stored in the remote cache in the background at the end of the build,
+     * or {@code null} when entries are stored synchronously.
+     */
+    @Nullable
+    private static Duration remoteStoreDeadline() {
+        if (!Boolean.getBoolean(REMOTE_ASYNC_STORE_PROPERTY)) {
+            return null;
+        }
+        return Duration.ofSeconds(Long.getLong(REMOTE_ASYNC_STORE_DEADLINE_PROPERTY, DEFAULT_REMOTE_ASYNC_STORE_DEADLINE_SECONDS));
+    }
+
     private static BuildCacheServicesConfiguration toConfiguration(
         Path buildPath,
         @Nullable DescribedBuildCacheService<DirectoryBuildCache, DirectoryBuildCacheService> local,
@@ -21,12 +21,15 @@
 import org.gradle.cache.CacheCleanupStrategy;
 import org.gradle.cache.CacheCleanupStrategyFactory;
 import org.gradle.cache.PersistentCache;
+import org.gradle.cache.CleanupAction;
 import org.gradle.cache.UnscopedCacheBuilderFactory;
+import org.gradle.cache.internal.CompositeCleanupAction;
 import org.gradle.cache.internal.LeastRecentlyUsedCacheCleanup;
 import org.gradle.cache.internal.SingleDepthFilesFinder;
 import org.gradle.cache.scopes.GlobalScopedCacheBuilderFactory;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.BuildCacheServiceFactory;
+import org.gradle.caching.internal.packaging.impl.TarBuildCacheEntryDeduplicator;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.internal.file.FileAccessTimeJournal;
 import org.gradle.internal.file.FileAccessTracker;
@@ -41,11 +44,16 @@
 
 public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFactory<DirectoryBuildCache> {
     public static final String FAILED_READ_SUFFIX = ".failed";
+    public static final String DEDUPLICATE_PROPERTY = "org.gradle.caching.local.deduplicate";
 
     private static final String BUILD_CACHE_VERSION = "1";
     private static final String BUILD_CACHE_KEY = "build-cache-" + BUILD_CACHE_VERSION;
     private static final String DIRECTORY_BUILD_CACHE_TYPE = "directory";
     private static final int FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP = 1;
+    private static final String BLOB_DIRECTORY_NAME = "blobs";
+    private static final int BLOB_TREE_DEPTH_TO_TRACK_AND_CLEANUP = 2;
+    // Smaller files are kept in the manifest, storing them separately would cost more than it saves
+    private static final long MIN_BLOB_SIZE = 64 * 1024;
 
     private final UnscopedCacheBuilderFactory unscopedCacheBuilderFactory;
     private final GlobalScopedCacheBuilderFactory cacheBuilderFactory;
@@ -53,6 +61,7 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
     private final FileAccessTimeJournal fileAccessTimeJournal;
     private final CacheConfigurationsInternal cacheConfigurations;
     private final CacheCleanupStrategyFactory cacheCleanupStrategyFactory;
+    private final InMemoryBuildCacheEntriesRegistry inMemoryEntriesRegistry;
 
     @Inject
     public DirectoryBuildCacheServiceFactory(
@@ -61,7 +70,8 @@ public DirectoryBuildCacheServiceFactory(
         PathToFileResolver resolver,
         FileAccessTimeJournal fileAccessTimeJournal,
         CacheConfigurationsInternal cacheConfigurations,
-        CacheCleanupStrategyFactory cacheCleanupStrategyFactory
+        CacheCleanupStrategyFactory cacheCleanupStrategyFactory,
+        InMemoryBuildCacheEntriesRegistry inMemoryEntriesRegistry
     ) {
         this.unscopedCacheBuilderFactory = unscopedCacheBuilderFactory;
         this.cacheBuilderFactory = cacheBuilderFactory;
@@ -69,6 +79,7 @@ public DirectoryBuildCacheServiceFactory(
         this.fileAccessTimeJournal = fileAccessTimeJournal;
         this.cacheConfigurations = cacheConfigurations;
         this.cacheCleanupStrategyFactory = cacheCleanupStrategyFactory;
+        this.inMemoryEntriesRegistry = inMemoryEntriesRegistry;
     }
 
     @Override
@@ -82,6 +93,7 @@ public BuildCacheService createBuildCacheService(DirectoryBuildCache buildCacheC
         }
         checkDirectory(target);
 
+        File blobDirectory = new File(target, BLOB_DIRECTORY_NAME);
         DirectoryBuildCacheEntryRetention entryExpiration = new DirectoryBuildCacheEntryRetention(buildCacheConfig, cacheConfigurations);
 
         describer.type(DIRECTORY_BUILD_CACHE_TYPE).
@@ -90,24 +102,45 @@ public BuildCacheService createBuildCacheService(DirectoryBuildCache buildCacheC
 
         PersistentCache persistentCache = unscopedCacheBuilderFactory
             .cache(target)
-            .withCleanupStrategy(createCacheCleanupStrategy(entryExpiration.getEntryRetentionTimestampSupplier()))
+            .withCleanupStrategy(createCacheCleanupStrategy(blobDirectory, entryExpiration.getEntryRetentionTimestampSupplier()))
             .withDisplayName("Build cache")
             .withInitialLockMode(OnDemand)
             .open();
         FileAccessTracker fileAccessTracker = new SingleDepthFileAccessTracker(fileAccessTimeJournal, target, FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
 
-        return new DirectoryBuildCacheService(persistentCache, fileAccessTracker, FAILED_READ_SUFFIX);
+        ContentAddressedEntryStore contentAddressedStore = Boolean.getBoolean(DEDUPLICATE_PROPERTY)
+            ? new ContentAddressedEntryStore(
+                blobDirectory,
+                new SingleDepthFileAccessTracker(fileAccessTimeJournal, blobDirectory, BLOB_TREE_DEPTH_TO_TRACK_AND_CLEANUP),
+                new TarBuildCacheEntryDeduplicator(MIN_BLOB_SIZE)
+            )
+            : null;
+
+        return new DirectoryBuildCacheService(persistentCache, fileAccessTracker, FAILED_READ_SUFFIX, inMemoryEntriesRegistry.forDirectory(target), contentAddressedStore);
     }
 
-    private CacheCleanupStrategy createCacheCleanupStrategy(Supplier<Long> removeUnusedEntriesTimestamp) {
+    private CacheCleanupStrategy createCacheCleanupStrategy(File blobDirectory, Supplier<Long> removeUnusedEntriesTimestamp) {
         return cacheCleanupStrategyFactory.create(
-            createCleanupAction(removeUnusedEntriesTimestamp),
+            createCleanupAction(blobDirectory, removeUnusedEntriesTimestamp),
             cacheConfigurations.getCleanupFrequency()::get
         );
     }
 
-    private LeastRecentlyUsedCacheCleanup createCleanupAction(Supplier<Long> removeUnusedEntriesTimestamp) {
-        return new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, removeUnusedEntriesTimestamp);
+    /**
+     * Removes unused entries first, and then the blobs that have not been used for the same time.
+     * Blobs are not checked for references, instead they are marked as used whenever an entry referencing them is stored or loaded, from disk or from memory.
+     * The blobs are cleaned up even when deduplication is disabled, since they may have been stored by an earlier build.
+     */
+    private CleanupAction createCleanupAction(File blobDirectory, Supplier<Long> removeUnusedEntriesTimestamp) {
+        SingleDepthFilesFinder entriesFinder = new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
+        return CompositeCleanupAction.builder()
+            .add(new LeastRecentlyUsedCacheCleanup(
+                (baseDir, filter) -> entriesFinder.find(baseDir, file -> filter.accept(file) && !file.equals(blobDirectory)),
+                fileAccessTimeJournal,
+                removeUnusedEntriesTimestamp
+            ))
+            .add(blobDirectory, new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(BLOB_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, removeUnusedEntriesTimestamp))
+            .build();
     }
 
     private static void checkDirectory(File directory) {
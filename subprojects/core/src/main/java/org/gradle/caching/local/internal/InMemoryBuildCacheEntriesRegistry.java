@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the in-memory tier of each directory build cache, so recently used entries stay in memory across the builds run by a daemon.
+ */
+@ServiceScope(Scope.Global.class)
+public class InMemoryBuildCacheEntriesRegistry {
+    public static final String MAX_SIZE_PROPERTY = "org.gradle.caching.local.in-memory.max-size";
+    public static final String MAX_ENTRY_SIZE_PROPERTY = "org.gradle.caching.local.in-memory.max-entry-size";
+
+    private static final long DEFAULT_MAX_SIZE = 32 * 1024 * 1024;
+    private static final long DEFAULT_MAX_ENTRY_SIZE = 256 * 1024;
+
+    private final long maxSize;
+    private final long maxEntrySize;
+    private final ConcurrentMap<File, InMemoryBuildCacheEntries> entriesByDirectory = new ConcurrentHashMap<>();
+
+    public InMemoryBuildCacheEntriesRegistry(long maxSize, long maxEntrySize) {
+        this.maxSize = maxSize;
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * Creates a registry sized according to the {@value #MAX_SIZE_PROPERTY} and {@value #MAX_ENTRY_SIZE_PROPERTY} system properties.
+     * Setting either of them to zero disables the in-memory tier.
+     */
+    public static InMemoryBuildCacheEntriesRegistry fromSystemProperties() {
+        return new InMemoryBuildCacheEntriesRegistry(
+            Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE),
+            Long.getLong(MAX_ENTRY_SIZE_PROPERTY, DEFAULT_MAX_ENTRY_SIZE)
+        );
+    }
+
+    public InMemoryBuildCacheEntries forDirectory(File cacheDirectory) {
+        if (maxSize <= 0 || maxEntrySize <= 0) {
+            return InMemoryBuildCacheEntries.disabled();
+        }
+        return entriesByDirectory.computeIfAbsent(cacheDirectory.getAbsoluteFile(), directory -> new InMemoryBuildCacheEntries(maxSize, maxEntrySize));
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.api.NonNullApi;
+import org.gradle.api.internal.tasks.TaskExecutionOutcome;
+import org.gradle.cache.IndexedCache;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationRunner;
+import org.gradle.internal.operations.RunnableBuildOperation;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the critical path of a single execution plan.
+ * <p>
+ * Before execution starts, estimates for each node how long it will take to execute the node and the longest chain of nodes that depend on it,
+ * based on the durations of the tasks recorded by previous builds. During execution, records when each node starts and finishes,
+ * so that the task durations can be recorded and the actual critical path can be reported when the plan completes.
+ * <p>
+ * All methods except {@link #complete()} are called while holding the state lock.
+ */
+@NonNullApi
+public class CriticalPath {
+    private final String buildPath;
+    private final IndexedCache<String, Long> taskDurations;
+    private final BuildOperationRunner buildOperationRunner;
+    private final Map<Node, Long> estimates = new IdentityHashMap<>();
+    private final Map<Node, Long> startTimes = new IdentityHashMap<>();
+    private final Map<Node, Long> finishTimes = new IdentityHashMap<>();
+    private final Map<String, Long> executedTaskDurations = new LinkedHashMap<>();
+    private List<String> estimatedTaskPaths = Collections.emptyList();
+    private long estimatedDurationMillis;
+
+    public CriticalPath(String buildPath, IndexedCache<String, Long> taskDurations, BuildOperationRunner buildOperationRunner) {
+        this.buildPath = buildPath;
+        this.taskDurations = taskDurations;
+        this.buildOperationRunner = buildOperationRunner;
+    }
+
+    /**
+     * Calculates the critical path estimate of the given nodes. Each node must come before the nodes that depend on it.
+     */
+    public void estimate(List<Node> scheduledNodes) {
+        Map<Node, Node> longestDependents = new IdentityHashMap<>();
+        Node first = null;
+        long longestEstimate = 0;
+        for (int i = scheduledNodes.size() - 1; i >= 0; i--) {
+            Node node = scheduledNodes.get(i);
+            long longestDependentEstimate = 0;
+            for (Node dependent : node.getDependencyPredecessors()) {
+                Long dependentEstimate = estimates.get(dependent);
+                if (dependentEstimate != null && dependentEstimate > longestDependentEstimate) {
+                    longestDependentEstimate = dependentEstimate;
+                    longestDependents.put(node, dependent);
+                }
+            }
+            long estimate = estimatedDurationOf(node) + longestDependentEstimate;
+            estimates.put(node, estimate);
+            node.setCriticalPathEstimate(estimate);
+            if (first == null || estimate > longestEstimate) {
+                first = node;
+                longestEstimate = estimate;
+            }
+        }
+
+        List<String> taskPaths = new ArrayList<>();
+        for (Node node = first; node != null; node = longestDependents.get(node)) {
+            addTaskPath(node, taskPaths);
+        }
+        estimatedTaskPaths = taskPaths;
+        estimatedDurationMillis = longestEstimate;
+    }
+
+    private long estimatedDurationOf(Node node) {
+        if (node instanceof LocalTaskNode) {
+            Long duration = taskDurations.getIfPresent(taskPathOf((LocalTaskNode) node));
+            if (duration != null) {
+                return duration;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Records the start of the given node. Nodes that were not part of the plan when it was estimated, such as the nodes
+     * that resolve the mutations of a task, are not tracked, as they do not contribute to the critical path.
+     */
+    public void started(Node node) {
+        if (estimates.containsKey(node)) {
+            startTimes.put(node, System.nanoTime());
+        }
+    }
+
+    public void finished(Node node) {
+        if (!estimates.containsKey(node)) {
+            return;
+        }
+        long finishTime = System.nanoTime();
+        finishTimes.put(node, finishTime);
+        Long startTime = startTimes.get(node);
+        if (startTime != null && node instanceof LocalTaskNode && !node.isFailed() && hasExecutedActions((LocalTaskNode) node)) {
+            executedTaskDurations.put(taskPathOf((LocalTaskNode) node), TimeUnit.NANOSECONDS.toMillis(finishTime - startTime));
+        }
+    }
+
+    /**
+     * Only the durations of tasks that ran their actions are representative, as an up-to-date, cached or skipped task
+     * takes a fraction of the time it takes when it has to run.
+     */
+    private static boolean hasExecutedActions(LocalTaskNode node) {
+        return node.getTask().getState().getOutcome() == TaskExecutionOutcome.EXECUTED;
+    }
+
+    /**
+     * Records the durations of the executed tasks and reports the critical path, when any node has executed.
+     */
+    public void complete() {
+        if (finishTimes.isEmpty()) {
+            return;
+        }
+        recordTaskDurations();
+
+        estimates.clear();
+
+        Node last = null;
+        for (Map.Entry<Node, Long> entry : finishTimes.entrySet()) {
+            if (last == null || entry.getValue() > finishTimes.get(last)) {
+                last = entry.getKey();
+            }
+        }
+        // Walk back from the node that finished last, following the dependency that finished last
+        List<Node> nodes = new ArrayList<>();
+        for (Node node = last; node != null; node = lastFinishedDependencyOf(node)) {
+            nodes.add(node);
+        }
+        Collections.reverse(nodes);
+        List<String> actualTaskPaths = new ArrayList<>();
+        for (Node node : nodes) {
+            addTaskPath(node, actualTaskPaths);
+        }
+        long actualDurationMillis = TimeUnit.NANOSECONDS.toMillis(finishTimes.get(last) - startTimes.get(nodes.get(0)));
+        // The plan may be closed more than once, so only report it the first time
+        startTimes.clear();
+        finishTimes.clear();
+
+        buildOperationRunner.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                context.setResult(new Result(estimatedDurationMillis, estimatedTaskPaths, actualDurationMillis, actualTaskPaths));
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Report critical path of build " + buildPath)
+                    .details((CriticalPathBuildOperationType.Details) () -> buildPath);
+            }
+        });
+    }
+
+    private void recordTaskDurations() {
+        // Weigh the most recent duration and the history equally, so that a single unusual build does not distort the estimates
+        for (Map.Entry<String, Long> entry : executedTaskDurations.entrySet()) {
+            Long previous = taskDurations.getIfPresent(entry.getKey());
+            long duration = previous == null ? entry.getValue() : (previous + entry.getValue()) / 2;
+            taskDurations.put(entry.getKey(), duration);
+        }
+        executedTaskDurations.clear();
+    }
+
+    @Nullable
+    private Node lastFinishedDependencyOf(Node node) {
+        Node lastFinished = null;
+        long lastFinishTime = 0;
+        for (Node dependency : node.getDependencySuccessors()) {
+            Long finishTime = finishTimes.get(dependency);
+            if (finishTime != null && (lastFinished == null || finishTime > lastFinishTime)) {
+                lastFinished = dependency;
+                lastFinishTime = finishTime;
+            }
+        }
+        return lastFinished;
+    }
+
+    private static void addTaskPath(Node node, List<String> taskPaths) {
+        if (node instanceof LocalTaskNode) {
+            taskPaths.add(taskPathOf((LocalTaskNode) node));
+        }
+    }
+
+    private static String taskPathOf(LocalTaskNode node) {
+        return node.getTask().getIdentityPath().toString();
+    }
+
+    private static class Result implements CriticalPathBuildOperationType.Result {
+        private final long estimatedDurationMillis;
+        private final List<String> estimatedTaskPaths;
+        private final long actualDurationMillis;
+        private final List<String> actualTaskPaths;
+
+        Result(long estimatedDurationMillis, List<String> estimatedTaskPaths, long actualDurationMillis, List<String> actualTaskPaths) {
+            this.estimatedDurationMillis = estimatedDurationMillis;
+            this.estimatedTaskPaths = estimatedTaskPaths;
+            this.actualDurationMillis = actualDurationMillis;
+            this.actualTaskPaths = actualTaskPaths;
+        }
+
+        @Override
+        public long getEstimatedDurationMillis() {
+            return estimatedDurationMillis;
+        }
+
+        @Override
+        public List<String> getEstimatedTaskPaths() {
+            return estimatedTaskPaths;
+        }
+
+        @Override
+        public long getActualDurationMillis() {
+            return actualDurationMillis;
+        }
+
+        @Override
+        public List<String> getActualTaskPaths() {
+            return actualTaskPaths;
+        }
+    }
+}
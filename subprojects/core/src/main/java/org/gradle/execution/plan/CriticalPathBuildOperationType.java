@@ -0,0 +1,57 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+import java.util.List;
+
+/**
+ * Reports the estimated and the actual critical path of an execution plan, after the plan has executed.
+ * <p>
+ * Only emitted when critical path scheduling is enabled.
+ */
+public final class CriticalPathBuildOperationType implements BuildOperationType<CriticalPathBuildOperationType.Details, CriticalPathBuildOperationType.Result> {
+    public interface Details {
+        String getBuildPath();
+    }
+
+    public interface Result {
+        /**
+         * The estimated duration in milliseconds of the critical path, based on the task durations of previous builds.
+         */
+        long getEstimatedDurationMillis();
+
+        /**
+         * The paths of the tasks on the estimated critical path, in execution order.
+         */
+        List<String> getEstimatedTaskPaths();
+
+        /**
+         * The time in milliseconds between the start of the first and the end of the last node on the actual critical path.
+         */
+        long getActualDurationMillis();
+
+        /**
+         * The paths of the tasks on the actual critical path, in execution order.
+         */
+        List<String> getActualTaskPaths();
+    }
+
+    private CriticalPathBuildOperationType() {
+    }
+}
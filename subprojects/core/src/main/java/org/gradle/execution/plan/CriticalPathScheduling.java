@@ -0,0 +1,45 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import javax.annotation.Nullable;
+
+/**
+ * Decides whether the nodes of an execution plan are started in order of their estimated critical path, rather than in plan order.
+ */
+@ServiceScope(Scope.Build.class)
+public interface CriticalPathScheduling {
+    /**
+     * When enabled, the ready nodes with the longest estimated chain of work depending on them are started first,
+     * using the durations of the tasks recorded by previous builds.
+     */
+    InternalFlag CRITICAL_PATH_SCHEDULING = new InternalFlag("org.gradle.internal.execution.critical-path-scheduling");
+
+    CriticalPathScheduling DISABLED = () -> null;
+
+    /**
+     * Starts tracking the critical path of a new execution plan.
+     *
+     * @return the tracker for the plan, or {@code null} when critical path scheduling is disabled.
+     */
+    @Nullable
+    CriticalPath startPlan();
+}
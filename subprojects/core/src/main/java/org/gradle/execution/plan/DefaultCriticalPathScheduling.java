@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.cache.IndexedCache;
+import org.gradle.cache.IndexedCacheParameters;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
+import org.gradle.internal.operations.BuildOperationRunner;
+
+import java.io.Closeable;
+
+/**
+ * Keeps the durations of the tasks of a build in a persistent cache, so the critical path of later builds can be estimated.
+ */
+public class DefaultCriticalPathScheduling implements CriticalPathScheduling, Closeable {
+    private final String buildPath;
+    private final PersistentCache cacheAccess;
+    private final IndexedCache<String, Long> taskDurations;
+    private final BuildOperationRunner buildOperationRunner;
+
+    public DefaultCriticalPathScheduling(String buildPath, PersistentCache cacheAccess, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, BuildOperationRunner buildOperationRunner) {
+        this.buildPath = buildPath;
+        this.cacheAccess = cacheAccess;
+        this.taskDurations = cacheAccess.createIndexedCache(
+            IndexedCacheParameters.of("taskDurations", String.class, Long.class)
+                .withCacheDecorator(inMemoryCacheDecoratorFactory.decorator(10000, true))
+        );
+        this.buildOperationRunner = buildOperationRunner;
+    }
+
+    @Override
+    public CriticalPath startPlan() {
+        return new CriticalPath(buildPath, taskDurations, buildOperationRunner);
+    }
+
+    @Override
+    public void close() {
+        cacheAccess.close();
+    }
+}
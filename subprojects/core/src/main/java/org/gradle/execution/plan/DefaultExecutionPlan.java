@@ -61,6 +61,7 @@ public class DefaultExecutionPlan implements ExecutionPlan, QueryableExecutionPl
     private final Set<Node> filteredNodes = newIdentityHashSet();
     private final Set<Node> finalizers = new LinkedHashSet<>();
     private final OrdinalNodeAccess ordinalNodeAccess;
+    private final CriticalPathScheduling criticalPathScheduling;
     private Consumer<LocalTaskNode> completionHandler = localTaskNode -> {
     };
 
@@ -75,7 +76,8 @@ public DefaultExecutionPlan(
         TaskDependencyResolver dependencyResolver,
         ExecutionNodeAccessHierarchy outputHierarchy,
         ExecutionNodeAccessHierarchy destroyableHierarchy,
-        ResourceLockCoordinationService lockCoordinator
+        ResourceLockCoordinationService lockCoordinator,
+        CriticalPathScheduling criticalPathScheduling
     ) {
         this.displayName = displayName;
         this.taskNodeFactory = taskNodeFactory;
@@ -84,6 +86,7 @@ public DefaultExecutionPlan(
         this.destroyableHierarchy = destroyableHierarchy;
         this.lockCoordinator = lockCoordinator;
         this.ordinalNodeAccess = new OrdinalNodeAccess(ordinalGroupFactory);
+        this.criticalPathScheduling = criticalPathScheduling;
     }
 
     @Override
@@ -233,7 +236,7 @@ public FinalizedExecutionPlan finalizePlan() {
         if (finalizedPlan == null) {
             dependencyResolver.clear();
             // Should make an immutable copy of the contents to pass to the finalized plan and also to use in this instance
-            finalizedPlan = new DefaultFinalizedExecutionPlan(displayName, ordinalNodeAccess, outputHierarchy, destroyableHierarchy, lockCoordinator, scheduledNodes, continueOnFailure, this, completionHandler);
+            finalizedPlan = new DefaultFinalizedExecutionPlan(displayName, ordinalNodeAccess, outputHierarchy, destroyableHierarchy, lockCoordinator, scheduledNodes, continueOnFailure, this, completionHandler, criticalPathScheduling.startPlan(), taskNodeFactory.isSpeculativeInputSnapshottingEnabled());
         }
         return finalizedPlan;
     }
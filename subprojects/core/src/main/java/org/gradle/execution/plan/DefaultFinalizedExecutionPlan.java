@@ -65,9 +65,25 @@ public int compare(Node node1, Node node2) {
             return NodeComparator.INSTANCE.compare(node1, node2);
         }
     };
+    /**
+     * Orders nodes with a longer critical path estimate before other nodes, falling back to {@link #NODE_EXECUTION_ORDER}.
+     */
+    public static final Comparator<Node> CRITICAL_PATH_EXECUTION_ORDER = new Comparator<Node>() {
+        @Override
+        public int compare(Node node1, Node node2) {
+            if (node1.isPriority() != node2.isPriority()) {
+                return NODE_EXECUTION_ORDER.compare(node1, node2);
+            }
+            int estimates = Long.compare(node2.getCriticalPathEstimate(), node1.getCriticalPathEstimate());
+            if (estimates != 0) {
+                return estimates;
+            }
+            return NODE_EXECUTION_ORDER.compare(node1, node2);
+        }
+    };
 
     private final Set<Node> waitingToStartNodes = new HashSet<>();
-    private final ExecutionQueue readyNodes = new ExecutionQueue();
+    private final ExecutionQueue readyNodes;
     private final List<Throwable> failures = new ArrayList<>();
     private final List<DiagnosticEvent> diagnosticEvents = new ArrayList<>();
     private final String displayName;
@@ -84,6 +100,9 @@ public int compare(Node node1, Node node2) {
     private final Map<Pair<Node, Node>, Boolean> reachableCache = new HashMap<>();
     private final OrdinalNodeAccess ordinalNodeAccess;
     private final Consumer<LocalTaskNode> completionHandler;
+    @Nullable
+    private final CriticalPath criticalPath;
+    private final boolean speculativeInputSnapshotting;
 
     // When true, there may be nodes that are both ready and "selectable", which means their project and resources are able to be locked
     // When false, there are definitely no nodes that are "selectable"
@@ -100,7 +119,9 @@ public DefaultFinalizedExecutionPlan(
         List<Node> scheduledNodes,
         boolean continueOnFailure,
         QueryableExecutionPlan contents,
-        Consumer<LocalTaskNode> completionHandler
+        Consumer<LocalTaskNode> completionHandler,
+        @Nullable CriticalPath criticalPath,
+        boolean speculativeInputSnapshotting
     ) {
         this.displayName = displayName;
         this.outputHierarchy = outputHierarchy;
@@ -110,6 +131,9 @@ public DefaultFinalizedExecutionPlan(
         this.continueOnFailure = continueOnFailure;
         this.contents = contents;
         this.completionHandler = completionHandler;
+        this.criticalPath = criticalPath;
+        this.speculativeInputSnapshotting = speculativeInputSnapshotting;
+        this.readyNodes = new ExecutionQueue(criticalPath != null ? CRITICAL_PATH_EXECUTION_ORDER : NODE_EXECUTION_ORDER);
 
         SetMultimap<FinalizerGroup, FinalizerGroup> reachableGroups = LinkedHashMultimap.create();
         for (Node node : scheduledNodes) {
@@ -118,6 +142,9 @@ public DefaultFinalizedExecutionPlan(
             }
         }
 
+        if (criticalPath != null) {
+            criticalPath.estimate(scheduledNodes);
+        }
         for (int i = 0; i < scheduledNodes.size(); i++) {
             Node node = scheduledNodes.get(i);
             node.setIndex(i);
@@ -147,6 +174,9 @@ public WorkSource<Node> asWorkSource() {
     @Override
     public void close() {
         lockCoordinator.removeLockReleaseListener(resourceUnlockListener);
+        if (criticalPath != null) {
+            criticalPath.complete();
+        }
         waitingToStartNodes.clear();
         readyNodes.clear();
         runningNodes.clear();
@@ -262,6 +292,7 @@ public Selection<Node> selectNext() {
                     // The node is ready to execute and its pre-execution nodes have not been scheduled, so do this now
                     node.visitPreExecutionNodes(prepareNode -> {
                         prepareNode.setIndex(node.getIndex());
+                        prepareNode.setCriticalPathEstimate(node.getCriticalPathEstimate());
                         prepareNode.require();
                         prepareNode.updateAllDependenciesComplete();
                         node.addDependencySuccessor(prepareNode);
@@ -322,6 +353,16 @@ private boolean attemptToStart(Node node, List<ResourceLock> resources) {
         }
 
         node.startExecution(this::recordNodeExecutionStarted);
+        if (criticalPath != null) {
+            criticalPath.started(node);
+        }
+        if (speculativeInputSnapshotting) {
+            for (Node dependent : node.getDependencyPredecessors()) {
+                if (dependent instanceof LocalTaskNode) {
+                    ((LocalTaskNode) dependent).dependencyStarted();
+                }
+            }
+        }
         if (mutations.hasValidationProblem) {
             invalidNodeRunning = true;
         }
@@ -554,6 +595,9 @@ public void finishedExecuting(Node node, @Nullable Throwable failure) {
             if (!node.isExecuting()) {
                 throw new IllegalStateException(format("Cannot finish executing %s as it is in an unexpected state %s.", node, node.getState()));
             }
+            if (criticalPath != null) {
+                criticalPath.finished(node);
+            }
 
             if (!readyNodes.isEmpty()) {
                 maybeNodesSelectable = true;
@@ -567,6 +611,7 @@ public void finishedExecuting(Node node, @Nullable Throwable failure) {
                 LOGGER.debug("Node {} finished executing", node);
                 node.visitPostExecutionNodes(postNode -> {
                     postNode.setIndex(node.getIndex());
+                    postNode.setCriticalPathEstimate(node.getCriticalPathEstimate());
                     postNode.require();
                     postNode.updateAllDependenciesComplete();
                     addNodeToPlan(postNode);
@@ -679,12 +724,16 @@ public boolean allExecutionComplete() {
     }
 
     /**
-     * An ordered queue of nodes, sorted by {@link #NODE_EXECUTION_ORDER}.
+     * An ordered queue of nodes, sorted by {@link #NODE_EXECUTION_ORDER} or {@link #CRITICAL_PATH_EXECUTION_ORDER}.
      */
     static class ExecutionQueue {
-        private final Set<Node> nodes = new TreeSet<>(NODE_EXECUTION_ORDER);
+        private final Set<Node> nodes;
         private Iterator<Node> current;
 
+        public ExecutionQueue(Comparator<Node> order) {
+            this.nodes = new TreeSet<>(order);
+        }
+
         public void clear() {
             nodes.clear();
             current = null;
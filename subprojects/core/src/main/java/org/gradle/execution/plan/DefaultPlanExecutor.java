@@ -32,7 +32,9 @@
 import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.logging.text.TreeFormatter;
+import org.gradle.internal.resources.ResourceLock;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
+import org.gradle.internal.resources.ResourceLockState;
 import org.gradle.internal.work.WorkerLeaseRegistry.WorkerLease;
 import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.internal.work.WorkerLimits;
@@ -45,14 +47,17 @@
 import java.text.DecimalFormat;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.ToLongFunction;
 
 import static org.gradle.internal.resources.ResourceLockState.Disposition.FINISHED;
@@ -61,6 +66,11 @@
 @NonNullApi
 public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
     public static final InternalFlag STATS = new InternalFlag("org.gradle.internal.executor.stats");
+    /**
+     * When enabled, worker threads that are waiting for work are only woken up when work is likely to be available for them,
+     * one at a time, rather than on every change to the state of any resource lock.
+     */
+    public static final InternalFlag TARGETED_WAKEUPS = new InternalFlag("org.gradle.internal.executor.targeted-wakeups");
     private static final Logger LOGGER = Logging.getLogger(DefaultPlanExecutor.class);
     private final WorkerLimits workerLimits;
     private final WorkerLeaseService workerLeaseService;
@@ -70,6 +80,10 @@ public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
     private final MergedQueues queue;
     private final ExecutorState state = new ExecutorState();
     private final ExecutorStats stats;
+    private final SpeculativeWorkQueue speculativeWorkQueue;
+    @Nullable
+    private final IdleWorkers idleWorkers;
+    private final Action<ResourceLock> resourceUnlockListener = this::resourceUnlocked;
 
     public DefaultPlanExecutor(
         WorkerLimits workerLimits,
@@ -77,15 +91,21 @@ public DefaultPlanExecutor(
         WorkerLeaseService workerLeaseService,
         BuildCancellationToken cancellationToken,
         ResourceLockCoordinationService coordinationService,
-        InternalOptions internalOptions
+        InternalOptions internalOptions,
+        SpeculativeWorkQueue speculativeWorkQueue
     ) {
         this.workerLimits = workerLimits;
+        this.speculativeWorkQueue = speculativeWorkQueue;
         this.cancellationToken = cancellationToken;
         this.coordinationService = coordinationService;
         this.workerLeaseService = workerLeaseService;
         this.stats = internalOptions.getOption(STATS).get() ? new CollectingExecutorStats(state) : state;
-        this.queue = new MergedQueues(coordinationService, false);
+        this.idleWorkers = internalOptions.getOption(TARGETED_WAKEUPS).get() ? new IdleWorkers() : null;
+        this.queue = new MergedQueues(coordinationService, false, idleWorkers);
         this.executor = executorFactory.create("Execution worker");
+        if (idleWorkers != null) {
+            coordinationService.addLockReleaseListener(resourceUnlockListener);
+        }
     }
 
     @Override
@@ -93,10 +113,22 @@ public void stop() {
         try {
             CompositeStoppable.stoppable(queue, executor).stop();
         } finally {
+            if (idleWorkers != null) {
+                coordinationService.removeLockReleaseListener(resourceUnlockListener);
+            }
             stats.report();
         }
     }
 
+    private void resourceUnlocked(ResourceLock resourceLock) {
+        // The plans only learn about the unlocked resource from their own listeners, which may not have run yet.
+        // So, wake up a worker to check for work once the state lock has been released, rather than checking here.
+        // Worker leases are released by workers that are about to wait for work, so do not make other work available
+        if (!(resourceLock instanceof WorkerLease)) {
+            idleWorkers.wakeOne();
+        }
+    }
+
     @Override
     public <T> ExecutionResult<Void> process(WorkSource<T> workSource, Action<T> worker) {
         PlanDetails planDetails = new PlanDetails(Cast.uncheckedCast(workSource), Cast.uncheckedCast(worker));
@@ -106,9 +138,10 @@ public <T> ExecutionResult<Void> process(WorkSource<T> workSource, Action<T> wor
 
         // Run the work from the source from this thread as well, given that it will be blocked waiting for that work to complete anyway
         WorkerLease currentWorkerLease = workerLeaseService.getCurrentWorkerLease();
-        MergedQueues thisPlanOnly = new MergedQueues(coordinationService, true);
+        MergedQueues thisPlanOnly = new MergedQueues(coordinationService, true, idleWorkers);
         thisPlanOnly.add(planDetails);
-        new ExecutorWorker(thisPlanOnly, currentWorkerLease, cancellationToken, coordinationService, workerLeaseService, stats).run();
+        // This thread waits for work using the state lock, as it is the only thread processing this queue
+        new ExecutorWorker(thisPlanOnly, currentWorkerLease, cancellationToken, coordinationService, workerLeaseService, speculativeWorkQueue, stats, idleWorkers, false).run();
 
         List<Throwable> failures = new ArrayList<>();
         awaitCompletion(workSource, currentWorkerLease, failures);
@@ -178,7 +211,7 @@ private void maybeStartWorkers(MergedQueues queue, Executor executor) {
         state.maybeStartWorkers(() -> {
             LOGGER.debug("Using {} parallel executor threads", executorCount);
             for (int i = 1; i < executorCount; i++) {
-                executor.execute(new ExecutorWorker(queue, null, cancellationToken, coordinationService, workerLeaseService, stats));
+                executor.execute(new ExecutorWorker(queue, null, cancellationToken, coordinationService, workerLeaseService, speculativeWorkQueue, stats, idleWorkers, true));
             }
         });
     }
@@ -208,12 +241,15 @@ public WorkItem(WorkSource.Selection<Object> selection, WorkSource<Object> plan,
     private static class MergedQueues implements Closeable {
         private final ResourceLockCoordinationService coordinationService;
         private final boolean autoFinish;
+        @Nullable
+        private final IdleWorkers idleWorkers;
         private boolean finished;
         private final LinkedList<PlanDetails> queues = new LinkedList<>();
 
-        public MergedQueues(ResourceLockCoordinationService coordinationService, boolean autoFinish) {
+        public MergedQueues(ResourceLockCoordinationService coordinationService, boolean autoFinish, @Nullable IdleWorkers idleWorkers) {
             this.coordinationService = coordinationService;
             this.autoFinish = autoFinish;
+            this.idleWorkers = idleWorkers;
         }
 
         public WorkSource.State executionState() {
@@ -272,7 +308,7 @@ public void add(PlanDetails planDetails) {
                 // Assume that the plan is required by those plans already running and add to the head of the queue
                 queues.addFirst(planDetails);
                 // Signal to the worker threads that work may be available
-                coordinationService.notifyStateChange();
+                wakeAllWorkers();
             });
         }
 
@@ -289,7 +325,7 @@ public void close() throws IOException {
                     throw new IllegalStateException("Not all work has completed.");
                 }
                 // Signal to the worker threads that no more work is available
-                coordinationService.notifyStateChange();
+                wakeAllWorkers();
             });
         }
 
@@ -305,6 +341,13 @@ public void abortAllAndFail(Throwable t) {
             for (PlanDetails details : queues) {
                 details.source.abortAllAndFail(t);
             }
+            wakeAllWorkers();
+        }
+
+        private void wakeAllWorkers() {
+            if (idleWorkers != null) {
+                idleWorkers.wakeAll();
+            }
             coordinationService.notifyStateChange();
         }
 
@@ -337,7 +380,11 @@ private static class ExecutorWorker implements Runnable {
         private final BuildCancellationToken cancellationToken;
         private final ResourceLockCoordinationService coordinationService;
         private final WorkerLeaseService workerLeaseService;
+        private final SpeculativeWorkQueue speculativeWorkQueue;
         private final WorkerStats stats;
+        @Nullable
+        private final IdleWorkers idleWorkers;
+        private final boolean parkWhileIdle;
 
         private ExecutorWorker(
             MergedQueues queue,
@@ -345,14 +392,20 @@ private ExecutorWorker(
             BuildCancellationToken cancellationToken,
             ResourceLockCoordinationService coordinationService,
             WorkerLeaseService workerLeaseService,
-            ExecutorStats executorStats
+            SpeculativeWorkQueue speculativeWorkQueue,
+            ExecutorStats executorStats,
+            @Nullable IdleWorkers idleWorkers,
+            boolean parkWhileIdle
         ) {
             this.queue = queue;
             this.workerLease = workerLease;
             this.cancellationToken = cancellationToken;
             this.coordinationService = coordinationService;
             this.workerLeaseService = workerLeaseService;
+            this.speculativeWorkQueue = speculativeWorkQueue;
             this.stats = executorStats.startWorker();
+            this.idleWorkers = idleWorkers;
+            this.parkWhileIdle = parkWhileIdle && idleWorkers != null;
         }
 
         @Override
@@ -392,6 +445,43 @@ public void run() {
          */
         @Nullable
         private WorkItem getNextItem(final WorkerLease workerLease) {
+            while (true) {
+                MutableReference<Runnable> speculativeWork = MutableReference.empty();
+                MutableReference<IdleWorker> idle = MutableReference.empty();
+                WorkItem selected = selectNextItem(workerLease, speculativeWork, idle);
+                Runnable work = speculativeWork.get();
+                IdleWorker idleWorker = idle.get();
+                if (work != null) {
+                    // Run the speculative work while holding the worker lease, then look for real work again
+                    runSpeculativeWork(work);
+                } else if (idleWorker != null) {
+                    // Wait outside the state lock until woken up, then look for work again
+                    if (!idleWorker.await()) {
+                        coordinationService.withStateLock(() -> idleWorkers.remove(idleWorker));
+                    }
+                } else {
+                    return selected;
+                }
+            }
+        }
+
+        /**
+         * Releases the worker lease and either registers this worker as idle, to be woken up when work becomes available, or
+         * waits using the state lock.
+         */
+        private ResourceLockState.Disposition waitForWork(WorkerLease workerLease, MutableReference<IdleWorker> idle) {
+            stats.startWaitingForNextItem();
+            // Release worker lease while waiting
+            workerLease.unlock();
+            if (parkWhileIdle) {
+                idle.set(idleWorkers.startIdling());
+                return FINISHED;
+            }
+            return RETRY;
+        }
+
+        @Nullable
+        private WorkItem selectNextItem(final WorkerLease workerLease, MutableReference<Runnable> speculativeWork, MutableReference<IdleWorker> idle) {
             final MutableReference<WorkItem> selected;
             stats.startSelect();
             try {
@@ -416,10 +506,10 @@ private WorkItem getNextItem(final WorkerLease workerLease) {
                     }
 
                     if (state == WorkSource.State.NoWorkReadyToStart) {
-                        stats.startWaitingForNextItem();
-                        // Release worker lease while waiting
-                        workerLease.unlock();
-                        return RETRY;
+                        if (selectSpeculativeWork(speculativeWork)) {
+                            return FINISHED;
+                        }
+                        return waitForWork(workerLease, idle);
                     }
 
                     // Have a worker lease and work may be available
@@ -435,13 +525,17 @@ private WorkItem getNextItem(final WorkerLease workerLease) {
                     if (workItem.isNoMoreWorkToStart()) {
                         return FINISHED;
                     } else if (workItem.isNoWorkReadyToStart()) {
-                        stats.startWaitingForNextItem();
-                        // Release worker lease while waiting
-                        workerLease.unlock();
-                        return RETRY;
+                        if (selectSpeculativeWork(speculativeWork)) {
+                            return FINISHED;
+                        }
+                        return waitForWork(workerLease, idle);
                     }
 
                     selected.set(workItem.getItem());
+                    if (idleWorkers != null && queue.executionState() == WorkSource.State.MaybeWorkReadyToStart) {
+                        // There may be more work, so hand it on to another worker
+                        idleWorkers.wakeOne();
+                    }
                     return FINISHED;
                 });
             } finally {
@@ -451,6 +545,24 @@ private WorkItem getNextItem(final WorkerLease workerLease) {
             return selected.get();
         }
 
+        private boolean selectSpeculativeWork(MutableReference<Runnable> speculativeWork) {
+            Runnable work = speculativeWorkQueue.poll();
+            if (work == null) {
+                return false;
+            }
+            speculativeWork.set(work);
+            return true;
+        }
+
+        private void runSpeculativeWork(Runnable work) {
+            try {
+                work.run();
+            } catch (Exception e) {
+                // The work is optional, so a failure does not affect the build
+                LOGGER.debug("Speculative work failed.", e);
+            }
+        }
+
         private void execute(Object selected, WorkSource<Object> executionPlan, Action<Object> worker) {
             Throwable failure = null;
             try {
@@ -478,6 +590,9 @@ private void markFinished(Object selected, WorkSource<Object> executionPlan, @Nu
                     }
                     // Notify other threads that the item is finished as this may unblock further work
                     // or this might be the last item in the queue
+                    if (idleWorkers != null) {
+                        idleWorkers.wakeOne();
+                    }
                     coordinationService.notifyStateChange();
                 });
             } finally {
@@ -486,6 +601,73 @@ private void markFinished(Object selected, WorkSource<Object> executionPlan, @Nu
         }
     }
 
+    /**
+     * The worker threads that are waiting for work to become available, when using targeted wake-ups.
+     * <p>
+     * A change that may make work available wakes up a single worker, which hands on to another worker when it finds that there is more work available.
+     * This avoids waking up every waiting worker for each change, only to have all but one of them contend for the state lock and go back to waiting.
+     * <p>
+     * Must only be used while holding the state lock.
+     */
+    private static class IdleWorkers {
+        // The most recently idle worker is woken up first, as it is the most likely to still be warm
+        private final Deque<IdleWorker> workers = new ArrayDeque<>();
+
+        public IdleWorker startIdling() {
+            IdleWorker worker = new IdleWorker(Thread.currentThread());
+            workers.push(worker);
+            return worker;
+        }
+
+        public void remove(IdleWorker worker) {
+            workers.remove(worker);
+        }
+
+        public void wakeOne() {
+            IdleWorker worker = workers.poll();
+            if (worker != null) {
+                worker.wake();
+            }
+        }
+
+        public void wakeAll() {
+            IdleWorker worker;
+            while ((worker = workers.poll()) != null) {
+                worker.wake();
+            }
+        }
+    }
+
+    private static class IdleWorker {
+        private final Thread thread;
+        private volatile boolean woken;
+
+        public IdleWorker(Thread thread) {
+            this.thread = thread;
+        }
+
+        public void wake() {
+            woken = true;
+            LockSupport.unpark(thread);
+        }
+
+        /**
+         * Blocks until woken up.
+         *
+         * @return false when the thread was interrupted instead, in which case the worker is still registered as idle.
+         */
+        public boolean await() {
+            while (!woken) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    // Interrupting a waiting worker means something changed, so let's look for work again
+                    return woken;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * Implementations must be thread safe.
      */
@@ -204,6 +204,13 @@ public Node getPrepareNode() {
         return resolveMutationsNode;
     }
 
+    /**
+     * Called when one of the dependencies of this task starts executing.
+     */
+    public void dependencyStarted() {
+        resolveMutationsNode.dependencyStarted();
+    }
+
     @Override
     public void markFailedDueToDependencies(Consumer<Node> completionAction) {
         super.markFailedDueToDependencies(completionAction);
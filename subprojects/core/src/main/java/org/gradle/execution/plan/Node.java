@@ -68,6 +68,7 @@ public enum DependenciesState {
     private Throwable executionFailure;
     private boolean filtered;
     private int index;
+    private long criticalPathEstimate;
     private DependencyNodesSet dependencyNodes = DependencyNodesSet.EMPTY;
     private DependentNodesSet dependentNodes = DependentNodesSet.EMPTY;
     private final MutationInfo mutationInfo = new MutationInfo();
@@ -333,6 +334,18 @@ public void setIndex(int index) {
         this.index = index;
     }
 
+    /**
+     * Returns the estimated time in milliseconds to execute this node and the longest chain of nodes that depend on it.
+     * Only calculated when critical path scheduling is enabled.
+     */
+    public long getCriticalPathEstimate() {
+        return criticalPathEstimate;
+    }
+
+    public void setCriticalPathEstimate(long criticalPathEstimate) {
+        this.criticalPathEstimate = criticalPathEstimate;
+    }
+
     /**
      * Mark this node as filtered from the current plan. The node will be considered complete and successful.
      */
@@ -349,6 +362,7 @@ public void filtered() {
     public void reset() {
         group = NodeGroup.DEFAULT_GROUP;
         index = 0;
+        criticalPathEstimate = 0;
         if (!isCannotRunInAnyPlan()) {
             filtered = false;
             dependenciesProcessed = false;
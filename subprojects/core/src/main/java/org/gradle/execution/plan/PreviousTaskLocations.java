@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Remembers the input and output locations of the tasks that ran in earlier builds of this process.
+ * <p>
+ * The locations of a task are only known once its mutations have been resolved, which happens right before it executes.
+ * The locations from the previous run let the inputs of the task be snapshotted while its dependencies are still executing.
+ */
+@ThreadSafe
+@ServiceScope(Scope.UserHome.class)
+public class PreviousTaskLocations {
+    private static final int MAX_TASKS = 10_000;
+
+    private final Cache<String, Locations> locations = CacheBuilder.newBuilder()
+        .maximumSize(MAX_TASKS)
+        .build();
+
+    public void record(String taskKey, Iterable<String> inputLocations, Iterable<String> outputLocations) {
+        locations.put(taskKey, new Locations(ImmutableSet.copyOf(inputLocations), ImmutableSet.copyOf(outputLocations)));
+    }
+
+    @Nullable
+    public Locations get(String taskKey) {
+        return locations.getIfPresent(taskKey);
+    }
+
+    public static class Locations {
+        private final ImmutableSet<String> inputLocations;
+        private final ImmutableSet<String> outputLocations;
+
+        Locations(ImmutableSet<String> inputLocations, ImmutableSet<String> outputLocations) {
+            this.inputLocations = inputLocations;
+            this.outputLocations = outputLocations;
+        }
+
+        public ImmutableSet<String> getInputLocations() {
+            return inputLocations;
+        }
+
+        /**
+         * The locations the task wrote to, including its local state and destroyables.
+         */
+        public ImmutableSet<String> getOutputLocations() {
+            return outputLocations;
+        }
+    }
+}
@@ -33,19 +33,39 @@ public class ResolveMutationsNode extends Node implements SelfExecutingNode {
     private final NodeValidator nodeValidator;
     private final BuildOperationRunner buildOperationRunner;
     private final ExecutionNodeAccessHierarchies accessHierarchies;
+    private final SpeculativeInputSnapshotter speculativeInputSnapshotter;
     private Exception failure;
-
-    public ResolveMutationsNode(LocalTaskNode node, NodeValidator nodeValidator, BuildOperationRunner buildOperationRunner, ExecutionNodeAccessHierarchies accessHierarchies) {
+    private boolean dependencyStarted;
+
+    public ResolveMutationsNode(
+        LocalTaskNode node,
+        NodeValidator nodeValidator,
+        BuildOperationRunner buildOperationRunner,
+        ExecutionNodeAccessHierarchies accessHierarchies,
+        SpeculativeInputSnapshotter speculativeInputSnapshotter
+    ) {
         this.node = node;
         this.nodeValidator = nodeValidator;
         this.buildOperationRunner = buildOperationRunner;
         this.accessHierarchies = accessHierarchies;
+        this.speculativeInputSnapshotter = speculativeInputSnapshotter;
     }
 
     public Node getNode() {
         return node;
     }
 
+    /**
+     * Called when a dependency of the task starts executing, while holding the state lock of the execution plan.
+     * Only called when speculative input snapshotting is enabled.
+     */
+    public void dependencyStarted() {
+        if (!dependencyStarted) {
+            dependencyStarted = true;
+            speculativeInputSnapshotter.snapshotPreviousInputsOf(node);
+        }
+    }
+
     @Override
     public String toString() {
         return "Resolve mutations for " + node;
@@ -107,6 +127,7 @@ private void doResolveMutations() {
         mutations.hasValidationProblem = nodeValidator.hasValidationProblems(node);
         accessHierarchies.getOutputHierarchy().recordNodeAccessingLocations(node, mutations.outputPaths);
         accessHierarchies.getDestroyableHierarchy().recordNodeAccessingLocations(node, mutations.destroyablePaths);
+        speculativeInputSnapshotter.recordLocationsOf(node);
     }
 
     private static final class ResolveTaskMutationsDetails implements ResolveTaskMutationsBuildOperationType.Details {
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import com.google.common.collect.Sets;
+import org.gradle.api.internal.file.FileCollectionInternal;
+import org.gradle.api.internal.file.FileCollectionStructureVisitor;
+import org.gradle.api.internal.file.FileTreeInternal;
+import org.gradle.api.internal.file.collections.FileSystemMirroringFileTree;
+import org.gradle.api.internal.tasks.properties.InputFilePropertySpec;
+import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+import org.gradle.internal.vfs.FileSystemAccess;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Snapshots the input locations of a task on otherwise idle workers, while the dependencies of the task are executing.
+ * <p>
+ * The input locations of a task are only known once its mutations are resolved, right before it executes.
+ * So the locations recorded the last time the task ran in this process are used, once the first dependency of the task starts.
+ * Locations that unfinished dependencies of the task write to are skipped, as they change before the task executes.
+ * <p>
+ * Only unfiltered file trees and files backing file trees are snapshotted, as only complete snapshots are retained by the virtual file system.
+ * The contents of opaque collections, such as resolved dependencies, are not visited, so no artifacts are downloaded or transformed.
+ */
+@ServiceScope(Scope.Build.class)
+public class SpeculativeInputSnapshotter {
+    private final SpeculativeWorkQueue speculativeWorkQueue;
+    private final FileSystemAccess fileSystemAccess;
+    private final PreviousTaskLocations previousTaskLocations;
+
+    public SpeculativeInputSnapshotter(SpeculativeWorkQueue speculativeWorkQueue, FileSystemAccess fileSystemAccess, PreviousTaskLocations previousTaskLocations) {
+        this.speculativeWorkQueue = speculativeWorkQueue;
+        this.fileSystemAccess = fileSystemAccess;
+        this.previousTaskLocations = previousTaskLocations;
+    }
+
+    public boolean isEnabled() {
+        return speculativeWorkQueue.isEnabled();
+    }
+
+    /**
+     * Records the locations of the given node, whose mutations have been resolved, for the next time it is scheduled.
+     * Must be called while holding the lock of the project owning the node.
+     */
+    public void recordLocationsOf(LocalTaskNode node) {
+        if (!speculativeWorkQueue.isEnabled()) {
+            return;
+        }
+        MutationInfo mutations = node.getMutationInfo();
+        Set<String> inputLocations = new LinkedHashSet<>();
+        if (mutations.hasFileInputs) {
+            try {
+                for (InputFilePropertySpec spec : node.getTaskProperties().getInputFileProperties()) {
+                    spec.getPropertyFiles().visitStructure(new InputLocationCollector(inputLocations));
+                }
+            } catch (Exception e) {
+                // The inputs will be visited again when the task executes, any failure is reported then
+                return;
+            }
+        }
+        previousTaskLocations.record(taskKey(node), inputLocations, Sets.union(mutations.outputPaths, mutations.destroyablePaths));
+    }
+
+    /**
+     * Schedules snapshotting the inputs the given node had the last time it ran, as one of its dependencies has started.
+     * Must be called while holding the state lock of the execution plan.
+     */
+    public void snapshotPreviousInputsOf(LocalTaskNode node) {
+        if (!speculativeWorkQueue.isEnabled()) {
+            return;
+        }
+        PreviousTaskLocations.Locations previous = previousTaskLocations.get(taskKey(node));
+        if (previous == null || previous.getInputLocations().isEmpty()) {
+            return;
+        }
+        Set<String> locationsBeingWritten = locationsWrittenByUnfinishedDependencies(node);
+        if (locationsBeingWritten == null) {
+            return;
+        }
+        for (String location : previous.getInputLocations()) {
+            if (!overlapsAny(location, locationsBeingWritten)) {
+                speculativeWorkQueue.offer(() -> fileSystemAccess.read(location));
+            }
+        }
+    }
+
+    /**
+     * Returns the locations the unfinished dependencies of the node write to, or {@code null} when some of them are not known.
+     */
+    @Nullable
+    private Set<String> locationsWrittenByUnfinishedDependencies(LocalTaskNode node) {
+        Set<String> locations = new HashSet<>();
+        Set<Node> seen = new HashSet<>();
+        Deque<Node> queue = new ArrayDeque<>(node.getDependencySuccessors());
+        while (!queue.isEmpty()) {
+            Node dependency = queue.removeFirst();
+            if (dependency.isComplete() || !seen.add(dependency)) {
+                continue;
+            }
+            if (dependency instanceof LocalTaskNode) {
+                Collection<String> written = locationsWrittenBy((LocalTaskNode) dependency);
+                if (written == null) {
+                    return null;
+                }
+                locations.addAll(written);
+            } else if (dependency instanceof TaskNode) {
+                // A task of another build, its outputs are not known
+                return null;
+            }
+            queue.addAll(dependency.getDependencySuccessors());
+        }
+        return locations;
+    }
+
+    @Nullable
+    private Collection<String> locationsWrittenBy(LocalTaskNode node) {
+        if (node.getPrepareNode().isComplete()) {
+            MutationInfo mutations = node.getMutationInfo();
+            List<String> locations = new ArrayList<>(mutations.outputPaths);
+            locations.addAll(mutations.destroyablePaths);
+            return locations;
+        }
+        PreviousTaskLocations.Locations previous = previousTaskLocations.get(taskKey(node));
+        return previous == null ? null : previous.getOutputLocations();
+    }
+
+    private static boolean overlapsAny(String location, Set<String> others) {
+        for (String other : others) {
+            if (isAncestorOrSelf(location, other) || isAncestorOrSelf(other, location)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAncestorOrSelf(String ancestor, String location) {
+        return location.startsWith(ancestor)
+            && (location.length() == ancestor.length() || location.charAt(ancestor.length()) == File.separatorChar);
+    }
+
+    private static String taskKey(LocalTaskNode node) {
+        // Task paths are only unique within a build, and this process may run several builds
+        return node.getOwningProject().getProjectDir().getAbsolutePath() + File.pathSeparator + node.getTask().getName();
+    }
+
+    private static class InputLocationCollector implements FileCollectionStructureVisitor {
+        private final Set<String> locations;
+
+        public InputLocationCollector(Set<String> locations) {
+            this.locations = locations;
+        }
+
+        @Override
+        public VisitType prepareForVisit(FileCollectionInternal.Source source) {
+            return VisitType.NoContents;
+        }
+
+        @Override
+        public void visitCollection(FileCollectionInternal.Source source, Iterable<File> contents) {
+        }
+
+        @Override
+        public void visitFileTree(File root, PatternSet patterns, FileTreeInternal fileTree) {
+            if (patterns.isEmpty()) {
+                locations.add(root.getAbsolutePath());
+            }
+        }
+
+        @Override
+        public void visitFileTreeBackedByFile(File file, FileTreeInternal fileTree, FileSystemMirroringFileTree sourceTree) {
+            locations.add(file.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Holds optional work that the plan executor runs on worker threads that would otherwise wait for work to become ready.
+ * <p>
+ * The work must not require any locks, and must not change the outcome of the build. It only warms up state that
+ * some node is likely to need soon, such as the file system snapshots of its inputs.
+ * When the queue is full, further work is dropped.
+ */
+@ThreadSafe
+@ServiceScope(Scope.BuildTree.class)
+public class SpeculativeWorkQueue {
+    public static final InternalFlag SPECULATIVE_INPUT_SNAPSHOTTING = new InternalFlag("org.gradle.internal.execution.speculative-input-snapshotting");
+
+    private static final int MAX_QUEUED_WORK = 1024;
+
+    private final boolean enabled;
+    private final Queue<Runnable> queue = new ArrayBlockingQueue<>(MAX_QUEUED_WORK);
+
+    public SpeculativeWorkQueue(InternalOptions internalOptions) {
+        this.enabled = internalOptions.getOption(SPECULATIVE_INPUT_SNAPSHOTTING).get();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds the given work to the queue, unless it is disabled or full.
+     */
+    public void offer(Runnable work) {
+        if (enabled) {
+            queue.offer(work);
+        }
+    }
+
+    /**
+     * Removes the oldest work from the queue, or returns {@code null} when there is none.
+     */
+    @Nullable
+    public Runnable poll() {
+        return queue.poll();
+    }
+}
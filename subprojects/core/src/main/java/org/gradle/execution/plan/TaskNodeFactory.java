@@ -53,18 +53,28 @@ public class TaskNodeFactory {
     private final GradleInternal thisBuild;
     private final DefaultTypeOriginInspectorFactory typeOriginInspectorFactory;
     private final Function<LocalTaskNode, ResolveMutationsNode> resolveMutationsNodeFactory;
+    private final SpeculativeInputSnapshotter speculativeInputSnapshotter;
 
     public TaskNodeFactory(
         GradleInternal thisBuild,
         BuildTreeWorkGraphController workGraphController,
         NodeValidator nodeValidator,
         BuildOperationRunner buildOperationRunner,
-        ExecutionNodeAccessHierarchies accessHierarchies
+        ExecutionNodeAccessHierarchies accessHierarchies,
+        SpeculativeInputSnapshotter speculativeInputSnapshotter
     ) {
         this.thisBuild = thisBuild;
         this.workGraphController = workGraphController;
         this.typeOriginInspectorFactory = new DefaultTypeOriginInspectorFactory();
-        resolveMutationsNodeFactory = localTaskNode -> new ResolveMutationsNode(localTaskNode, nodeValidator, buildOperationRunner, accessHierarchies);
+        this.speculativeInputSnapshotter = speculativeInputSnapshotter;
+        resolveMutationsNodeFactory = localTaskNode -> new ResolveMutationsNode(localTaskNode, nodeValidator, buildOperationRunner, accessHierarchies, speculativeInputSnapshotter);
+    }
+
+    /**
+     * Whether the nodes created by this factory snapshot their inputs speculatively, and so need to be notified when one of their dependencies starts executing.
+     */
+    public boolean isSpeculativeInputSnapshottingEnabled() {
+        return speculativeInputSnapshotter.isEnabled();
     }
 
     public Set<Task> getTasks() {
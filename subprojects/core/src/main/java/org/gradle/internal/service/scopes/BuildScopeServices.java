@@ -81,8 +81,11 @@
 import org.gradle.api.services.internal.BuildServiceProviderNagger;
 import org.gradle.api.services.internal.DefaultBuildServicesRegistry;
 import org.gradle.buildinit.specs.internal.BuildInitSpecRegistry;
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.PersistentCache;
 import org.gradle.cache.UnscopedCacheBuilderFactory;
 import org.gradle.cache.internal.BuildScopeCacheDir;
+import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
 import org.gradle.cache.internal.scopes.DefaultBuildScopedCacheBuilderFactory;
 import org.gradle.cache.scopes.BuildScopedCacheBuilderFactory;
 import org.gradle.caching.internal.BuildCacheServices;
@@ -99,10 +102,13 @@
 import org.gradle.configuration.project.DefaultCompileOperationFactory;
 import org.gradle.configuration.project.PluginsProjectConfigureActions;
 import org.gradle.execution.ProjectConfigurer;
+import org.gradle.execution.plan.CriticalPathScheduling;
+import org.gradle.execution.plan.DefaultCriticalPathScheduling;
 import org.gradle.execution.plan.DefaultNodeValidator;
 import org.gradle.execution.plan.ExecutionNodeAccessHierarchies;
 import org.gradle.execution.plan.ExecutionPlanFactory;
 import org.gradle.execution.plan.OrdinalGroupFactory;
+import org.gradle.execution.plan.SpeculativeInputSnapshotter;
 import org.gradle.execution.plan.TaskDependencyResolver;
 import org.gradle.execution.plan.TaskNodeDependencyResolver;
 import org.gradle.execution.plan.TaskNodeFactory;
@@ -172,6 +178,7 @@
 import org.gradle.internal.build.PublicBuildPath;
 import org.gradle.internal.buildevents.BuildStartedTime;
 import org.gradle.internal.buildoption.FeatureFlags;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.buildtree.BuildInclusionCoordinator;
 import org.gradle.internal.buildtree.BuildModelParameters;
 import org.gradle.internal.classloader.ClassLoaderFactory;
@@ -252,6 +259,7 @@ void configure(ServiceRegistration registration, ServiceRegistry buildScopeServi
         registration.add(DefaultSettingsLoaderFactory.class);
         registration.add(ResolvedBuildLayout.class);
         registration.add(DefaultNodeValidator.class);
+        registration.add(SpeculativeInputSnapshotter.class);
         registration.add(TaskNodeFactory.class);
         registration.add(TaskNodeDependencyResolver.class);
         registration.add(WorkNodeDependencyResolver.class);
@@ -281,7 +289,8 @@ ExecutionPlanFactory createExecutionPlanFactory(
         OrdinalGroupFactory ordinalGroupFactory,
         TaskDependencyResolver dependencyResolver,
         ExecutionNodeAccessHierarchies executionNodeAccessHierarchies,
-        ResourceLockCoordinationService lockCoordinationService
+        ResourceLockCoordinationService lockCoordinationService,
+        CriticalPathScheduling criticalPathScheduling
     ) {
         return new ExecutionPlanFactory(
             build.getDisplayName().getDisplayName(),
@@ -290,10 +299,30 @@ ExecutionPlanFactory createExecutionPlanFactory(
             dependencyResolver,
             executionNodeAccessHierarchies.getOutputHierarchy(),
             executionNodeAccessHierarchies.getDestroyableHierarchy(),
-            lockCoordinationService
+            lockCoordinationService,
+            criticalPathScheduling
         );
     }
 
+    @Provides
+    CriticalPathScheduling createCriticalPathScheduling(
+        BuildState build,
+        InternalOptions internalOptions,
+        BuildScopedCacheBuilderFactory cacheBuilderFactory,
+        InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory,
+        BuildOperationRunner buildOperationRunner
+    ) {
+        if (!internalOptions.getOption(CriticalPathScheduling.CRITICAL_PATH_SCHEDULING).get()) {
+            return CriticalPathScheduling.DISABLED;
+        }
+        PersistentCache cacheAccess = cacheBuilderFactory
+            .createCacheBuilder("taskDurations")
+            .withDisplayName("Task durations cache")
+            .withInitialLockMode(FileLockManager.LockMode.OnDemand)
+            .open();
+        return new DefaultCriticalPathScheduling(build.getIdentityPath().toString(), cacheAccess, inMemoryCacheDecoratorFactory, buildOperationRunner);
+    }
+
     @Provides
     ExecutionNodeAccessHierarchies createExecutionNodeAccessHierarchies(FileSystem fileSystem, Stat stat) {
         return new ExecutionNodeAccessHierarchies(fileSystem.isCaseSensitive() ? CaseSensitivity.CASE_SENSITIVE : CaseSensitivity.CASE_INSENSITIVE, stat);
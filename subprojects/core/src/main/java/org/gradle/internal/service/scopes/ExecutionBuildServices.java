@@ -79,6 +79,7 @@
 import org.gradle.internal.execution.timeout.TimeoutHandler;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.hash.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.id.UniqueId;
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
 import org.gradle.internal.operations.BuildOperationRunner;
@@ -97,8 +98,8 @@
 
 public class ExecutionBuildServices implements ServiceRegistrationProvider {
     @Provides
-    ExecutionHistoryCacheAccess createCacheAccess(BuildScopedCacheBuilderFactory cacheBuilderFactory) {
-        return new DefaultExecutionHistoryCacheAccess(cacheBuilderFactory);
+    ExecutionHistoryCacheAccess createCacheAccess(BuildScopedCacheBuilderFactory cacheBuilderFactory, StreamHasher streamHasher) {
+        return new DefaultExecutionHistoryCacheAccess(cacheBuilderFactory, streamHasher.getHashFunction());
     }
 
     @Provides
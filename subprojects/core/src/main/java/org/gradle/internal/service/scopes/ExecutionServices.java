@@ -17,6 +17,8 @@
 package org.gradle.internal.service.scopes;
 
 import org.gradle.execution.plan.DefaultPlanExecutor;
+import org.gradle.execution.plan.PreviousTaskLocations;
+import org.gradle.execution.plan.SpeculativeWorkQueue;
 import org.gradle.internal.service.ServiceRegistration;
 
 public class ExecutionServices extends AbstractGradleModuleServices {
@@ -25,8 +27,14 @@ public void registerGlobalServices(ServiceRegistration registration) {
         registration.addProvider(new ExecutionGlobalServices());
     }
 
+    @Override
+    public void registerGradleUserHomeServices(ServiceRegistration registration) {
+        registration.add(PreviousTaskLocations.class);
+    }
+
     @Override
     public void registerBuildTreeServices(ServiceRegistration registration) {
+        registration.add(SpeculativeWorkQueue.class);
         registration.add(DefaultPlanExecutor.class);
     }
 
@@ -28,6 +28,7 @@
 import org.gradle.api.internal.changedetection.state.DefaultResourceSnapshotterCacheService;
 import org.gradle.api.internal.changedetection.state.FileHasherStatistics;
 import org.gradle.api.internal.changedetection.state.GradleUserHomeScopeFileTimeStampInspector;
+import org.gradle.api.internal.changedetection.state.IndexedZipEntry;
 import org.gradle.api.internal.changedetection.state.PropertiesFileFilter;
 import org.gradle.api.internal.changedetection.state.ResourceEntryFilter;
 import org.gradle.api.internal.changedetection.state.ResourceFilter;
@@ -48,6 +49,7 @@
 import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.classloader.ClasspathHasher;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.execution.FileCollectionFingerprinterRegistry;
 import org.gradle.internal.execution.FileCollectionSnapshotter;
@@ -69,6 +71,7 @@
 import org.gradle.internal.hash.DefaultFileHasher;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.ParallelFileHasher;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeintegration.NativeCapabilities;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
@@ -82,11 +85,13 @@
 import org.gradle.internal.snapshot.CaseSensitivity;
 import org.gradle.internal.snapshot.SnapshotHierarchy;
 import org.gradle.internal.snapshot.ValueSnapshotter;
+import org.gradle.internal.snapshot.impl.DirectorySnapshotterPool;
 import org.gradle.internal.snapshot.impl.DirectorySnapshotterStatistics;
 import org.gradle.internal.vfs.FileSystemAccess;
 import org.gradle.internal.vfs.VirtualFileSystem;
 import org.gradle.internal.vfs.impl.DefaultFileSystemAccess;
 import org.gradle.internal.vfs.impl.DefaultSnapshotHierarchy;
+import org.gradle.internal.vfs.impl.VirtualFileSystemSnapshotStore;
 import org.gradle.internal.watch.registry.FileWatcherRegistryFactory;
 import org.gradle.internal.watch.registry.impl.DarwinFileWatcherRegistryFactory;
 import org.gradle.internal.watch.registry.impl.LinuxFileWatcherRegistryFactory;
@@ -94,6 +99,7 @@
 import org.gradle.internal.watch.vfs.BuildLifecycleAwareVirtualFileSystem;
 import org.gradle.internal.watch.vfs.FileChangeListeners;
 import org.gradle.internal.watch.vfs.WatchableFileSystemDetector;
+import org.gradle.internal.watch.vfs.impl.ChangedFilesPreSnapshotter;
 import org.gradle.internal.watch.vfs.impl.DefaultWatchableFileSystemDetector;
 import org.gradle.internal.watch.vfs.impl.FileWatchingFilter;
 import org.gradle.internal.watch.vfs.impl.WatchingNotSupportedVirtualFileSystem;
@@ -102,6 +108,8 @@
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -118,14 +126,45 @@ public class VirtualFileSystemServices extends AbstractGradleModuleServices {
      * @see org.gradle.initialization.StartParameterBuildOptions.WatchFileSystemOption
      */
     public static final InternalFlag VFS_DROP_PROPERTY = new InternalFlag("org.gradle.vfs.drop");
+    /**
+     * When enabled, the content of the VFS is written to the Gradle user home at the end of each build which does not watch the file system,
+     * and validated and restored at the start of the next build of the same root project with an empty VFS.
+     */
+    public static final InternalFlag VFS_PERSIST_PROPERTY = new InternalFlag("org.gradle.vfs.persist");
+    /**
+     * When enabled together with file system watching, files changed between builds are snapshotted and hashed in the background,
+     * so the next build finds them in the VFS.
+     */
+    public static final InternalFlag VFS_PRE_SNAPSHOT_PROPERTY = new InternalFlag("org.gradle.vfs.presnapshot");
+    /**
+     * How long in milliseconds no file changes need to be received before snapshotting the changed files starts.
+     */
+    public static final IntegerInternalOption PRE_SNAPSHOT_SETTLE_DELAY_PROPERTY = new IntegerInternalOption("org.gradle.vfs.presnapshot.delay", 1000);
+    /**
+     * The share of a single processor in percent used for snapshotting the changed files.
+     */
+    public static final IntegerInternalOption PRE_SNAPSHOT_MAX_CPU_PERCENT_PROPERTY = new IntegerInternalOption("org.gradle.vfs.presnapshot.cpu-percent", 25);
+    /**
+     * The maximum number of changed files snapshotted between two builds.
+     */
+    public static final IntegerInternalOption PRE_SNAPSHOT_MAX_FILES_PROPERTY = new IntegerInternalOption("org.gradle.vfs.presnapshot.max-files", 10000);
     private static final int DEFAULT_MAX_HIERARCHIES_TO_WATCH = 50;
     public static final IntegerInternalOption MAX_HIERARCHIES_TO_WATCH_PROPERTY = new IntegerInternalOption("org.gradle.vfs.watch.hierarchies.max", DEFAULT_MAX_HIERARCHIES_TO_WATCH);
     private static final int FILE_HASHER_MEMORY_CACHE_SIZE = 400000;
+    private static final int ZIP_CONTENT_INDEX_MEMORY_CACHE_SIZE = 2000;
 
     public static boolean isDropVfs(InternalOptions options) {
         return options.getOption(VFS_DROP_PROPERTY).get();
     }
 
+    public static boolean isPersistVfs(InternalOptions options) {
+        return options.getOption(VFS_PERSIST_PROPERTY).get();
+    }
+
+    public static boolean isPreSnapshotVfs(InternalOptions options) {
+        return options.getOption(VFS_PRE_SNAPSHOT_PROPERTY).get();
+    }
+
     public static int getMaximumNumberOfWatchedHierarchies(InternalOptions options) {
         return options.getOption(MAX_HIERARCHIES_TO_WATCH_PROPERTY).get();
     }
@@ -155,6 +194,32 @@ FileHasherStatistics.Collector createCachingFileHasherStatisticsCollector() {
         DirectorySnapshotterStatistics.Collector createDirectorySnapshotterStatisticsCollector() {
             return new DirectorySnapshotterStatistics.Collector();
         }
+
+        @Provides
+        DirectorySnapshotterPool createDirectorySnapshotterPool() {
+            return DirectorySnapshotterPool.fromSystemProperties();
+        }
+
+        @Provides
+        ParallelFileHasher createParallelFileHasher(StreamHasher streamHasher, ExecutorFactory executorFactory) {
+            return new ParallelFileHasher(
+                streamHasher.getHashFunction(),
+                executorFactory.create("Parallel file hasher", Runtime.getRuntime().availableProcessors()),
+                // Mapped files cannot be deleted on Windows until the mapping is garbage collected
+                !OperatingSystem.current().isWindows()
+            );
+        }
+    }
+
+    private static FileHasher createContentHasher(StreamHasher streamHasher, ParallelFileHasher parallelFileHasher, DirectorySnapshotterStatistics.Collector statisticsCollector) {
+        return new DefaultFileHasher(streamHasher, parallelFileHasher, DefaultFileHasher.parallelHashingThresholdFromSystemProperties(), statisticsCollector::recordFileHashed);
+    }
+
+    private static IndexedCache<HashCode, List<IndexedZipEntry>> createZipContentIndexCache(CrossBuildFileHashCache store) {
+        return store.createIndexedCache(
+            IndexedCacheParameters.of("zipContentIndex", HashCode.class, new DefaultResourceSnapshotterCacheService.IndexedZipEntriesSerializer()),
+            ZIP_CONTENT_INDEX_MEMORY_CACHE_SIZE,
+            true);
     }
 
     @VisibleForTesting
@@ -162,8 +227,8 @@ static class GradleUserHomeServices implements ServiceRegistrationProvider {
 
         @Provides
         @PrivateService
-        CrossBuildFileHashCache createCrossBuildFileHashCache(GlobalScopedCacheBuilderFactory cacheBuilderFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
-            return new CrossBuildFileHashCache(cacheBuilderFactory, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES);
+        CrossBuildFileHashCache createCrossBuildFileHashCache(GlobalScopedCacheBuilderFactory cacheBuilderFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, StreamHasher streamHasher) {
+            return new CrossBuildFileHashCache(cacheBuilderFactory, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES, streamHasher.getHashFunction());
         }
 
         @Provides
@@ -173,9 +238,12 @@ FileHasher createCachingFileHasher(
             FileSystem fileSystem,
             GradleUserHomeScopeFileTimeStampInspector fileTimeStampInspector,
             StreamHasher streamHasher,
+            ParallelFileHasher parallelFileHasher,
+            DirectorySnapshotterStatistics.Collector directorySnapshotterStatisticsCollector,
             StringInterner stringInterner
         ) {
-            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            FileHasher contentHasher = createContentHasher(streamHasher, parallelFileHasher, directorySnapshotterStatisticsCollector);
+            CachingFileHasher fileHasher = new CachingFileHasher(contentHasher, fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
             fileTimeStampInspector.attach(fileHasher);
             return fileHasher;
         }
@@ -199,6 +267,22 @@ public void beforeComplete() {
             return fileWatchingFilter;
         }
 
+        @Provides
+        VirtualFileSystemSnapshotStore createVirtualFileSystemSnapshotStore(
+            GlobalScopedCacheBuilderFactory cacheBuilderFactory,
+            FileMetadataAccessor metadataAccessor,
+            StreamHasher streamHasher,
+            ExecutorFactory executorFactory
+        ) {
+            return new VirtualFileSystemSnapshotStore(
+                cacheBuilderFactory.baseDirForCache("file-system-snapshots"),
+                metadataAccessor,
+                () -> Arrays.asList(DirectoryScanner.getDefaultExcludes()),
+                streamHasher.getHashFunction(),
+                executorFactory
+            );
+        }
+
         @Provides
         WatchableFileSystemDetector createWatchableFileSystemDetector(FileSystems fileSystems) {
             return new DefaultWatchableFileSystemDetector(fileSystems);
@@ -212,7 +296,8 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
             ListenerManager listenerManager,
             FileChangeListeners fileChangeListeners,
             FileSystem fileSystem,
-            WatchableFileSystemDetector watchableFileSystemDetector
+            WatchableFileSystemDetector watchableFileSystemDetector,
+            FileMetadataAccessor metadataAccessor
         ) {
             CaseSensitivity caseSensitivity = fileSystem.isCaseSensitive() ? CASE_SENSITIVE : CASE_INSENSITIVE;
             SnapshotHierarchy root = DefaultSnapshotHierarchy.empty(caseSensitivity);
@@ -227,7 +312,9 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
                     sectionId -> documentationRegistry.getDocumentationRecommendationFor("details", "file_system_watching", sectionId),
                     fileWatchingFilter,
                     watchableFileSystemDetector,
-                    fileChangeListeners
+                    fileChangeListeners,
+                    metadataAccessor,
+                    () -> Arrays.asList(DirectoryScanner.getDefaultExcludes())
                 ))
                 .orElse(new WatchingNotSupportedVirtualFileSystem(root));
             listenerManager.addListener((BuildAddedListener) buildState -> {
@@ -246,6 +333,7 @@ FileSystemAccess createFileSystemAccess(
             StringInterner stringInterner,
             FileSystemAccess.WriteListener writeListener,
             DirectorySnapshotterStatistics.Collector statisticsCollector,
+            DirectorySnapshotterPool directorySnapshotterPool,
             ListenerManager listenerManager
         ) {
             DefaultFileSystemAccess defaultFileSystemAccess = new DefaultFileSystemAccess(
@@ -255,6 +343,7 @@ FileSystemAccess createFileSystemAccess(
                 virtualFileSystem,
                 writeListener,
                 statisticsCollector,
+                directorySnapshotterPool.getForkJoinPool(),
                 DirectoryScanner.getDefaultExcludes()
             );
             listenerManager.addListener(defaultFileSystemAccess);
@@ -283,6 +372,13 @@ private static Optional<FileWatcherRegistryFactory> determineWatcherRegistryFact
             return Optional.empty();
         }
 
+        @Provides
+        ChangedFilesPreSnapshotter createChangedFilesPreSnapshotter(FileSystemAccess fileSystemAccess, ExecutorFactory executorFactory, FileChangeListeners fileChangeListeners) {
+            ChangedFilesPreSnapshotter preSnapshotter = new ChangedFilesPreSnapshotter(fileSystemAccess, () -> executorFactory.createScheduled("VFS pre-snapshotting", 1));
+            fileChangeListeners.addListener(preSnapshotter);
+            return preSnapshotter;
+        }
+
         @Provides
         FileCollectionSnapshotter createFileCollectionSnapshotter(FileSystemAccess fileSystemAccess, Stat stat) {
             return new DefaultFileCollectionSnapshotter(fileSystemAccess, stat);
@@ -294,7 +390,7 @@ ResourceSnapshotterCacheService createResourceSnapshotterCacheService(CrossBuild
                 IndexedCacheParameters.of("resourceHashesCache", HashCode.class, new HashCodeSerializer()),
                 400000,
                 true);
-            return new DefaultResourceSnapshotterCacheService(resourceHashesCache);
+            return new DefaultResourceSnapshotterCacheService(resourceHashesCache, createZipContentIndexCache(store));
         }
 
         @Provides
@@ -323,8 +419,8 @@ FileSystemDefaultExcludesProvider createFileSystemDefaultExcludesProvider(Listen
 
         @Provides
         @PrivateService
-        CrossBuildFileHashCache createCrossBuildFileHashCache(BuildTreeScopedCacheBuilderFactory cacheBuilderFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
-            return new CrossBuildFileHashCache(cacheBuilderFactory, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES);
+        CrossBuildFileHashCache createCrossBuildFileHashCache(BuildTreeScopedCacheBuilderFactory cacheBuilderFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, StreamHasher streamHasher) {
+            return new CrossBuildFileHashCache(cacheBuilderFactory, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES, streamHasher.getHashFunction());
         }
 
         @Provides
@@ -335,10 +431,13 @@ FileHasher createFileHasher(
             FileHasher globalHasher,
             FileSystem fileSystem,
             StreamHasher streamHasher,
+            ParallelFileHasher parallelFileHasher,
             StringInterner stringInterner,
-            FileHasherStatistics.Collector statisticsCollector
+            FileHasherStatistics.Collector statisticsCollector,
+            DirectorySnapshotterStatistics.Collector directorySnapshotterStatisticsCollector
         ) {
-            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            FileHasher contentHasher = createContentHasher(streamHasher, parallelFileHasher, directorySnapshotterStatisticsCollector);
+            CachingFileHasher localHasher = new CachingFileHasher(contentHasher, cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
             return new SplitFileHasher(globalHasher, localHasher, globalCacheLocations);
         }
 
@@ -350,7 +449,8 @@ FileSystemAccess createFileSystemAccess(
             StringInterner stringInterner,
             VirtualFileSystem root,
             FileSystemAccess.WriteListener writeListener,
-            DirectorySnapshotterStatistics.Collector statisticsCollector
+            DirectorySnapshotterStatistics.Collector statisticsCollector,
+            DirectorySnapshotterPool directorySnapshotterPool
         ) {
             DefaultFileSystemAccess buildSessionsScopedVirtualFileSystem = new DefaultFileSystemAccess(
                 hasher,
@@ -359,6 +459,7 @@ FileSystemAccess createFileSystemAccess(
                 root,
                 writeListener,
                 statisticsCollector,
+                directorySnapshotterPool.getForkJoinPool(),
                 DirectoryScanner.getDefaultExcludes()
             );
 
@@ -415,7 +516,7 @@ ResourceSnapshotterCacheService createResourceSnapshotterCacheService(
             ResourceSnapshotterCacheService globalCache
         ) {
             IndexedCache<HashCode, HashCode> resourceHashesCache = store.createIndexedCache(IndexedCacheParameters.of("resourceHashesCache", HashCode.class, new HashCodeSerializer()), 800000, true);
-            DefaultResourceSnapshotterCacheService localCache = new DefaultResourceSnapshotterCacheService(resourceHashesCache);
+            DefaultResourceSnapshotterCacheService localCache = new DefaultResourceSnapshotterCacheService(resourceHashesCache, createZipContentIndexCache(store));
             return new SplitResourceSnapshotterCacheService(globalCache, localCache, globalCacheLocations);
         }
     }
@@ -136,7 +136,7 @@ DefaultFilePropertyFactory createFilePropertyFactory(PropertyHost propertyHost,
 
     @Provides
     StreamHasher createStreamHasher() {
-        return new DefaultStreamHasher();
+        return DefaultStreamHasher.fromSystemProperties();
     }
 
     @Provides
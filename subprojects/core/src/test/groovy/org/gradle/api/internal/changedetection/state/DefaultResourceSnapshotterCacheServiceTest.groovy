@@ -33,7 +33,7 @@ class DefaultResourceSnapshotterCacheServiceTest extends Specification {
     def path = "some"
     def snapshot = new RegularFileSnapshot(path, "path", TestHashCodes.hashCodeFrom(456), DefaultFileMetadata.file(3456, 456, FileMetadata.AccessType.DIRECT))
     def snapshotContext = new DefaultRegularFileSnapshotContext({path}, snapshot)
-    def snapshotterCache = new DefaultResourceSnapshotterCacheService(new TestInMemoryIndexedCache(new HashCodeSerializer()))
+    def snapshotterCache = new DefaultResourceSnapshotterCacheService(new TestInMemoryIndexedCache(new HashCodeSerializer()), new TestInMemoryIndexedCache(new DefaultResourceSnapshotterCacheService.IndexedZipEntriesSerializer()))
 
     def "returns result from delegate"() {
         def expectedHash = TestHashCodes.hashCodeFrom(123)
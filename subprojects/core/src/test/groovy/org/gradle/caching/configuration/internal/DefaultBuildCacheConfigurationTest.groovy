@@ -19,9 +19,12 @@ package org.gradle.caching.configuration.internal
 import org.gradle.caching.BuildCacheServiceFactory
 import org.gradle.caching.configuration.AbstractBuildCache
 import org.gradle.caching.configuration.BuildCache
+import org.gradle.caching.configuration.BuildCacheCompression
+import org.gradle.caching.internal.packaging.BuildCacheEntryCompression
 import org.gradle.caching.local.DirectoryBuildCache
 import org.gradle.caching.local.internal.DirectoryBuildCacheServiceFactory
 import org.gradle.internal.reflect.Instantiator
+import org.gradle.util.TestUtil
 import spock.lang.Specification
 
 class DefaultBuildCacheConfigurationTest extends Specification {
@@ -105,8 +108,26 @@ class DefaultBuildCacheConfigurationTest extends Specification {
 
     static class OtherCustomBuildCache extends AbstractBuildCache {}
 
+    def 'uses gzip compression by default'() {
+        def buildCacheConfiguration = createConfig()
+
+        expect:
+        buildCacheConfiguration.compression.get() == BuildCacheCompression.GZIP
+        buildCacheConfiguration.entryCompression == BuildCacheEntryCompression.GZIP
+    }
+
+    def 'can configure compression'() {
+        def buildCacheConfiguration = createConfig()
+
+        when:
+        buildCacheConfiguration.compression.set(BuildCacheCompression.LZ4)
+
+        then:
+        buildCacheConfiguration.entryCompression == BuildCacheEntryCompression.LZ4
+    }
+
     private def createConfig() {
-        return new DefaultBuildCacheConfiguration(instantiator, [
+        return new DefaultBuildCacheConfiguration(instantiator, TestUtil.propertyFactory(), [
             new DefaultBuildCacheServiceRegistration(DirectoryBuildCache, DirectoryBuildCacheServiceFactory),
             new DefaultBuildCacheServiceRegistration(CustomBuildCache, BuildCacheServiceFactory),
             new DefaultBuildCacheServiceRegistration(OtherCustomBuildCache, BuildCacheServiceFactory)
@@ -23,6 +23,7 @@ import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.internal.project.taskfactory.TestTaskIdentities
 import org.gradle.api.internal.tasks.NodeExecutionContext
+import org.gradle.api.internal.tasks.TaskExecutionOutcome
 import org.gradle.api.internal.tasks.TaskStateInternal
 import org.gradle.api.tasks.Destroys
 import org.gradle.api.tasks.InputDirectory
@@ -32,12 +33,16 @@ import org.gradle.api.tasks.OutputDirectory
 import org.gradle.api.tasks.OutputFile
 import org.gradle.api.tasks.OutputFiles
 import org.gradle.api.tasks.TaskAction
+import org.gradle.cache.IndexedCache
 import org.gradle.composite.internal.BuildTreeWorkGraphController
 import org.gradle.internal.file.Stat
+import org.gradle.internal.operations.BuildOperationRunner
 import org.gradle.internal.operations.TestBuildOperationRunner
+import org.gradle.internal.serialize.BaseSerializerFactory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.precondition.Requires
 import org.gradle.test.preconditions.UnitTestPreconditions
+import org.gradle.testfixtures.internal.TestInMemoryIndexedCache
 import org.gradle.util.Path
 import org.gradle.util.internal.ToBeImplemented
 import spock.lang.Issue
@@ -52,11 +57,11 @@ class DefaultExecutionPlanParallelTest extends AbstractExecutionPlanSpec {
     DefaultFinalizedExecutionPlan finalizedPlan
 
     def accessHierarchies = new ExecutionNodeAccessHierarchies(CASE_SENSITIVE, Stub(Stat))
-    def taskNodeFactory = new TaskNodeFactory(project.gradle, Stub(BuildTreeWorkGraphController), nodeValidator, new TestBuildOperationRunner(), accessHierarchies)
+    def taskNodeFactory = new TaskNodeFactory(project.gradle, Stub(BuildTreeWorkGraphController), nodeValidator, new TestBuildOperationRunner(), accessHierarchies, Stub(SpeculativeInputSnapshotter))
 
     def setup() {
         def dependencyResolver = new TaskDependencyResolver([new TaskNodeDependencyResolver(taskNodeFactory)])
-        executionPlan = new DefaultExecutionPlan(Path.ROOT.toString(), taskNodeFactory, new OrdinalGroupFactory(), dependencyResolver, accessHierarchies.outputHierarchy, accessHierarchies.destroyableHierarchy, coordinator)
+        executionPlan = new DefaultExecutionPlan(Path.ROOT.toString(), taskNodeFactory, new OrdinalGroupFactory(), dependencyResolver, accessHierarchies.outputHierarchy, accessHierarchies.destroyableHierarchy, coordinator, CriticalPathScheduling.DISABLED)
     }
 
     Node priorityNode(Map<String, ?> options = [:]) {
@@ -1051,6 +1056,93 @@ class DefaultExecutionPlanParallelTest extends AbstractExecutionPlanSpec {
         secondTask == b
     }
 
+    def "starts task with longest estimated critical path first when critical path scheduling is enabled"() {
+        given:
+        def taskDurations = new TestInMemoryIndexedCache<String, Long>(BaseSerializerFactory.LONG_SERIALIZER)
+        taskDurations.put(":a", 50L)
+        taskDurations.put(":b", 10L)
+        taskDurations.put(":c", 100L)
+        useCriticalPathScheduling(taskDurations, new TestBuildOperationRunner())
+        Task a = task("a", type: Async)
+        Task b = task("b", type: Async)
+        Task c = task("c", type: Async, dependsOn: [b])
+
+        when:
+        addToGraphAndPopulate(a, c)
+        def firstTaskNode = selectNextTaskNode()
+        def secondTaskNode = selectNextTaskNode()
+
+        then:
+        executionPlan.tasks as List == [a, b, c]
+        taskNodeFactory.getNode(a).criticalPathEstimate == 50
+        taskNodeFactory.getNode(b).criticalPathEstimate == 110
+        taskNodeFactory.getNode(c).criticalPathEstimate == 100
+        firstTaskNode.task == b
+        secondTaskNode.task == a
+
+        when:
+        finishedExecuting(firstTaskNode)
+        finishedExecuting(secondTaskNode)
+
+        then:
+        assertTaskReadyAndNoMoreToStart(c)
+        assertAllWorkComplete()
+    }
+
+    def "records task durations and reports critical path when plan completes"() {
+        given:
+        def taskDurations = new TestInMemoryIndexedCache<String, Long>(BaseSerializerFactory.LONG_SERIALIZER)
+        taskDurations.put(":b", 10L)
+        def buildOperationRunner = new TestBuildOperationRunner()
+        useCriticalPathScheduling(taskDurations, buildOperationRunner)
+        Task a = task("a", type: Async)
+        Task b = task("b", type: Async)
+        Task c = task("c", type: Async, dependsOn: [b])
+        a.state.outcome >> TaskExecutionOutcome.EXECUTED
+        b.state.outcome >> TaskExecutionOutcome.EXECUTED
+        c.state.outcome >> TaskExecutionOutcome.EXECUTED
+
+        when:
+        addToGraphAndPopulate(a, c)
+        def firstTaskNode = selectNextTaskNode()
+        def secondTaskNode = selectNextTaskNode()
+        finishedExecuting(firstTaskNode)
+        finishedExecuting(secondTaskNode)
+        assertTaskReadyAndNoMoreToStart(c)
+        assertAllWorkComplete()
+        executionPlan.close()
+
+        then:
+        taskDurations.getIfPresent(":a") != null
+        taskDurations.getIfPresent(":c") != null
+        def result = buildOperationRunner.log.mostRecentResult(CriticalPathBuildOperationType)
+        result.estimatedDurationMillis == 10
+        result.estimatedTaskPaths == [":b", ":c"]
+        result.actualTaskPaths == [":b", ":c"]
+        buildOperationRunner.log.mostRecentDetails(CriticalPathBuildOperationType).buildPath == ":"
+    }
+
+    def "does not record durations of tasks that did not execute their actions"() {
+        given:
+        def taskDurations = new TestInMemoryIndexedCache<String, Long>(BaseSerializerFactory.LONG_SERIALIZER)
+        taskDurations.put(":a", 1000L)
+        useCriticalPathScheduling(taskDurations, new TestBuildOperationRunner())
+        Task a = task("a", type: Async)
+        a.state.outcome >> outcome
+
+        when:
+        addToGraphAndPopulate(a)
+        finishedExecuting(selectNextTaskNode())
+        assertAllWorkComplete()
+        executionPlan.close()
+
+        then:
+        taskDurations.getIfPresent(":a") == 1000L
+
+        where:
+        outcome << [TaskExecutionOutcome.UP_TO_DATE, TaskExecutionOutcome.FROM_CACHE, TaskExecutionOutcome.SKIPPED, TaskExecutionOutcome.NO_SOURCE]
+    }
+
     def "task is not available for execution until all of its dependencies that are executed in parallel complete"() {
         given:
         Task a = task("a", type: Async)
@@ -2095,6 +2187,12 @@ class DefaultExecutionPlanParallelTest extends AbstractExecutionPlanSpec {
         }
     }
 
+    private void useCriticalPathScheduling(IndexedCache<String, Long> taskDurations, BuildOperationRunner buildOperationRunner) {
+        def dependencyResolver = new TaskDependencyResolver([new TaskNodeDependencyResolver(taskNodeFactory)])
+        def criticalPathScheduling = { new CriticalPath(":", taskDurations, buildOperationRunner) } as CriticalPathScheduling
+        executionPlan = new DefaultExecutionPlan(Path.ROOT.toString(), taskNodeFactory, new OrdinalGroupFactory(), dependencyResolver, accessHierarchies.outputHierarchy, accessHierarchies.destroyableHierarchy, coordinator, criticalPathScheduling)
+    }
+
     private void addToGraphAndPopulate(Task... tasks) {
         addToGraph(tasks)
         populateGraph()
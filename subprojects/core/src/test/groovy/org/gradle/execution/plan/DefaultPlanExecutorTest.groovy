@@ -22,14 +22,20 @@ import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.tasks.TaskStateInternal
 import org.gradle.api.invocation.Gradle
 import org.gradle.initialization.BuildCancellationToken
+import org.gradle.initialization.DefaultBuildCancellationToken
+import org.gradle.internal.Factory
 import org.gradle.internal.buildoption.DefaultInternalOptions
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.resources.DefaultResourceLockCoordinationService
+import org.gradle.internal.work.DefaultWorkerLeaseService
 import org.gradle.internal.work.DefaultWorkerLimits
 import org.gradle.internal.work.WorkerLeaseRegistry
 import org.gradle.internal.work.WorkerLeaseService
 import spock.lang.Specification
 
+import java.util.concurrent.ConcurrentHashMap
+
 class DefaultPlanExecutorTest extends Specification {
     def workSource = Mock(WorkSource)
     def worker = Mock(Action)
@@ -38,7 +44,7 @@ class DefaultPlanExecutorTest extends Specification {
     def coordinationService = new DefaultResourceLockCoordinationService()
     def workerLeaseService = Mock(WorkerLeaseService)
     def workerLease = Mock(WorkerLeaseRegistry.WorkerLease)
-    def executor = new DefaultPlanExecutor(new DefaultWorkerLimits(1), executorFactory, workerLeaseService, cancellationHandler, coordinationService, new DefaultInternalOptions([:]))
+    def executor = new DefaultPlanExecutor(new DefaultWorkerLimits(1), executorFactory, workerLeaseService, cancellationHandler, coordinationService, new DefaultInternalOptions([:]), new SpeculativeWorkQueue(new DefaultInternalOptions([:])))
 
     def "executes tasks until no further tasks remain"() {
         def gradle = Mock(Gradle)
@@ -113,4 +119,135 @@ class DefaultPlanExecutorTest extends Specification {
         1 * workSource.collectFailures([])
         0 * workSource._
     }
+
+    def "runs speculative work while no work is ready to start"() {
+        def node = Mock(LocalTaskNode)
+        def speculativeWork = Mock(Runnable)
+        def speculativeWorkQueue = new SpeculativeWorkQueue(new DefaultInternalOptions([(SpeculativeWorkQueue.SPECULATIVE_INPUT_SNAPSHOTTING.systemPropertyName): "true"]))
+        def executor = new DefaultPlanExecutor(new DefaultWorkerLimits(1), executorFactory, workerLeaseService, cancellationHandler, coordinationService, new DefaultInternalOptions([:]), speculativeWorkQueue)
+        speculativeWorkQueue.offer(speculativeWork)
+
+        when:
+        def result = executor.process(workSource, worker)
+
+        then:
+        result.failures.empty
+        1 * workerLeaseService.currentWorkerLease >> workerLease
+
+        then:
+        1 * cancellationHandler.isCancellationRequested() >> false
+        1 * workSource.executionState() >> WorkSource.State.NoWorkReadyToStart
+        1 * workerLease.tryLock() >> true
+        1 * speculativeWork.run()
+
+        then:
+        1 * cancellationHandler.isCancellationRequested() >> false
+        1 * workSource.executionState() >> WorkSource.State.MaybeWorkReadyToStart
+        1 * workerLease.tryLock() >> true
+        1 * workSource.selectNext() >> WorkSource.Selection.of(node)
+        1 * worker.execute(node)
+        1 * workSource.finishedExecuting(node, null)
+
+        then:
+        1 * cancellationHandler.isCancellationRequested() >> false
+        1 * workSource.executionState() >> WorkSource.State.NoMoreWorkToStart
+
+        then:
+        1 * workerLease.tryLock() >> true
+        3 * workSource.allExecutionComplete() >> true
+        1 * workSource.collectFailures([])
+        0 * workSource._
+        0 * speculativeWork._
+    }
+
+    def "executes all work when waking up waiting workers one at a time"() {
+        def workerLimits = new DefaultWorkerLimits(4)
+        def workerLeaseService = new DefaultWorkerLeaseService(coordinationService, workerLimits)
+        def executorFactory = new DefaultExecutorFactory()
+        def internalOptions = new DefaultInternalOptions([(DefaultPlanExecutor.TARGETED_WAKEUPS.systemPropertyName): "true"])
+        def executor = new DefaultPlanExecutor(workerLimits, executorFactory, workerLeaseService, new DefaultBuildCancellationToken(), coordinationService, internalOptions, new SpeculativeWorkQueue(internalOptions))
+        def workSource = new TreeWorkSource(1000, 3)
+        def executed = ConcurrentHashMap.newKeySet()
+
+        when:
+        def result = workerLeaseService.runAsWorkerThread({
+            executor.process(workSource, { executed.add(it) } as Action)
+        } as Factory)
+
+        then:
+        result.failures.empty
+        executed.size() == 1000
+
+        cleanup:
+        executor.stop()
+        executorFactory.stop()
+        workerLeaseService.stop()
+    }
+
+    /**
+     * A tree of nodes, where each node can start once its parent has finished.
+     */
+    private static class TreeWorkSource implements WorkSource<Integer> {
+        private final int nodeCount
+        private final int fanOut
+        private final Deque<Integer> readyNodes = new ArrayDeque<>([0])
+        private int startedCount
+        private int finishedCount
+
+        TreeWorkSource(int nodeCount, int fanOut) {
+            this.nodeCount = nodeCount
+            this.fanOut = fanOut
+        }
+
+        @Override
+        State executionState() {
+            if (startedCount == nodeCount) {
+                return State.NoMoreWorkToStart
+            }
+            return readyNodes.empty ? State.NoWorkReadyToStart : State.MaybeWorkReadyToStart
+        }
+
+        @Override
+        Selection<Integer> selectNext() {
+            if (startedCount == nodeCount) {
+                return Selection.noMoreWorkToStart()
+            }
+            if (readyNodes.empty) {
+                return Selection.noWorkReadyToStart()
+            }
+            startedCount++
+            return Selection.of(readyNodes.poll())
+        }
+
+        @Override
+        void finishedExecuting(Integer node, Throwable failure) {
+            finishedCount++
+            for (int child = node * fanOut + 1; child <= node * fanOut + fanOut && child < nodeCount; child++) {
+                readyNodes.add(child)
+            }
+        }
+
+        @Override
+        void abortAllAndFail(Throwable t) {
+            throw t
+        }
+
+        @Override
+        void cancelExecution() {
+        }
+
+        @Override
+        boolean allExecutionComplete() {
+            return finishedCount == nodeCount
+        }
+
+        @Override
+        void collectFailures(Collection<? super Throwable> failures) {
+        }
+
+        @Override
+        Diagnostics healthDiagnostics() {
+            return new Diagnostics("tree of nodes", [], [], [], [], [])
+        }
+    }
 }
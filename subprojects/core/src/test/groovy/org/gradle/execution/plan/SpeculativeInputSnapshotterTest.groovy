@@ -0,0 +1,186 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan
+
+import com.google.common.collect.ImmutableSortedSet
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.file.FileCollectionInternal
+import org.gradle.api.internal.file.FileCollectionStructureVisitor
+import org.gradle.api.internal.file.FileTreeInternal
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.tasks.properties.InputFilePropertySpec
+import org.gradle.api.internal.tasks.properties.TaskProperties
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.internal.buildoption.DefaultInternalOptions
+import org.gradle.internal.vfs.FileSystemAccess
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class SpeculativeInputSnapshotterTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def speculativeWorkQueue = new SpeculativeWorkQueue(new DefaultInternalOptions([(SpeculativeWorkQueue.SPECULATIVE_INPUT_SNAPSHOTTING.systemPropertyName): "true"]))
+    def fileSystemAccess = Mock(FileSystemAccess)
+    def previousTaskLocations = new PreviousTaskLocations()
+    def snapshotter = new SpeculativeInputSnapshotter(speculativeWorkQueue, fileSystemAccess, previousTaskLocations)
+
+    def projectDir = temporaryFolder.testDirectory
+    def sources = projectDir.file("src")
+    def generated = projectDir.file("build/generated")
+
+    def "snapshots the inputs a task had when it last ran once a dependency starts"() {
+        def node = taskNode("compile", [sources, generated])
+        snapshotter.recordLocationsOf(node)
+
+        when:
+        snapshotter.snapshotPreviousInputsOf(node)
+        runQueuedWork()
+
+        then:
+        1 * fileSystemAccess.read(sources.absolutePath)
+        1 * fileSystemAccess.read(generated.absolutePath)
+        0 * fileSystemAccess._
+    }
+
+    def "does not snapshot inputs of a task that has not run before"() {
+        def node = taskNode("compile", [sources])
+
+        when:
+        snapshotter.snapshotPreviousInputsOf(node)
+        runQueuedWork()
+
+        then:
+        0 * fileSystemAccess._
+    }
+
+    def "skips inputs that unfinished dependencies write to"() {
+        def generate = taskNode("generate", [], [generated.parentFile])
+        generate.prepareNode.isComplete() >> true
+        def node = taskNode("compile", [sources, generated], [], [generate])
+        snapshotter.recordLocationsOf(node)
+
+        when:
+        snapshotter.snapshotPreviousInputsOf(node)
+        runQueuedWork()
+
+        then:
+        1 * fileSystemAccess.read(sources.absolutePath)
+        0 * fileSystemAccess._
+    }
+
+    def "uses the outputs an unfinished dependency had when it last ran"() {
+        def generate = taskNode("generate", [], [generated])
+        snapshotter.recordLocationsOf(generate)
+        def node = taskNode("compile", [sources, generated.file("sub")], [], [generate])
+        snapshotter.recordLocationsOf(node)
+
+        when:
+        snapshotter.snapshotPreviousInputsOf(node)
+        runQueuedWork()
+
+        then:
+        1 * fileSystemAccess.read(sources.absolutePath)
+        0 * fileSystemAccess._
+    }
+
+    def "does not snapshot inputs when the outputs of an unfinished dependency are not known"() {
+        def generate = taskNode("generate", [], [generated])
+        def node = taskNode("compile", [sources], [], [generate])
+        snapshotter.recordLocationsOf(node)
+
+        when:
+        snapshotter.snapshotPreviousInputsOf(node)
+        runQueuedWork()
+
+        then:
+        0 * fileSystemAccess._
+    }
+
+    def "ignores dependencies that have completed"() {
+        def generate = taskNode("generate", [], [generated])
+        generate.isComplete() >> true
+        def node = taskNode("compile", [sources, generated], [], [generate])
+        snapshotter.recordLocationsOf(node)
+
+        when:
+        snapshotter.snapshotPreviousInputsOf(node)
+        runQueuedWork()
+
+        then:
+        1 * fileSystemAccess.read(sources.absolutePath)
+        1 * fileSystemAccess.read(generated.absolutePath)
+        0 * fileSystemAccess._
+    }
+
+    def "does nothing when speculative input snapshotting is disabled"() {
+        speculativeWorkQueue = new SpeculativeWorkQueue(new DefaultInternalOptions([:]))
+        snapshotter = new SpeculativeInputSnapshotter(speculativeWorkQueue, fileSystemAccess, previousTaskLocations)
+        def node = taskNode("compile", [sources])
+        snapshotter.recordLocationsOf(node)
+
+        when:
+        snapshotter.snapshotPreviousInputsOf(node)
+        runQueuedWork()
+
+        then:
+        previousTaskLocations.get(projectDir.absolutePath + File.pathSeparator + "compile") == null
+        0 * fileSystemAccess._
+    }
+
+    private LocalTaskNode taskNode(String name, List<TestFile> inputTrees, List<TestFile> outputs = [], List<Node> dependencies = []) {
+        def mutations = new MutationInfo()
+        mutations.hasFileInputs = !inputTrees.empty
+        outputs.each { mutations.outputPaths.add(it.absolutePath) }
+        def inputFiles = Stub(FileCollectionInternal) {
+            visitStructure(_ as FileCollectionStructureVisitor) >> { FileCollectionStructureVisitor visitor ->
+                inputTrees.each { visitor.visitFileTree(it, new PatternSet(), Stub(FileTreeInternal)) }
+            }
+        }
+        def inputProperty = Stub(InputFilePropertySpec) {
+            getPropertyName() >> "inputs"
+            getPropertyFiles() >> inputFiles
+        }
+        def prepareNode = Stub(Node)
+        def project = Stub(ProjectInternal) {
+            getProjectDir() >> projectDir
+        }
+        def task = Stub(TaskInternal) {
+            getName() >> name
+        }
+        def properties = Stub(TaskProperties) {
+            getInputFileProperties() >> ImmutableSortedSet.of(inputProperty)
+        }
+        return Stub(LocalTaskNode) {
+            getMutationInfo() >> mutations
+            getOwningProject() >> project
+            getTask() >> task
+            getTaskProperties() >> properties
+            getPrepareNode() >> prepareNode
+            getDependencySuccessors() >> (dependencies as Set)
+        }
+    }
+
+    private void runQueuedWork() {
+        Runnable work
+        while ((work = speculativeWorkQueue.poll()) != null) {
+            work.run()
+        }
+    }
+}
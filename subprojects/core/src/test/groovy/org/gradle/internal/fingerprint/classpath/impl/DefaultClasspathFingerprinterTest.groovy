@@ -47,7 +47,7 @@ class DefaultClasspathFingerprinterTest extends Specification {
     def fileSystemAccess = TestFiles.fileSystemAccess()
     def fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSystemAccess, TestFiles.fileSystem())
     TestInMemoryIndexedCache<HashCode, HashCode> resourceHashesCache = new TestInMemoryIndexedCache<>(new HashCodeSerializer())
-    def cacheService = new DefaultResourceSnapshotterCacheService(resourceHashesCache)
+    def cacheService = new DefaultResourceSnapshotterCacheService(resourceHashesCache, new TestInMemoryIndexedCache(new DefaultResourceSnapshotterCacheService.IndexedZipEntriesSerializer()))
     def fingerprinter = new DefaultClasspathFingerprinter(
         cacheService,
         fileCollectionSnapshotter,